@@ -0,0 +1,69 @@
+package com.fetch.receiptprocessor;
+
+import com.fetch.receiptprocessor.service.ReceiptStreamProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command line entry point that imports a newline-delimited JSON (NDJSON) file of receipts without starting the web
+ * server. Receipts are streamed through {@link ReceiptStreamProcessor}, so memory use stays constant regardless of
+ * the file size.
+ *
+ * <pre>
+ * java -cp app.jar -Dloader.main=com.fetch.receiptprocessor.ReceiptImportCli \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher receipts.ndjson [results.ndjson] --store.type=log
+ * </pre>
+ * Use {@code -} (or omit the argument) to read from standard input or write to standard output. Any further arguments
+ * are passed on to Spring, e.g. {@code --points.roundDollar=40}. Application logs are sent to standard error so that
+ * standard output only carries results.
+ * <p>
+ * The import is refused unless {@code store.type=log}: the in-memory store is discarded when the command exits, and
+ * the receipt IDs written to the results would refer to nothing.
+ */
+public class ReceiptImportCli {
+
+  private static final String DURABLE_STORE_TYPE = "log";
+
+  public static void main(String[] args) throws Exception {
+
+    String input = args.length > 0 ? args[0] : "-";
+    String output = args.length > 1 ? args[1] : "-";
+
+    PrintStream stdout = System.out;
+    System.setOut(System.err);
+
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(ReceiptProcessorChallengeApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[0]);
+
+    if (!DURABLE_STORE_TYPE.equals(context.getEnvironment().getProperty("store.type"))) {
+      System.err.println("Receipt import failed: receipts would not outlive the import, run it with --store.type=log");
+      SpringApplication.exit(context);
+      System.exit(2);
+    }
+
+    int exitCode;
+    try (InputStream in = "-".equals(input) ? System.in : new BufferedInputStream(Files.newInputStream(Path.of(input)));
+         OutputStream out = new BufferedOutputStream("-".equals(output) ? stdout : Files.newOutputStream(Path.of(output)))) {
+      long count = context.getBean(ReceiptStreamProcessor.class).process(in, out);
+      System.err.printf("Imported %d receipts%n", count);
+      exitCode = 0;
+    } catch (Exception e) {
+      System.err.printf("Receipt import failed: %s%n", e.getMessage());
+      exitCode = 1;
+    }
+    SpringApplication.exit(context);
+    System.exit(exitCode);
+  }
+}
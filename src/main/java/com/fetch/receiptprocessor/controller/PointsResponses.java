@@ -0,0 +1,117 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.service.ReceiptMetrics;
+import com.fetch.receiptprocessor.service.ReceiptRescorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Builds the responses of {@code GET /receipts/{id}/points} for both web stacks.
+ * <p>
+ * The points of a receipt never change once saved, unless receipts can be rescored ({@code retention.enabled}). The
+ * ETag is then the quoted receipt ID and responses are marked {@code immutable}. The ETag only stands for a receipt
+ * that exists, so the controllers check that the receipt is held in memory before answering a matching
+ * {@code If-None-Match}, or {@code *}, with {@code 304 Not Modified} without looking it up. Any other request looks
+ * the receipt up, so unknown IDs get {@code 404} and evicted receipts are revalidated against the ETag of the
+ * response. When receipts can be rescored the ETag is derived from the points instead and caches must revalidate, so
+ * the receipt is always looked up and only the body is saved.
+ * <p>
+ * Bodies depend on nothing but the points, so they are serialized once per points value and reused.
+ */
+@Component
+public class PointsResponses {
+
+  /**
+   * Points values whose serialized body is kept; larger values are serialized on every request.
+   */
+  static final int CACHED_BODIES = 4096;
+
+  private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).immutable();
+
+  private final ObjectMapper objectMapper;
+
+  private final ReceiptMetrics receiptMetrics;
+
+  private final AtomicReferenceArray<byte[]> bodies = new AtomicReferenceArray<>(CACHED_BODIES);
+
+  private boolean rescorable;
+
+  public PointsResponses(ObjectMapper objectMapper, ReceiptMetrics receiptMetrics) {
+    this.objectMapper = objectMapper;
+    this.receiptMetrics = receiptMetrics;
+  }
+
+  /**
+   * Makes the ETag depend on the points, because the rescorer may replace them.
+   *
+   * @param receiptRescorer the rescorer, present with {@code retention.enabled}
+   */
+  @Autowired(required = false)
+  public void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    this.rescorable = true;
+  }
+
+  /**
+   * Returns the ETag of the points of a receipt if it can be known without looking the receipt up. It may only be
+   * matched against the request once the receipt is known to exist.
+   *
+   * @param receiptId the receipt ID
+   * @return the ETag, or {@code null} if receipts can be rescored
+   */
+  String fixedETag(String receiptId) {
+    return rescorable ? null : '"' + receiptId + '"';
+  }
+
+  /**
+   * Counts a lookup answered with {@code 304 Not Modified} from {@link #fixedETag(String)}.
+   */
+  void recordNotModified() {
+    receiptMetrics.recordNotModifiedLookup();
+  }
+
+  /**
+   * Returns the response for the points of a receipt.
+   *
+   * @param receiptId the receipt ID
+   * @param points    the points of the receipt
+   * @return the {@link Points} JSON with its ETag and caching headers
+   */
+  ResponseEntity<byte[]> ok(String receiptId, Points points) {
+    int value = points.getPoints();
+    return ResponseEntity.ok()
+            .eTag(rescorable ? "\"p" + value + '"' : fixedETag(receiptId))
+            .cacheControl(rescorable ? CacheControl.noCache() : IMMUTABLE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body(value));
+  }
+
+  byte[] body(int points) {
+    if (points < 0 || points >= CACHED_BODIES) {
+      return serialize(points);
+    }
+    byte[] body = bodies.get(points);
+    if (body == null) {
+      body = serialize(points);
+      bodies.set(points, body);
+    }
+    return body;
+  }
+
+  private byte[] serialize(int points) {
+    try {
+      return objectMapper.writeValueAsBytes(new Points(points));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fetch.receiptprocessor.exception.processor.GlobalExceptionHandler;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
+import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchRequest;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import com.fetch.receiptprocessor.service.IReactiveReceiptService;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link ReceiptController} with the same endpoints, request and response bodies and error
+ * responses. Active when the application runs as a reactive web application
+ * ({@code spring.main.web-application-type=reactive}), so that a small number of event loop threads serve any number
+ * of idle keep-alive connections.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/receipts")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReceiptController {
+
+  final
+  IReactiveReceiptService receiptService;
+
+  final
+  PointsResponses pointsResponses;
+
+  /**
+   * Constructs a new ReactiveReceiptController with the given receipt service.
+   *
+   * @param receiptService  the service to handle receipt operations
+   * @param pointsResponses the builder of points responses and their caching headers
+   */
+  public ReactiveReceiptController(IReactiveReceiptService receiptService, PointsResponses pointsResponses) {
+    this.receiptService = receiptService;
+    this.pointsResponses = pointsResponses;
+  }
+
+  /**
+   * Processes the given receipt and saves its points.
+   * The receipt is validated while it is read, by {@link ReceiptRecordDeserializer} in the way
+   * {@code validation.mode} selects, and arrives already parsed.
+   * When deduplication is enabled, a retried submission returns the ID of the original receipt.
+   *
+   * @param receipt        the receipt to process
+   * @param idempotencyKey optional client supplied key identifying retries of the same submission
+   * @return a {@link ReceiptResponse} containing details of the processed receipt
+   */
+  @PostMapping("/process")
+  public Mono<ReceiptResponse> processReceipts(@RequestBody @Parameter(schema = @Schema(implementation = Receipt.class))
+                                               ReceiptRecord receipt,
+                                               @RequestHeader(value = "Idempotency-Key", required = false)
+                                               String idempotencyKey) {
+
+    log.debug("Processing receipt with details: {}", receipt);
+    return receiptService.saveReceiptRecord(receipt, idempotencyKey)
+            .doOnNext(response -> log.debug("Processed receipt successfully with response: {}", response));
+  }
+
+  /**
+   * Processes a receipt in the compact binary encoding of {@link ReceiptCodec} and saves its points.
+   *
+   * @param body           a {@value ReceiptCodec#MEDIA_TYPE} message holding exactly one receipt
+   * @param idempotencyKey optional client supplied key identifying retries of the same submission
+   * @return a {@link ReceiptResponse} containing details of the processed receipt
+   */
+  @PostMapping(value = "/process", consumes = ReceiptCodec.MEDIA_TYPE)
+  public Mono<ReceiptResponse> processEncodedReceipt(@RequestBody @Parameter(schema = @Schema(type = "string",
+                                                             format = "binary")) byte[] body,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false)
+                                                     String idempotencyKey) {
+
+    return Mono.fromCallable(() -> ReceiptController.decodeSingle(body))
+            .flatMap(record -> receiptService.saveReceiptRecord(record, idempotencyKey));
+  }
+
+  /**
+   * Processes a batch of receipts and saves their points.
+   * Each receipt is validated individually, so invalid receipts are reported without rejecting the whole batch.
+   *
+   * @param receipts the receipts to process, as a JSON array
+   * @return one {@link BatchReceiptResponse} per receipt and in the same order, holding either the id of the
+   * processed receipt or the validation error
+   */
+  @PostMapping("/process/batch")
+  public Flux<BatchReceiptResponse> processReceiptsBatch(@RequestBody Flux<Receipt> receipts) {
+
+    log.debug("Processing receipt batch");
+    return receiptService.saveReceiptPointsBatch(receipts);
+  }
+
+  /**
+   * Processes a batch of receipts in the compact binary encoding of {@link ReceiptCodec} and saves their points.
+   *
+   * @param body a {@value ReceiptCodec#MEDIA_TYPE} message
+   * @return one {@link BatchReceiptResponse} per receipt and in the same order
+   */
+  @PostMapping(value = "/process/batch", consumes = ReceiptCodec.MEDIA_TYPE)
+  public Flux<BatchReceiptResponse> processEncodedReceiptsBatch(@RequestBody @Parameter(schema = @Schema(
+          type = "string", format = "binary")) byte[] body) {
+
+    return Mono.fromCallable(() -> ReceiptCodec.decode(body))
+            .flatMapMany(receiptService::saveReceiptRecordsBatch);
+  }
+
+  /**
+   * Processes a newline-delimited JSON stream of receipts as it arrives.
+   * One result line, holding either the id of the processed receipt or the validation error, is streamed back per
+   * receipt in input order. A malformed JSON document ends the stream with a final error line.
+   *
+   * @param receipts the receipts of the NDJSON request body
+   * @return the NDJSON results
+   */
+  @PostMapping(value = "/process/stream", consumes = ReceiptController.NDJSON, produces = ReceiptController.NDJSON)
+  public Flux<BatchReceiptResponse> processReceiptsStream(@RequestBody Flux<Receipt> receipts) {
+
+    log.debug("Processing receipt stream");
+    return receiptService.saveReceiptPointsBatch(receipts)
+            .onErrorResume(ServerWebInputException.class, e -> {
+              Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+              String message = cause instanceof JsonProcessingException jsonError
+                      ? jsonError.getOriginalMessage() : cause.getMessage();
+              log.warn("Stopping receipt stream: {}", message);
+              return Mono.just(BatchReceiptResponse.failure(GlobalExceptionHandler.MALFORMED_BODY_MESSAGE));
+            });
+  }
+
+  /**
+   * Fetches the points associated with a given receipt ID.
+   * Responses carry an ETag; a request whose {@code If-None-Match} matches it is answered with
+   * {@code 304 Not Modified}. Unless receipts can be rescored, a receipt held in memory is only checked for
+   * existence, not looked up; an unknown ID is answered with {@code 404} whatever the request headers.
+   *
+   * @param receiptId the ID of the receipt whose points are to be fetched
+   * @param exchange  the exchange, for its conditional headers
+   * @return the serialized {@link Points} for the specified receipt, empty if not modified, or an
+   * {@link com.fetch.receiptprocessor.exception.AbsentException} error if there is no such receipt
+   */
+  @GetMapping("/{id}/points")
+  @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Points.class)))
+  public Mono<ResponseEntity<byte[]>> getReceiptPoints(@PathVariable("id") String receiptId,
+                                                       ServerWebExchange exchange) {
+
+    String fixedETag = pointsResponses.fixedETag(receiptId);
+    if (fixedETag != null && receiptService.isReceiptHeld(receiptId) && exchange.checkNotModified(fixedETag)) {
+      pointsResponses.recordNotModified();
+      return Mono.empty();
+    }
+    log.debug("Fetching points for receiptId: {}", receiptId);
+    return receiptService.getReceiptPoints(receiptId).map(points -> pointsResponses.ok(receiptId, points));
+  }
+
+  /**
+   * Fetches the points of several receipts at once, for clients that would otherwise issue one
+   * {@code GET /receipts/{id}/points} per receipt. IDs that are not found are listed in the response instead of
+   * failing the request.
+   *
+   * @param request the IDs to look up, at most {@code lookup.maxBatchSize}
+   * @return a {@link PointsBatchResponse} with the points by receipt ID and the IDs that were not found, or a
+   * {@link com.fetch.receiptprocessor.exception.ValidationException} error if the IDs are rejected
+   */
+  @PostMapping("/points:batchGet")
+  public Mono<PointsBatchResponse> getReceiptPointsBatch(@RequestBody PointsBatchRequest request) {
+
+    log.debug("Fetching points for batch of receipt IDs");
+    return receiptService.getReceiptPointsBatch(request.getIds());
+  }
+
+  /**
+   * Fetches the points each rule awarded to a receipt, along with the aggregated time each rule takes.
+   * Breakdowns are only recorded with {@code breakdown.enabled}.
+   *
+   * @param receiptId the ID of the receipt whose points breakdown is to be fetched
+   * @return a {@link PointsBreakdown} for the specified receipt, or an
+   * {@link com.fetch.receiptprocessor.exception.AbsentException} error if no breakdown was recorded
+   */
+  @GetMapping("/{id}/points/breakdown")
+  public Mono<PointsBreakdown> getReceiptBreakdown(@PathVariable("id") String receiptId) {
+
+    log.debug("Fetching points breakdown for receiptId: {}", receiptId);
+    return receiptService.getReceiptBreakdown(receiptId);
+  }
+}
@@ -0,0 +1,37 @@
+package com.fetch.receiptprocessor.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times every reactive request and hands it to the {@link RequestSummaryLogger} once the response is complete.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "requestlog.mode", havingValue = "summary", matchIfMissing = true)
+public class ReactiveRequestSummaryFilter implements WebFilter {
+
+  private final RequestSummaryLogger requestSummaryLogger;
+
+  public ReactiveRequestSummaryFilter(RequestSummaryLogger requestSummaryLogger) {
+    this.requestSummaryLogger = requestSummaryLogger;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    long start = System.nanoTime();
+    return chain.filter(exchange).doFinally(signal -> {
+      ServerHttpRequest request = exchange.getRequest();
+      HttpStatusCode status = exchange.getResponse().getStatusCode();
+      requestSummaryLogger.log(request.getMethod().name(), request.getPath().value(),
+              status == null ? 200 : status.value(), System.nanoTime() - start);
+    });
+  }
+}
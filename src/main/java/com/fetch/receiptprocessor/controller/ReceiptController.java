@@ -2,18 +2,37 @@ package com.fetch.receiptprocessor.controller;
 
 import com.fetch.receiptprocessor.exception.AbsentException;
 import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
 import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchRequest;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
 import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
 import com.fetch.receiptprocessor.model.ReceiptResponse;
 import com.fetch.receiptprocessor.service.IReceiptService;
-import jakarta.validation.Valid;
+import com.fetch.receiptprocessor.service.ReceiptStreamProcessor;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+import jakarta.servlet.http.HttpServletResponse;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 /**
  * Controller class for handling receipt processing requests.
@@ -22,48 +41,194 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 @RestController
 @RequestMapping("/receipts")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ReceiptController {
 
+  static final String NDJSON = "application/x-ndjson";
+
   final
   IReceiptService receiptService;
 
+  final
+  ReceiptStreamProcessor receiptStreamProcessor;
+
+  final
+  PointsResponses pointsResponses;
+
   /**
    * Constructs a new ReceiptController with the given receipt service.
    *
-   * @param receiptService the service to handle receipt operations
+   * @param receiptService         the service to handle receipt operations
+   * @param receiptStreamProcessor the processor for streamed NDJSON uploads
+   * @param pointsResponses        the builder of points responses and their caching headers
    */
-  public ReceiptController(IReceiptService receiptService) {
+  public ReceiptController(IReceiptService receiptService, ReceiptStreamProcessor receiptStreamProcessor,
+                           PointsResponses pointsResponses) {
     this.receiptService = receiptService;
+    this.receiptStreamProcessor = receiptStreamProcessor;
+    this.pointsResponses = pointsResponses;
   }
 
   /**
    * Processes the given receipt and saves its points.
+   * The receipt is validated while it is read, by {@link ReceiptRecordDeserializer} in the way
+   * {@code validation.mode} selects, and arrives already parsed.
+   * When deduplication is enabled, a retried submission returns the ID of the original receipt.
    *
-   * @param receipt the receipt to process
+   * @param receipt        the receipt to process
+   * @param idempotencyKey optional client supplied key identifying retries of the same submission
    * @return a {@link ReceiptResponse} containing details of the processed receipt
    */
   @PostMapping("/process")
-  public ReceiptResponse processReceipts(@Valid @RequestBody Receipt receipt) throws ValidationException {
+  public ReceiptResponse processReceipts(@RequestBody @Parameter(schema = @Schema(implementation = Receipt.class))
+                                         ReceiptRecord receipt,
+                                         @RequestHeader(value = "Idempotency-Key", required = false)
+                                         String idempotencyKey) throws ValidationException {
 
-    log.info("Processing receipt with details: {}", receipt);
-    ReceiptResponse response = receiptService.saveReceiptPoints(receipt);
-    log.info("Processed receipt successfully with response: {}", response);
+    log.debug("Processing receipt with details: {}", receipt);
+    ReceiptResponse response = receiptService.saveReceiptRecord(receipt, idempotencyKey);
+    log.debug("Processed receipt successfully with response: {}", response);
     return response;
   }
 
+  /**
+   * Processes a receipt in the compact binary encoding of {@link ReceiptCodec} and saves its points.
+   *
+   * @param body           a {@value ReceiptCodec#MEDIA_TYPE} message holding exactly one receipt
+   * @param idempotencyKey optional client supplied key identifying retries of the same submission
+   * @return a {@link ReceiptResponse} containing details of the processed receipt
+   * @throws ValidationException if the message is malformed or the receipt is invalid
+   */
+  @PostMapping(value = "/process", consumes = ReceiptCodec.MEDIA_TYPE)
+  public ReceiptResponse processEncodedReceipt(@RequestBody @Parameter(schema = @Schema(type = "string",
+                                                       format = "binary")) byte[] body,
+                                               @RequestHeader(value = "Idempotency-Key", required = false)
+                                               String idempotencyKey) throws ValidationException {
+
+    return receiptService.saveReceiptRecord(decodeSingle(body), idempotencyKey);
+  }
+
+  /**
+   * Processes a batch of receipts and saves their points.
+   * Each receipt is validated individually, so invalid receipts are reported without rejecting the whole batch.
+   *
+   * @param receipts the receipts to process
+   * @return a list of {@link BatchReceiptResponse}, one per receipt and in the same order, holding either the id of
+   * the processed receipt or the validation error
+   * @throws ValidationException if the batch holds more than {@code batch.maxSize} receipts
+   */
+  @PostMapping("/process/batch")
+  public List<BatchReceiptResponse> processReceiptsBatch(@RequestBody List<Receipt> receipts)
+          throws ValidationException {
+
+    log.debug("Processing batch of {} receipts", receipts.size());
+    List<BatchReceiptResponse> responses = receiptService.saveReceiptPointsBatch(receipts);
+    log.debug("Processed batch of {} receipts", responses.size());
+    return responses;
+  }
+
+  /**
+   * Processes a batch of receipts in the compact binary encoding of {@link ReceiptCodec} and saves their points.
+   * Retailer names that repeat across the batch are sent only once.
+   *
+   * @param body a {@value ReceiptCodec#MEDIA_TYPE} message
+   * @return a list of {@link BatchReceiptResponse}, one per receipt and in the same order
+   * @throws ValidationException if the message is malformed or holds more than {@code batch.maxSize} receipts
+   */
+  @PostMapping(value = "/process/batch", consumes = ReceiptCodec.MEDIA_TYPE)
+  public List<BatchReceiptResponse> processEncodedReceiptsBatch(@RequestBody @Parameter(schema = @Schema(
+          type = "string", format = "binary")) byte[] body) throws ValidationException {
+
+    List<ReceiptRecord> records = ReceiptCodec.decode(body);
+    log.debug("Processing encoded batch of {} receipts", records.size());
+    return receiptService.saveReceiptRecordsBatch(records);
+  }
+
+  /**
+   * Processes a newline-delimited JSON stream of receipts without buffering the whole upload.
+   * One result line, holding either the id of the processed receipt or the validation error, is streamed back per
+   * receipt in input order.
+   *
+   * @param body     the NDJSON request body
+   * @param response the response the NDJSON results are written to
+   * @throws IOException if reading the request or writing the response fails
+   */
+  @PostMapping(value = "/process/stream", consumes = NDJSON, produces = NDJSON)
+  public void processReceiptsStream(InputStream body, HttpServletResponse response) throws IOException {
+
+    log.debug("Processing receipt stream");
+    response.setContentType(NDJSON);
+    long count = receiptStreamProcessor.process(body, response.getOutputStream());
+    log.debug("Processed receipt stream of {} receipts", count);
+  }
+
   /**
    * Fetches the points associated with a given receipt ID.
+   * Responses carry an ETag; a request whose {@code If-None-Match} matches it is answered with
+   * {@code 304 Not Modified}. Unless receipts can be rescored, a receipt held in memory is only checked for
+   * existence, not looked up; an unknown ID is answered with {@code 404} whatever the request headers.
    *
    * @param receiptId the ID of the receipt whose points are to be fetched
-   * @return a {@link Points} object containing the points for the specified receipt
+   * @param request   the request, for its conditional headers
+   * @return the serialized {@link Points} for the specified receipt, or {@code null} if not modified
    * @throws AbsentException if no points are found for the given receipt ID
    */
   @GetMapping("/{id}/points")
-  public Points getReceiptPoints(@PathVariable("id") String receiptId) throws AbsentException {
+  @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Points.class)))
+  public ResponseEntity<byte[]> getReceiptPoints(@PathVariable("id") String receiptId, WebRequest request)
+          throws AbsentException {
 
-    log.info("Fetching points for receiptId: {}", receiptId);
+    String fixedETag = pointsResponses.fixedETag(receiptId);
+    if (fixedETag != null && receiptService.isReceiptHeld(receiptId) && request.checkNotModified(fixedETag)) {
+      pointsResponses.recordNotModified();
+      return null;
+    }
+    log.debug("Fetching points for receiptId: {}", receiptId);
     Points points = receiptService.getReceiptPoints(receiptId);
-    log.info("Fetched points successfully for receiptId: {}", receiptId);
-    return points;
+    log.debug("Fetched points successfully for receiptId: {}", receiptId);
+    return pointsResponses.ok(receiptId, points);
+  }
+
+  /**
+   * Fetches the points of several receipts at once, for clients that would otherwise issue one
+   * {@code GET /receipts/{id}/points} per receipt. IDs that are not found are listed in the response instead of
+   * failing the request.
+   *
+   * @param request the IDs to look up, at most {@code lookup.maxBatchSize}
+   * @return a {@link PointsBatchResponse} with the points by receipt ID and the IDs that were not found
+   * @throws ValidationException if there are no IDs, too many, or a {@code null} ID
+   */
+  @PostMapping("/points:batchGet")
+  public PointsBatchResponse getReceiptPointsBatch(@RequestBody PointsBatchRequest request)
+          throws ValidationException {
+
+    log.debug("Fetching points for batch of receipt IDs");
+    return receiptService.getReceiptPointsBatch(request.getIds());
+  }
+
+  /**
+   * Fetches the points each rule awarded to a receipt, along with the aggregated time each rule takes.
+   * Breakdowns are only recorded with {@code breakdown.enabled}.
+   *
+   * @param receiptId the ID of the receipt whose points breakdown is to be fetched
+   * @return a {@link PointsBreakdown} for the specified receipt
+   * @throws AbsentException if no breakdown was recorded for the given receipt ID
+   */
+  @GetMapping("/{id}/points/breakdown")
+  public PointsBreakdown getReceiptBreakdown(@PathVariable("id") String receiptId) throws AbsentException {
+
+    log.debug("Fetching points breakdown for receiptId: {}", receiptId);
+    return receiptService.getReceiptBreakdown(receiptId);
+  }
+
+  /**
+   * Decodes a {@value ReceiptCodec#MEDIA_TYPE} message that must hold exactly one receipt.
+   */
+  static ReceiptRecord decodeSingle(byte[] body) throws ValidationException {
+    List<ReceiptRecord> records = ReceiptCodec.decode(body);
+    if (records.size() != 1) {
+      throw new ValidationException("expected exactly one receipt, got " + records.size());
+    }
+    return records.get(0);
   }
 }
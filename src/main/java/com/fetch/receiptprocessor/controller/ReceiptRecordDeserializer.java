@@ -0,0 +1,38 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.ReceiptValidator;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Binds JSON request bodies straight to a validated {@link ReceiptRecord}, without the intermediate
+ * {@link com.fetch.receiptprocessor.model.Receipt} bean, see {@link ReceiptValidator#read(JsonParser)}.
+ * <p>
+ * A receipt that fails validation is reported as a {@link JsonMappingException} caused by the
+ * {@link ValidationException}, which {@code GlobalExceptionHandler} answers with the validation error.
+ */
+@JsonComponent
+public class ReceiptRecordDeserializer extends JsonDeserializer<ReceiptRecord> {
+
+  private final ReceiptValidator receiptValidator;
+
+  public ReceiptRecordDeserializer(ReceiptValidator receiptValidator) {
+    this.receiptValidator = receiptValidator;
+  }
+
+  @Override
+  public ReceiptRecord deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+    try {
+      return receiptValidator.read(parser);
+    } catch (ValidationException e) {
+      throw JsonMappingException.from(parser, e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fetch.receiptprocessor.util.AsyncLogging;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "requestlog")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestLogConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(RequestLogConfig.class);
+
+  /**
+   * Per-request logging: {@code summary} (default, one sampled line per request) or {@code off}.
+   */
+  private String mode = "summary";
+  /**
+   * Fraction of requests that get a summary line; failed requests are always logged.
+   */
+  private double sampleRate = 1.0;
+  /**
+   * Whether log output is written by background threads instead of the threads that log.
+   */
+  private boolean async;
+  private int asyncQueueSize = 8192;
+
+  @PostConstruct
+  void configureAsyncLogging() {
+    if (async) {
+      int appenders = AsyncLogging.install(asyncQueueSize);
+      log.info("Writing log output of {} appenders asynchronously", appenders);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.fetch.receiptprocessor.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times every servlet request and hands it to the {@link RequestSummaryLogger}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "requestlog.mode", havingValue = "summary", matchIfMissing = true)
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+  private final RequestSummaryLogger requestSummaryLogger;
+
+  public RequestSummaryFilter(RequestSummaryLogger requestSummaryLogger) {
+    this.requestSummaryLogger = requestSummaryLogger;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    long start = System.nanoTime();
+    int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    try {
+      filterChain.doFilter(request, response);
+      status = response.getStatus();
+    } finally {
+      requestSummaryLogger.log(request.getMethod(), request.getRequestURI(), status, System.nanoTime() - start);
+    }
+  }
+}
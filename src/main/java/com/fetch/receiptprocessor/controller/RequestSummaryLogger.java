@@ -0,0 +1,49 @@
+package com.fetch.receiptprocessor.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one structured {@code key=value} summary line per sampled request, replacing the per-step lines the
+ * controllers, services and DAOs log at {@code DEBUG}.
+ * <p>
+ * The line is only rendered for sampled requests, and only when {@code INFO} is enabled for this logger. Requests
+ * that fail with a server error are always logged.
+ */
+@Component
+@ConditionalOnProperty(name = "requestlog.mode", havingValue = "summary", matchIfMissing = true)
+public class RequestSummaryLogger {
+
+  private static final Logger log = LoggerFactory.getLogger(RequestSummaryLogger.class);
+
+  private final double sampleRate;
+
+  public RequestSummaryLogger(RequestLogConfig config) {
+    this.sampleRate = config.getSampleRate();
+  }
+
+  /**
+   * Logs the summary of a completed request, if it is sampled.
+   *
+   * @param method        the HTTP method
+   * @param path          the request path
+   * @param status        the response status code
+   * @param durationNanos the time taken to serve the request
+   */
+  public void log(String method, String path, int status, long durationNanos) {
+    if (status < 500 && !sampled()) {
+      return;
+    }
+    if (log.isInfoEnabled()) {
+      log.info("method={} path={} status={} duration_us={}", method, path, status, durationNanos / 1_000);
+    }
+  }
+
+  private boolean sampled() {
+    return sampleRate >= 1.0 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+}
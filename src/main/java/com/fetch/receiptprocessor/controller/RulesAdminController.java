@@ -0,0 +1,140 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.ErrorResponse;
+import com.fetch.receiptprocessor.model.RescoreStatus;
+import com.fetch.receiptprocessor.model.RuleSet;
+import com.fetch.receiptprocessor.service.PointsCalculator;
+import com.fetch.receiptprocessor.service.PointsConfig;
+import com.fetch.receiptprocessor.service.ReceiptRescorer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Admin endpoints to inspect and reload the points rules without a restart, enabled with {@code admin.enabled}.
+ * They are not authenticated and must not be exposed outside a trusted network.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/rules")
+@ConditionalOnProperty(name = "admin.enabled", havingValue = "true")
+public class RulesAdminController {
+
+  private final PointsCalculator pointsCalculator;
+
+  private ReceiptRescorer receiptRescorer;
+
+  public RulesAdminController(PointsCalculator pointsCalculator) {
+    this.pointsCalculator = pointsCalculator;
+  }
+
+  /**
+   * Enables the rescoring endpoints.
+   *
+   * @param receiptRescorer the rescorer, present with {@code retention.enabled}
+   */
+  @Autowired(required = false)
+  public void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    this.receiptRescorer = receiptRescorer;
+  }
+
+  /**
+   * Returns the rules receipts are currently scored with.
+   *
+   * @return the current {@link RuleSet}
+   */
+  @GetMapping
+  public RuleSet getCurrentRules() {
+    int version = pointsCalculator.getRuleVersion();
+    return new RuleSet(version, pointsCalculator.getRuleSet(version));
+  }
+
+  /**
+   * Returns an earlier or the current version of the rules.
+   *
+   * @param version the rule version, as recorded with every scored receipt
+   * @return the {@link RuleSet}, or 404 Not Found if there is no such version
+   */
+  @GetMapping("/{version}")
+  public ResponseEntity<?> getRules(@PathVariable("version") int version) {
+    PointsConfig rules = pointsCalculator.getRuleSet(version);
+    if (rules == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND)
+              .body(new ErrorResponse(HttpStatus.NOT_FOUND.value(), "No rule set found for that version"));
+    }
+    return ResponseEntity.ok(new RuleSet(version, rules));
+  }
+
+  /**
+   * Publishes a new version of the rules. Receipts submitted from now on are scored with it; stored points keep the
+   * version they were scored with.
+   *
+   * @param rules the complete rule configuration
+   * @return the new {@link RuleSet}
+   * @throws ValidationException if the configuration is invalid
+   */
+  @PutMapping
+  public RuleSet reloadRules(@RequestBody PointsConfig rules) throws ValidationException {
+    int version;
+    try {
+      version = pointsCalculator.reload(rules);
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException(e.getMessage());
+    }
+    log.info("Points rules replaced by version {} through the admin endpoint", version);
+    return new RuleSet(version, pointsCalculator.getRuleSet(version));
+  }
+
+  /**
+   * Starts recomputing the points of the retained receipts with a version of the rules, by default the current one.
+   *
+   * @param version the rule version
+   * @return 202 Accepted with the {@link RescoreStatus} of the started job, 404 Not Found if retention is disabled
+   *     or there is no such version, or 409 Conflict if a job is already running
+   */
+  @PostMapping("/rescore")
+  public ResponseEntity<?> rescore(@RequestParam(name = "version", required = false) Integer version) {
+    if (receiptRescorer == null) {
+      return retentionDisabled();
+    }
+    try {
+      RescoreStatus status = receiptRescorer.start(version != null ? version : pointsCalculator.getRuleVersion());
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND)
+              .body(new ErrorResponse(HttpStatus.NOT_FOUND.value(), e.getMessage()));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+              .body(new ErrorResponse(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+  }
+
+  /**
+   * Returns the progress of the running or the last rescoring job.
+   *
+   * @return the {@link RescoreStatus}, or 404 Not Found if retention is disabled
+   */
+  @GetMapping("/rescore")
+  public ResponseEntity<?> getRescoreStatus() {
+    if (receiptRescorer == null) {
+      return retentionDisabled();
+    }
+    return ResponseEntity.ok(receiptRescorer.getStatus());
+  }
+
+  private static ResponseEntity<ErrorResponse> retentionDisabled() {
+    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            .body(new ErrorResponse(HttpStatus.NOT_FOUND.value(), "Receipt retention is disabled"));
+  }
+}
@@ -0,0 +1,65 @@
+package com.fetch.receiptprocessor.dao;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link IReceiptDao} for the reactive web tier.
+ * Results are delivered asynchronously and an absent receipt is an empty {@link Mono} rather than {@code null}.
+ */
+public interface IReactiveReceiptDao {
+
+  /**
+   * Saves the specified number of points and generates a unique identifier for the receipt.
+   *
+   * @param points      the number of points to be saved
+   * @param ruleVersion the version of the points rules that awarded the points
+   * @return the receipt ID under which the points are saved
+   */
+  Mono<String> saveReceiptPoints(int points, int ruleVersion);
+
+  /**
+   * Saves the points of several receipts in a single operation, generating a unique identifier for each of them.
+   *
+   * @param points      the number of points to be saved, one entry per receipt
+   * @param ruleVersion the version of the points rules that awarded the points
+   * @return the generated receipt IDs, in the same order as {@code points}
+   */
+  Mono<List<String>> saveAllReceiptPoints(int[] points, int ruleVersion);
+
+  /**
+   * Retrieves the number of points associated with a given receipt ID.
+   *
+   * @param receiptId the unique identifier of the receipt whose points are to be fetched
+   * @return the number of points, or an empty {@link Mono} if no such receipt exists
+   */
+  Mono<Integer> getReceiptPoints(String receiptId);
+
+  /**
+   * Tells whether a receipt is held in memory like {@link IReceiptDao#isReceiptHeld(String)}. Only memory is read,
+   * so the answer is returned directly.
+   *
+   * @param receiptId the unique identifier of the receipt
+   * @return {@code true} if the receipt exists and is held in memory
+   */
+  boolean isReceiptHeld(String receiptId);
+
+  /**
+   * Retrieves the points of several receipts in one pass over the store.
+   *
+   * @param receiptIds the unique identifiers of the receipts whose points are to be fetched
+   * @return the points by receipt ID, in the order of {@code receiptIds}; IDs with no such receipt are left out
+   */
+  Mono<Map<String, Integer>> getReceiptPoints(Collection<String> receiptIds);
+
+  /**
+   * Retrieves the version of the points rules that awarded the points of a given receipt ID.
+   *
+   * @param receiptId the unique identifier of the receipt
+   * @return the rule version, or an empty {@link Mono} if no such receipt exists
+   */
+  Mono<Integer> getReceiptRuleVersion(String receiptId);
+}
@@ -1,5 +1,9 @@
 package com.fetch.receiptprocessor.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Interface for receipt data access operations.
  * Defines methods for saving points associated with receipts and retrieving points for a given receipt ID.
@@ -9,10 +13,41 @@ public interface IReceiptDao {
   /**
    * Saves the specified number of points and generates a unique identifier for the receipt.
    *
-   * @param points the number of points to be saved
+   * @param points      the number of points to be saved
+   * @param ruleVersion the version of the points rules that awarded the points
    * @return a unique string identifier (receipt ID) under which the points are saved
    */
-  String saveReceiptPoints(int points);
+  String saveReceiptPoints(int points, int ruleVersion);
+
+  /**
+   * Saves the points of several receipts in a single operation, generating a unique identifier for each of them.
+   *
+   * @param points      the number of points to be saved, one entry per receipt
+   * @param ruleVersion the version of the points rules that awarded the points
+   * @return the generated receipt IDs, in the same order as {@code points}
+   */
+  List<String> saveAllReceiptPoints(int[] points, int ruleVersion);
+
+  /**
+   * Saves the points of several receipts under receipt IDs that were generated beforehand, in a single operation.
+   *
+   * @param receiptIds  the receipt IDs, from the configured receipt ID generator
+   * @param points      the number of points to be saved, one entry per receipt ID
+   * @param ruleVersion the version of the points rules that awarded the points
+   */
+  void saveAllReceiptPoints(List<String> receiptIds, int[] points, int ruleVersion);
+
+  /**
+   * Replaces the points of existing receipts with points awarded by a newer version of the rules. Each receipt's
+   * stored rule version is compared and its points replaced in one atomic step, so points awarded by an even newer
+   * version meanwhile are kept.
+   *
+   * @param receiptIds  the IDs of existing receipts
+   * @param points      the new points, one entry per receipt ID
+   * @param ruleVersion the version of the points rules that awarded the new points
+   * @return whether the points of each receipt were replaced, in the order of {@code receiptIds}
+   */
+  boolean[] replaceAllReceiptPointsIfOlder(List<String> receiptIds, int[] points, int ruleVersion);
 
   /**
    * Retrieves the number of points associated with a given receipt ID.
@@ -21,4 +56,52 @@ public interface IReceiptDao {
    * @return the number of points associated with the specified receipt ID, or {@code null} if no such receipt exists
    */
   Integer getReceiptPoints(String receiptId);
+
+  /**
+   * Tells whether a receipt is held in memory, without reading slower storage. Receipts that were evicted to such
+   * storage are reported as absent, so a {@code false} result must be confirmed with
+   * {@link #getReceiptPoints(String)}.
+   *
+   * @param receiptId the unique identifier of the receipt
+   * @return {@code true} if the receipt exists and is held in memory
+   */
+  boolean isReceiptHeld(String receiptId);
+
+  /**
+   * Retrieves the points of several receipts in one pass over the store.
+   *
+   * @param receiptIds the unique identifiers of the receipts whose points are to be fetched
+   * @return the points by receipt ID, in the order of {@code receiptIds}; IDs with no such receipt are left out
+   */
+  Map<String, Integer> getReceiptPoints(Collection<String> receiptIds);
+
+  /**
+   * Retrieves the version of the points rules that awarded the points of a given receipt ID.
+   *
+   * @param receiptId the unique identifier of the receipt
+   * @return the rule version, {@code 0} for receipts saved before rule sets were versioned, or {@code null} if no
+   * such receipt exists
+   */
+  Integer getReceiptRuleVersion(String receiptId);
+
+  /**
+   * Returns the number of receipts currently held in memory.
+   *
+   * @return the number of receipts held in memory
+   */
+  long getStoredReceiptCount();
+
+  /**
+   * Returns an estimate of the heap used by the receipts held in memory.
+   *
+   * @return the estimated size in bytes
+   */
+  long getEstimatedMemoryBytes();
+
+  /**
+   * Returns the number of receipts evicted from memory because of the configured store bounds.
+   *
+   * @return the number of evicted receipts
+   */
+  long getEvictedReceiptCount();
 }
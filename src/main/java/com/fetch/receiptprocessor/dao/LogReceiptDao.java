@@ -0,0 +1,735 @@
+package com.fetch.receiptprocessor.dao;
+
+import com.fetch.receiptprocessor.dao.data.IPointsStore;
+import com.fetch.receiptprocessor.dao.data.IStoreTier;
+import com.fetch.receiptprocessor.util.BloomFilter;
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable Data Access Object (DAO) that appends every saved receipt to a memory-mapped, append-only log.
+ * The log is split into fixed-size segment files and replayed into an in-memory index on startup.
+ * <p>
+ * Appends only copy a few bytes into the mapped segment, so saving stays in the microsecond range. Mapped pages
+ * survive a crash of the process; they are forced to disk by a background task every
+ * {@code store.logSyncIntervalMs} milliseconds (group commit), so an operating system crash loses at most the
+ * writes of the last interval.
+ * <p>
+ * Each record is laid out as {@code [int length][byte type][payload]}, where {@code length} covers the type and
+ * payload. The length is written last and acts as the commit marker; a zero length marks the end of the segment.
+ * A {@link #CHECKED_RECORD} payload is {@code [byte idLength][id][int points][int ruleVersion][int crc]}, where
+ * {@code crc} is the CRC32C of the type and the rest of the payload. An operating system crash may persist the
+ * length of a record without its payload, so replay stops at the first record whose checksum does not match and
+ * the log is truncated there.
+ * <p>
+ * When the in-memory index is bounded ({@code store.maxEntries} / {@code store.maxAge}), the log is its persistent
+ * tier: evicted receipts are already durable, and reads of evicted receipts are served by a sequential scan of the
+ * mapped segments, newest first. This keeps memory bounded at the cost of slower reads for old receipts.
+ * <p>
+ * Every segment has a {@link BloomFilter} of the IDs it holds, built while appending and replaying, with one bit per
+ * {@value #LOG_BYTES_PER_FILTER_BIT} bytes of segment. Reads skip the segments whose filter rules the ID out, so an
+ * unknown ID is almost always answered without scanning the log, and an evicted receipt costs about one segment
+ * scan.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "store.type", havingValue = "log")
+public class LogReceiptDao implements IReceiptDao {
+
+  static final byte CHECKED_RECORD = 3;
+
+  /**
+   * Segment bytes per bit of a segment's ID filter: about 12 bits per receipt with UUID receipt IDs.
+   */
+  static final int LOG_BYTES_PER_FILTER_BIT = 4;
+
+  private static final String SEGMENT_PREFIX = "receipts-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final IPointsStore receiptPointsStore;
+
+  private final IReceiptIdGenerator receiptIdGenerator;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  private final ScheduledExecutorService syncExecutor;
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private int segmentIndex;
+
+  private FileChannel channel;
+
+  private volatile MappedByteBuffer segment;
+
+  private int committedPosition;
+
+  private final Map<Integer, MappedByteBuffer> sealedSegments = new ConcurrentHashMap<>();
+
+  private final Map<Integer, BloomFilter> segmentFilters = new ConcurrentHashMap<>();
+
+  /**
+   * The end of the valid records of the replayed segments that were truncated; reads of a sealed segment stop there.
+   */
+  private final Map<Integer, Integer> truncatedEnds = new ConcurrentHashMap<>();
+
+  private final CRC32C checksum = new CRC32C();
+
+  private BloomFilter activeFilter;
+
+  private final LongAdder segmentScans = new LongAdder();
+
+  private volatile boolean dirty;
+
+  private int replayedEnd;
+
+  private long recovered;
+
+  /**
+   * Opens the log in the configured directory, replays existing segments into the in-memory index and starts the
+   * background sync task.
+   *
+   * @param config             the store configuration
+   * @param receiptIdGenerator the generator for new receipt IDs
+   */
+  public LogReceiptDao(StoreConfig config, IReceiptIdGenerator receiptIdGenerator) {
+
+    config.checkIdGenerator(receiptIdGenerator);
+    this.receiptIdGenerator = receiptIdGenerator;
+    this.receiptPointsStore = IPointsStore.forConfig(config.getIndexType(), config.getMaxEntries(),
+            config.getMaxAge(), new LogTier());
+    this.directory = Path.of(config.getLogDirectory());
+    this.segmentSize = config.getLogSegmentSize();
+    try {
+      Files.createDirectories(directory);
+      List<Path> segments = listSegments();
+      for (Path path : segments) {
+        replay(path);
+      }
+      if (segments.isEmpty()) {
+        openSegment(0, 0);
+      } else {
+        int lastIndex = segmentIndexOf(segments.get(segments.size() - 1));
+        openSegment(lastIndex, replayedEnd);
+        if (truncatedEnds.remove(lastIndex) != null) {
+          // Clear the discarded records, so that none of them is replayed again behind the records appended next
+          for (int position = replayedEnd; position < segmentSize; position++) {
+            segment.put(position, (byte) 0);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open receipt log in " + directory, e);
+    }
+    log.info("Opened receipt log in {} with {} receipts", directory, recovered);
+
+    this.syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "receipt-log-sync");
+      thread.setDaemon(true);
+      return thread;
+    });
+    syncExecutor.scheduleWithFixedDelay(this::sync, config.getLogSyncIntervalMs(), config.getLogSyncIntervalMs(),
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Saves the specified number of points against a newly generated receipt ID and appends it to the log.
+   *
+   * @param points      the number of points to save
+   * @param ruleVersion the version of the rules that awarded the points
+   * @return the generated receipt ID under which the points were saved
+   */
+  @Override
+  public String saveReceiptPoints(int points, int ruleVersion) {
+
+    String receiptId = receiptIdGenerator.generateReceiptId();
+    appendLock.lock();
+    try {
+      append(receiptId, points, ruleVersion);
+    } finally {
+      appendLock.unlock();
+    }
+    receiptPointsStore.put(receiptId, points, ruleVersion);
+    log.debug("Saved {} points for receipt ID: {}", points, receiptId);
+    return receiptId;
+  }
+
+  /**
+   * Saves the points of several receipts against newly generated receipt IDs, appending all of them to the log
+   * under a single acquisition of the append lock.
+   *
+   * @param points      the number of points to save, one entry per receipt
+   * @param ruleVersion the version of the rules that awarded the points
+   * @return the generated receipt IDs, in the same order as {@code points}
+   */
+  @Override
+  public List<String> saveAllReceiptPoints(int[] points, int ruleVersion) {
+
+    List<String> receiptIds = new ArrayList<>(points.length);
+    for (int i = 0; i < points.length; i++) {
+      receiptIds.add(receiptIdGenerator.generateReceiptId());
+    }
+    saveAllReceiptPoints(receiptIds, points, ruleVersion);
+    return receiptIds;
+  }
+
+  /**
+   * Saves the points of several receipts against previously generated receipt IDs, appending all of them to the log
+   * under a single acquisition of the append lock.
+   *
+   * @param receiptIds  the receipt IDs
+   * @param points      the number of points to save, one entry per receipt ID
+   * @param ruleVersion the version of the rules that awarded the points
+   */
+  @Override
+  public void saveAllReceiptPoints(List<String> receiptIds, int[] points, int ruleVersion) {
+
+    appendLock.lock();
+    try {
+      for (int i = 0; i < points.length; i++) {
+        append(receiptIds.get(i), points[i], ruleVersion);
+      }
+    } finally {
+      appendLock.unlock();
+    }
+    receiptPointsStore.putAll(receiptIds, points, ruleVersion);
+    log.debug("Saved points for {} receipts", points.length);
+  }
+
+  /**
+   * Replaces the points of existing receipts scored by an older version of the rules and appends the replaced ones
+   * to the log. Both happen under the append lock, so the log holds concurrent replacements in the order they were
+   * made in memory and replay ends with the same points.
+   *
+   * @param receiptIds  the IDs of existing receipts
+   * @param points      the new points, one entry per receipt ID
+   * @param ruleVersion the version of the rules that awarded the new points
+   * @return whether the points of each receipt were replaced, in the order of {@code receiptIds}
+   */
+  @Override
+  public boolean[] replaceAllReceiptPointsIfOlder(List<String> receiptIds, int[] points, int ruleVersion) {
+
+    boolean[] replaced = new boolean[points.length];
+    appendLock.lock();
+    try {
+      for (int i = 0; i < points.length; i++) {
+        replaced[i] = receiptPointsStore.replaceIfOlder(receiptIds.get(i), points[i], ruleVersion);
+        if (replaced[i]) {
+          append(receiptIds.get(i), points[i], ruleVersion);
+        }
+      }
+    } finally {
+      appendLock.unlock();
+    }
+    return replaced;
+  }
+
+  /**
+   * Retrieves the number of points associated with a given receipt ID.
+   *
+   * @param receiptId the ID of the receipt for which to retrieve points
+   * @return the number of points associated with the receipt ID, or {@code null} if no points were found
+   */
+  @Override
+  public Integer getReceiptPoints(String receiptId) {
+
+    Integer points = receiptPointsStore.get(receiptId);
+    if (points != null) {
+      log.debug("Retrieved {} points for receipt ID: {}", points, receiptId);
+    } else {
+      log.debug("No points found for receipt ID: {}", receiptId);
+    }
+    return points;
+  }
+
+  /**
+   * Retrieves the points of several receipts. IDs held in the in-memory index are looked up there; if the index has
+   * evicted receipts, the remaining IDs are looked up together in a single scan of the log rather than one scan per
+   * ID. Receipts found in the log are not loaded back into memory.
+   *
+   * @param receiptIds the IDs of the receipts for which to retrieve points
+   * @return the points by receipt ID, in the order of {@code receiptIds}; IDs without points are left out
+   */
+  @Override
+  public Map<String, Integer> getReceiptPoints(Collection<String> receiptIds) {
+
+    Map<String, Integer> points = receiptPointsStore.getAll(receiptIds);
+    if (points.size() < receiptIds.size() && receiptPointsStore.evictionCount() > 0) {
+      List<String> evicted = new ArrayList<>();
+      for (String receiptId : receiptIds) {
+        if (!points.containsKey(receiptId)) {
+          evicted.add(receiptId);
+        }
+      }
+      Map<String, Long> logged = findAllInLog(evicted);
+      if (!logged.isEmpty()) {
+        Map<String, Integer> merged = new LinkedHashMap<>();
+        for (String receiptId : receiptIds) {
+          Integer stored = points.get(receiptId);
+          Long scored = stored == null ? logged.get(receiptId) : null;
+          if (stored != null || scored != null) {
+            merged.put(receiptId, stored != null ? stored : IPointsStore.points(scored));
+          }
+        }
+        points = merged;
+      }
+    }
+    log.debug("Retrieved points for {} of {} receipt IDs", points.size(), receiptIds.size());
+    return points;
+  }
+
+  @Override
+  public boolean isReceiptHeld(String receiptId) {
+    return receiptPointsStore.isHeld(receiptId);
+  }
+
+  @Override
+  public Integer getReceiptRuleVersion(String receiptId) {
+    return receiptPointsStore.getRuleVersion(receiptId);
+  }
+
+  @Override
+  public long getStoredReceiptCount() {
+    return receiptPointsStore.size();
+  }
+
+  @Override
+  public long getEstimatedMemoryBytes() {
+    long filterBytes = 0;
+    for (BloomFilter filter : segmentFilters.values()) {
+      filterBytes += filter.bitSize() / 8;
+    }
+    return receiptPointsStore.estimatedMemoryBytes() + filterBytes;
+  }
+
+  @Override
+  public long getEvictedReceiptCount() {
+    return receiptPointsStore.evictionCount();
+  }
+
+  /**
+   * Returns the number of segments scanned by reads of receipts that were not held in memory.
+   *
+   * @return the number of segment scans since the log was opened
+   */
+  long segmentScanCount() {
+    return segmentScans.sum();
+  }
+
+  /**
+   * Forces all appended records to disk and stops the background sync task.
+   */
+  @PreDestroy
+  public void close() {
+
+    syncExecutor.shutdown();
+    appendLock.lock();
+    try {
+      segment.force();
+      channel.close();
+    } catch (IOException e) {
+      log.error("Failed to close receipt log segment: {}", e.getMessage(), e);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  private void append(String receiptId, int points, int ruleVersion) {
+
+    byte[] id = receiptId.getBytes(StandardCharsets.US_ASCII);
+    int length = 1 + 1 + id.length + 4 + 4 + 4;
+    if (segment.position() + 4 + length + 4 > segmentSize) {
+      rollSegment();
+    }
+    int start = segment.position();
+    segment.position(start + 4);
+    segment.put(CHECKED_RECORD).put((byte) id.length).put(id).putInt(points).putInt(ruleVersion);
+    segment.putInt(checksum(checksum, segment, start, length));
+    segment.putInt(start, length);
+    activeFilter.add(id);
+    committedPosition = segment.position();
+    dirty = true;
+  }
+
+  private void rollSegment() {
+    try {
+      segment.force();
+      channel.close();
+      openSegment(segmentIndex + 1, 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to roll receipt log segment", e);
+    }
+  }
+
+  private void sync() {
+    if (!dirty) {
+      return;
+    }
+    dirty = false;
+    try {
+      // A segment that is rolled concurrently is forced by rollSegment itself
+      segment.force();
+    } catch (RuntimeException e) {
+      dirty = true;
+      log.error("Failed to sync receipt log: {}", e.getMessage(), e);
+    }
+  }
+
+  private void openSegment(int index, int position) throws IOException {
+    segmentIndex = index;
+    channel = FileChannel.open(segmentPath(index),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    mapped.position(position);
+    committedPosition = position;
+    activeFilter = filter(index, segmentSize);
+    segment = mapped;
+  }
+
+  /**
+   * Returns the ID filter of a segment, creating it for a segment of the given size if there is none yet.
+   */
+  private BloomFilter filter(int index, long size) {
+    return segmentFilters.computeIfAbsent(index, i -> new BloomFilter(Math.max(64, size / LOG_BYTES_PER_FILTER_BIT)));
+  }
+
+  /**
+   * Tells whether the segment may hold the ID; segments without a filter are assumed to.
+   */
+  private boolean mayHold(int index, byte[] id) {
+    BloomFilter filter = segmentFilters.get(index);
+    return filter == null || filter.mightContain(id);
+  }
+
+  /**
+   * Finds the latest points saved for the receipt by scanning the segments from newest to oldest.
+   *
+   * @return the points and rule version packed by {@link IPointsStore#pack(int, int)}, or {@code null}
+   */
+  private Long findInLog(String receiptId) {
+
+    byte[] id = receiptId.getBytes(StandardCharsets.US_ASCII);
+    int activeIndex;
+    MappedByteBuffer active;
+    int activeEnd;
+    appendLock.lock();
+    try {
+      activeIndex = segmentIndex;
+      active = segment;
+      activeEnd = committedPosition;
+    } finally {
+      appendLock.unlock();
+    }
+
+    Long scored = mayHold(activeIndex, id) ? scan(active, activeEnd, id) : null;
+    for (int index = activeIndex - 1; scored == null && index >= 0; index--) {
+      if (mayHold(index, id)) {
+        MappedByteBuffer sealed = sealedSegment(index);
+        scored = sealed == null ? null : scan(sealed, sealedEnd(index, sealed), id);
+      }
+    }
+    return scored;
+  }
+
+  /**
+   * Finds the latest points saved for several receipts with a single scan of the segments from newest to oldest,
+   * which stops once all of them are found.
+   *
+   * @return the points and rule version packed by {@link IPointsStore#pack(int, int)} of the receipts found
+   */
+  private Map<String, Long> findAllInLog(Collection<String> receiptIds) {
+
+    Map<Integer, List<LoggedId>> wanted = new HashMap<>();
+    for (String receiptId : receiptIds) {
+      byte[] id = receiptId.getBytes(StandardCharsets.US_ASCII);
+      wanted.computeIfAbsent(hash(id), h -> new ArrayList<>(1)).add(new LoggedId(receiptId, id));
+    }
+    int activeIndex;
+    MappedByteBuffer active;
+    int activeEnd;
+    appendLock.lock();
+    try {
+      activeIndex = segmentIndex;
+      active = segment;
+      activeEnd = committedPosition;
+    } finally {
+      appendLock.unlock();
+    }
+
+    Map<String, Long> found = new HashMap<>();
+    if (mayHoldAny(activeIndex, wanted)) {
+      scanAll(active, activeEnd, wanted, found);
+    }
+    for (int index = activeIndex - 1; !wanted.isEmpty() && index >= 0; index--) {
+      if (mayHoldAny(index, wanted)) {
+        MappedByteBuffer sealed = sealedSegment(index);
+        if (sealed != null) {
+          scanAll(sealed, sealedEnd(index, sealed), wanted, found);
+        }
+      }
+    }
+    return found;
+  }
+
+  private boolean mayHoldAny(int index, Map<Integer, List<LoggedId>> wanted) {
+    for (List<LoggedId> candidates : wanted.values()) {
+      for (LoggedId candidate : candidates) {
+        if (mayHold(index, candidate.id)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the cached mapping of a sealed segment. The file is mapped outside of the cache's locks, since mapping is
+   * blocking I/O; two lookups racing on the first access may both map it, and one of the mappings is dropped.
+   */
+  private MappedByteBuffer sealedSegment(int index) {
+    MappedByteBuffer sealed = sealedSegments.get(index);
+    if (sealed == null) {
+      sealed = mapSealedSegment(index);
+      if (sealed != null) {
+        MappedByteBuffer raced = sealedSegments.putIfAbsent(index, sealed);
+        sealed = raced != null ? raced : sealed;
+      }
+    }
+    return sealed;
+  }
+
+  private int sealedEnd(int index, MappedByteBuffer sealed) {
+    return truncatedEnds.getOrDefault(index, sealed.limit());
+  }
+
+  private MappedByteBuffer mapSealedSegment(int index) {
+    try (FileChannel sealedChannel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+      return sealedChannel.map(FileChannel.MapMode.READ_ONLY, 0, sealedChannel.size());
+    } catch (IOException e) {
+      log.error("Failed to map receipt log segment {}: {}", index, e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private Long scan(MappedByteBuffer buffer, int end, byte[] id) {
+    segmentScans.increment();
+    Long scored = null;
+    int position = 0;
+    while (position + 4 <= end) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + 4 + length > end) {
+        break;
+      }
+      byte type = buffer.get(position + 4);
+      if (type == CHECKED_RECORD && buffer.get(position + 5) == id.length
+              && matches(buffer, position + 6, id)) {
+        scored = scored(buffer, position, id.length);
+      }
+      position += 4 + length;
+    }
+    return scored;
+  }
+
+  /**
+   * Records the latest points in the segment of every wanted receipt, and stops looking for the receipts found,
+   * since older segments only hold older points.
+   */
+  private void scanAll(MappedByteBuffer buffer, int end, Map<Integer, List<LoggedId>> wanted,
+                       Map<String, Long> found) {
+    segmentScans.increment();
+    List<LoggedId> matched = new ArrayList<>();
+    int position = 0;
+    while (position + 4 <= end) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + 4 + length > end) {
+        break;
+      }
+      byte type = buffer.get(position + 4);
+      int idLength = buffer.get(position + 5);
+      if (type == CHECKED_RECORD && idLength >= 0) {
+        List<LoggedId> candidates = wanted.get(hash(buffer, position + 6, idLength));
+        if (candidates != null) {
+          for (LoggedId candidate : candidates) {
+            if (candidate.id.length == idLength && matches(buffer, position + 6, candidate.id)) {
+              found.put(candidate.receiptId, scored(buffer, position, idLength));
+              matched.add(candidate);
+            }
+          }
+        }
+      }
+      position += 4 + length;
+    }
+    for (LoggedId candidate : matched) {
+      int hash = hash(candidate.id);
+      List<LoggedId> candidates = wanted.get(hash);
+      if (candidates != null && candidates.remove(candidate) && candidates.isEmpty()) {
+        wanted.remove(hash);
+      }
+    }
+  }
+
+  private static int hash(byte[] id) {
+    int hash = 0;
+    for (byte b : id) {
+      hash = 31 * hash + b;
+    }
+    return hash;
+  }
+
+  private static int hash(MappedByteBuffer buffer, int offset, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.get(offset + i);
+    }
+    return hash;
+  }
+
+  /**
+   * A receipt ID looked up by {@link #findAllInLog(Collection)}, with its bytes as written to the log.
+   */
+  private static final class LoggedId {
+
+    final String receiptId;
+
+    final byte[] id;
+
+    LoggedId(String receiptId, byte[] id) {
+      this.receiptId = receiptId;
+      this.id = id;
+    }
+  }
+
+  /**
+   * Reads the points and rule version of the record at {@code position}, packed by {@link IPointsStore#pack}.
+   */
+  private static long scored(MappedByteBuffer buffer, int position, int idLength) {
+    return IPointsStore.pack(buffer.getInt(position + 6 + idLength), buffer.getInt(position + 10 + idLength));
+  }
+
+  /**
+   * Computes the CRC32C of the type and payload of the {@link #CHECKED_RECORD} at {@code position}, up to its
+   * checksum.
+   */
+  private static int checksum(CRC32C crc, MappedByteBuffer buffer, int position, int length) {
+    crc.reset();
+    crc.update(buffer.slice(position + 4, length - 4));
+    return (int) crc.getValue();
+  }
+
+  private static boolean matches(MappedByteBuffer buffer, int offset, byte[] id) {
+    for (int i = 0; i < id.length; i++) {
+      if (buffer.get(offset + i) != id[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Persistent tier of the bounded in-memory index. Saved receipts are already in the log, so there is nothing to
+   * spill, and nothing needs to be scanned until the index has evicted something.
+   */
+  private class LogTier implements IStoreTier<String, Long> {
+
+    @Override
+    public void spill(String receiptId, Long scored) {
+    }
+
+    @Override
+    public Long load(String receiptId) {
+      return receiptPointsStore.evictionCount() == 0 ? null : findInLog(receiptId);
+    }
+  }
+
+  private void replay(Path path) throws IOException {
+    try (FileChannel replayChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = replayChannel.map(FileChannel.MapMode.READ_ONLY, 0, replayChannel.size());
+      int index = segmentIndexOf(path);
+      BloomFilter filter = filter(index, Math.max(segmentSize, replayChannel.size()));
+      CRC32C crc = new CRC32C();
+      int position = 0;
+      while (position + 4 <= buffer.limit()) {
+        int length = buffer.getInt(position);
+        if (length == 0) {
+          break;
+        }
+        if (!isIntact(crc, buffer, position, length)) {
+          log.warn("Truncating receipt log segment {} at byte {}: the record is corrupt", path, position);
+          truncatedEnds.put(index, position);
+          break;
+        }
+        int idLength = buffer.get(position + 5);
+        byte[] id = new byte[idLength];
+        buffer.get(position + 6, id);
+        filter.add(id);
+        long scored = scored(buffer, position, idLength);
+        receiptPointsStore.put(new String(id, StandardCharsets.US_ASCII), IPointsStore.points(scored),
+                IPointsStore.ruleVersion(scored));
+        recovered++;
+        position += 4 + length;
+      }
+      replayedEnd = position;
+    }
+  }
+
+  /**
+   * Tells whether the record at {@code position} was written completely. A record whose payload did not reach the
+   * disk has a length past the end of the segment, an unknown type, an ID length that does not match its length or
+   * a checksum that does not match.
+   */
+  private static boolean isIntact(CRC32C crc, MappedByteBuffer buffer, int position, int length) {
+    if (length < 1 + 1 + 4 + 4 + 4 || position + 4 + length > buffer.limit()
+            || buffer.get(position + 4) != CHECKED_RECORD) {
+      return false;
+    }
+    int idLength = buffer.get(position + 5);
+    return idLength >= 0 && length == 1 + 1 + idLength + 4 + 4 + 4
+            && checksum(crc, buffer, position, length) == buffer.getInt(position + length);
+  }
+
+  private List<Path> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                      && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+              .sorted()
+              .toList();
+    }
+  }
+
+  private Path segmentPath(int index) {
+    return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+  }
+
+  private static int segmentIndexOf(Path path) {
+    String name = path.getFileName().toString();
+    return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
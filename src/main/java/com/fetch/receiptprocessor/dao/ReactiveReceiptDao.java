@@ -0,0 +1,62 @@
+package com.fetch.receiptprocessor.dao;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IReactiveReceiptDao} over the configured {@link IReceiptDao}.
+ * <p>
+ * The in-memory store never blocks, so its calls run directly on the event loop. Calls to any other store, such as
+ * the log store that may fault pages in or scan segments for evicted receipts, are moved to the bounded elastic
+ * scheduler so that they never stall the event loop.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReceiptDao implements IReactiveReceiptDao {
+
+  private final IReceiptDao receiptDao;
+
+  private final Scheduler scheduler;
+
+  public ReactiveReceiptDao(IReceiptDao receiptDao, StoreConfig config) {
+    this.receiptDao = receiptDao;
+    this.scheduler = "memory".equals(config.getType()) ? Schedulers.immediate() : Schedulers.boundedElastic();
+  }
+
+  @Override
+  public Mono<String> saveReceiptPoints(int points, int ruleVersion) {
+    return Mono.fromCallable(() -> receiptDao.saveReceiptPoints(points, ruleVersion)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<List<String>> saveAllReceiptPoints(int[] points, int ruleVersion) {
+    return Mono.fromCallable(() -> receiptDao.saveAllReceiptPoints(points, ruleVersion)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Integer> getReceiptPoints(String receiptId) {
+    return Mono.fromCallable(() -> receiptDao.getReceiptPoints(receiptId)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public boolean isReceiptHeld(String receiptId) {
+    return receiptDao.isReceiptHeld(receiptId);
+  }
+
+  @Override
+  public Mono<Map<String, Integer>> getReceiptPoints(Collection<String> receiptIds) {
+    return Mono.fromCallable(() -> receiptDao.getReceiptPoints(receiptIds)).subscribeOn(scheduler);
+  }
+
+  @Override
+  public Mono<Integer> getReceiptRuleVersion(String receiptId) {
+    return Mono.fromCallable(() -> receiptDao.getReceiptRuleVersion(receiptId)).subscribeOn(scheduler);
+  }
+}
@@ -1,10 +1,16 @@
 package com.fetch.receiptprocessor.dao;
 
-import com.fetch.receiptprocessor.dao.data.Store;
-import com.fetch.receiptprocessor.util.Generator;
+import com.fetch.receiptprocessor.dao.data.IPointsStore;
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * Data Access Object (DAO) for managing receipt points storage and retrieval.
@@ -12,25 +18,85 @@ import org.springframework.stereotype.Repository;
  */
 @Slf4j
 @Repository
+@ConditionalOnProperty(name = "store.type", havingValue = "memory", matchIfMissing = true)
 public class ReceiptDao implements IReceiptDao {
 
-  private final Store<String, Integer> receiptPointsStore = new Store<>();
+  private final IPointsStore receiptPointsStore;
+
+  private final IReceiptIdGenerator receiptIdGenerator;
+
+  /**
+   * Constructs a new ReceiptDao with the index type and eviction bounds from the store configuration.
+   * There is no persistent tier behind this DAO, so receipts evicted from memory are no longer found.
+   *
+   * @param config             the store configuration
+   * @param receiptIdGenerator the generator for new receipt IDs
+   */
+  public ReceiptDao(StoreConfig config, IReceiptIdGenerator receiptIdGenerator) {
+    config.checkIdGenerator(receiptIdGenerator);
+    this.receiptIdGenerator = receiptIdGenerator;
+    this.receiptPointsStore = IPointsStore.forConfig(config.getIndexType(), config.getMaxEntries(),
+            config.getMaxAge(), null);
+  }
 
   /**
    * Saves the specified number of points against a newly generated receipt ID.
    *
-   * @param points the number of points to save
+   * @param points      the number of points to save
+   * @param ruleVersion the version of the rules that awarded the points
    * @return the generated receipt ID under which the points were saved
    */
   @Override
-  public String saveReceiptPoints(int points) {
+  public String saveReceiptPoints(int points, int ruleVersion) {
 
-    String receiptId = Generator.generateReceiptId();
-    receiptPointsStore.put(receiptId, points);
-    log.info("Saved {} points for receipt ID: {}", points, receiptId);
+    String receiptId = receiptIdGenerator.generateReceiptId();
+    receiptPointsStore.put(receiptId, points, ruleVersion);
+    log.debug("Saved {} points for receipt ID: {}", points, receiptId);
     return receiptId;
   }
 
+  /**
+   * Saves the points of several receipts against newly generated receipt IDs with a single bulk write to the store.
+   *
+   * @param points      the number of points to save, one entry per receipt
+   * @param ruleVersion the version of the rules that awarded the points
+   * @return the generated receipt IDs, in the same order as {@code points}
+   */
+  @Override
+  public List<String> saveAllReceiptPoints(int[] points, int ruleVersion) {
+
+    List<String> receiptIds = new ArrayList<>(points.length);
+    for (int i = 0; i < points.length; i++) {
+      receiptIds.add(receiptIdGenerator.generateReceiptId());
+    }
+    saveAllReceiptPoints(receiptIds, points, ruleVersion);
+    return receiptIds;
+  }
+
+  /**
+   * Saves the points of several receipts against previously generated receipt IDs with a single bulk write.
+   *
+   * @param receiptIds  the receipt IDs
+   * @param points      the number of points to save, one entry per receipt ID
+   * @param ruleVersion the version of the rules that awarded the points
+   */
+  @Override
+  public void saveAllReceiptPoints(List<String> receiptIds, int[] points, int ruleVersion) {
+
+    receiptPointsStore.putAll(receiptIds, points, ruleVersion);
+    log.debug("Saved points for {} receipts", points.length);
+  }
+
+  @Override
+  public boolean[] replaceAllReceiptPointsIfOlder(List<String> receiptIds, int[] points, int ruleVersion) {
+
+    boolean[] replaced = new boolean[points.length];
+    for (int i = 0; i < points.length; i++) {
+      replaced[i] = receiptPointsStore.replaceIfOlder(receiptIds.get(i), points[i], ruleVersion);
+    }
+    return replaced;
+  }
+
   /**
    * Retrieves the number of points associated with a given receipt ID.
    *
@@ -42,10 +108,49 @@ public class ReceiptDao implements IReceiptDao {
 
     Integer points = receiptPointsStore.get(receiptId);
     if (points != null) {
-      log.info("Retrieved {} points for receipt ID: {}", points, receiptId);
+      log.debug("Retrieved {} points for receipt ID: {}", points, receiptId);
     } else {
-      log.warn("No points found for receipt ID: {}", receiptId);
+      log.debug("No points found for receipt ID: {}", receiptId);
     }
     return points;
   }
+
+  /**
+   * Retrieves the points of several receipts with one lookup per ID.
+   *
+   * @param receiptIds the IDs of the receipts for which to retrieve points
+   * @return the points by receipt ID, in the order of {@code receiptIds}; IDs without points are left out
+   */
+  @Override
+  public Map<String, Integer> getReceiptPoints(Collection<String> receiptIds) {
+
+    Map<String, Integer> points = receiptPointsStore.getAll(receiptIds);
+    log.debug("Retrieved points for {} of {} receipt IDs", points.size(), receiptIds.size());
+    return points;
+  }
+
+  @Override
+  public boolean isReceiptHeld(String receiptId) {
+    return receiptPointsStore.isHeld(receiptId);
+  }
+
+  @Override
+  public Integer getReceiptRuleVersion(String receiptId) {
+    return receiptPointsStore.getRuleVersion(receiptId);
+  }
+
+  @Override
+  public long getStoredReceiptCount() {
+    return receiptPointsStore.size();
+  }
+
+  @Override
+  public long getEstimatedMemoryBytes() {
+    return receiptPointsStore.estimatedMemoryBytes();
+  }
+
+  @Override
+  public long getEvictedReceiptCount() {
+    return receiptPointsStore.evictionCount();
+  }
 }
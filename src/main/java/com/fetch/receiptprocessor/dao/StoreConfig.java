@@ -0,0 +1,52 @@
+package com.fetch.receiptprocessor.dao;
+
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "store")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreConfig {
+
+  /**
+   * Receipt points storage backend: {@code memory} (default) or {@code log} for the durable append-only log.
+   */
+  private String type = "memory";
+  /**
+   * In-memory index of receipt points: {@code generic} (default) or {@code compact} for UUID receipt IDs.
+   */
+  private String indexType = "generic";
+  /**
+   * Maximum number of receipts held in memory, or {@code 0} for no limit. Only supported by the generic index.
+   */
+  private long maxEntries;
+  /**
+   * Maximum time a receipt is held in memory after it was saved, or unset for no limit.
+   */
+  private Duration maxAge;
+  private String logDirectory = "data";
+  private int logSegmentSize = 64 * 1024 * 1024;
+  private long logSyncIntervalMs = 10;
+
+  /**
+   * Fails fast when the configured index cannot hold the IDs of the given generator.
+   *
+   * @param receiptIdGenerator the receipt ID generator in use
+   * @throws IllegalStateException if the compact index is combined with a generator of non-UUID IDs
+   */
+  void checkIdGenerator(IReceiptIdGenerator receiptIdGenerator) {
+    if ("compact".equals(indexType) && !receiptIdGenerator.producesUuids()) {
+      throw new IllegalStateException("store.indexType=compact requires an id strategy that produces UUIDs");
+    }
+  }
+}
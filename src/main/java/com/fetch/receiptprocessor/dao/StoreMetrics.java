@@ -0,0 +1,35 @@
+package com.fetch.receiptprocessor.dao;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the size, estimated heap use and evictions of the receipt store. The values are read from the
+ * {@link IReceiptDao} when the metrics are scraped, so the store itself is not instrumented.
+ */
+@Component
+public class StoreMetrics implements MeterBinder {
+
+  private final IReceiptDao receiptDao;
+
+  public StoreMetrics(IReceiptDao receiptDao) {
+    this.receiptDao = receiptDao;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("receipts.store.size", receiptDao, IReceiptDao::getStoredReceiptCount)
+            .description("Receipts held in memory")
+            .register(registry);
+    Gauge.builder("receipts.store.memory", receiptDao, IReceiptDao::getEstimatedMemoryBytes)
+            .description("Estimated heap used by the receipts held in memory")
+            .baseUnit("bytes")
+            .register(registry);
+    FunctionCounter.builder("receipts.store.evictions", receiptDao, IReceiptDao::getEvictedReceiptCount)
+            .description("Receipts evicted from memory because of the store bounds")
+            .register(registry);
+  }
+}
@@ -0,0 +1,157 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index from receipt IDs to the points awarded for them and the version of the rules that awarded them.
+ * <p>
+ * Stores keep both as a single {@code long}, see {@link #pack(int, int)}, so recording the rule version costs no
+ * extra lookup or object per receipt.
+ */
+public interface IPointsStore {
+
+  /**
+   * Returns the points stored for the given receipt ID.
+   *
+   * @param receiptId the receipt ID
+   * @return the stored points, or {@code null} if no points are stored for the ID
+   */
+  Integer get(String receiptId);
+
+  /**
+   * Tells whether points are held in memory for the given receipt ID, without loading them from the persistent tier.
+   *
+   * @param receiptId the receipt ID
+   * @return {@code true} if the receipt is held in memory
+   */
+  default boolean isHeld(String receiptId) {
+    return get(receiptId) != null;
+  }
+
+  /**
+   * Returns the points stored for several receipt IDs. Unlike {@link #get(String)}, receipts that are not held in
+   * memory are not loaded from the persistent tier, so that the caller can look all of them up in one pass.
+   *
+   * @param receiptIds the receipt IDs
+   * @return the stored points by receipt ID, in the order of {@code receiptIds}; IDs without points are left out
+   */
+  default Map<String, Integer> getAll(Collection<String> receiptIds) {
+    Map<String, Integer> points = new LinkedHashMap<>();
+    for (String receiptId : receiptIds) {
+      Integer stored = get(receiptId);
+      if (stored != null) {
+        points.put(receiptId, stored);
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Returns the version of the rules that awarded the points stored for the given receipt ID.
+   *
+   * @param receiptId the receipt ID
+   * @return the rule version, or {@code null} if no points are stored for the ID
+   */
+  Integer getRuleVersion(String receiptId);
+
+  /**
+   * Stores the points for the given receipt ID, replacing any previous value.
+   *
+   * @param receiptId   the receipt ID
+   * @param points      the points to store
+   * @param ruleVersion the version of the rules that awarded the points
+   */
+  void put(String receiptId, int points, int ruleVersion);
+
+  /**
+   * Replaces the points stored for the given receipt ID if they were awarded by an older version of the rules. The
+   * version is compared and the points replaced in one atomic step, so points awarded by a newer version are never
+   * overwritten, whatever the order of concurrent writers.
+   *
+   * @param receiptId   the receipt ID
+   * @param points      the points to store
+   * @param ruleVersion the version of the rules that awarded the points
+   * @return {@code true} if the points were replaced, {@code false} if no points are stored for the ID or they were
+   * awarded by {@code ruleVersion} or a later version
+   */
+  boolean replaceIfOlder(String receiptId, int points, int ruleVersion);
+
+  /**
+   * Stores the points for several receipt IDs, all awarded by the same version of the rules.
+   *
+   * @param receiptIds  the receipt IDs
+   * @param points      the points to store, one entry per receipt ID
+   * @param ruleVersion the version of the rules that awarded the points
+   */
+  void putAll(List<String> receiptIds, int[] points, int ruleVersion);
+
+  /**
+   * Returns the number of stored receipts.
+   *
+   * @return the number of stored receipts
+   */
+  long size();
+
+  /**
+   * Returns an estimate of the heap used by the stored receipts.
+   *
+   * @return the estimated size in bytes
+   */
+  long estimatedMemoryBytes();
+
+  /**
+   * Returns the number of receipts evicted from memory because of the configured bounds.
+   *
+   * @return the number of evicted receipts
+   */
+  default long evictionCount() {
+    return 0;
+  }
+
+  /**
+   * Packs points and the version of the rules that awarded them into the value held by a store.
+   *
+   * @param points      the points
+   * @param ruleVersion the rule version
+   * @return the rule version in the high and the points in the low 32 bits
+   */
+  static long pack(int points, int ruleVersion) {
+    return (long) ruleVersion << 32 | (points & 0xFFFFFFFFL);
+  }
+
+  static int points(long scored) {
+    return (int) scored;
+  }
+
+  static int ruleVersion(long scored) {
+    return (int) (scored >>> 32);
+  }
+
+  /**
+   * Creates the store for the configured index type.
+   *
+   * @param indexType  {@code generic} for a {@link Store} backed index or {@code compact} for a {@link UuidPointsStore}
+   * @param maxEntries the maximum number of receipts held in memory, or {@code 0} for no limit
+   * @param maxAge     the maximum time a receipt is held in memory, or {@code null} for no limit
+   * @param tier       the persistent tier evicted receipts are spilled to, or {@code null}
+   * @return a new, empty store
+   * @throws IllegalArgumentException if the index type is unknown, or bounds are requested for the compact index
+   */
+  static IPointsStore forConfig(String indexType, long maxEntries, Duration maxAge, IStoreTier<String, Long> tier) {
+    boolean bounded = maxEntries > 0 || maxAge != null;
+    return switch (indexType) {
+      case "generic" -> bounded ? new MapPointsStore(maxEntries, maxAge, tier) : new MapPointsStore();
+      case "compact" -> {
+        if (bounded) {
+          throw new IllegalArgumentException("Eviction bounds are not supported by the compact store index");
+        }
+        yield new UuidPointsStore();
+      }
+      default -> throw new IllegalArgumentException("Unknown store index type: " + indexType);
+    };
+  }
+}
@@ -0,0 +1,27 @@
+package com.fetch.receiptprocessor.dao.data;
+
+/**
+ * Persistent tier behind a bounded {@link Store}. Entries evicted from memory are handed to the tier, and lookups
+ * that miss in memory fall back to it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface IStoreTier<K, V> {
+
+  /**
+   * Receives an entry that was evicted from memory.
+   *
+   * @param key   the evicted key
+   * @param value the evicted value
+   */
+  void spill(K key, V value);
+
+  /**
+   * Looks up an entry that is not held in memory.
+   *
+   * @param key the key to look up
+   * @return the value, or {@code null} if the tier does not hold the key either
+   */
+  V load(K key);
+}
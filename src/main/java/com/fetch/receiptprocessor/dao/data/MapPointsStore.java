@@ -0,0 +1,108 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IPointsStore} backed by the generic {@link Store}. Accepts receipt IDs of any format.
+ */
+public class MapPointsStore implements IPointsStore {
+
+  /**
+   * A 36 character UUID {@code String}, a boxed {@code Long}, a map node and its table slot.
+   */
+  static final long ESTIMATED_ENTRY_BYTES = 150;
+
+  private final Store<String, Long> store;
+
+  public MapPointsStore() {
+    this.store = new Store<>();
+  }
+
+  /**
+   * Creates a bounded store, see {@link Store#Store(long, Duration, IStoreTier)}.
+   */
+  public MapPointsStore(long maxEntries, Duration maxAge, IStoreTier<String, Long> tier) {
+    this.store = new Store<>(maxEntries, maxAge, tier);
+  }
+
+  @Override
+  public Integer get(String receiptId) {
+    Long scored = store.get(receiptId);
+    return scored == null ? null : IPointsStore.points(scored);
+  }
+
+  @Override
+  public boolean isHeld(String receiptId) {
+    return store.getIfPresent(receiptId) != null;
+  }
+
+  @Override
+  public Map<String, Integer> getAll(Collection<String> receiptIds) {
+    Map<String, Integer> points = new LinkedHashMap<>();
+    for (String receiptId : receiptIds) {
+      Long scored = store.getIfPresent(receiptId);
+      if (scored != null) {
+        points.put(receiptId, IPointsStore.points(scored));
+      }
+    }
+    return points;
+  }
+
+  @Override
+  public Integer getRuleVersion(String receiptId) {
+    Long scored = store.get(receiptId);
+    return scored == null ? null : IPointsStore.ruleVersion(scored);
+  }
+
+  @Override
+  public void put(String receiptId, int points, int ruleVersion) {
+    store.put(receiptId, IPointsStore.pack(points, ruleVersion));
+  }
+
+  /**
+   * Replaces the packed points and rule version with a compare-and-set, retried if another writer replaced them
+   * meanwhile. A receipt evicted from memory is loaded back from the tier first.
+   */
+  @Override
+  public boolean replaceIfOlder(String receiptId, int points, int ruleVersion) {
+    Long rescored = IPointsStore.pack(points, ruleVersion);
+    while (true) {
+      Long scored = store.get(receiptId);
+      if (scored == null || IPointsStore.ruleVersion(scored) >= ruleVersion) {
+        return false;
+      }
+      if (store.replace(receiptId, scored, rescored)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public void putAll(List<String> receiptIds, int[] points, int ruleVersion) {
+    Map<String, Long> entries = new HashMap<>(receiptIds.size() * 2);
+    for (int i = 0; i < points.length; i++) {
+      entries.put(receiptIds.get(i), IPointsStore.pack(points[i], ruleVersion));
+    }
+    store.putAll(entries);
+  }
+
+  @Override
+  public long size() {
+    return store.size();
+  }
+
+  @Override
+  public long estimatedMemoryBytes() {
+    return store.size() * ESTIMATED_ENTRY_BYTES;
+  }
+
+  @Override
+  public long evictionCount() {
+    return store.evictionCount();
+  }
+}
@@ -0,0 +1,241 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only, in-memory archive of parsed receipts, kept so that their points can be recomputed when the rules
+ * change.
+ * <p>
+ * Every receipt is appended to a list of fixed-size chunks as {@code [int length][receiptId][receipt]}, where the
+ * receipt is in the {@link ReceiptCodec} encoding with retailer names and item descriptions replaced by references
+ * into a dictionary shared by the whole archive. Apart from its ID, a receipt made of known strings takes 10 to 30
+ * bytes, against several hundred as JSON and over a kilobyte as {@code Receipt} objects.
+ * <p>
+ * Appends encode outside of a short lock that only reserves space and copies the bytes. Each chunk publishes how far
+ * it is filled with a volatile write, so {@link Cursor}s read chunks without locking, concurrently with appends, and
+ * see every record appended before they reached the end of the chunk. Once {@code maxBytes} are used, further
+ * receipts are counted as rejected instead of retained. The dictionary counts towards {@code maxBytes} with the
+ * approximate heap size of its strings; when it has no room left, new strings are stored in the records instead.
+ */
+public final class ReceiptArchive {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private final int chunkSize;
+
+  private final long maxBytes;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  private volatile Chunk[] chunks = new Chunk[0];
+
+  private volatile long size;
+
+  private volatile long bytes;
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final ReceiptCodec.Dictionary strings = new ReceiptCodec.Dictionary(true, MAX_DICTIONARY_SIZE,
+          this::reserve);
+
+  /**
+   * Creates an empty archive.
+   *
+   * @param maxBytes  the maximum number of bytes used by the records and the dictionary
+   * @param chunkSize the size of the chunks records are appended to; larger records get a chunk of their own
+   */
+  public ReceiptArchive(long maxBytes, int chunkSize) {
+    if (maxBytes <= 0 || chunkSize <= 0) {
+      throw new IllegalArgumentException("The archive size and chunk size must be positive");
+    }
+    this.maxBytes = maxBytes;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Appends a receipt.
+   *
+   * @param receiptId the ID the receipt's points are saved under
+   * @param record    the parsed receipt
+   * @return {@code true} if the receipt was retained, {@code false} if the archive is full
+   */
+  public boolean add(String receiptId, ReceiptRecord record) {
+    ReceiptCodec.Writer encoded = new ReceiptCodec.Writer(128);
+    encoded.writeString(receiptId);
+    encoded.writeReceipt(record, strings);
+    int length = Integer.BYTES + encoded.size();
+    appendLock.lock();
+    try {
+      if (bytes + length > maxBytes) {
+        rejected.increment();
+        return false;
+      }
+      Chunk[] current = chunks;
+      Chunk chunk = current.length == 0 ? null : current[current.length - 1];
+      if (chunk == null || chunk.data.length - chunk.limit < length) {
+        chunk = new Chunk(Math.max(chunkSize, length));
+        Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = chunk;
+        chunks = grown;
+      }
+      int position = chunk.limit;
+      writeInt(chunk.data, position, encoded.size());
+      encoded.copyTo(chunk.data, position + Integer.BYTES);
+      chunk.limit = position + length;
+      bytes += length;
+      size++;
+      return true;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Accounts for a new dictionary entry, if it fits within {@code maxBytes}.
+   */
+  private boolean reserve(int length) {
+    appendLock.lock();
+    try {
+      if (bytes + length > maxBytes) {
+        return false;
+      }
+      bytes += length;
+      return true;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of chunks, which can be read independently of each other.
+   *
+   * @return the number of chunks
+   */
+  public int chunkCount() {
+    return chunks.length;
+  }
+
+  /**
+   * Returns a cursor over the receipts of a chunk, in the order they were added.
+   *
+   * @param chunk the index of the chunk, less than {@link #chunkCount()}
+   * @return the cursor
+   */
+  public Cursor cursor(int chunk) {
+    return new Cursor(chunks[chunk], strings);
+  }
+
+  /**
+   * Returns the number of retained receipts.
+   *
+   * @return the number of receipts
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes used by the retained receipts and the approximate heap size of the dictionary.
+   *
+   * @return the number of bytes
+   */
+  public long bytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of distinct retailer names and item descriptions in the dictionary.
+   *
+   * @return the number of dictionary entries
+   */
+  public int dictionarySize() {
+    return strings.size();
+  }
+
+  /**
+   * Returns the number of receipts that were not retained because the archive was full.
+   *
+   * @return the number of rejected receipts
+   */
+  public long rejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Reads the receipts of one chunk. Not thread-safe; every reader uses its own cursor.
+   */
+  public static final class Cursor {
+
+    private final Chunk chunk;
+
+    private final ReceiptCodec.Dictionary strings;
+
+    private int position;
+
+    private String receiptId;
+
+    private ReceiptRecord record;
+
+    private Cursor(Chunk chunk, ReceiptCodec.Dictionary strings) {
+      this.chunk = chunk;
+      this.strings = strings;
+    }
+
+    /**
+     * Moves to the next receipt.
+     *
+     * @return {@code false} if there are no more receipts in the chunk
+     */
+    public boolean next() {
+      if (position >= chunk.limit) {
+        return false;
+      }
+      byte[] data = chunk.data;
+      int length = readInt(data, position);
+      position += Integer.BYTES;
+      ReceiptCodec.Reader reader = new ReceiptCodec.Reader(data, position, position + length);
+      receiptId = reader.readString();
+      record = reader.readReceipt(strings);
+      position += length;
+      return true;
+    }
+
+    public String receiptId() {
+      return receiptId;
+    }
+
+    public ReceiptRecord record() {
+      return record;
+    }
+  }
+
+  private static final class Chunk {
+
+    private final byte[] data;
+
+    private volatile int limit;
+
+    private Chunk(int size) {
+      this.data = new byte[size];
+    }
+  }
+
+  private static void writeInt(byte[] buffer, int position, int value) {
+    buffer[position] = (byte) (value >>> 24);
+    buffer[position + 1] = (byte) (value >>> 16);
+    buffer[position + 2] = (byte) (value >>> 8);
+    buffer[position + 3] = (byte) value;
+  }
+
+  private static int readInt(byte[] buffer, int position) {
+    return (buffer[position] & 0xFF) << 24 | (buffer[position + 1] & 0xFF) << 16
+            | (buffer[position + 2] & 0xFF) << 8 | buffer[position + 3] & 0xFF;
+  }
+}
@@ -1,12 +1,82 @@
 package com.fetch.receiptprocessor.dao.data;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+/**
+ * Thread-safe in-memory key-value store.
+ * <p>
+ * The store is unbounded by default. When a maximum number of entries or a maximum age is given, it is backed by a
+ * Caffeine cache that evicts with the W-TinyLFU policy, so recent and frequently read entries stay in memory.
+ * Evicted entries are spilled to the optional {@link IStoreTier}, which also serves lookups that miss in memory.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
 public class Store<K, V> {
-  private final Map<K, V> cache = new ConcurrentHashMap<>();
+
+  private final Map<K, V> cache;
+
+  private final Cache<K, V> boundedCache;
+
+  private final IStoreTier<K, V> tier;
+
+  public Store() {
+    this(0, null, null);
+  }
+
+  /**
+   * Creates a store with the given bounds.
+   *
+   * @param maxEntries the maximum number of entries held in memory, or {@code 0} for no limit
+   * @param maxAge     the maximum time an entry is held in memory after it was written, or {@code null} for no limit
+   * @param tier       the tier evicted entries are spilled to, or {@code null} to drop them
+   */
+  public Store(long maxEntries, Duration maxAge, IStoreTier<K, V> tier) {
+    this.tier = tier;
+    if (maxEntries <= 0 && maxAge == null) {
+      this.boundedCache = null;
+      this.cache = new ConcurrentHashMap<>();
+      return;
+    }
+
+    // Maintenance runs on the calling thread so that evictions are spilled before the write returns
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().executor(Runnable::run).recordStats();
+    if (maxEntries > 0) {
+      builder.maximumSize(maxEntries);
+    }
+    if (maxAge != null) {
+      builder.expireAfterWrite(maxAge);
+    }
+    this.boundedCache = tier == null
+            ? builder.build()
+            : builder.<K, V>evictionListener((key, value, cause) -> tier.spill(key, value)).build();
+    this.cache = boundedCache.asMap();
+  }
 
   public V get(K key) {
+    V value = cache.get(key);
+    if (value == null && tier != null) {
+      value = tier.load(key);
+      if (value != null) {
+        cache.putIfAbsent(key, value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value held in memory for the key, without loading it from the tier.
+   *
+   * @param key the key
+   * @return the value, or {@code null} if the key is not held in memory
+   */
+  public V getIfPresent(K key) {
     return cache.get(key);
   }
 
@@ -14,4 +84,72 @@ public class Store<K, V> {
     cache.put(key, value);
   }
 
+  /**
+   * Returns the value for the key, atomically computing and storing it first if the key is absent.
+   *
+   * @param key             the key
+   * @param mappingFunction computes the value of an absent key; called at most once per absent key
+   * @return the existing or computed value
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    return cache.computeIfAbsent(key, mappingFunction);
+  }
+
+  /**
+   * Stores the value unless the key already has one.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the existing value, or {@code null} if the value was stored
+   */
+  public V putIfAbsent(K key, V value) {
+    return cache.putIfAbsent(key, value);
+  }
+
+  /**
+   * Replaces the value of the key only if it still maps to the expected value.
+   *
+   * @param key      the key
+   * @param expected the expected value
+   * @param value    the new value
+   * @return {@code true} if the value was replaced
+   */
+  public boolean replace(K key, V expected, V value) {
+    return cache.replace(key, expected, value);
+  }
+
+  /**
+   * Removes the entry for the key only if it still maps to the given value.
+   *
+   * @param key   the key
+   * @param value the expected value
+   * @return {@code true} if the entry was removed
+   */
+  public boolean remove(K key, V value) {
+    return cache.remove(key, value);
+  }
+
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    cache.putAll(entries);
+  }
+
+  /**
+   * Removes all entries held in memory. Entries already spilled to the tier are kept.
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  public long size() {
+    return boundedCache != null ? boundedCache.estimatedSize() : cache.size();
+  }
+
+  /**
+   * Returns the number of entries evicted from memory because of the size or age bounds.
+   *
+   * @return the number of evicted entries, always {@code 0} for an unbounded store
+   */
+  public long evictionCount() {
+    return boundedCache != null ? boundedCache.stats().evictionCount() : 0;
+  }
 }
@@ -0,0 +1,300 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact {@link IPointsStore} for receipt IDs in the canonical lower-case UUID format.
+ * <p>
+ * Each ID is stored as its 128-bit value in two {@code long}s next to a primitive {@code long} holding the points and
+ * their rule version, in open-addressing tables built from plain arrays. That is roughly 32 bytes per receipt at the
+ * maximum load factor, compared to 150+ bytes for a {@code String} key, a boxed value and a hash map node.
+ * <p>
+ * The key space is split into independently locked stripes so that concurrent writers rarely contend. Reads are
+ * optimistic and only fall back to the stripe's read lock when they overlap with a write.
+ * <p>
+ * IDs that are not canonical UUIDs, including the nil UUID, are never stored: {@link #get(String)} returns
+ * {@code null} for them and {@link #put(String, int, int)} rejects them.
+ */
+public class UuidPointsStore implements IPointsStore {
+
+  private static final int STRIPE_BITS = 6;
+  private static final int INITIAL_STRIPE_CAPACITY = 256;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int SLOT_BYTES = Long.BYTES * 3;
+
+  private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+  public UuidPointsStore() {
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  @Override
+  public Integer get(String receiptId) {
+    Long scored = getScored(receiptId);
+    return scored == null ? null : IPointsStore.points(scored);
+  }
+
+  @Override
+  public Integer getRuleVersion(String receiptId) {
+    Long scored = getScored(receiptId);
+    return scored == null ? null : IPointsStore.ruleVersion(scored);
+  }
+
+  private Long getScored(String receiptId) {
+    if (!isUuid(receiptId)) {
+      return null;
+    }
+    long hi = mostSignificantBits(receiptId);
+    long lo = leastSignificantBits(receiptId);
+    long hash = hash(hi, lo);
+    return stripeFor(hash).get(hi, lo, hash);
+  }
+
+  @Override
+  public void put(String receiptId, int points, int ruleVersion) {
+    if (!isUuid(receiptId)) {
+      throw new IllegalArgumentException("Receipt ID is not a canonical UUID: " + receiptId);
+    }
+    long hi = mostSignificantBits(receiptId);
+    long lo = leastSignificantBits(receiptId);
+    long hash = hash(hi, lo);
+    stripeFor(hash).put(hi, lo, hash, IPointsStore.pack(points, ruleVersion));
+  }
+
+  @Override
+  public boolean replaceIfOlder(String receiptId, int points, int ruleVersion) {
+    if (!isUuid(receiptId)) {
+      return false;
+    }
+    long hi = mostSignificantBits(receiptId);
+    long lo = leastSignificantBits(receiptId);
+    long hash = hash(hi, lo);
+    return stripeFor(hash).replaceIfOlder(hi, lo, hash, IPointsStore.pack(points, ruleVersion));
+  }
+
+  @Override
+  public void putAll(List<String> receiptIds, int[] points, int ruleVersion) {
+    for (int i = 0; i < points.length; i++) {
+      put(receiptIds.get(i), points[i], ruleVersion);
+    }
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the size of the slot arrays, which grow with the number of receipts rather than being allocated per
+   * receipt.
+   */
+  @Override
+  public long estimatedMemoryBytes() {
+    long slots = 0;
+    for (Stripe stripe : stripes) {
+      slots += stripe.capacity();
+    }
+    return slots * SLOT_BYTES;
+  }
+
+  private Stripe stripeFor(long hash) {
+    return stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+  }
+
+  private static long hash(long hi, long lo) {
+    long h = hi ^ Long.rotateLeft(lo, 32);
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  static boolean isUuid(String id) {
+    if (id == null || id.length() != 36) {
+      return false;
+    }
+    boolean nonZero = false;
+    for (int i = 0; i < 36; i++) {
+      char c = id.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      } else if (c != '0') {
+        nonZero = true;
+      }
+    }
+    return nonZero;
+  }
+
+  private static long mostSignificantBits(String id) {
+    return parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18);
+  }
+
+  private static long leastSignificantBits(String id) {
+    return parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36);
+  }
+
+  private static long parseHex(String id, int from, int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      char c = id.charAt(i);
+      value = value << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+    }
+    return value;
+  }
+
+  /**
+   * Open-addressing table with linear probing; an all-zero key marks an empty slot.
+   */
+  private static final class Table {
+
+    final long[] his;
+    final long[] los;
+    final long[] values;
+    final int mask;
+
+    Table(int capacity) {
+      his = new long[capacity];
+      los = new long[capacity];
+      values = new long[capacity];
+      mask = capacity - 1;
+    }
+  }
+
+  private static final class Stripe {
+
+    private final StampedLock lock = new StampedLock();
+
+    private Table table = new Table(INITIAL_STRIPE_CAPACITY);
+
+    private int size;
+
+    Long get(long hi, long lo, long hash) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        Table current = table;
+        int slot = find(current, hi, lo, hash);
+        long value = slot >= 0 ? current.values[slot] : 0;
+        if (lock.validate(stamp)) {
+          return slot >= 0 ? value : null;
+        }
+      }
+      stamp = lock.readLock();
+      try {
+        Table current = table;
+        int slot = find(current, hi, lo, hash);
+        return slot >= 0 ? current.values[slot] : null;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    void put(long hi, long lo, long hash, long scored) {
+      long stamp = lock.writeLock();
+      try {
+        if (size + 1 > table.values.length * LOAD_FACTOR) {
+          resize();
+        }
+        if (insert(table, hi, lo, hash, scored)) {
+          size++;
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    boolean replaceIfOlder(long hi, long lo, long hash, long scored) {
+      long stamp = lock.writeLock();
+      try {
+        int slot = find(table, hi, lo, hash);
+        if (slot < 0 || IPointsStore.ruleVersion(table.values[slot]) >= IPointsStore.ruleVersion(scored)) {
+          return false;
+        }
+        table.values[slot] = scored;
+        return true;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    long size() {
+      long stamp = lock.readLock();
+      try {
+        return size;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    long capacity() {
+      long stamp = lock.readLock();
+      try {
+        return table.values.length;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    private void resize() {
+      Table old = table;
+      Table resized = new Table(old.values.length * 2);
+      for (int i = 0; i < old.values.length; i++) {
+        if (old.his[i] != 0 || old.los[i] != 0) {
+          insert(resized, old.his[i], old.los[i], hash(old.his[i], old.los[i]), old.values[i]);
+        }
+      }
+      table = resized;
+    }
+
+    /**
+     * Returns the slot holding the key, or -1. Bounded by the table size so that an optimistic read racing with a
+     * writer always terminates; its result is then discarded by the stamp validation.
+     */
+    private static int find(Table table, long hi, long lo, long hash) {
+      int slot = (int) hash & table.mask;
+      for (int probes = 0; probes <= table.mask; probes++) {
+        long slotHi = table.his[slot];
+        long slotLo = table.los[slot];
+        if (slotHi == hi && slotLo == lo) {
+          return slot;
+        }
+        if (slotHi == 0 && slotLo == 0) {
+          return -1;
+        }
+        slot = (slot + 1) & table.mask;
+      }
+      return -1;
+    }
+
+    private static boolean insert(Table table, long hi, long lo, long hash, long scored) {
+      int slot = (int) hash & table.mask;
+      while (true) {
+        long slotHi = table.his[slot];
+        long slotLo = table.los[slot];
+        if (slotHi == hi && slotLo == lo) {
+          table.values[slot] = scored;
+          return false;
+        }
+        if (slotHi == 0 && slotLo == 0) {
+          table.values[slot] = scored;
+          table.los[slot] = lo;
+          table.his[slot] = hi;
+          return true;
+        }
+        slot = (slot + 1) & table.mask;
+      }
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.fetch.receiptprocessor.exception;
+
+/**
+ * Thrown when an {@code Idempotency-Key} that was already used for one receipt is sent with a different receipt.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+  public IdempotencyConflictException() {
+    super("Idempotency-Key was already used for a different receipt");
+  }
+}
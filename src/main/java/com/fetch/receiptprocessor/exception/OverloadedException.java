@@ -0,0 +1,11 @@
+package com.fetch.receiptprocessor.exception;
+
+/**
+ * Thrown when a receipt is rejected because the asynchronous scoring queue is full.
+ */
+public class OverloadedException extends RuntimeException {
+
+  public OverloadedException() {
+    super("Too many receipts are waiting to be processed, retry later");
+  }
+}
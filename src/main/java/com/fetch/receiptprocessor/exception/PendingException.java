@@ -0,0 +1,11 @@
+package com.fetch.receiptprocessor.exception;
+
+/**
+ * Thrown when the points of a receipt accepted by the asynchronous scoring pipeline are not ready yet.
+ */
+public class PendingException extends RuntimeException {
+
+  public PendingException(String receiptId) {
+    super("Receipt is still being processed");
+  }
+}
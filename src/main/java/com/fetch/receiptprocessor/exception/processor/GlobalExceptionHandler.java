@@ -1,19 +1,42 @@
 package com.fetch.receiptprocessor.exception.processor;
 
 import com.fetch.receiptprocessor.exception.AbsentException;
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
+import com.fetch.receiptprocessor.exception.OverloadedException;
+import com.fetch.receiptprocessor.exception.PendingException;
 import com.fetch.receiptprocessor.exception.ValidationException;
 import com.fetch.receiptprocessor.model.ErrorResponse;
+import com.fetch.receiptprocessor.service.ReceiptMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
 
+@Slf4j
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+  /**
+   * The error for a body that cannot be read as receipts. The parser's message is only logged, since it echoes the
+   * input and describes the parser's internals.
+   */
+  public static final String MALFORMED_BODY_MESSAGE = "Malformed receipt body";
+
+  private final ReceiptMetrics receiptMetrics;
+
+  public GlobalExceptionHandler(ReceiptMetrics receiptMetrics) {
+    this.receiptMetrics = receiptMetrics;
+  }
+
   @ExceptionHandler(AbsentException.class)
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public ResponseEntity<ErrorResponse> absentExceptionHandler(AbsentException ex) {
@@ -31,18 +54,99 @@ public class GlobalExceptionHandler {
   }
 
 
+  @ExceptionHandler(PendingException.class)
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public ResponseEntity<ErrorResponse> pendingExceptionHandler(PendingException ex) {
+
+    ErrorResponse errorResponse = new ErrorResponse(HttpStatus.ACCEPTED.value(), ex.getMessage());
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(errorResponse);
+  }
+
+  @ExceptionHandler(OverloadedException.class)
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public ResponseEntity<ErrorResponse> overloadedExceptionHandler(OverloadedException ex) {
+
+    ErrorResponse errorResponse = new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(), ex.getMessage());
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errorResponse);
+  }
+
+  @ExceptionHandler(IdempotencyConflictException.class)
+  @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+  public ResponseEntity<ErrorResponse> idempotencyConflictExceptionHandler(IdempotencyConflictException ex) {
+
+    ErrorResponse errorResponse = new ErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY.value(), ex.getMessage());
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(errorResponse);
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public ResponseEntity<ErrorResponse> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
 
+    return bindingErrorResponse(ex.getBindingResult());
+  }
+
+  /**
+   * Reactive counterpart of {@link #handleMethodArgumentNotValid(MethodArgumentNotValidException)}, thrown when a
+   * {@code @Valid} request body fails validation on the reactive web tier.
+   */
+  @ExceptionHandler(WebExchangeBindException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public ResponseEntity<ErrorResponse> handleWebExchangeBind(WebExchangeBindException ex) {
+
+    return bindingErrorResponse(ex.getBindingResult());
+  }
+
+  private ResponseEntity<ErrorResponse> bindingErrorResponse(BindingResult bindingResult) {
     StringBuilder errorMessage = new StringBuilder();
-    for (FieldError error : ex.getBindingResult().getFieldErrors()) {
+    for (FieldError error : bindingResult.getFieldErrors()) {
       errorMessage.append(error.getField()).append(": ").append(error.getDefaultMessage()).append("; ");
+      receiptMetrics.recordValidationFailure(error.getField() + ": " + error.getDefaultMessage());
     }
     ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), errorMessage.toString());
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
   }
 
+  /**
+   * Answers a request body that cannot be read. A receipt that failed validation while it was read, see
+   * {@code ReceiptRecordDeserializer}, gets its validation error like a receipt rejected by the service; any other
+   * unreadable body gets a fixed message, since the parser's own message names internal classes.
+   */
+  @ExceptionHandler(HttpMessageNotReadableException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public ResponseEntity<ErrorResponse> handleHttpMessageNotReadable(HttpMessageNotReadableException ex) {
+
+    return unreadableBodyResponse(ex);
+  }
+
+  /**
+   * Reactive counterpart of {@link #handleHttpMessageNotReadable(HttpMessageNotReadableException)}.
+   */
+  @ExceptionHandler(ServerWebInputException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public ResponseEntity<ErrorResponse> handleServerWebInput(ServerWebInputException ex) {
+
+    return unreadableBodyResponse(ex);
+  }
+
+  private ResponseEntity<ErrorResponse> unreadableBodyResponse(Exception ex) {
+    String message = null;
+    for (Throwable cause = ex.getCause(); cause != null && message == null; cause = cause.getCause()) {
+      if (cause instanceof ValidationException) {
+        message = cause.getMessage();
+        for (String reason : message.split("; ")) {
+          receiptMetrics.recordValidationFailure(reason);
+        }
+      }
+    }
+    if (message == null) {
+      log.debug("Rejected malformed request body: {}", ex.getMessage());
+      message = MALFORMED_BODY_MESSAGE;
+    }
+    ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), message);
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+  }
+
   @ExceptionHandler(Exception.class)
   @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
   public ResponseEntity<ErrorResponse> handleException(Exception ex) {
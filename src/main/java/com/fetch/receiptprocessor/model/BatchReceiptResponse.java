@@ -0,0 +1,28 @@
+package com.fetch.receiptprocessor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result for a single receipt of a batch submission.
+ * Exactly one of {@code id} or {@code error} is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchReceiptResponse {
+
+  private String id;
+  private String error;
+
+  public static BatchReceiptResponse success(String id) {
+    return new BatchReceiptResponse(id, null);
+  }
+
+  public static BatchReceiptResponse failure(String error) {
+    return new BatchReceiptResponse(null, error);
+  }
+}
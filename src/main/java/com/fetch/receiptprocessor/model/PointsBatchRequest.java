@@ -0,0 +1,18 @@
+package com.fetch.receiptprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Receipt IDs whose points are looked up together by {@code POST /receipts/points:batchGet}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBatchRequest {
+
+  private List<String> ids;
+}
@@ -0,0 +1,27 @@
+package com.fetch.receiptprocessor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a bulk points lookup. Every requested ID appears in exactly one of {@code points}, {@code missing} or
+ * {@code pending}, in request order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBatchResponse {
+
+  private Map<String, Integer> points;
+  private List<String> missing;
+  /**
+   * Receipts accepted with {@code scoring.mode=async} whose points are not saved yet.
+   */
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private List<String> pending;
+}
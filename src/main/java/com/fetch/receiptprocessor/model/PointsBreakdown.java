@@ -0,0 +1,36 @@
+package com.fetch.receiptprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The points of a receipt, broken down by the rule that awarded them, and the version of the rules.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBreakdown {
+
+  private int points;
+  private int ruleVersion;
+  private List<Rule> rules;
+
+  /**
+   * The points a single rule awarded to the receipt, along with the time the rule takes on average over the sampled
+   * receipts of all requests.
+   */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Rule {
+
+    private String name;
+    private int points;
+    private long sampledReceipts;
+    private double meanNanos;
+    private double maxNanos;
+  }
+}
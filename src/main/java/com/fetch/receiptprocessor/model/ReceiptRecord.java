@@ -0,0 +1,75 @@
+package com.fetch.receiptprocessor.model;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.util.Money;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Immutable, pre-parsed form of a {@link Receipt} that the points rules are evaluated on.
+ * Amounts are in cents and the purchase time is the minute of the day, so scoring needs no further parsing.
+ */
+@Value
+public class ReceiptRecord {
+
+  String retailer;
+  long epochDay;
+  int dayOfMonth;
+  int minuteOfDay;
+  long totalCents;
+  String[] itemDescriptions;
+  long[] itemPriceCents;
+
+  public int getItemCount() {
+    return itemPriceCents.length;
+  }
+
+  /**
+   * Creates the record for a receipt whose fields have already been parsed.
+   *
+   * @param retailer         the retailer name
+   * @param date             the purchase date
+   * @param time             the purchase time
+   * @param totalCents       the total in cents
+   * @param itemDescriptions the item descriptions
+   * @param itemPriceCents   the item prices in cents, in the same order as the descriptions
+   * @return the record
+   */
+  public static ReceiptRecord of(String retailer, LocalDate date, LocalTime time, long totalCents,
+                                 String[] itemDescriptions, long[] itemPriceCents) {
+    return new ReceiptRecord(retailer, date.toEpochDay(), date.getDayOfMonth(),
+            time.getHour() * 60 + time.getMinute(), totalCents, itemDescriptions, itemPriceCents);
+  }
+
+  /**
+   * Parses the string fields of a receipt into a record. Uses the receipt's parsed date and time when present.
+   *
+   * @param receipt the receipt
+   * @return the record
+   * @throws ValidationException if the total or an item price is not a valid amount
+   */
+  public static ReceiptRecord from(Receipt receipt) throws ValidationException {
+    long totalCents = toCents(receipt.getTotal(), "total is not a valid double");
+    List<Item> items = receipt.getItems();
+    String[] descriptions = new String[items.size()];
+    long[] priceCents = new long[items.size()];
+    for (int i = 0; i < items.size(); i++) {
+      descriptions[i] = items.get(i).getShortDescription();
+      priceCents[i] = toCents(items.get(i).getPrice(), "item price is not a valid double");
+    }
+    LocalDate date = receipt.getDate() != null ? receipt.getDate() : LocalDate.parse(receipt.getPurchaseDate());
+    LocalTime time = receipt.getTime() != null ? receipt.getTime() : LocalTime.parse(receipt.getPurchaseTime());
+    return of(receipt.getRetailer(), date, time, totalCents, descriptions, priceCents);
+  }
+
+  private static long toCents(String amount, String error) throws ValidationException {
+    long cents = Money.parseCents(amount);
+    if (cents == Money.INVALID) {
+      throw new ValidationException(error);
+    }
+    return cents;
+  }
+}
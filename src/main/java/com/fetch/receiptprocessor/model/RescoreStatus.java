@@ -0,0 +1,35 @@
+package com.fetch.receiptprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a job that recomputes the points of the retained receipts with a version of the rules.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescoreStatus {
+
+  public static final String IDLE = "idle";
+  public static final String RUNNING = "running";
+  public static final String COMPLETED = "completed";
+  public static final String FAILED = "failed";
+
+  private String state;
+  private int ruleVersion;
+  private long totalReceipts;
+  /**
+   * Receipts whose points were recomputed and saved with {@link #ruleVersion}.
+   */
+  private long rescoredReceipts;
+  /**
+   * Receipts left as they were, because they were evicted or already scored by {@link #ruleVersion} or a later
+   * version.
+   */
+  private long skippedReceipts;
+  private long elapsedMillis;
+  private double receiptsPerSecond;
+  private String error;
+}
@@ -0,0 +1,18 @@
+package com.fetch.receiptprocessor.model;
+
+import com.fetch.receiptprocessor.service.PointsConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A version of the points rules.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleSet {
+
+  private int version;
+  private PointsConfig rules;
+}
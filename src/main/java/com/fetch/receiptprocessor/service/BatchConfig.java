@@ -0,0 +1,27 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "batch")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchConfig {
+
+  /**
+   * The maximum number of receipts a single {@code POST /receipts/process/batch} request may hold.
+   */
+  private int maxSize = 1000;
+  /**
+   * Threads that score the receipts of batches, shared by all batch requests; {@code 0} uses all available
+   * processors.
+   */
+  private int parallelism = 0;
+}
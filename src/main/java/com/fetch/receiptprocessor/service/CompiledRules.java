@@ -0,0 +1,293 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.rules.IPointsRule;
+import com.fetch.receiptprocessor.service.rules.RuleExpression;
+import com.fetch.receiptprocessor.util.Money;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The points rules, compiled once from a {@link PointsConfig} into primitive constants.
+ * {@link #score(ReceiptRecord)} only reads primitive fields and arrays of the record and allocates nothing.
+ * All amounts are whole cents and the item multiplier is an exact fraction, so no rule uses floating point.
+ * <p>
+ * The built-in rules are followed by the {@link IPointsRule} beans and then by the configured promotions, compiled
+ * from their expressions. Each of them is given the points awarded by the rules before it. {@link #score} evaluates
+ * the promotions through a single fused method, the breakdown and profiling paths one rule at a time.
+ * <p>
+ * A compiled rule set is immutable and carries the version it was published under, so a receipt scored with it can
+ * record which rules produced its points.
+ */
+final class CompiledRules {
+
+  private final int version;
+  private final PointsConfig config;
+
+  private final int retailerNamePoints;
+  private final int roundDollarPoints;
+  private final int multipleOfQuarterPoints;
+  private final int perTwoItemsPoints;
+  private final long itemMultiplierNumerator;
+  private final long itemMultiplierDenominator;
+  private final int oddDayPoints;
+  private final int afternoonBonusPoints;
+  private final int afternoonStartSecond;
+  private final int afternoonEndSecond;
+
+  private final IPointsRule[] pluginRules;
+  private final IPointsRule promotions;
+  private final IPointsRule[] extraRules;
+  private final String[] ruleNames;
+
+  private CompiledRules(PointsConfig config, int version, List<IPointsRule> pluginRules) {
+    this.version = version;
+    this.config = copy(config);
+    this.retailerNamePoints = config.getRetailerName();
+    this.roundDollarPoints = config.getRoundDollar();
+    this.multipleOfQuarterPoints = config.getMultipleOfQuarter();
+    this.perTwoItemsPoints = config.getPerTwoItems();
+    long[] itemMultiplier = Money.toFraction(config.getMultipleOfThreeItemDescription());
+    this.itemMultiplierNumerator = itemMultiplier[0];
+    this.itemMultiplierDenominator = itemMultiplier[1];
+    this.oddDayPoints = config.getOddDay();
+    this.afternoonBonusPoints = config.getAfternoonBonus();
+    this.afternoonStartSecond = LocalTime.parse(config.getAfternoonStart()).toSecondOfDay();
+    this.afternoonEndSecond = LocalTime.parse(config.getAfternoonEnd()).toSecondOfDay();
+
+    List<RuleExpression> promotionRules = new ArrayList<>();
+    if (config.getPromotions() != null) {
+      for (PointsConfig.Promotion promotion : config.getPromotions()) {
+        promotionRules.add(RuleExpression.compile(promotion.getName(), promotion.getExpression()));
+      }
+    }
+    this.pluginRules = pluginRules.toArray(new IPointsRule[0]);
+    this.promotions = promotionRules.isEmpty() ? null : RuleExpression.fuse("promotions", promotionRules);
+    List<IPointsRule> extra = new ArrayList<>(pluginRules);
+    extra.addAll(promotionRules);
+    this.extraRules = extra.toArray(new IPointsRule[0]);
+    this.ruleNames = new String[RULE_NAMES.length + extraRules.length];
+    System.arraycopy(RULE_NAMES, 0, ruleNames, 0, RULE_NAMES.length);
+    Set<String> names = new HashSet<>(List.of(RULE_NAMES));
+    for (int i = 0; i < extraRules.length; i++) {
+      ruleNames[RULE_NAMES.length + i] = extraRules[i].getName();
+      if (!names.add(extraRules[i].getName())) {
+        throw new IllegalArgumentException("Duplicate rule name: " + extraRules[i].getName());
+      }
+    }
+  }
+
+  static CompiledRules compile(PointsConfig config) {
+    return compile(config, 1, List.of());
+  }
+
+  /**
+   * Compiles the rules of a configuration.
+   *
+   * @param config      the configuration, copied so that later changes to it do not affect the compiled rules
+   * @param version     the version the rules are published under
+   * @param pluginRules the rules provided by the application, evaluated before the configured promotions
+   * @return the compiled rules
+   * @throws RuntimeException if an afternoon bound is not a valid time, the item multiplier is not a finite number,
+   *                          a promotion is not a valid expression or two rules have the same name
+   */
+  static CompiledRules compile(PointsConfig config, int version, List<IPointsRule> pluginRules) {
+    return new CompiledRules(config, version, pluginRules);
+  }
+
+  int version() {
+    return version;
+  }
+
+  /**
+   * Returns a copy of the configuration the rules were compiled from.
+   */
+  PointsConfig config() {
+    return copy(config);
+  }
+
+  private static PointsConfig copy(PointsConfig config) {
+    List<PointsConfig.Promotion> promotions = new ArrayList<>();
+    if (config.getPromotions() != null) {
+      for (PointsConfig.Promotion promotion : config.getPromotions()) {
+        promotions.add(new PointsConfig.Promotion(promotion.getName(), promotion.getExpression()));
+      }
+    }
+    return new PointsConfig(config.getRetailerName(), config.getRoundDollar(), config.getMultipleOfQuarter(),
+            config.getPerTwoItems(), config.getMultipleOfThreeItemDescription(), config.getOddDay(),
+            config.getAfternoonBonus(), config.getAfternoonStart(), config.getAfternoonEnd(), promotions);
+  }
+
+  /**
+   * Names of the built-in rules, in evaluation order, as the {@link PointsConfig} properties that configure them.
+   */
+  static final String[] RULE_NAMES = {"retailerName", "roundDollar", "multipleOfQuarter", "perTwoItems",
+          "multipleOfThreeItemDescription", "oddDay", "afternoonBonus"};
+
+  /**
+   * Returns the names of all the rules, in evaluation order: the built-in rules, then the plugin and promotion rules.
+   */
+  String[] ruleNames() {
+    return ruleNames;
+  }
+
+  int ruleCount() {
+    return ruleNames.length;
+  }
+
+  int score(ReceiptRecord receipt) {
+    int points = retailerName(receipt) + roundDollar(receipt) + multipleOfQuarter(receipt) + perTwoItems(receipt)
+            + itemDescriptions(receipt) + oddDay(receipt) + afternoonBonus(receipt);
+    for (IPointsRule rule : pluginRules) {
+      points += rule.points(receipt, points);
+    }
+    return promotions == null ? points : points + promotions.points(receipt, points);
+  }
+
+  /**
+   * Scores the receipt like {@link #score(ReceiptRecord)}, keeping the points awarded by every rule.
+   *
+   * @param receipt    the receipt
+   * @param rulePoints receives the points awarded by each rule, indexed like {@link #ruleNames()}
+   * @return the points awarded for the receipt
+   */
+  int breakdown(ReceiptRecord receipt, int[] rulePoints) {
+    int totalPoints = 0;
+    for (int rule = 0; rule < ruleNames.length; rule++) {
+      rulePoints[rule] = rule(rule, receipt, totalPoints);
+      totalPoints += rulePoints[rule];
+    }
+    return totalPoints;
+  }
+
+  /**
+   * Scores the receipt like {@link #score(ReceiptRecord)} while timing every rule.
+   *
+   * @param receipt    the receipt
+   * @param rulePoints receives the points awarded by each rule, indexed like {@link #ruleNames()}, or {@code null}
+   * @param ruleNanos  receives the time taken by each rule, indexed like {@link #ruleNames()}
+   * @return the points awarded for the receipt
+   */
+  int profile(ReceiptRecord receipt, int[] rulePoints, long[] ruleNanos) {
+    int totalPoints = 0;
+    for (int rule = 0; rule < ruleNames.length; rule++) {
+      long start = System.nanoTime();
+      int points = rule(rule, receipt, totalPoints);
+      ruleNanos[rule] = System.nanoTime() - start;
+      if (rulePoints != null) {
+        rulePoints[rule] = points;
+      }
+      totalPoints += points;
+    }
+    return totalPoints;
+  }
+
+  /**
+   * Returns the points a single rule awards for the receipt.
+   *
+   * @param rule    the index of the rule in {@link #ruleNames()}
+   * @param receipt the receipt
+   * @param score   the points awarded by the rules before it
+   * @return the points awarded by the rule
+   */
+  int rule(int rule, ReceiptRecord receipt, int score) {
+    return switch (rule) {
+      case 0 -> retailerName(receipt);
+      case 1 -> roundDollar(receipt);
+      case 2 -> multipleOfQuarter(receipt);
+      case 3 -> perTwoItems(receipt);
+      case 4 -> itemDescriptions(receipt);
+      case 5 -> oddDay(receipt);
+      case 6 -> afternoonBonus(receipt);
+      default -> extraRules[rule - RULE_NAMES.length].points(receipt, score);
+    };
+  }
+
+  /**
+   * Rule 1: One point for every alphanumeric character in the retailer name.
+   */
+  private int retailerName(ReceiptRecord receipt) {
+    return alphanumericCount(receipt.getRetailer()) * retailerNamePoints;
+  }
+
+  /**
+   * Rule 2: 50 points if the total is a round dollar amount with no cents.
+   */
+  private int roundDollar(ReceiptRecord receipt) {
+    return receipt.getTotalCents() % 100 == 0 ? roundDollarPoints : 0;
+  }
+
+  /**
+   * Rule 3: 25 points if the total is a multiple of 0.25.
+   */
+  private int multipleOfQuarter(ReceiptRecord receipt) {
+    return receipt.getTotalCents() % 25 == 0 ? multipleOfQuarterPoints : 0;
+  }
+
+  /**
+   * Rule 4: 5 points for every two items on the receipt.
+   */
+  private int perTwoItems(ReceiptRecord receipt) {
+    return (receipt.getItemCount() / 2) * perTwoItemsPoints;
+  }
+
+  /**
+   * Rule 5: If the trimmed length of the item description is a multiple of 3, multiply the price by 0.2 and round up
+   * to the nearest integer.
+   */
+  private int itemDescriptions(ReceiptRecord receipt) {
+    int points = 0;
+    String[] descriptions = receipt.getItemDescriptions();
+    long[] priceCents = receipt.getItemPriceCents();
+    for (int i = 0; i < priceCents.length; i++) {
+      if (trimmedLength(descriptions[i]) % 3 == 0) {
+        points += (int) Money.multiplyCeil(priceCents[i], itemMultiplierNumerator, itemMultiplierDenominator);
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Rule 6: 6 points if the day in the purchase date is odd.
+   */
+  private int oddDay(ReceiptRecord receipt) {
+    return receipt.getDayOfMonth() % 2 != 0 ? oddDayPoints : 0;
+  }
+
+  /**
+   * Rule 7: 10 points if the time of purchase is after 2:00pm and before 4:00pm.
+   */
+  private int afternoonBonus(ReceiptRecord receipt) {
+    int purchaseSecond = receipt.getMinuteOfDay() * 60;
+    return purchaseSecond > afternoonStartSecond && purchaseSecond < afternoonEndSecond ? afternoonBonusPoints : 0;
+  }
+
+  private static int alphanumericCount(String value) {
+    int count = 0;
+    for (int i = 0; i < value.length(); i++) {
+      if (Character.isLetterOrDigit(value.charAt(i))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Length of the value after {@link String#trim()}, computed without creating the trimmed string.
+   */
+  private static int trimmedLength(String value) {
+    int start = 0;
+    int end = value.length();
+    while (start < end && value.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && value.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end - start;
+  }
+}
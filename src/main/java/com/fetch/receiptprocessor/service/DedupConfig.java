@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "dedup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupConfig {
+
+  private boolean enabled;
+  private long maxEntries = 1_000_000;
+  private Duration maxAge = Duration.ofHours(24);
+}
@@ -0,0 +1,98 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.exception.AbsentException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
+import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link IReceiptService} for the reactive web tier.
+ * Failures are signalled through the returned publishers with the same exceptions as {@link IReceiptService}.
+ */
+public interface IReactiveReceiptService {
+
+  /**
+   * Processes the given receipt like {@link IReceiptService#saveReceiptPoints(Receipt, String)}.
+   *
+   * @param receipt        The receipt object containing the necessary data for processing and point calculation.
+   * @param idempotencyKey The client supplied idempotency key, or {@code null} to deduplicate on receipt content.
+   * @return A {@link ReceiptResponse} with the unique identifier of the processed receipt, or a
+   * {@link ValidationException} error if the receipt is invalid.
+   */
+  Mono<ReceiptResponse> saveReceiptPoints(Receipt receipt, String idempotencyKey);
+
+  /**
+   * Processes a receipt that arrived already parsed like {@link IReceiptService#saveReceiptRecord(ReceiptRecord,
+   * String)}.
+   *
+   * @param record         The parsed receipt, checked against the same constraints as a JSON receipt.
+   * @param idempotencyKey The client supplied idempotency key, or {@code null} to deduplicate on receipt content.
+   * @return A {@link ReceiptResponse} with the unique identifier of the processed receipt, or a
+   * {@link ValidationException} error if the receipt is invalid.
+   */
+  Mono<ReceiptResponse> saveReceiptRecord(ReceiptRecord record, String idempotencyKey);
+
+  /**
+   * Processes a stream of receipts in chunks, saving the points of the valid receipts of each chunk in bulk.
+   * A receipt that fails validation is reported in its slot of the result and does not abort the rest of the stream.
+   *
+   * @param receipts The receipts to process.
+   * @return One {@link BatchReceiptResponse} per receipt, in the same order as the input.
+   */
+  Flux<BatchReceiptResponse> saveReceiptPointsBatch(Flux<Receipt> receipts);
+
+  /**
+   * Processes a batch of receipts that arrived already parsed, in chunks like
+   * {@link #saveReceiptPointsBatch(Flux)}.
+   *
+   * @param records The parsed receipts to process.
+   * @return One {@link BatchReceiptResponse} per receipt, in the same order as the input, or a
+   * {@link ValidationException} error if there are more than {@code batch.maxSize}.
+   */
+  Flux<BatchReceiptResponse> saveReceiptRecordsBatch(List<ReceiptRecord> records);
+
+  /**
+   * Retrieves the total points associated with a given receipt ID.
+   *
+   * @param receiptId The unique identifier of the receipt whose points are to be retrieved.
+   * @return A {@link Points} object with the total points, or an {@link AbsentException} error if there is no such
+   * receipt.
+   */
+  Mono<Points> getReceiptPoints(String receiptId);
+
+  /**
+   * Tells cheaply whether a receipt exists like {@link IReceiptService#isReceiptHeld(String)}. Only memory is read,
+   * so the answer is returned directly.
+   *
+   * @param receiptId The unique identifier of the receipt.
+   * @return {@code true} if the receipt exists and is held in memory.
+   */
+  boolean isReceiptHeld(String receiptId);
+
+  /**
+   * Retrieves the points of several receipts at once like {@link IReceiptService#getReceiptPointsBatch(List)}.
+   *
+   * @param receiptIds The unique identifiers of the receipts whose points are to be retrieved.
+   * @return A {@link PointsBatchResponse} with the points by receipt ID and the IDs that were not found, or a
+   * {@link ValidationException} error if the IDs are rejected.
+   */
+  Mono<PointsBatchResponse> getReceiptPointsBatch(List<String> receiptIds);
+
+  /**
+   * Retrieves the points each rule awarded to a receipt, recorded when {@code breakdown.enabled} is set.
+   *
+   * @param receiptId The unique identifier of the receipt whose points breakdown is to be retrieved.
+   * @return A {@link PointsBreakdown} with the points of every rule and their aggregated timings, or an
+   * {@link AbsentException} error if no breakdown was recorded for the receipt.
+   */
+  Mono<PointsBreakdown> getReceiptBreakdown(String receiptId);
+}
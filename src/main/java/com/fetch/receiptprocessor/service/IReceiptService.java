@@ -1,11 +1,18 @@
 package com.fetch.receiptprocessor.service;
 
 import com.fetch.receiptprocessor.exception.AbsentException;
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
 import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
 import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
 import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
 import com.fetch.receiptprocessor.model.ReceiptResponse;
 
+import java.util.List;
+
 /**
  * Interface defining the service layer for handling operations related to receipts and their points.
  * Specifies methods for saving points based on receipt data and retrieving points for a specific receipt ID.
@@ -21,6 +28,47 @@ public interface IReceiptService {
    */
   ReceiptResponse saveReceiptPoints(Receipt receipt) throws ValidationException;
 
+  /**
+   * Processes the given receipt like {@link #saveReceiptPoints(Receipt)}. When deduplication is enabled, a repeated
+   * submission with the same idempotency key returns the receipt ID of the first submission without scoring again,
+   * and reusing the key for a different receipt fails with an {@link IdempotencyConflictException}.
+   *
+   * @param receipt        The receipt object containing the necessary data for processing and point calculation.
+   * @param idempotencyKey The client supplied idempotency key, or {@code null} to deduplicate on receipt content.
+   * @return A {@link ReceiptResponse} object containing the unique identifier of the processed receipt.
+   */
+  ReceiptResponse saveReceiptPoints(Receipt receipt, String idempotencyKey) throws ValidationException;
+
+  /**
+   * Processes a receipt that arrived already parsed, e.g. in the binary encoding, like
+   * {@link #saveReceiptPoints(Receipt, String)}.
+   *
+   * @param record         The parsed receipt, checked against the same constraints as a JSON receipt.
+   * @param idempotencyKey The client supplied idempotency key, or {@code null} to deduplicate on receipt content.
+   * @return A {@link ReceiptResponse} object containing the unique identifier of the processed receipt.
+   */
+  ReceiptResponse saveReceiptRecord(ReceiptRecord record, String idempotencyKey) throws ValidationException;
+
+  /**
+   * Processes a batch of receipts, scoring them in parallel and saving the points of all valid receipts in bulk.
+   * A receipt that fails validation is reported in its slot of the result and does not abort the rest of the batch.
+   *
+   * @param receipts The receipts to process.
+   * @return A list with one {@link BatchReceiptResponse} per receipt, in the same order as the input, holding either
+   * the unique identifier of the processed receipt or the reason it was rejected.
+   * @throws ValidationException If the batch holds more than {@code batch.maxSize} receipts.
+   */
+  List<BatchReceiptResponse> saveReceiptPointsBatch(List<Receipt> receipts) throws ValidationException;
+
+  /**
+   * Processes a batch of receipts that arrived already parsed like {@link #saveReceiptPointsBatch(List)}.
+   *
+   * @param records The parsed receipts to process.
+   * @return A list with one {@link BatchReceiptResponse} per receipt, in the same order as the input.
+   * @throws ValidationException If the batch holds more than {@code batch.maxSize} receipts.
+   */
+  List<BatchReceiptResponse> saveReceiptRecordsBatch(List<ReceiptRecord> records) throws ValidationException;
+
   /**
    * Retrieves the total points associated with a given receipt ID.
    *
@@ -29,4 +77,32 @@ public interface IReceiptService {
    * @throws AbsentException If no receipt with the given ID exists or if no points are associated with it.
    */
   Points getReceiptPoints(String receiptId) throws AbsentException;
+
+  /**
+   * Tells cheaply whether a receipt exists, from memory only. A receipt evicted to slower storage is reported as
+   * absent, so only a {@code true} result is conclusive.
+   *
+   * @param receiptId The unique identifier of the receipt.
+   * @return {@code true} if the receipt exists and is held in memory.
+   */
+  boolean isReceiptHeld(String receiptId);
+
+  /**
+   * Retrieves the points of several receipts at once. Unknown IDs do not fail the request but are listed in the
+   * response.
+   *
+   * @param receiptIds The unique identifiers of the receipts whose points are to be retrieved.
+   * @return A {@link PointsBatchResponse} with the points by receipt ID and the IDs that were not found.
+   * @throws ValidationException If there are no IDs, more than {@code lookup.maxBatchSize}, or a {@code null} ID.
+   */
+  PointsBatchResponse getReceiptPointsBatch(List<String> receiptIds) throws ValidationException;
+
+  /**
+   * Retrieves the points each rule awarded to a receipt, recorded when {@code breakdown.enabled} is set.
+   *
+   * @param receiptId The unique identifier of the receipt whose points breakdown is to be retrieved.
+   * @return A {@link PointsBreakdown} with the points of every rule and their aggregated timings.
+   * @throws AbsentException If no breakdown was recorded for the given receipt ID.
+   */
+  PointsBreakdown getReceiptBreakdown(String receiptId) throws AbsentException;
 }
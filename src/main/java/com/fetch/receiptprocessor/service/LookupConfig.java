@@ -0,0 +1,22 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "lookup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LookupConfig {
+
+  /**
+   * The maximum number of receipt IDs a single {@code POST /receipts/points:batchGet} request may look up.
+   */
+  private int maxBatchSize = 1000;
+}
@@ -0,0 +1,22 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "metrics")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricsConfig {
+
+  /**
+   * Fraction of requests whose latency, points and per-rule cost are recorded, or {@code 0} to only count requests.
+   */
+  private double sampleRate = 0.01;
+}
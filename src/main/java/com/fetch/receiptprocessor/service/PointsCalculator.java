@@ -1,80 +1,225 @@
 package com.fetch.receiptprocessor.service;
 
 import com.fetch.receiptprocessor.exception.ValidationException;
-import com.fetch.receiptprocessor.model.Item;
 import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.rules.IPointsRule;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalTime;
-
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Scores receipts with the current version of the points rules.
+ * <p>
+ * The rules configured at startup are version {@code 1}. {@link #reload(PointsConfig)} compiles a new rule set and
+ * publishes it with a single volatile write, so scoring never locks and every receipt is scored entirely by one
+ * version. Earlier versions are kept so that the rules behind any stored result can be looked up.
+ * <p>
+ * Beans implementing {@link IPointsRule} are added to every version of the rules, after the built-in rules and
+ * before the promotions configured in {@code points.promotions}.
+ */
 @Slf4j
 @Component
 public class PointsCalculator {
 
-  private static PointsConfig pointsConfig;
+  private static final AtomicReferenceFieldUpdater<PointsCalculator, CompiledRules> COMPILED_RULES =
+          AtomicReferenceFieldUpdater.newUpdater(PointsCalculator.class, CompiledRules.class, "compiledRules");
+
+  private final PointsConfig pointsConfig;
+
+  private volatile CompiledRules compiledRules;
+
+  private final Map<Integer, CompiledRules> ruleSets = new ConcurrentHashMap<>();
+
+  private ReceiptMetrics receiptMetrics;
+
+  private List<IPointsRule> pluginRules = List.of();
+
+  private ScoreCache scoreCache;
 
   @Autowired
   public PointsCalculator(PointsConfig config) {
-    PointsCalculator.pointsConfig = config;
+    this.pointsConfig = config;
   }
 
+  /**
+   * Publishes the points and the time taken by each rule for a sample of the scored receipts.
+   *
+   * @param receiptMetrics the meters to record to
+   */
+  @Autowired(required = false)
+  public void setReceiptMetrics(ReceiptMetrics receiptMetrics) {
+    this.receiptMetrics = receiptMetrics;
+  }
+
+  /**
+   * Adds rules provided by the application to the points rules. Must be called before the first receipt is scored.
+   *
+   * @param pluginRules the rules, in evaluation order
+   */
+  @Autowired(required = false)
+  public void setPluginRules(List<IPointsRule> pluginRules) {
+    this.pluginRules = List.copyOf(pluginRules);
+  }
+
+  /**
+   * Answers receipts whose content was already scored with the current rules from a cache instead of scoring them.
+   *
+   * @param scoreCache the cache of points by receipt content
+   */
+  @Autowired(required = false)
+  public void setScoreCache(ScoreCache scoreCache) {
+    this.scoreCache = scoreCache;
+  }
+
+  /**
+   * Calculates the points of a receipt that has not been parsed yet.
+   *
+   * @param receipt the receipt
+   * @return the points awarded for the receipt
+   * @throws ValidationException if the total or an item price is not a valid amount
+   */
   public int calculateTotalPoints(Receipt receipt) throws ValidationException {
-    int totalPoints = 0;
+    return calculateTotalPoints(ReceiptRecord.from(receipt));
+  }
 
-    // Rule 1: One point for every alphanumeric character in the retailer name
-    totalPoints += calculateRetailerNamePoints(receipt.getRetailer()); //6
+  /**
+   * Calculates the points of a parsed receipt. Allocation free once the rules are compiled.
+   *
+   * @param receipt the parsed receipt
+   * @return the points awarded for the receipt
+   */
+  public int calculateTotalPoints(ReceiptRecord receipt) {
+    return calculateTotalPoints(rules(), receipt);
+  }
 
-    // Rule 2: 50 points if the total is a round dollar amount with no cents
-    double totalValue;
-    try {
-      totalValue = Double.parseDouble(receipt.getTotal());
-    } catch (IllegalArgumentException e) {
-      throw new ValidationException("total is not a valid double");
+  /**
+   * Calculates the points of a parsed receipt with the given rules, so that callers can record their version.
+   * Sampled receipts are always scored, so that the time taken by each rule is recorded.
+   */
+  int calculateTotalPoints(CompiledRules rules, ReceiptRecord receipt) {
+    ReceiptMetrics metrics = receiptMetrics;
+    if (metrics == null || !metrics.sample()) {
+      ScoreCache cache = scoreCache;
+      return cache != null ? cache.score(rules, receipt) : rules.score(receipt);
     }
-    totalPoints += totalValue - (int)totalValue == 0 ? pointsConfig.getRoundDollar() : 0; // 6
+    long[] ruleNanos = new long[rules.ruleCount()];
+    int points = rules.profile(receipt, null, ruleNanos);
+    metrics.recordScore(points, rules.ruleNames(), ruleNanos);
+    return points;
+  }
 
-    // Rule 3: 25 points if the total is a multiple of 0.25
-    totalPoints += ((totalValue * 4) - (int) (totalValue * 4) == 0) ? pointsConfig.getMultipleOfQuarter() : 0; // 6
+  /**
+   * Calculates the points each rule awards for a parsed receipt. They add up to
+   * {@link #calculateTotalPoints(ReceiptRecord)}.
+   *
+   * @param receipt the parsed receipt
+   * @return the points awarded by each rule, indexed like the names of {@link #getRuleNames(int)}
+   */
+  public int[] calculateRulePoints(ReceiptRecord receipt) {
+    return calculateRulePoints(rules(), receipt);
+  }
 
-    // Rule 4: 5 points for every two items on the receipt
-    totalPoints += (receipt.getItems().size() / 2) * pointsConfig.getPerTwoItems(); // 16
+  /**
+   * Calculates the points each rule awards for a parsed receipt with the given rules.
+   */
+  int[] calculateRulePoints(CompiledRules rules, ReceiptRecord receipt) {
+    int[] rulePoints = new int[rules.ruleCount()];
+    ReceiptMetrics metrics = receiptMetrics;
+    if (metrics == null || !metrics.sample()) {
+      rules.breakdown(receipt, rulePoints);
+      return rulePoints;
+    }
+    long[] ruleNanos = new long[rules.ruleCount()];
+    int points = rules.profile(receipt, rulePoints, ruleNanos);
+    metrics.recordScore(points, rules.ruleNames(), ruleNanos);
+    return rulePoints;
+  }
 
-    // Rule 5: If the trimmed length of the item description is a multiple of 3,
-    // multiply the price by 0.2 and round up to the nearest integer.
-    // The result is the number of points earned
-    for (Item item : receipt.getItems()) {
-      totalPoints += calculateItemPoints(item); // 22
+  /**
+   * Compiles a new version of the rules and makes it the one receipts are scored with. Receipts being scored
+   * concurrently finish with the version they started with.
+   *
+   * @param config the new rule configuration, copied
+   * @return the version of the new rules
+   * @throws IllegalArgumentException if the configuration cannot be compiled
+   */
+  public synchronized int reload(PointsConfig config) {
+    CompiledRules rules;
+    try {
+      rules = CompiledRules.compile(config, rules().version() + 1, pluginRules);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid points rules: " + e.getMessage(), e);
     }
+    ruleSets.put(rules.version(), rules);
+    compiledRules = rules;
+    if (scoreCache != null) {
+      scoreCache.invalidateAll();
+    }
+    log.info("Reloaded points rules as version {}", rules.version());
+    return rules.version();
+  }
 
-    // Rule 6: 6 points if the day in the purchase date is odd
-    totalPoints += (receipt.getDate().getDayOfMonth() % 2 != 0) ? pointsConfig.getOddDay() : 0;
+  /**
+   * Returns the version of the rules receipts are currently scored with.
+   *
+   * @return the current rule version
+   */
+  public int getRuleVersion() {
+    return rules().version();
+  }
 
-    // Rule 7: 10 points if the time of purchase is after 2:00pm and before 4:00pm
-    LocalTime purchaseTime = receipt.getTime();
-    LocalTime afternoonStart = LocalTime.parse(pointsConfig.getAfternoonStart());
-    LocalTime afternoonEnd = LocalTime.parse(pointsConfig.getAfternoonEnd());
-    if (purchaseTime.isAfter(afternoonStart) && purchaseTime.isBefore(afternoonEnd)) {
-      totalPoints += pointsConfig.getAfternoonBonus(); // 28
-    }
+  /**
+   * Returns the configuration of a version of the rules.
+   *
+   * @param version the rule version
+   * @return a copy of the configuration, or {@code null} if there is no such version
+   */
+  public PointsConfig getRuleSet(int version) {
+    rules();
+    CompiledRules rules = ruleSets.get(version);
+    return rules == null ? null : rules.config();
+  }
 
-    return totalPoints;
+  /**
+   * Returns the names of the rules of a version, in evaluation order.
+   *
+   * @param version the rule version
+   * @return the rule names, or {@code null} if there is no such version
+   */
+  String[] getRuleNames(int version) {
+    rules();
+    CompiledRules rules = ruleSets.get(version);
+    return rules == null ? null : rules.ruleNames();
   }
 
-  private int calculateRetailerNamePoints(String retailer) {
-    return (int) retailer.chars().filter(Character::isLetterOrDigit).count() * pointsConfig.getRetailerName();
+  /**
+   * Returns a version of the rules, or {@code null} if there is no such version.
+   */
+  CompiledRules rules(int version) {
+    rules();
+    return ruleSets.get(version);
   }
 
-  private int calculateItemPoints(Item item) {
-    try {
-      double price = Double.parseDouble(item.getPrice());
-      if (item.getShortDescription().trim().length() % 3 == 0) {
-        return (int) Math.ceil(price * pointsConfig.getMultipleOfThreeItemDescription());
+  /**
+   * Returns the current rules, compiling the startup configuration as version {@code 1} on first use.
+   */
+  CompiledRules rules() {
+    CompiledRules rules = compiledRules;
+    if (rules == null) {
+      rules = CompiledRules.compile(pointsConfig, 1, pluginRules);
+      // A reload may have published newer rules in the meantime, which must not be replaced
+      if (COMPILED_RULES.compareAndSet(this, null, rules)) {
+        ruleSets.put(rules.version(), rules);
+      } else {
+        rules = compiledRules;
       }
-    } catch (NumberFormatException e) {
-      log.error("Error parsing the price: " + e.getMessage());
     }
-    return 0;
+    return rules;
   }
 }
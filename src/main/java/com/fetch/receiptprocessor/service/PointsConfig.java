@@ -7,6 +7,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "points")
 @Getter
@@ -24,4 +27,31 @@ public class PointsConfig {
   private int afternoonBonus;
   private String afternoonStart;
   private String afternoonEnd;
-}
\ No newline at end of file
+
+  /**
+   * Additional rules written in the expression language of
+   * {@link com.fetch.receiptprocessor.service.rules.RuleExpression}, evaluated in order after the built-in rules.
+   */
+  private List<Promotion> promotions = new ArrayList<>();
+
+  public PointsConfig(int retailerName, int roundDollar, int multipleOfQuarter, int perTwoItems,
+                      double multipleOfThreeItemDescription, int oddDay, int afternoonBonus, String afternoonStart,
+                      String afternoonEnd) {
+    this(retailerName, roundDollar, multipleOfQuarter, perTwoItems, multipleOfThreeItemDescription, oddDay,
+            afternoonBonus, afternoonStart, afternoonEnd, new ArrayList<>());
+  }
+
+  /**
+   * A named promotion rule, e.g. {@code points.promotions[0].name=targetWeekend} and
+   * {@code points.promotions[0].expression=contains(retailer, "target") && dayOfWeek >= 6 ? score : 0}.
+   */
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Promotion {
+
+    private String name;
+    private String expression;
+  }
+}
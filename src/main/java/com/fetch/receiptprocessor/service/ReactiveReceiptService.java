@@ -0,0 +1,275 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.IReactiveReceiptDao;
+import com.fetch.receiptprocessor.exception.AbsentException;
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
+import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Non-blocking receipt service for the reactive web tier.
+ * Receipts are validated and scored exactly like in {@link ReceiptService}, with the same {@link PointsCalculator}
+ * and error messages; only storage goes through the {@link IReactiveReceiptDao}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReceiptService implements IReactiveReceiptService {
+
+  private static final Logger log = LoggerFactory.getLogger(ReactiveReceiptService.class);
+
+  static final int CHUNK_SIZE = 256;
+
+  static final Duration CHUNK_DELAY = Duration.ofMillis(50);
+
+  final IReactiveReceiptDao receiptDao;
+
+  final ReceiptScorer receiptScorer;
+
+  final ReceiptValidator receiptValidator;
+
+  final ReceiptDeduplicator receiptDeduplicator;
+
+  final ReceiptMetrics receiptMetrics;
+
+  RuleBreakdowns ruleBreakdowns;
+
+  LookupConfig lookupConfig = new LookupConfig();
+
+  BatchConfig batchConfig = new BatchConfig();
+
+  /**
+   * Constructs a new ReactiveReceiptService.
+   *
+   * @param receiptDao          the non-blocking DAO the points are saved to
+   * @param pointsCalculator    the calculator used to score receipts
+   * @param receiptValidator    the validator that checks and parses incoming receipts
+   * @param receiptDeduplicator the deduplicator for repeated submissions
+   * @param receiptMetrics      the meters processing and lookups are recorded to
+   */
+  public ReactiveReceiptService(IReactiveReceiptDao receiptDao, PointsCalculator pointsCalculator,
+                                ReceiptValidator receiptValidator, ReceiptDeduplicator receiptDeduplicator,
+                                ReceiptMetrics receiptMetrics) {
+    this.receiptDao = receiptDao;
+    this.receiptScorer = new ReceiptScorer(pointsCalculator);
+    this.receiptValidator = receiptValidator;
+    this.receiptDeduplicator = receiptDeduplicator;
+    this.receiptMetrics = receiptMetrics;
+  }
+
+  /**
+   * Keeps the points awarded by each rule to the receipts scored by this service.
+   *
+   * @param ruleBreakdowns the breakdowns, present with {@code breakdown.enabled}
+   */
+  @Autowired(required = false)
+  public void setRuleBreakdowns(RuleBreakdowns ruleBreakdowns) {
+    this.ruleBreakdowns = ruleBreakdowns;
+    receiptScorer.setRuleBreakdowns(ruleBreakdowns);
+  }
+
+  /**
+   * Retains the receipts saved by this service so that their points can be recomputed when the rules change.
+   *
+   * @param receiptRescorer the rescorer, present with {@code retention.enabled}
+   */
+  @Autowired(required = false)
+  public void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    receiptScorer.setReceiptRescorer(receiptRescorer);
+  }
+
+  /**
+   * Sets the limits of bulk lookups.
+   *
+   * @param lookupConfig the lookup configuration
+   */
+  @Autowired(required = false)
+  public void setLookupConfig(LookupConfig lookupConfig) {
+    this.lookupConfig = lookupConfig;
+  }
+
+  /**
+   * Sets the maximum size of batches that arrive whole.
+   *
+   * @param batchConfig the batch configuration
+   */
+  @Autowired(required = false)
+  public void setBatchConfig(BatchConfig batchConfig) {
+    this.batchConfig = batchConfig;
+  }
+
+  @Override
+  public Mono<ReceiptResponse> saveReceiptPoints(Receipt receipt, String idempotencyKey) {
+    return timed(Mono.fromCallable(() -> receiptValidator.parse(receipt))
+            .flatMap(record -> deduplicateAndSave(record, idempotencyKey)));
+  }
+
+  @Override
+  public Mono<ReceiptResponse> saveReceiptRecord(ReceiptRecord record, String idempotencyKey) {
+    return timed(Mono.fromCallable(() -> {
+      ReceiptService.validate(record);
+      return record;
+    }).flatMap(validated -> deduplicateAndSave(validated, idempotencyKey)));
+  }
+
+  /**
+   * Saves the points of a validated receipt, unless it is a repeated submission.
+   */
+  private Mono<String> deduplicateAndSave(ReceiptRecord record, String idempotencyKey) {
+    return receiptDeduplicator.isEnabled()
+            ? Mono.fromFuture(() -> receiptDeduplicator.deduplicateAsync(record, idempotencyKey,
+            () -> save(record).toFuture()))
+            : save(record);
+  }
+
+  private Mono<ReceiptResponse> timed(Mono<String> processing) {
+    return Mono.defer(() -> {
+      long start = receiptMetrics.startTiming();
+      return processing
+              .map(ReceiptResponse::new)
+              .doOnSuccess(response -> receiptMetrics.recordProcess(ReceiptMetrics.OUTCOME_SUCCESS, start))
+              .doOnError(e -> {
+                String outcome = ReceiptMetrics.OUTCOME_ERROR;
+                if (e instanceof ValidationException) {
+                  outcome = ReceiptMetrics.OUTCOME_INVALID;
+                  receiptMetrics.recordValidationFailure(e.getMessage());
+                } else if (e instanceof IdempotencyConflictException) {
+                  outcome = ReceiptMetrics.OUTCOME_INVALID;
+                }
+                receiptMetrics.recordProcess(outcome, start);
+              });
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Receipts are collected into chunks of up to {@value #CHUNK_SIZE}, or whatever arrived within
+   * {@code CHUNK_DELAY} on a slow stream. If the stream fails, the receipts received before the failure are still
+   * saved and answered before the error is passed on.
+   */
+  @Override
+  public Flux<BatchReceiptResponse> saveReceiptPointsBatch(Flux<Receipt> receipts) {
+    return receipts.materialize()
+            .bufferTimeout(CHUNK_SIZE, CHUNK_DELAY, true)
+            .concatMap(signals -> {
+              List<Receipt> chunk = new ArrayList<>(signals.size());
+              Throwable error = null;
+              for (Signal<Receipt> signal : signals) {
+                if (signal.isOnNext()) {
+                  chunk.add(signal.get());
+                } else if (signal.isOnError()) {
+                  error = signal.getThrowable();
+                }
+              }
+              Flux<BatchReceiptResponse> responses = chunk.isEmpty() ? Flux.empty() : saveChunk(chunk.size(),
+                      i -> receiptValidator.parse(chunk.get(i)));
+              return error == null ? responses : responses.concatWith(Flux.error(error));
+            });
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The batch arrived whole, so it is limited to {@code batch.maxSize} receipts like on the servlet stack; streamed
+   * batches are only ever held one chunk at a time and are not limited.
+   */
+  @Override
+  public Flux<BatchReceiptResponse> saveReceiptRecordsBatch(List<ReceiptRecord> records) {
+    try {
+      ReceiptService.checkBatchSize(records.size(), batchConfig.getMaxSize());
+    } catch (ValidationException e) {
+      return Flux.error(e);
+    }
+    return Flux.fromIterable(records)
+            .buffer(CHUNK_SIZE)
+            .concatMap(chunk -> saveChunk(chunk.size(), i -> {
+              ReceiptRecord record = chunk.get(i);
+              ReceiptService.validate(record);
+              return record;
+            }));
+  }
+
+  @Override
+  public Mono<Points> getReceiptPoints(String receiptId) {
+    return Mono.defer(() -> {
+      long start = receiptMetrics.startTiming();
+      return receiptDao.getReceiptPoints(receiptId)
+              .map(Points::new)
+              .switchIfEmpty(Mono.error(() -> new AbsentException(receiptId)))
+              .doOnSuccess(points -> receiptMetrics.recordLookup(ReceiptMetrics.OUTCOME_FOUND, start))
+              .doOnError(e -> receiptMetrics.recordLookup(e instanceof AbsentException
+                      ? ReceiptMetrics.OUTCOME_ABSENT : ReceiptMetrics.OUTCOME_ERROR, start));
+    });
+  }
+
+  @Override
+  public boolean isReceiptHeld(String receiptId) {
+    return receiptDao.isReceiptHeld(receiptId);
+  }
+
+  @Override
+  public Mono<PointsBatchResponse> getReceiptPointsBatch(List<String> receiptIds) {
+    return Mono.fromCallable(() -> ReceiptService.batchLookupIds(receiptIds, lookupConfig.getMaxBatchSize()))
+            .flatMap(ids -> receiptDao.getReceiptPoints(ids)
+                    .map(points -> ReceiptService.batchLookupResponse(ids, points, Set.of())))
+            .doOnNext(response -> receiptMetrics.recordLookups(response.getPoints().size(),
+                    response.getMissing().size(), 0));
+  }
+
+  @Override
+  public Mono<PointsBreakdown> getReceiptBreakdown(String receiptId) {
+    RuleBreakdowns breakdowns = ruleBreakdowns;
+    if (breakdowns == null) {
+      return Mono.error(new AbsentException(receiptId));
+    }
+    return receiptDao.getReceiptRuleVersion(receiptId)
+            .mapNotNull(ruleVersion -> breakdowns.get(receiptId, ruleVersion))
+            .switchIfEmpty(Mono.error(() -> new AbsentException(receiptId)));
+  }
+
+  private Mono<String> save(ReceiptRecord record) {
+    CompiledRules rules = receiptScorer.rules();
+    ReceiptScorer.Score score = receiptScorer.score(rules, record);
+    return receiptDao.saveReceiptPoints(score.points, rules.version())
+            .doOnNext(savedId -> receiptScorer.saved(savedId, score));
+  }
+
+  private Flux<BatchReceiptResponse> saveChunk(int size, ReceiptService.RecordSource source) {
+    ReceiptScorer.Score[] scores = new ReceiptScorer.Score[size];
+    String[] errors = new String[size];
+    CompiledRules rules = receiptScorer.rules();
+    for (int i = 0; i < size; i++) {
+      try {
+        scores[i] = receiptScorer.score(rules, source.record(i));
+      } catch (ValidationException e) {
+        errors[i] = e.getMessage();
+        receiptMetrics.recordValidationFailure(errors[i]);
+      } catch (RuntimeException e) {
+        log.error("Error processing receipt at chunk index {}: {}", i, e.getMessage(), e);
+        errors[i] = "Internal Server Error";
+      }
+    }
+    return receiptDao.saveAllReceiptPoints(ReceiptScorer.validPoints(scores, errors), rules.version())
+            .doOnNext(ids -> receiptScorer.savedAll(ids, scores, errors))
+            .flatMapIterable(ids -> ReceiptService.batchResponses(errors, ids));
+  }
+}
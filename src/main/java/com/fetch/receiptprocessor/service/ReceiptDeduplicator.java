@@ -0,0 +1,201 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.data.Store;
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ContentHasher;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes receipt submission idempotent when {@code dedup.enabled} is set.
+ * <p>
+ * A submission carrying an {@code Idempotency-Key} is deduplicated on that key; any other submission is deduplicated
+ * on a 128-bit hash of its retailer, purchase date and time, total and items. The hash is taken over the parsed
+ * receipt, so the same receipt is recognised whether it arrived as JSON or in the binary encoding, and however its
+ * amounts were formatted. A repeated submission gets the receipt ID of the first one without being scored again. A
+ * key is remembered with the content hash of its receipt, and reusing it for a different receipt is rejected with an
+ * {@link IdempotencyConflictException}. Both indexes are bounded by {@code dedup.maxEntries} and
+ * {@code dedup.maxAge}, so a retry is only recognised within that window.
+ */
+@Component
+public class ReceiptDeduplicator {
+
+  private static final ThreadLocal<ContentHasher> HASHER = ThreadLocal.withInitial(ContentHasher::new);
+
+  private final boolean enabled;
+
+  private final Store<ContentHasher.Hash, Submission> receiptIdsByContent;
+
+  private final Store<String, Submission> receiptIdsByKey;
+
+  public ReceiptDeduplicator(DedupConfig config) {
+    this.enabled = config.isEnabled();
+    this.receiptIdsByContent = new Store<>(config.getMaxEntries(), config.getMaxAge(), null);
+    this.receiptIdsByKey = new Store<>(config.getMaxEntries(), config.getMaxAge(), null);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the ID of an earlier submission of the same receipt, or saves it through {@code save} if there is none.
+   * Concurrent submissions of the same receipt are saved only once: the first one claims the entry and saves outside
+   * of any map lock, so a slow save never blocks unrelated entries or pins a virtual thread, and the others wait for
+   * its ID. If that save fails, a waiting submission claims the entry and saves again.
+   *
+   * @param record         the validated receipt
+   * @param idempotencyKey the client supplied idempotency key, or {@code null} to deduplicate on content
+   * @param save           scores and saves the receipt, returning its new ID
+   * @return the receipt ID
+   * @throws IdempotencyConflictException if the key was used for a different receipt
+   */
+  public String deduplicate(ReceiptRecord record, String idempotencyKey, Supplier<String> save) {
+    ContentHasher.Hash content = hash(record);
+    if (idempotencyKey != null) {
+      return claim(receiptIdsByKey, idempotencyKey, content, save);
+    }
+    return claim(receiptIdsByContent, content, content, save);
+  }
+
+  /**
+   * Non-blocking variant of {@link #deduplicate(ReceiptRecord, String, Supplier)} for asynchronous saves. A
+   * submission waiting for an earlier one does not block a thread.
+   *
+   * @param record         the validated receipt
+   * @param idempotencyKey the client supplied idempotency key, or {@code null} to deduplicate on content
+   * @param save           starts scoring and saving the receipt, completing with its new ID
+   * @return the receipt ID, or an {@link IdempotencyConflictException} if the key was used for a different receipt
+   */
+  public CompletableFuture<String> deduplicateAsync(ReceiptRecord record, String idempotencyKey,
+                                                    Supplier<CompletableFuture<String>> save) {
+    ContentHasher.Hash content = hash(record);
+    if (idempotencyKey != null) {
+      return claimAsync(receiptIdsByKey, idempotencyKey, content, save);
+    }
+    return claimAsync(receiptIdsByContent, content, content, save);
+  }
+
+  /**
+   * Forgets a submission whose receipt was accepted under {@code receiptId} but then failed to be scored or saved,
+   * so that a retry is saved again instead of getting an ID with no points behind it. Does nothing if the entry was
+   * since claimed by another submission.
+   *
+   * @param record         the validated receipt
+   * @param idempotencyKey the client supplied idempotency key, or {@code null} if it was deduplicated on content
+   * @param receiptId      the ID the receipt was accepted under
+   */
+  public void forget(ReceiptRecord record, String idempotencyKey, String receiptId) {
+    if (!enabled) {
+      return;
+    }
+    if (idempotencyKey != null) {
+      forget(receiptIdsByKey, idempotencyKey, receiptId);
+    } else {
+      forget(receiptIdsByContent, hash(record), receiptId);
+    }
+  }
+
+  private static <K> void forget(Store<K, Submission> receiptIds, K key, String receiptId) {
+    Submission existing = receiptIds.getIfPresent(key);
+    if (existing != null) {
+      // The scoring may fail before the claim is completed with the ID, so remove the entry once it is
+      existing.receiptId.thenAccept(id -> {
+        if (id.equals(receiptId)) {
+          receiptIds.remove(key, existing);
+        }
+      });
+    }
+  }
+
+  private static <K> CompletableFuture<String> claimAsync(Store<K, Submission> receiptIds, K key,
+                                                          ContentHasher.Hash content,
+                                                          Supplier<CompletableFuture<String>> save) {
+    Submission claim = new Submission(content);
+    Submission existing = receiptIds.putIfAbsent(key, claim);
+    if (existing != null) {
+      if (!existing.content.equals(content)) {
+        return CompletableFuture.failedFuture(new IdempotencyConflictException());
+      }
+      // If the earlier submission fails it releases its claim, so try to claim the entry again
+      return existing.receiptId.handle((id, e) -> e == null ? CompletableFuture.completedFuture(id)
+              : claimAsync(receiptIds, key, content, save)).thenCompose(Function.identity());
+    }
+    CompletableFuture<String> saved;
+    try {
+      saved = save.get();
+    } catch (RuntimeException e) {
+      saved = CompletableFuture.failedFuture(e);
+    }
+    saved.whenComplete((id, e) -> {
+      if (e != null) {
+        receiptIds.remove(key, claim);
+        claim.receiptId.completeExceptionally(e);
+      } else {
+        claim.receiptId.complete(id);
+      }
+    });
+    return saved;
+  }
+
+  private static <K> String claim(Store<K, Submission> receiptIds, K key, ContentHasher.Hash content,
+                                  Supplier<String> save) {
+    Submission claim = new Submission(content);
+    while (true) {
+      Submission existing = receiptIds.putIfAbsent(key, claim);
+      if (existing == null) {
+        try {
+          String id = save.get();
+          claim.receiptId.complete(id);
+          return id;
+        } catch (RuntimeException e) {
+          receiptIds.remove(key, claim);
+          claim.receiptId.completeExceptionally(e);
+          throw e;
+        }
+      }
+      if (!existing.content.equals(content)) {
+        throw new IdempotencyConflictException();
+      }
+      try {
+        return existing.receiptId.join();
+      } catch (CompletionException e) {
+        // The earlier submission failed and released its claim, try to claim the entry again
+      }
+    }
+  }
+
+  static ContentHasher.Hash hash(ReceiptRecord record) {
+    ContentHasher hasher = HASHER.get();
+    hasher.putString(record.getRetailer())
+            .putLong(record.getEpochDay())
+            .putLong(record.getMinuteOfDay())
+            .putLong(record.getTotalCents())
+            .putSeparator();
+    String[] descriptions = record.getItemDescriptions();
+    long[] priceCents = record.getItemPriceCents();
+    for (int i = 0; i < descriptions.length; i++) {
+      hasher.putString(descriptions[i]).putLong(priceCents[i]).putSeparator();
+    }
+    return hasher.hash();
+  }
+
+  /**
+   * A claimed submission: the content hash of its receipt and the receipt ID it is, or will be, saved under.
+   */
+  private static final class Submission {
+
+    final ContentHasher.Hash content;
+
+    final CompletableFuture<String> receiptId = new CompletableFuture<>();
+
+    Submission(ContentHasher.Hash content) {
+      this.content = content;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.fetch.receiptprocessor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Micrometer meters for receipt ingestion, scoring and lookups.
+ * <p>
+ * Every processed receipt and lookup is counted by outcome. Reading the clock and updating a timer or histogram costs
+ * a noticeable fraction of a request, so latencies, the points distribution and the time taken by each rule are only
+ * recorded for a random sample of {@code metrics.sampleRate} of the requests.
+ */
+@Component
+public class ReceiptMetrics {
+
+  /**
+   * Meters that are never published, for services created outside the application context.
+   */
+  public static final ReceiptMetrics NONE = new ReceiptMetrics(new CompositeMeterRegistry(), new MetricsConfig(0));
+
+  /**
+   * Start time returned by {@link #startTiming()} for a request that is not sampled.
+   */
+  static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  static final String OUTCOME_SUCCESS = "success";
+  static final String OUTCOME_INVALID = "invalid";
+  static final String OUTCOME_REJECTED = "rejected";
+  static final String OUTCOME_ERROR = "error";
+  static final String OUTCOME_FOUND = "found";
+  static final String OUTCOME_ABSENT = "absent";
+  static final String OUTCOME_PENDING = "pending";
+  static final String OUTCOME_NOT_MODIFIED = "not_modified";
+
+  private static final int MAX_VALIDATION_REASONS = 100;
+
+  private static final Pattern INDEX = Pattern.compile("\\[\\d+]");
+
+  private final MeterRegistry registry;
+
+  private final Map<String, OutcomeMeters> process = new HashMap<>();
+
+  private final Map<String, OutcomeMeters> lookup = new HashMap<>();
+
+  private final Map<String, Counter> validationFailures = new ConcurrentHashMap<>();
+
+  private final DistributionSummary points;
+
+  private final Map<String, Timer> ruleTimers = new ConcurrentHashMap<>();
+
+  private final double sampleRate;
+
+  public ReceiptMetrics(MeterRegistry registry, MetricsConfig config) {
+    this.registry = registry;
+    this.sampleRate = config.getSampleRate();
+    for (String outcome : new String[]{OUTCOME_SUCCESS, OUTCOME_INVALID, OUTCOME_REJECTED, OUTCOME_ERROR}) {
+      process.put(outcome, new OutcomeMeters(registry, outcome,
+              "receipts.processed", "Receipts processed one at a time",
+              "receipts.process", "Time to validate, score and save a single receipt, for a sample of the receipts"));
+    }
+    for (String outcome : new String[]{OUTCOME_FOUND, OUTCOME_ABSENT, OUTCOME_PENDING, OUTCOME_NOT_MODIFIED,
+            OUTCOME_ERROR}) {
+      lookup.put(outcome, new OutcomeMeters(registry, outcome,
+              "receipts.points.lookups", "Lookups of the points of a receipt",
+              "receipts.points.lookup", "Time to look up the points of a receipt, for a sample of the lookups"));
+    }
+    this.points = DistributionSummary.builder("receipts.points")
+            .description("Points awarded per scored receipt, for a sample of the receipts")
+            .serviceLevelObjectives(10, 25, 50, 100, 250, 500, 1000, 2500, 5000)
+            .register(registry);
+    for (String rule : CompiledRules.RULE_NAMES) {
+      ruleTimer(rule);
+    }
+  }
+
+  /**
+   * Whether the current request should be timed.
+   */
+  boolean sample() {
+    return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Starts timing a request if it is sampled.
+   *
+   * @return the start time to pass to {@link #recordProcess} or {@link #recordLookup}, or {@link #NOT_SAMPLED}
+   */
+  long startTiming() {
+    return sample() ? System.nanoTime() : NOT_SAMPLED;
+  }
+
+  /**
+   * Counts a processed receipt and records its processing time if it was sampled.
+   *
+   * @param outcome one of the {@code OUTCOME_} constants for processing
+   * @param start   the value returned by {@link #startTiming()}
+   */
+  void recordProcess(String outcome, long start) {
+    process.get(outcome).record(start);
+  }
+
+  /**
+   * Counts a points lookup and records its time if it was sampled.
+   *
+   * @param outcome one of the {@code OUTCOME_} constants for lookups
+   * @param start   the value returned by {@link #startTiming()}
+   */
+  void recordLookup(String outcome, long start) {
+    lookup.get(outcome).record(start);
+  }
+
+  /**
+   * Counts a points lookup answered with {@code 304 Not Modified} from the request headers alone. It is not timed.
+   */
+  public void recordNotModifiedLookup() {
+    lookup.get(OUTCOME_NOT_MODIFIED).record(NOT_SAMPLED);
+  }
+
+  /**
+   * Counts the lookups of a bulk points lookup by outcome. They are not timed, since they share one request.
+   *
+   * @param found   the number of receipts whose points were found
+   * @param absent  the number of unknown receipt IDs
+   * @param pending the number of receipts whose points are not saved yet
+   */
+  void recordLookups(int found, int absent, int pending) {
+    lookup.get(OUTCOME_FOUND).add(found);
+    lookup.get(OUTCOME_ABSENT).add(absent);
+    lookup.get(OUTCOME_PENDING).add(pending);
+  }
+
+  /**
+   * Records the points and rule timings of a sampled receipt.
+   *
+   * @param awarded   the points awarded
+   * @param ruleNames the names of the rules
+   * @param ruleNanos the time taken by each rule, indexed like {@code ruleNames}
+   */
+  void recordScore(int awarded, String[] ruleNames, long[] ruleNanos) {
+    points.record(awarded);
+    for (int rule = 0; rule < ruleNames.length; rule++) {
+      ruleTimer(ruleNames[rule]).record(ruleNanos[rule], TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Returns the timer of a rule, aggregated over the sampled receipts. Timers of plugin and promotion rules are
+   * registered the first time they are sampled.
+   *
+   * @param rule the rule name
+   * @return the timer
+   */
+  Timer ruleTimer(String rule) {
+    Timer timer = ruleTimers.get(rule);
+    if (timer == null) {
+      timer = ruleTimers.computeIfAbsent(rule, name -> Timer.builder("receipts.rule.duration")
+              .description("Time to evaluate a points rule, for a sample of the scored receipts")
+              .tag("rule", name)
+              .publishPercentileHistogram()
+              .register(registry));
+    }
+    return timer;
+  }
+
+  /**
+   * Counts a rejected receipt by the reason it failed validation. Item indexes are removed from the reason, e.g.
+   * {@code items[3].price} is counted as {@code items[].price}, and reasons beyond the first
+   * {@value #MAX_VALIDATION_REASONS} are counted as {@code other} to bound the number of time series.
+   *
+   * @param reason the validation error message
+   */
+  public void recordValidationFailure(String reason) {
+    String normalized = INDEX.matcher(reason).replaceAll("[]").trim();
+    Counter counter = validationFailures.get(normalized);
+    if (counter == null) {
+      String tag = validationFailures.size() < MAX_VALIDATION_REASONS ? normalized : "other";
+      counter = validationFailures.computeIfAbsent(tag, key -> Counter.builder("receipts.validation.failures")
+              .description("Receipts rejected by validation, by reason")
+              .tag("reason", key)
+              .register(registry));
+    }
+    counter.increment();
+  }
+
+  /**
+   * The exact count and the sampled timer of one outcome.
+   */
+  private static final class OutcomeMeters {
+
+    private final LongAdder count = new LongAdder();
+
+    private final Timer timer;
+
+    private OutcomeMeters(MeterRegistry registry, String outcome, String countName, String countDescription,
+                          String timerName, String timerDescription) {
+      FunctionCounter.builder(countName, count, LongAdder::sum)
+              .description(countDescription)
+              .tag("outcome", outcome)
+              .register(registry);
+      this.timer = Timer.builder(timerName)
+              .description(timerDescription)
+              .tag("outcome", outcome)
+              .register(registry);
+    }
+
+    private void record(long start) {
+      count.increment();
+      if (start != NOT_SAMPLED) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    private void add(int lookups) {
+      count.add(lookups);
+    }
+  }
+}
@@ -0,0 +1,447 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Item;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hand-written replacement for the Bean Validation constraints declared on {@link Receipt} and {@link Item} and the
+ * amount checks of {@link ReceiptService#validate(Receipt)}. Every field is checked and parsed in a single pass over
+ * its characters, without regular expressions or reflection, and nothing is allocated for a valid receipt apart from
+ * the {@link ReceiptRecord}.
+ * <p>
+ * Accepts and rejects exactly what the declared constraints do, with the same messages. Format errors are collected
+ * for all fields and reported in the {@code field: message; } format of request binding errors, in field order rather
+ * than in the unspecified order of Bean Validation. The amounts are checked afterwards, like in
+ * {@link ReceiptService#validate(Receipt)}.
+ * <p>
+ * Receipts can be parsed from a bound {@link Receipt} or straight from the tokens of a JSON document, in which case the
+ * date, time and amounts are read from the parser's character buffer and never become {@code String}s.
+ */
+public final class ReceiptParser {
+
+  /**
+   * The error for a purchase date in the right format that does not exist, such as {@code 2022-02-30}.
+   */
+  static final String INVALID_DATE = "purchaseDate: purchaseDate is not a valid date; ";
+
+  // Parse results of a field that is not a valid value; valid values are never negative
+  private static final int INVALID_FORMAT = -1;
+  private static final int TOO_LARGE = -2;
+  private static final int MISSING = -3;
+  private static final int MISSING_ITEM = -4;
+
+  // Characters of \w, \s and '-', allowed in both fields, and '&', allowed in retailer names only
+  private static final byte DESCRIPTION_CHAR = 1;
+  private static final byte RETAILER_CHAR = 2;
+  private static final byte[] NAME_CHARS = new byte[128];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      NAME_CHARS[c] = DESCRIPTION_CHAR;
+      NAME_CHARS[Character.toUpperCase(c)] = DESCRIPTION_CHAR;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      NAME_CHARS[c] = DESCRIPTION_CHAR;
+    }
+    for (char c = '\t'; c <= '\r'; c++) {
+      NAME_CHARS[c] = DESCRIPTION_CHAR;
+    }
+    NAME_CHARS[' '] = DESCRIPTION_CHAR;
+    NAME_CHARS['_'] = DESCRIPTION_CHAR;
+    NAME_CHARS['-'] = DESCRIPTION_CHAR;
+    NAME_CHARS['&'] = RETAILER_CHAR;
+  }
+
+  private ReceiptParser() {
+  }
+
+  /**
+   * Validates a receipt and parses it into the record the points rules are evaluated on.
+   *
+   * @param receipt the receipt
+   * @return the record
+   * @throws ValidationException if the receipt is missing, a field is missing or malformed, or the amounts are invalid
+   */
+  public static ReceiptRecord parse(Receipt receipt) throws ValidationException {
+    if (receipt == null) {
+      throw new ValidationException("receipt is required");
+    }
+    List<Item> items = receipt.getItems();
+    int itemCount = items != null ? items.size() : 0;
+    String[] descriptions = new String[itemCount];
+    long[] priceCents = new long[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      Item item = items.get(i);
+      if (item == null) {
+        priceCents[i] = MISSING_ITEM;
+      } else {
+        descriptions[i] = item.getShortDescription();
+        priceCents[i] = item.getPrice() != null ? parseAmount(item.getPrice()) : MISSING;
+      }
+    }
+    return record(receipt.getRetailer(),
+            receipt.getPurchaseDate() != null ? parseDate(receipt.getPurchaseDate()) : MISSING,
+            receipt.getPurchaseTime() != null ? parseTime(receipt.getPurchaseTime()) : MISSING,
+            receipt.getTotal() != null ? parseAmount(receipt.getTotal()) : MISSING,
+            items != null, descriptions, priceCents);
+  }
+
+  /**
+   * Validates a receipt while reading it from JSON, with the same results as binding it to a {@link Receipt} with
+   * the application's object mapper and calling {@link #parse(Receipt)}: scalars are accepted for the string
+   * fields and unknown properties are skipped.
+   *
+   * @param parser the parser, positioned at the start of the receipt object
+   * @return the record
+   * @throws ValidationException      if a field is missing or malformed, or the amounts are invalid
+   * @throws MismatchedInputException if the document does not have the shape of a receipt
+   * @throws IOException              if the document is not valid JSON or cannot be read
+   */
+  public static ReceiptRecord parse(JsonParser parser) throws IOException, ValidationException {
+    expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+    TextView text = new TextView();
+    String retailer = null;
+    int date = MISSING;
+    int minuteOfDay = MISSING;
+    long totalCents = MISSING;
+    boolean hasItems = false;
+    String[] descriptions = new String[0];
+    long[] priceCents = new long[0];
+    int itemCount = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken token = parser.nextToken();
+      switch (field) {
+        case "retailer" -> retailer = string(parser, token);
+        case "purchaseDate" -> date = text.of(parser, token) ? parseDate(text) : MISSING;
+        case "purchaseTime" -> minuteOfDay = text.of(parser, token) ? parseTime(text) : MISSING;
+        case "total" -> totalCents = text.of(parser, token) ? parseAmount(text) : MISSING;
+        case "items" -> {
+          hasItems = token != JsonToken.VALUE_NULL;
+          itemCount = 0;
+          if (hasItems) {
+            expect(parser, token, JsonToken.START_ARRAY);
+            descriptions = new String[4];
+            priceCents = new long[4];
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+              if (itemCount == descriptions.length) {
+                descriptions = Arrays.copyOf(descriptions, itemCount * 2);
+                priceCents = Arrays.copyOf(priceCents, itemCount * 2);
+              }
+              descriptions[itemCount] = null;
+              priceCents[itemCount] = MISSING_ITEM;
+              if (token != JsonToken.VALUE_NULL) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                priceCents[itemCount] = MISSING;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                  String itemField = parser.currentName();
+                  token = parser.nextToken();
+                  if (itemField.equals("shortDescription")) {
+                    descriptions[itemCount] = string(parser, token);
+                  } else if (itemField.equals("price")) {
+                    priceCents[itemCount] = text.of(parser, token) ? parseAmount(text) : MISSING;
+                  } else {
+                    parser.skipChildren();
+                  }
+                }
+              }
+              itemCount++;
+            }
+          }
+        }
+        default -> parser.skipChildren();
+      }
+    }
+    if (itemCount != descriptions.length) {
+      descriptions = Arrays.copyOf(descriptions, itemCount);
+      priceCents = Arrays.copyOf(priceCents, itemCount);
+    }
+    return record(retailer, date, minuteOfDay, totalCents, hasItems, descriptions, priceCents);
+  }
+
+  /**
+   * Reports the errors of the parsed fields, or creates the record if there are none.
+   */
+  private static ReceiptRecord record(String retailer, int date, int minuteOfDay, long totalCents, boolean hasItems,
+                                      String[] descriptions, long[] priceCents) throws ValidationException {
+    StringBuilder errors = null;
+    if (retailer == null) {
+      errors = append(errors, "retailer", "retailer is required");
+    } else if (!isRetailer(retailer)) {
+      errors = append(errors, "retailer", "retailer format is invalid");
+    }
+    if (date == MISSING) {
+      errors = append(errors, "purchaseDate", "purchaseDate is required");
+    } else if (date < 0) {
+      errors = append(errors, "purchaseDate", "purchaseDate must be in the format yyyy-MM-dd");
+    }
+    if (minuteOfDay == MISSING) {
+      errors = append(errors, "purchaseTime", "purchaseTime is required");
+    } else if (minuteOfDay < 0) {
+      errors = append(errors, "purchaseTime", "purchaseTime must be in the format HH:mm");
+    }
+    if (totalCents == MISSING) {
+      errors = append(errors, "total", "total is required");
+    } else if (totalCents == INVALID_FORMAT) {
+      errors = append(errors, "total", "total format is invalid");
+    }
+    if (!hasItems) {
+      errors = append(errors, "items", "Items are required");
+    } else if (descriptions.length == 0) {
+      errors = append(errors, "items", "There must be at least one item in items");
+    }
+    for (int i = 0; i < descriptions.length; i++) {
+      if (priceCents[i] == MISSING_ITEM) {
+        errors = append(errors, i, "", "item is required");
+        continue;
+      }
+      if (descriptions[i] == null) {
+        errors = append(errors, i, ".shortDescription", "shortDescription is required");
+      } else if (!isShortDescription(descriptions[i])) {
+        errors = append(errors, i, ".shortDescription", "shortDescription format is invalid");
+      }
+      if (priceCents[i] == MISSING) {
+        errors = append(errors, i, ".price", "price is required");
+      } else if (priceCents[i] == INVALID_FORMAT) {
+        errors = append(errors, i, ".price", "price format is invalid");
+      }
+    }
+
+    if (errors != null) {
+      throw new ValidationException(errors.toString());
+    }
+
+    if (totalCents == TOO_LARGE) {
+      throw new ValidationException("total is not a valid double");
+    }
+    if (totalCents == 0) {
+      throw new ValidationException("Invalid - Total can't be 0 or negative");
+    }
+    long sum = 0;
+    for (long cents : priceCents) {
+      if (cents == TOO_LARGE) {
+        throw new ValidationException("item price is not a valid double");
+      }
+      if (cents == 0) {
+        throw new ValidationException("Invalid - Item price can't be 0 or negative");
+      }
+      // Checked before adding, so the sum never exceeds the total and cannot overflow
+      if (cents > totalCents - sum) {
+        throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
+      }
+      sum += cents;
+    }
+    if (sum != totalCents) {
+      throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
+    }
+
+    int dayOfMonth = date % 100;
+    long epochDay;
+    try {
+      epochDay = LocalDate.of(date / 10000, date / 100 % 100, dayOfMonth).toEpochDay();
+    } catch (DateTimeException e) {
+      throw new ValidationException(INVALID_DATE);
+    }
+    return new ReceiptRecord(retailer, epochDay, dayOfMonth, minuteOfDay, totalCents, descriptions, priceCents);
+  }
+
+  /**
+   * Checks a retailer name against {@code ^[\w\s\-&]+$}.
+   */
+  static boolean isRetailer(CharSequence value) {
+    return isName(value, RETAILER_CHAR);
+  }
+
+  /**
+   * Checks an item description against {@code ^[\w\s\-]+$}.
+   */
+  static boolean isShortDescription(CharSequence value) {
+    return isName(value, DESCRIPTION_CHAR);
+  }
+
+  private static boolean isName(CharSequence value, byte allowed) {
+    int length = value.length();
+    if (length == 0) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= NAME_CHARS.length || NAME_CHARS[c] == 0 || NAME_CHARS[c] > allowed) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses a date in the {@code ^\d{4}-\d{2}-\d{2}$} format.
+   *
+   * @return the date as {@code yyyyMMdd}, or {@code -1} if it is not in the format; the date may not exist
+   */
+  static int parseDate(CharSequence value) {
+    if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return INVALID_FORMAT;
+    }
+    int date = 0;
+    for (int i = 0; i < 10; i++) {
+      if (i == 4 || i == 7) {
+        continue;
+      }
+      int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID_FORMAT;
+      }
+      date = date * 10 + digit;
+    }
+    return date;
+  }
+
+  /**
+   * Parses a time in the {@code ^([01]\d|2[0-3]):([0-5]\d)$} format.
+   *
+   * @return the minute of the day, or {@code -1} if it is not in the format
+   */
+  static int parseTime(CharSequence value) {
+    if (value.length() != 5 || value.charAt(2) != ':') {
+      return INVALID_FORMAT;
+    }
+    char hours = value.charAt(0);
+    char hour = value.charAt(1);
+    char tenMinutes = value.charAt(3);
+    char minute = value.charAt(4);
+    if (hours < '0' || hours > '2' || hour < '0' || hour > (hours == '2' ? '3' : '9')
+            || tenMinutes < '0' || tenMinutes > '5' || minute < '0' || minute > '9') {
+      return INVALID_FORMAT;
+    }
+    return ((hours - '0') * 10 + hour - '0') * 60 + (tenMinutes - '0') * 10 + minute - '0';
+  }
+
+  /**
+   * Parses an amount in the {@code ^\d+\.\d{2}$} format into cents, like {@link com.fetch.receiptprocessor.util.Money}
+   * but telling malformed amounts apart from well-formed ones that do not fit in a {@code long}.
+   *
+   * @return the cents, {@code -1} if it is not in the format or {@code -2} if it is too large
+   */
+  static long parseAmount(CharSequence value) {
+    int length = value.length();
+    int point = length - 3;
+    if (point < 1 || value.charAt(point) != '.') {
+      return INVALID_FORMAT;
+    }
+    long cents = 0;
+    boolean tooLarge = false;
+    for (int i = 0; i < length; i++) {
+      if (i == point) {
+        continue;
+      }
+      int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID_FORMAT;
+      }
+      if (cents > (Long.MAX_VALUE - digit) / 10) {
+        tooLarge = true;
+      }
+      cents = cents * 10 + digit;
+    }
+    return tooLarge ? TOO_LARGE : cents;
+  }
+
+  /**
+   * Reads a string field the way Jackson binds a {@code String} property: scalars as their text, {@code null} as
+   * {@code null}.
+   */
+  private static String string(JsonParser parser, JsonToken token) throws IOException {
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expectScalar(parser, token);
+    return parser.getText();
+  }
+
+  private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws MismatchedInputException {
+    if (token != expected) {
+      throw MismatchedInputException.from(parser, ReceiptRecord.class,
+              "Unexpected token (" + token + "), expected " + expected);
+    }
+  }
+
+  private static void expectScalar(JsonParser parser, JsonToken token) throws MismatchedInputException {
+    if (!token.isScalarValue()) {
+      throw MismatchedInputException.from(parser, String.class,
+              "Cannot deserialize value of type `java.lang.String` from " + token);
+    }
+  }
+
+  /**
+   * The text of the current token, viewed in place in the parser's buffer. Only valid until the next token.
+   */
+  private static final class TextView implements CharSequence {
+
+    private char[] chars;
+
+    private int offset;
+
+    private int length;
+
+    /**
+     * Points the view at the text of a scalar token.
+     *
+     * @return {@code false} if the token is {@code null}
+     */
+    boolean of(JsonParser parser, JsonToken token) throws IOException {
+      if (token == JsonToken.VALUE_NULL) {
+        return false;
+      }
+      expectScalar(parser, token);
+      chars = parser.getTextCharacters();
+      offset = parser.getTextOffset();
+      length = parser.getTextLength();
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new String(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, offset, length);
+    }
+  }
+
+  private static StringBuilder append(StringBuilder errors, String field, String message) {
+    if (errors == null) {
+      errors = new StringBuilder();
+    }
+    return errors.append(field).append(": ").append(message).append("; ");
+  }
+
+  private static StringBuilder append(StringBuilder errors, int item, String field, String message) {
+    if (errors == null) {
+      errors = new StringBuilder();
+    }
+    return errors.append("items[").append(item).append(']').append(field).append(": ").append(message).append("; ");
+  }
+}
@@ -0,0 +1,362 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.IReceiptDao;
+import com.fetch.receiptprocessor.dao.data.ReceiptArchive;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.RescoreStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Retains the parsed receipts when {@code retention.enabled} is set and recomputes their points in bulk when the
+ * rules change.
+ * <p>
+ * Every saved receipt is appended to a {@link ReceiptArchive} of at most {@code retention.maxBytes}. A rescoring job
+ * streams through the archive on a dedicated fork-join pool of {@code retention.parallelism} low-priority threads,
+ * one task per archive chunk, so it cannot take over the threads serving requests. Each task scores its receipts with
+ * the requested version of the rules and saves them in bulk writes of {@code retention.batchSize}; with
+ * {@code retention.maxRate} set, the job is paced to that many receipts per second.
+ * <p>
+ * A receipt's points and rule version are replaced together in a single write, so readers see either the old or the
+ * new result, never a mix. That write is a compare-and-set on the stored rule version: receipts already scored by the
+ * requested version or a later one, including those submitted or rescored by a newer job while this one runs, are
+ * left untouched.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "retention.enabled", havingValue = "true")
+public class ReceiptRescorer implements MeterBinder {
+
+  private final ReceiptArchive archive;
+
+  private final IReceiptDao receiptDao;
+
+  private final PointsCalculator pointsCalculator;
+
+  private final ForkJoinPool pool;
+
+  private final int batchSize;
+
+  private final long nanosPerReceipt;
+
+  private final LongAdder rescored = new LongAdder();
+
+  private RuleBreakdowns ruleBreakdowns;
+
+  private volatile Job job;
+
+  /**
+   * Creates an empty archive and the pool rescoring jobs run on.
+   *
+   * @param config           the retention configuration
+   * @param receiptDao       the DAO rescored points are saved to
+   * @param pointsCalculator the calculator holding the versions of the rules
+   */
+  public ReceiptRescorer(RetentionConfig config, IReceiptDao receiptDao, PointsCalculator pointsCalculator) {
+    if (config.getBatchSize() <= 0 || config.getParallelism() < 0 || config.getMaxRate() < 0) {
+      throw new IllegalArgumentException("retention.batchSize must be positive and retention.parallelism and "
+              + "retention.maxRate must not be negative");
+    }
+    this.archive = new ReceiptArchive(config.getMaxBytes(), ReceiptArchive.DEFAULT_CHUNK_SIZE);
+    this.receiptDao = receiptDao;
+    this.pointsCalculator = pointsCalculator;
+    this.batchSize = config.getBatchSize();
+    this.nanosPerReceipt = config.getMaxRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / config.getMaxRate() : 0;
+    int parallelism = config.getParallelism() > 0 ? config.getParallelism()
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.pool = new ForkJoinPool(parallelism, ReceiptRescorer::newWorker, null, false);
+  }
+
+  /**
+   * Rescores the points awarded by each rule along with the points.
+   *
+   * @param ruleBreakdowns the breakdowns, present with {@code breakdown.enabled}
+   */
+  @Autowired(required = false)
+  public void setRuleBreakdowns(RuleBreakdowns ruleBreakdowns) {
+    this.ruleBreakdowns = ruleBreakdowns;
+  }
+
+  /**
+   * Retains a saved receipt.
+   *
+   * @param receiptId the ID the receipt's points were saved under
+   * @param record    the parsed receipt
+   */
+  public void retain(String receiptId, ReceiptRecord record) {
+    archive.add(receiptId, record);
+  }
+
+  /**
+   * Starts recomputing the points of the retained receipts with a version of the rules.
+   *
+   * @param ruleVersion the version of the rules to score with
+   * @return the status of the started job
+   * @throws IllegalArgumentException if there is no such version
+   * @throws IllegalStateException    if a job is already running
+   */
+  public synchronized RescoreStatus start(int ruleVersion) {
+    Job current = job;
+    if (current != null && current.state.equals(RescoreStatus.RUNNING)) {
+      throw new IllegalStateException("A rescoring job for rule version " + current.rules.version()
+              + " is already running");
+    }
+    CompiledRules rules = pointsCalculator.rules(ruleVersion);
+    if (rules == null) {
+      throw new IllegalArgumentException("No rule set found for version " + ruleVersion);
+    }
+    // Receipts retained after this point are in chunks the job does not read; they are scored by the current rules
+    int chunks = archive.chunkCount();
+    Job started = new Job(rules, archive.size());
+    job = started;
+    log.info("Rescoring {} retained receipts with rule version {}", started.total, ruleVersion);
+    pool.execute(() -> run(started, chunks));
+    return started.status();
+  }
+
+  /**
+   * Returns the progress of the running or the last rescoring job.
+   *
+   * @return the status, {@link RescoreStatus#IDLE} if no job was started
+   */
+  public RescoreStatus getStatus() {
+    Job current = job;
+    return current != null ? current.status()
+            : new RescoreStatus(RescoreStatus.IDLE, 0, archive.size(), 0, 0, 0, 0, null);
+  }
+
+  public long getRetainedCount() {
+    return archive.size();
+  }
+
+  public long getRetainedBytes() {
+    return archive.bytes();
+  }
+
+  /**
+   * Returns the number of receipts that were not retained because the archive was full.
+   *
+   * @return the number of dropped receipts
+   */
+  public long getDroppedCount() {
+    return archive.rejectedCount();
+  }
+
+  /**
+   * Returns the number of receipts rescored by all jobs.
+   *
+   * @return the number of rescored receipts
+   */
+  public long getRescoredCount() {
+    return rescored.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("receipts.retention.size", this, ReceiptRescorer::getRetainedCount)
+            .description("Receipts retained for rescoring")
+            .register(registry);
+    Gauge.builder("receipts.retention.memory", this, ReceiptRescorer::getRetainedBytes)
+            .description("Bytes used by the receipts retained for rescoring, dictionary included")
+            .baseUnit("bytes")
+            .register(registry);
+    FunctionCounter.builder("receipts.retention.dropped", this, ReceiptRescorer::getDroppedCount)
+            .description("Receipts not retained because retention.maxBytes was reached")
+            .register(registry);
+    FunctionCounter.builder("receipts.rescored", this, ReceiptRescorer::getRescoredCount)
+            .description("Receipts whose points were recomputed by a rescoring job")
+            .register(registry);
+  }
+
+  /**
+   * Stops the running job, if any. Receipts rescored so far keep their new points.
+   */
+  @PreDestroy
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+    ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+    worker.setName("rescore-worker-" + worker.getPoolIndex());
+    worker.setDaemon(true);
+    worker.setPriority(Thread.MIN_PRIORITY);
+    return worker;
+  }
+
+  private void run(Job job, int chunks) {
+    try {
+      new RescoreTask(job, 0, chunks).invoke();
+      job.finish(RescoreStatus.COMPLETED, null);
+      RescoreStatus status = job.status();
+      log.info("Rescored {} receipts with rule version {} in {} ms ({} receipts/s), {} skipped",
+              status.getRescoredReceipts(), status.getRuleVersion(), status.getElapsedMillis(),
+              Math.round(status.getReceiptsPerSecond()), status.getSkippedReceipts());
+    } catch (RuntimeException e) {
+      job.finish(RescoreStatus.FAILED, e.getMessage());
+      log.error("Rescoring with rule version {} failed: {}", job.rules.version(), e.getMessage(), e);
+    }
+  }
+
+  private void rescoreChunk(Job job, int chunk) {
+    CompiledRules rules = job.rules;
+    int version = rules.version();
+    RuleBreakdowns breakdowns = ruleBreakdowns;
+    ReceiptArchive.Cursor cursor = archive.cursor(chunk);
+    List<String> receiptIds = new ArrayList<>(batchSize);
+    int[] points = new int[batchSize];
+    int[][] rulePoints = breakdowns != null ? new int[batchSize][] : null;
+    while (cursor.next()) {
+      String receiptId = cursor.receiptId();
+      Integer scoredWith = receiptDao.getReceiptRuleVersion(receiptId);
+      if (scoredWith == null || scoredWith >= version) {
+        job.skipped.increment();
+        continue;
+      }
+      int size = receiptIds.size();
+      if (rulePoints != null) {
+        rulePoints[size] = new int[rules.ruleCount()];
+        points[size] = rules.breakdown(cursor.record(), rulePoints[size]);
+      } else {
+        points[size] = rules.score(cursor.record());
+      }
+      receiptIds.add(receiptId);
+      if (receiptIds.size() == batchSize) {
+        save(job, receiptIds, points, rulePoints);
+        receiptIds = new ArrayList<>(batchSize);
+      }
+    }
+    if (!receiptIds.isEmpty()) {
+      save(job, receiptIds, points, rulePoints);
+    }
+  }
+
+  private void save(Job job, List<String> receiptIds, int[] points, int[][] rulePoints) {
+    if (pool.isShutdown()) {
+      throw new IllegalStateException("Rescoring was stopped");
+    }
+    int size = receiptIds.size();
+    // The version was checked before scoring, but a newer job may have rescored the receipt since
+    boolean[] replaced = receiptDao.replaceAllReceiptPointsIfOlder(receiptIds,
+            size == points.length ? points : Arrays.copyOf(points, size), job.rules.version());
+    int replacedCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (replaced[i]) {
+        if (rulePoints != null) {
+          ruleBreakdowns.save(receiptIds.get(i), rulePoints[i]);
+        }
+        replacedCount++;
+      }
+    }
+    job.skipped.add(size - replacedCount);
+    job.rescored.add(replacedCount);
+    rescored.add(replacedCount);
+    pace(job, size);
+  }
+
+  /**
+   * Waits until the job is within {@code retention.maxRate}, reserving the time slots of the given receipts.
+   */
+  private void pace(Job job, int receipts) {
+    if (nanosPerReceipt == 0) {
+      return;
+    }
+    long slot = job.nextSlot.getAndAdd(receipts * nanosPerReceipt);
+    long wait = slot - System.nanoTime();
+    if (wait > 0) {
+      LockSupport.parkNanos(wait);
+    }
+  }
+
+  /**
+   * Rescores a range of archive chunks, splitting it until every task has a single chunk.
+   */
+  private final class RescoreTask extends RecursiveAction {
+
+    private final Job job;
+
+    private final int from;
+
+    private final int to;
+
+    private RescoreTask(Job job, int from, int to) {
+      this.job = job;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        rescoreChunk(job, from);
+      } else if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RescoreTask(job, from, middle), new RescoreTask(job, middle, to));
+      }
+    }
+  }
+
+  /**
+   * A rescoring job and its progress.
+   */
+  private static final class Job {
+
+    private final CompiledRules rules;
+
+    private final long total;
+
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong nextSlot = new AtomicLong(startNanos);
+
+    private final LongAdder rescored = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile String state = RescoreStatus.RUNNING;
+
+    private volatile long endNanos;
+
+    private volatile String error;
+
+    private Job(CompiledRules rules, long total) {
+      this.rules = rules;
+      this.total = total;
+    }
+
+    private void finish(String state, String error) {
+      this.endNanos = System.nanoTime();
+      this.error = error;
+      this.state = state;
+    }
+
+    private RescoreStatus status() {
+      String current = state;
+      long elapsedNanos = (current.equals(RescoreStatus.RUNNING) ? System.nanoTime() : endNanos) - startNanos;
+      long rescoredReceipts = rescored.sum();
+      long skippedReceipts = skipped.sum();
+      double perSecond = elapsedNanos > 0
+              ? (rescoredReceipts + skippedReceipts) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+      return new RescoreStatus(current, rules.version(), total, rescoredReceipts, skippedReceipts,
+              TimeUnit.NANOSECONDS.toMillis(elapsedNanos), perSecond, error);
+    }
+  }
+}
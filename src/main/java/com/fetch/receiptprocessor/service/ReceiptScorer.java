@@ -0,0 +1,121 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Scores receipts for {@link ReceiptService}, {@link ReactiveReceiptService} and the {@link ScoringPipeline}, and
+ * keeps what is recorded next to the points of a receipt once they are saved: the points awarded by each rule, with
+ * {@code breakdown.enabled}, and the receipt itself for rescoring, with {@code retention.enabled}.
+ * <p>
+ * Saving the points is left to the callers, which save them to a blocking or a reactive DAO, under an ID the DAO
+ * generates or one assigned on submission.
+ */
+final class ReceiptScorer {
+
+  private final PointsCalculator pointsCalculator;
+
+  private volatile RuleBreakdowns ruleBreakdowns;
+
+  private volatile ReceiptRescorer receiptRescorer;
+
+  ReceiptScorer(PointsCalculator pointsCalculator) {
+    this.pointsCalculator = pointsCalculator;
+  }
+
+  void setRuleBreakdowns(RuleBreakdowns ruleBreakdowns) {
+    this.ruleBreakdowns = ruleBreakdowns;
+  }
+
+  void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    this.receiptRescorer = receiptRescorer;
+  }
+
+  /**
+   * Returns the current version of the rules. A batch is scored entirely by the version it started with, even if
+   * the rules are reloaded meanwhile.
+   *
+   * @return the rules
+   */
+  CompiledRules rules() {
+    return pointsCalculator.rules();
+  }
+
+  /**
+   * Scores a receipt, rule by rule if breakdowns are kept.
+   *
+   * @param rules  the version of the rules to score with
+   * @param record the validated receipt
+   * @return the points, to be passed to {@link #saved} once they are saved
+   */
+  Score score(CompiledRules rules, ReceiptRecord record) {
+    RuleBreakdowns breakdowns = ruleBreakdowns;
+    if (breakdowns == null) {
+      return new Score(pointsCalculator.calculateTotalPoints(rules, record), null, record);
+    }
+    int[] rulePoints = breakdowns.score(rules, record);
+    return new Score(RuleBreakdowns.total(rulePoints), rulePoints, record);
+  }
+
+  /**
+   * Records the breakdown of a receipt whose points were saved and retains the receipt for rescoring.
+   *
+   * @param receiptId the ID the points were saved under
+   * @param score     the points of the receipt
+   */
+  void saved(String receiptId, Score score) {
+    RuleBreakdowns breakdowns = ruleBreakdowns;
+    if (breakdowns != null && score.rulePoints != null) {
+      breakdowns.save(receiptId, score.rulePoints);
+    }
+    ReceiptRescorer rescorer = receiptRescorer;
+    if (rescorer != null) {
+      rescorer.retain(receiptId, score.record);
+    }
+  }
+
+  /**
+   * Records the breakdowns of the valid receipts of a batch, whose points were saved with a single bulk write, and
+   * retains the receipts for rescoring.
+   *
+   * @param receiptIds the IDs of the valid receipts, in order
+   * @param scores     the points of the receipts of the batch, {@code null} for rejected receipts
+   * @param errors     the errors of the rejected receipts of the batch, {@code null} for valid receipts
+   */
+  void savedAll(List<String> receiptIds, Score[] scores, String[] errors) {
+    int next = 0;
+    for (int i = 0; i < scores.length; i++) {
+      if (errors[i] == null) {
+        saved(receiptIds.get(next++), scores[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns the points of the receipts of a batch without an error, in order.
+   */
+  static int[] validPoints(Score[] scores, String[] errors) {
+    return IntStream.range(0, scores.length).filter(i -> errors[i] == null).map(i -> scores[i].points).toArray();
+  }
+
+  /**
+   * The points of a receipt, with the points awarded by each rule if breakdowns are kept, and the receipt they were
+   * calculated for.
+   */
+  static final class Score {
+
+    final int points;
+
+    final int[] rulePoints;
+
+    final ReceiptRecord record;
+
+    Score(int points, int[] rulePoints, ReceiptRecord record) {
+      this.points = points;
+      this.rulePoints = rulePoints;
+      this.record = record;
+    }
+  }
+}
@@ -2,17 +2,38 @@ package com.fetch.receiptprocessor.service;
 
 import com.fetch.receiptprocessor.dao.IReceiptDao;
 import com.fetch.receiptprocessor.exception.AbsentException;
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
+import com.fetch.receiptprocessor.exception.OverloadedException;
+import com.fetch.receiptprocessor.exception.PendingException;
 import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
 import com.fetch.receiptprocessor.model.Item;
 import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
 import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
 import com.fetch.receiptprocessor.model.ReceiptResponse;
+import com.fetch.receiptprocessor.util.Money;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
 
 /**
  * Service class for handling receipt-related operations.
@@ -25,16 +46,103 @@ public class ReceiptService implements IReceiptService {
 
   final IReceiptDao receiptDao;
 
-  PointsCalculator pointsCalculator;
+  final ReceiptScorer receiptScorer;
+
+  final ReceiptValidator receiptValidator;
+
+  final ReceiptDeduplicator receiptDeduplicator;
+
+  final ScoringPipeline scoringPipeline;
+
+  final ReceiptMetrics receiptMetrics;
+
+  RuleBreakdowns ruleBreakdowns;
+
+  LookupConfig lookupConfig = new LookupConfig();
+
+  final int maxBatchSize;
+
+  private final ForkJoinPool batchPool;
 
   /**
-   * Constructs a new ReceiptService with the specified receipt DAO.
+   * Constructs a new ReceiptService that scores receipts synchronously.
    *
-   * @param receiptDao the DAO to be used for receipt data access operations
+   * @param receiptDao       the DAO to be used for receipt data access operations
+   * @param pointsCalculator the calculator used to score receipts
+   * @param receiptValidator    the validator that checks and parses incoming receipts
+   * @param receiptDeduplicator the deduplicator for repeated submissions
    */
-  public ReceiptService(IReceiptDao receiptDao, PointsCalculator pointsCalculator) {
+  public ReceiptService(IReceiptDao receiptDao, PointsCalculator pointsCalculator, ReceiptValidator receiptValidator,
+                        ReceiptDeduplicator receiptDeduplicator) {
+    this(receiptDao, pointsCalculator, receiptValidator, receiptDeduplicator, null, ReceiptMetrics.NONE,
+            new BatchConfig());
+  }
+
+  /**
+   * Constructs a new ReceiptService that hands single receipts to the given scoring pipeline, if any.
+   *
+   * @param receiptDao          the DAO to be used for receipt data access operations
+   * @param pointsCalculator    the calculator used to score receipts
+   * @param receiptValidator    the validator that checks and parses incoming receipts
+   * @param receiptDeduplicator the deduplicator for repeated submissions
+   * @param scoringPipeline     the asynchronous scoring pipeline, or {@code null} to score inside the request
+   * @param receiptMetrics      the meters processing and lookups are recorded to
+   * @param batchConfig         the maximum size of batches and the threads their receipts are scored on
+   */
+  @Autowired
+  public ReceiptService(IReceiptDao receiptDao, PointsCalculator pointsCalculator, ReceiptValidator receiptValidator,
+                        ReceiptDeduplicator receiptDeduplicator, @Nullable ScoringPipeline scoringPipeline,
+                        ReceiptMetrics receiptMetrics, BatchConfig batchConfig) {
+    if (batchConfig.getMaxSize() <= 0 || batchConfig.getParallelism() < 0) {
+      throw new IllegalArgumentException("batch.maxSize must be positive and batch.parallelism must not be negative");
+    }
     this.receiptDao = receiptDao;
-    this.pointsCalculator = pointsCalculator;
+    this.receiptScorer = new ReceiptScorer(pointsCalculator);
+    this.receiptValidator = receiptValidator;
+    this.receiptDeduplicator = receiptDeduplicator;
+    this.scoringPipeline = scoringPipeline;
+    this.receiptMetrics = receiptMetrics;
+    this.maxBatchSize = batchConfig.getMaxSize();
+    this.batchPool = newBatchPool(batchConfig);
+  }
+
+  /**
+   * Keeps the points awarded by each rule to the receipts scored by this service.
+   *
+   * @param ruleBreakdowns the breakdowns, present with {@code breakdown.enabled}
+   */
+  @Autowired(required = false)
+  public void setRuleBreakdowns(RuleBreakdowns ruleBreakdowns) {
+    this.ruleBreakdowns = ruleBreakdowns;
+    receiptScorer.setRuleBreakdowns(ruleBreakdowns);
+  }
+
+  /**
+   * Retains the receipts saved by this service so that their points can be recomputed when the rules change.
+   *
+   * @param receiptRescorer the rescorer, present with {@code retention.enabled}
+   */
+  @Autowired(required = false)
+  public void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    receiptScorer.setReceiptRescorer(receiptRescorer);
+  }
+
+  /**
+   * Sets the limits of bulk lookups.
+   *
+   * @param lookupConfig the lookup configuration
+   */
+  @Autowired(required = false)
+  public void setLookupConfig(LookupConfig lookupConfig) {
+    this.lookupConfig = lookupConfig;
+  }
+
+  /**
+   * Stops the threads batches are scored on.
+   */
+  @PreDestroy
+  public void close() {
+    batchPool.shutdown();
   }
 
   /**
@@ -46,79 +154,428 @@ public class ReceiptService implements IReceiptService {
    */
   @Override
   public ReceiptResponse saveReceiptPoints(Receipt receipt) throws ValidationException {
+    return saveReceiptPoints(receipt, null);
+  }
 
-    validate(receipt);
+  /**
+   * Saves the points calculated for a receipt, deduplicating repeated submissions when enabled.
+   * With the asynchronous scoring pipeline, the receipt is only queued and its ID is returned before it is scored.
+   *
+   * @param receipt        the receipt for which points are to be calculated and saved
+   * @param idempotencyKey the client supplied idempotency key, or {@code null} to deduplicate on receipt content
+   * @return a {@link ReceiptResponse} containing the ID of the receipt for which points were saved
+   * @throws OverloadedException          if the receipt is rejected because the scoring queue is full
+   * @throws IdempotencyConflictException if the idempotency key was used for a different receipt
+   */
+  @Override
+  public ReceiptResponse saveReceiptPoints(Receipt receipt, String idempotencyKey) throws ValidationException {
+    return timed(() -> {
+      log.debug("Saving receipt points for receipt: {}", receipt);
+      return deduplicateAndSave(receiptValidator.parse(receipt), idempotencyKey);
+    });
+  }
 
-    log.info("Saving receipt points for receipt: {}", receipt);
-    // Parsing the date string into a LocalDate object
-    receipt.setDate(LocalDate.parse(receipt.getPurchaseDate()));
-    // Parsing the time string into a LocalTime object
-    receipt.setTime(LocalTime.parse(receipt.getPurchaseTime()));
-    int totalPoints = pointsCalculator.calculateTotalPoints(receipt);
-    String id = receiptDao.saveReceiptPoints(totalPoints);
-    ReceiptResponse response = new ReceiptResponse(id);
-    log.info("Successfully saved receipt points. Response ID: {}", id);
-    return response;
+  /**
+   * Saves the points calculated for a receipt that arrived already parsed, e.g. in the binary encoding, like
+   * {@link #saveReceiptPoints(Receipt, String)}.
+   *
+   * @param record         the receipt for which points are to be calculated and saved
+   * @param idempotencyKey the client supplied idempotency key, or {@code null} to deduplicate on receipt content
+   * @return a {@link ReceiptResponse} containing the ID of the receipt for which points were saved
+   * @throws OverloadedException          if the receipt is rejected because the scoring queue is full
+   * @throws IdempotencyConflictException if the idempotency key was used for a different receipt
+   */
+  @Override
+  public ReceiptResponse saveReceiptRecord(ReceiptRecord record, String idempotencyKey) throws ValidationException {
+    return timed(() -> {
+      validate(record);
+      return deduplicateAndSave(record, idempotencyKey);
+    });
   }
 
-  private static void validate(Receipt receipt) throws ValidationException {
+  private ReceiptResponse timed(Processing processing) throws ValidationException {
+
+    long start = receiptMetrics.startTiming();
+    String outcome = ReceiptMetrics.OUTCOME_ERROR;
     try {
-      receipt.setTotalDbl(Double.parseDouble(receipt.getTotal()));
-    } catch (IllegalArgumentException e) {
+      ReceiptResponse response = processing.process();
+      outcome = ReceiptMetrics.OUTCOME_SUCCESS;
+      return response;
+    } catch (ValidationException e) {
+      outcome = ReceiptMetrics.OUTCOME_INVALID;
+      receiptMetrics.recordValidationFailure(e.getMessage());
+      throw e;
+    } catch (OverloadedException e) {
+      outcome = ReceiptMetrics.OUTCOME_REJECTED;
+      throw e;
+    } catch (IdempotencyConflictException e) {
+      outcome = ReceiptMetrics.OUTCOME_INVALID;
+      throw e;
+    } finally {
+      receiptMetrics.recordProcess(outcome, start);
+    }
+  }
+
+  /**
+   * Saves the points of a validated receipt, unless it is a repeated submission.
+   */
+  private ReceiptResponse deduplicateAndSave(ReceiptRecord record, String idempotencyKey) {
+
+    String id;
+    if (receiptDeduplicator.isEnabled()) {
+      id = receiptDeduplicator.deduplicate(record, idempotencyKey, () -> save(record, idempotencyKey));
+    } else {
+      id = save(record, null);
+    }
+    log.debug("Successfully saved receipt points. Response ID: {}", id);
+    return new ReceiptResponse(id);
+  }
+
+  private String save(ReceiptRecord record, String idempotencyKey) {
+    if (scoringPipeline != null) {
+      return scoringPipeline.submit(record, idempotencyKey);
+    }
+    CompiledRules rules = receiptScorer.rules();
+    ReceiptScorer.Score score = receiptScorer.score(rules, record);
+    String id = receiptDao.saveReceiptPoints(score.points, rules.version());
+    receiptScorer.saved(id, score);
+    return id;
+  }
+
+  /**
+   * Validates and scores a batch of receipts in parallel and saves the points of the valid ones with a single bulk
+   * write. Invalid receipts are reported individually and do not abort the rest of the batch. The receipts are scored
+   * on a pool of {@code batch.parallelism} threads shared by all batches, so concurrent batches cannot take over the
+   * threads of the rest of the application.
+   *
+   * @param receipts the receipts to process
+   * @return one {@link BatchReceiptResponse} per receipt, in the same order as {@code receipts}
+   * @throws ValidationException if the batch holds more than {@code batch.maxSize} receipts
+   */
+  @Override
+  public List<BatchReceiptResponse> saveReceiptPointsBatch(List<Receipt> receipts) throws ValidationException {
+    checkBatchSize(receipts.size(), maxBatchSize);
+    return saveBatch(receipts.size(), i -> receiptValidator.parse(receipts.get(i)));
+  }
+
+  /**
+   * Validates and scores a batch of receipts that arrived already parsed, e.g. in the binary encoding, like
+   * {@link #saveReceiptPointsBatch(List)}.
+   *
+   * @param records the receipts to process
+   * @return one {@link BatchReceiptResponse} per receipt, in the same order as {@code records}
+   * @throws ValidationException if the batch holds more than {@code batch.maxSize} receipts
+   */
+  @Override
+  public List<BatchReceiptResponse> saveReceiptRecordsBatch(List<ReceiptRecord> records) throws ValidationException {
+    checkBatchSize(records.size(), maxBatchSize);
+    return saveBatch(records.size(), i -> {
+      ReceiptRecord record = records.get(i);
+      validate(record);
+      return record;
+    });
+  }
+
+  private List<BatchReceiptResponse> saveBatch(int size, RecordSource source) {
+
+    log.debug("Saving receipt points for batch of {} receipts", size);
+    ReceiptScorer.Score[] scores = new ReceiptScorer.Score[size];
+    String[] errors = new String[size];
+    CompiledRules rules = receiptScorer.rules();
+    // A parallel stream runs on the pool it is started from, instead of the common pool
+    batchPool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+      try {
+        scores[i] = receiptScorer.score(rules, source.record(i));
+      } catch (ValidationException e) {
+        errors[i] = e.getMessage();
+        receiptMetrics.recordValidationFailure(errors[i]);
+      } catch (RuntimeException e) {
+        log.error("Error processing receipt at batch index {}: {}", i, e.getMessage(), e);
+        errors[i] = "Internal Server Error";
+      }
+    })).join();
+
+    int[] validPoints = ReceiptScorer.validPoints(scores, errors);
+    List<String> ids = receiptDao.saveAllReceiptPoints(validPoints, rules.version());
+    receiptScorer.savedAll(ids, scores, errors);
+    List<BatchReceiptResponse> responses = batchResponses(errors, ids);
+    log.debug("Successfully saved receipt points for {} of {} receipts in batch", validPoints.length, size);
+    return responses;
+  }
+
+  /**
+   * Rejects a batch of more than {@code maxBatchSize} receipts.
+   */
+  static void checkBatchSize(int size, int maxBatchSize) throws ValidationException {
+    if (size > maxBatchSize) {
+      throw new ValidationException("receipts: at most " + maxBatchSize + " receipts can be processed at once; ");
+    }
+  }
+
+  private static ForkJoinPool newBatchPool(BatchConfig config) {
+    int parallelism = config.getParallelism() > 0 ? config.getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+    return new ForkJoinPool(parallelism, pool -> {
+      ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      worker.setName("batch-worker-" + worker.getPoolIndex());
+      worker.setDaemon(true);
+      return worker;
+    }, null, false);
+  }
+
+  /**
+   * Pairs the IDs saved for the {@link ReceiptScorer#validPoints valid receipts} with the errors of the rejected
+   * receipts.
+   */
+  static List<BatchReceiptResponse> batchResponses(String[] errors, List<String> ids) {
+    List<BatchReceiptResponse> responses = new ArrayList<>(errors.length);
+    int next = 0;
+    for (String error : errors) {
+      responses.add(error == null ? BatchReceiptResponse.success(ids.get(next++)) : BatchReceiptResponse.failure(error));
+    }
+    return responses;
+  }
+
+  /**
+   * Checks the amounts of a receipt whose field formats were checked by Bean Validation and parses it into the record
+   * the points rules are evaluated on, so that every field is parsed exactly once.
+   */
+  static ReceiptRecord validate(Receipt receipt) throws ValidationException {
+    long totalCents = Money.parseCents(receipt.getTotal());
+    if (totalCents == Money.INVALID) {
       throw new ValidationException("total is not a valid double");
     }
 
-    if(receipt.getTotalDbl() <= 0) {
+    if (totalCents == 0) {
       throw new ValidationException("Invalid - Total can't be 0 or negative");
     }
 
-    double sum = 0;
-    for(Item i : receipt.getItems()) {
-      try {
-        i.setPriceDbl(Double.parseDouble(i.getPrice()));
-      } catch (IllegalArgumentException e) {
+    List<Item> items = receipt.getItems();
+    String[] descriptions = new String[items.size()];
+    long[] priceCents = new long[items.size()];
+    long sum = 0;
+    for (int index = 0; index < items.size(); index++) {
+      Item i = items.get(index);
+      if (i == null) {
+        throw new ValidationException(ReceiptValidator.missingItem(index));
+      }
+      long cents = Money.parseCents(i.getPrice());
+      if (cents == Money.INVALID) {
         throw new ValidationException("item price is not a valid double");
       }
 
-      if(i.getPriceDbl() <= 0) {
+      if (cents == 0) {
         throw new ValidationException("Invalid - Item price can't be 0 or negative");
       }
 
-      sum += i.getPriceDbl();
+      // Checked before adding, so the sum never exceeds the total and cannot overflow
+      if (cents > totalCents - sum) {
+        throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
+      }
+      sum += cents;
+      descriptions[index] = i.getShortDescription();
+      priceCents[index] = cents;
+    }
+
+    if (sum != totalCents) {
+      throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
+    }
+
+    // Parsing the date and time strings
+    try {
+      receipt.setDate(LocalDate.parse(receipt.getPurchaseDate()));
+    } catch (DateTimeParseException e) {
+      throw new ValidationException(ReceiptParser.INVALID_DATE);
+    }
+    receipt.setTime(LocalTime.parse(receipt.getPurchaseTime()));
+    return ReceiptRecord.of(receipt.getRetailer(), receipt.getDate(), receipt.getTime(), totalCents, descriptions,
+            priceCents);
+  }
+
+  /**
+   * Checks a receipt that arrived already parsed against the same constraints as a JSON receipt, with the same error
+   * messages: the field formats declared on {@link Receipt} and {@link Item}, then the amounts.
+   */
+  static void validate(ReceiptRecord record) throws ValidationException {
+    if (record == null) {
+      throw new ValidationException("receipt is required");
+    }
+    StringBuilder formatErrors = new StringBuilder();
+    if (!ReceiptParser.isRetailer(record.getRetailer())) {
+      formatErrors.append("retailer: retailer format is invalid; ");
+    }
+    String[] descriptions = record.getItemDescriptions();
+    if (descriptions.length == 0) {
+      formatErrors.append("items: There must be at least one item in items; ");
+    }
+    for (int i = 0; i < descriptions.length; i++) {
+      if (!ReceiptParser.isShortDescription(descriptions[i])) {
+        formatErrors.append("items[").append(i).append("].shortDescription: shortDescription format is invalid; ");
+      }
+    }
+    if (!formatErrors.isEmpty()) {
+      throw new ValidationException(formatErrors.toString());
     }
 
-    double tolerance = 0.01; // Tolerance for comparison
-    if (Math.abs(sum - receipt.getTotalDbl()) > tolerance) {
+    long totalCents = record.getTotalCents();
+    if (totalCents <= 0) {
+      throw new ValidationException("Invalid - Total can't be 0 or negative");
+    }
+    long sum = 0;
+    for (long cents : record.getItemPriceCents()) {
+      if (cents <= 0) {
+        throw new ValidationException("Invalid - Item price can't be 0 or negative");
+      }
+      if (cents > totalCents - sum) {
+        throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
+      }
+      sum += cents;
+    }
+    if (sum != totalCents) {
       throw new ValidationException("Invalid - Sum of item prices doesn't add up to total");
     }
   }
 
+  /**
+   * Processes one receipt, throwing the exceptions recorded as the outcome of the request.
+   */
+  private interface Processing {
+    ReceiptResponse process() throws ValidationException;
+  }
+
+  /**
+   * Supplies the parsed and validated receipt at an index of a batch.
+   */
+  interface RecordSource {
+    ReceiptRecord record(int index) throws ValidationException;
+  }
+
   /**
    * Retrieves the points associated with a given receipt ID.
    *
    * @param receiptId the ID of the receipt whose points are to be fetched
    * @return a {@link Points} object containing the points for the specified receipt
    * @throws AbsentException  if no points are found for the given receipt ID
+   * @throws PendingException if the receipt was queued for scoring and its points are not ready yet
    * @throws RuntimeException if there is an error during the retrieval process
    */
   @Override
   public Points getReceiptPoints(String receiptId) throws AbsentException {
 
-    log.info("Retrieving points for receipt ID: {}", receiptId);
+    log.debug("Retrieving points for receipt ID: {}", receiptId);
+    long start = receiptMetrics.startTiming();
+    String outcome = ReceiptMetrics.OUTCOME_ERROR;
     try {
-      Integer points = receiptDao.getReceiptPoints(receiptId);
+      Integer points = scoringPipeline != null ? scoringPipeline.awaitPoints(receiptId) : null;
       if (points == null) {
-        log.error("No points found for receipt ID: {}", receiptId);
+        points = receiptDao.getReceiptPoints(receiptId);
+      }
+      if (points == null) {
+        log.debug("No points found for receipt ID: {}", receiptId);
         throw new AbsentException(receiptId);
       }
-      log.info("Successfully retrieved points for receipt ID: {}", receiptId);
+      log.debug("Successfully retrieved points for receipt ID: {}", receiptId);
+      outcome = ReceiptMetrics.OUTCOME_FOUND;
       return new Points(points);
     } catch (AbsentException e) {
-      log.error("AbsentException for receipt ID: {}: {}", receiptId, e.getMessage(), e);
+      outcome = ReceiptMetrics.OUTCOME_ABSENT;
+      // An unknown ID is a client error and common enough that it must not produce a stack trace
+      log.debug("AbsentException for receipt ID: {}: {}", receiptId, e.getMessage());
+      throw e;
+    } catch (PendingException e) {
+      outcome = ReceiptMetrics.OUTCOME_PENDING;
+      log.debug("Points for receipt ID: {} are not ready yet", receiptId);
       throw e;
     } catch (Exception e) {
       log.error("Error retrieving points for receipt ID: {}: {}", receiptId, e.getMessage(), e);
       throw e;
+    } finally {
+      receiptMetrics.recordLookup(outcome, start);
+    }
+  }
+
+  @Override
+  public boolean isReceiptHeld(String receiptId) {
+    return receiptDao.isReceiptHeld(receiptId);
+  }
+
+  /**
+   * Retrieves the points of several receipts with one lookup in the DAO. Unknown IDs are reported in the response
+   * instead of failing the request, so no exception is created for them.
+   *
+   * @param receiptIds the IDs of the receipts whose points are to be fetched
+   * @return the points of the receipts that were found, and the IDs that were not
+   * @throws ValidationException if there are no IDs, more than {@code lookup.maxBatchSize}, or a {@code null} ID
+   */
+  @Override
+  public PointsBatchResponse getReceiptPointsBatch(List<String> receiptIds) throws ValidationException {
+
+    Set<String> ids = batchLookupIds(receiptIds, lookupConfig.getMaxBatchSize());
+    log.debug("Retrieving points for batch of {} receipt IDs", ids.size());
+    // Pending receipts are found before the DAO is read, since their points are saved before they stop being pending
+    Set<String> pending = new HashSet<>();
+    if (scoringPipeline != null) {
+      for (String id : ids) {
+        if (scoringPipeline.isPending(id)) {
+          pending.add(id);
+        }
+      }
+    }
+    PointsBatchResponse response = batchLookupResponse(ids, receiptDao.getReceiptPoints(ids), pending);
+    receiptMetrics.recordLookups(response.getPoints().size(), response.getMissing().size(),
+            response.getPending().size());
+    return response;
+  }
+
+  /**
+   * Checks the IDs of a bulk points lookup.
+   *
+   * @return the distinct IDs, in request order
+   */
+  static Set<String> batchLookupIds(List<String> receiptIds, int maxBatchSize) throws ValidationException {
+    if (receiptIds == null || receiptIds.isEmpty()) {
+      throw new ValidationException("ids: at least one receipt ID is required; ");
+    }
+    if (receiptIds.size() > maxBatchSize) {
+      throw new ValidationException("ids: at most " + maxBatchSize + " receipt IDs can be looked up at once; ");
+    }
+    Set<String> ids = new LinkedHashSet<>(receiptIds);
+    if (ids.contains(null)) {
+      throw new ValidationException("ids: receipt IDs must not be null; ");
+    }
+    return ids;
+  }
+
+  /**
+   * Sorts the IDs of a bulk points lookup that were not found into pending and missing ones, in request order.
+   */
+  static PointsBatchResponse batchLookupResponse(Set<String> ids, Map<String, Integer> points, Set<String> pending) {
+    List<String> missing = new ArrayList<>();
+    List<String> stillPending = new ArrayList<>();
+    for (String id : ids) {
+      if (!points.containsKey(id)) {
+        (pending.contains(id) ? stillPending : missing).add(id);
+      }
+    }
+    return new PointsBatchResponse(points, missing, stillPending);
+  }
+
+  /**
+   * Retrieves the points each rule awarded to a receipt.
+   *
+   * @param receiptId the ID of the receipt
+   * @return the breakdown of the receipt's points
+   * @throws AbsentException if breakdowns are disabled, or there is no breakdown for the receipt
+   */
+  @Override
+  public PointsBreakdown getReceiptBreakdown(String receiptId) throws AbsentException {
+
+    Integer ruleVersion = ruleBreakdowns != null ? receiptDao.getReceiptRuleVersion(receiptId) : null;
+    PointsBreakdown breakdown = ruleVersion != null ? ruleBreakdowns.get(receiptId, ruleVersion) : null;
+    if (breakdown == null) {
+      log.debug("No points breakdown found for receipt ID: {}", receiptId);
+      throw new AbsentException(receiptId);
     }
+    return breakdown;
   }
 }
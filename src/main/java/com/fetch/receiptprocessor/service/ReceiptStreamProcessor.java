@@ -0,0 +1,110 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.exception.processor.GlobalExceptionHandler;
+import com.fetch.receiptprocessor.model.BatchReceiptResponse;
+import com.fetch.receiptprocessor.model.Receipt;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processes a newline-delimited JSON (NDJSON) stream of receipts in constant memory.
+ * Receipts are read one at a time with Jackson's streaming parser, scored in small chunks of at most
+ * {@code batch.maxSize} through {@link IReceiptService#saveReceiptPointsBatch(List)} and one result line is written
+ * per receipt, in input order.
+ * Input is only consumed as fast as results can be written, so a slow reader applies back-pressure to the producer.
+ */
+@Slf4j
+@Component
+public class ReceiptStreamProcessor {
+
+  static final int CHUNK_SIZE = 256;
+
+  private final ObjectMapper objectMapper;
+
+  private final IReceiptService receiptService;
+
+  private int chunkSize = CHUNK_SIZE;
+
+  public ReceiptStreamProcessor(ObjectMapper objectMapper, IReceiptService receiptService) {
+    this.objectMapper = objectMapper;
+    this.receiptService = receiptService;
+  }
+
+  /**
+   * Keeps the chunks within the maximum size of a batch.
+   *
+   * @param batchConfig the batch configuration
+   */
+  @Autowired(required = false)
+  public void setBatchConfig(BatchConfig batchConfig) {
+    this.chunkSize = Math.min(CHUNK_SIZE, batchConfig.getMaxSize());
+  }
+
+  /**
+   * Reads receipts from {@code in} until the end of the stream and writes one {@link BatchReceiptResponse} line per
+   * receipt to {@code out}. A malformed JSON document cannot be skipped reliably, so it is reported as a final error
+   * line and ends the stream; receipts read before it are still processed.
+   *
+   * @param in  the NDJSON input stream
+   * @param out the stream the NDJSON results are written to
+   * @return the number of receipts read
+   * @throws IOException if reading the input or writing the output fails
+   */
+  public long process(InputStream in, OutputStream out) throws IOException {
+
+    long count = 0;
+    boolean failed = false;
+    List<Receipt> chunk = new ArrayList<>(chunkSize);
+    try (JsonParser parser = objectMapper.getFactory().createParser(in);
+         SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+      try {
+        while (parser.nextToken() != null) {
+          chunk.add(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.readValueAs(Receipt.class));
+          count++;
+          if (chunk.size() == chunkSize) {
+            writeChunk(chunk, writer);
+            writer.flush();
+          }
+        }
+        writeChunk(chunk, writer);
+      } catch (JsonProcessingException e) {
+        log.warn("Stopping receipt stream after {} receipts: {}", count, e.getOriginalMessage());
+        failed = true;
+        writeChunk(chunk, writer);
+        writer.write(BatchReceiptResponse.failure(GlobalExceptionHandler.MALFORMED_BODY_MESSAGE));
+      }
+      writer.flush();
+      if (count > 0 || failed) {
+        out.write('\n');
+        out.flush();
+      }
+    }
+    return count;
+  }
+
+  private void writeChunk(List<Receipt> chunk, SequenceWriter writer) throws IOException {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    try {
+      writer.writeAll(receiptService.saveReceiptPointsBatch(chunk));
+    } catch (ValidationException e) {
+      // Chunks are never larger than a batch may be
+      throw new IllegalStateException(e);
+    }
+    chunk.clear();
+  }
+}
@@ -0,0 +1,111 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Item;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Applies the bean validation constraints declared on {@link Receipt} and {@link com.fetch.receiptprocessor.model.Item}
+ * outside of request binding, e.g. for receipts that arrive as part of a batch.
+ * Errors are reported in the same format the API uses for a single invalid receipt.
+ * <p>
+ * With {@code validation.mode=fast}, the default, {@link #parse(Receipt)} uses the hand-written
+ * {@link ReceiptParser} instead, which accepts the same receipts with the same errors several times faster.
+ */
+@Component
+public class ReceiptValidator {
+
+  private final Validator validator;
+
+  private final boolean fast;
+
+  /**
+   * Creates a validator in the default {@code fast} mode.
+   *
+   * @param validator the Bean Validation validator of {@code bean} mode
+   */
+  public ReceiptValidator(Validator validator) {
+    this(validator, new ValidationConfig());
+  }
+
+  @Autowired
+  public ReceiptValidator(Validator validator, ValidationConfig config) {
+    this.validator = validator;
+    this.fast = !"bean".equalsIgnoreCase(config.getMode());
+  }
+
+  /**
+   * Validates a receipt and parses it into the record the points rules are evaluated on.
+   *
+   * @param receipt the receipt to validate
+   * @return the parsed receipt
+   * @throws ValidationException if the receipt is missing, any constraint is violated or the amounts are invalid
+   */
+  public ReceiptRecord parse(Receipt receipt) throws ValidationException {
+    if (fast) {
+      return ReceiptParser.parse(receipt);
+    }
+    validate(receipt);
+    return ReceiptService.validate(receipt);
+  }
+
+  /**
+   * Reads a receipt from JSON, validates it and parses it into the record the points rules are evaluated on. In
+   * {@code fast} mode the record is built straight from the JSON tokens; in {@code bean} mode the receipt is bound
+   * to a {@link Receipt} first.
+   *
+   * @param parser the parser, positioned at the start of the receipt object
+   * @return the parsed receipt
+   * @throws ValidationException if any constraint is violated or the amounts are invalid
+   * @throws IOException         if the document is not a receipt object or cannot be read
+   */
+  public ReceiptRecord read(JsonParser parser) throws IOException, ValidationException {
+    if (fast) {
+      return ReceiptParser.parse(parser);
+    }
+    return parse(parser.readValueAs(Receipt.class));
+  }
+
+  /**
+   * Validates the constraints declared on the receipt and its items.
+   *
+   * @param receipt the receipt to validate
+   * @throws ValidationException if the receipt is missing or any constraint is violated
+   */
+  public void validate(Receipt receipt) throws ValidationException {
+    if (receipt == null) {
+      throw new ValidationException("receipt is required");
+    }
+
+    StringBuilder errorMessage = new StringBuilder();
+    for (ConstraintViolation<Receipt> violation : validator.validate(receipt)) {
+      errorMessage.append(violation.getPropertyPath()).append(": ").append(violation.getMessage()).append("; ");
+    }
+    // Cascaded validation skips null elements, so missing items are reported here, as by the ReceiptParser
+    List<Item> items = receipt.getItems();
+    for (int i = 0; items != null && i < items.size(); i++) {
+      if (items.get(i) == null) {
+        errorMessage.append(missingItem(i));
+      }
+    }
+    if (!errorMessage.isEmpty()) {
+      throw new ValidationException(errorMessage.toString());
+    }
+  }
+
+  /**
+   * Returns the error for a {@code null} entry of the items, in the format of request binding errors.
+   */
+  static String missingItem(int index) {
+    return "items[" + index + "]: item is required; ";
+  }
+}
@@ -0,0 +1,33 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "retention")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionConfig {
+
+  /**
+   * Keeps the parsed receipts in a compact in-memory archive so that the {@link ReceiptRescorer} can recompute their
+   * points with a new version of the rules.
+   */
+  private boolean enabled = false;
+  private long maxBytes = 256L << 20;
+  /**
+   * Threads of the rescoring job; {@code 0} uses half of the available processors.
+   */
+  private int parallelism = 0;
+  private int batchSize = 1024;
+  /**
+   * Receipts rescored per second at most, {@code 0} for no limit.
+   */
+  private long maxRate = 0;
+}
@@ -0,0 +1,87 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.data.Store;
+import com.fetch.receiptprocessor.model.PointsBreakdown;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the points each rule awarded to the scored receipts when {@code breakdown.enabled} is set.
+ * <p>
+ * A receipt's breakdown is a fixed-width vector of one {@code int} per rule, held in a store bounded by
+ * {@code breakdown.maxEntries} and {@code breakdown.maxAge} separately from the points. The rules are evaluated
+ * one at a time instead of through the fused scoring path, which is why breakdowns are opt-in.
+ */
+@Component
+@ConditionalOnProperty(name = "breakdown.enabled", havingValue = "true")
+public class RuleBreakdowns {
+
+  private final PointsCalculator pointsCalculator;
+
+  private final ReceiptMetrics receiptMetrics;
+
+  private final Store<String, int[]> rulePointsByReceiptId;
+
+  public RuleBreakdowns(BreakdownConfig config, PointsCalculator pointsCalculator, ReceiptMetrics receiptMetrics) {
+    this.pointsCalculator = pointsCalculator;
+    this.receiptMetrics = receiptMetrics;
+    this.rulePointsByReceiptId = new Store<>(config.getMaxEntries(), config.getMaxAge(), null);
+  }
+
+  /**
+   * Scores a receipt rule by rule.
+   *
+   * @param rules  the version of the rules to score with
+   * @param record the parsed receipt
+   * @return the points awarded by each rule, to be passed to {@link #save} once the receipt has an ID
+   */
+  int[] score(CompiledRules rules, ReceiptRecord record) {
+    return pointsCalculator.calculateRulePoints(rules, record);
+  }
+
+  /**
+   * Returns the points of a receipt scored by {@link #score(CompiledRules, ReceiptRecord)}.
+   *
+   * @param rulePoints the points awarded by each rule
+   * @return the sum of the points
+   */
+  static int total(int[] rulePoints) {
+    int points = 0;
+    for (int rulePoint : rulePoints) {
+      points += rulePoint;
+    }
+    return points;
+  }
+
+  void save(String receiptId, int[] rulePoints) {
+    rulePointsByReceiptId.put(receiptId, rulePoints);
+  }
+
+  /**
+   * Returns the breakdown of a receipt, with the mean and maximum time each rule took on the sampled receipts.
+   *
+   * @param receiptId   the receipt ID
+   * @param ruleVersion the version of the rules that scored the receipt, as recorded by the DAO
+   * @return the breakdown, or {@code null} if the receipt is unknown or its breakdown was evicted
+   */
+  PointsBreakdown get(String receiptId, int ruleVersion) {
+    int[] rulePoints = rulePointsByReceiptId.get(receiptId);
+    String[] ruleNames = pointsCalculator.getRuleNames(ruleVersion);
+    if (rulePoints == null || ruleNames == null || ruleNames.length != rulePoints.length) {
+      return null;
+    }
+    List<PointsBreakdown.Rule> rules = new ArrayList<>(rulePoints.length);
+    for (int rule = 0; rule < rulePoints.length; rule++) {
+      Timer timer = receiptMetrics.ruleTimer(ruleNames[rule]);
+      rules.add(new PointsBreakdown.Rule(ruleNames[rule], rulePoints[rule], timer.count(),
+              timer.mean(TimeUnit.NANOSECONDS), timer.max(TimeUnit.NANOSECONDS)));
+    }
+    return new PointsBreakdown(total(rulePoints), ruleVersion, rules);
+  }
+}
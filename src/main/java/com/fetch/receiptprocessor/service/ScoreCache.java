@@ -0,0 +1,104 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.data.Store;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ContentHasher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the points of recently scored receipts when {@code scorecache.enabled} is set, so that a receipt whose
+ * content was scored before is not scored again.
+ * <p>
+ * Entries are keyed by the same 128-bit hash of the retailer, purchase date and time, total and items that
+ * {@link ReceiptDeduplicator} uses, and held in a W-TinyLFU store bounded by {@code scorecache.maxEntries}. Each
+ * entry records the rule version it was scored with and only answers lookups for that version, and the store is
+ * cleared whenever {@link PointsCalculator#reload(PointsConfig)} publishes new rules.
+ */
+@Component
+@ConditionalOnProperty(name = "scorecache.enabled", havingValue = "true")
+public class ScoreCache implements MeterBinder {
+
+  private final Store<ContentHasher.Hash, Long> pointsByContent;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  public ScoreCache(ScoreCacheConfig config) {
+    this.pointsByContent = new Store<>(config.getMaxEntries(), null, null);
+  }
+
+  /**
+   * Returns the points of a receipt, scoring it with {@code rules} unless the same content was already scored with
+   * that version of the rules.
+   *
+   * @param rules   the rules to score with
+   * @param receipt the parsed receipt
+   * @return the points awarded for the receipt
+   */
+  int score(CompiledRules rules, ReceiptRecord receipt) {
+    ContentHasher.Hash key = ReceiptDeduplicator.hash(receipt);
+    Long entry = pointsByContent.get(key);
+    // The rule version is kept in the upper half, the points in the lower half
+    if (entry != null && (int) (entry >>> 32) == rules.version()) {
+      hits.increment();
+      return (int) (long) entry;
+    }
+    misses.increment();
+    int points = rules.score(receipt);
+    pointsByContent.put(key, (long) rules.version() << 32 | (points & 0xFFFFFFFFL));
+    return points;
+  }
+
+  /**
+   * Drops all remembered points, after the rules changed.
+   */
+  void invalidateAll() {
+    pointsByContent.clear();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the fraction of lookups answered from the cache since startup.
+   *
+   * @return the hit ratio, or {@code 0} before the first lookup
+   */
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("receipts.scorecache.hits", this, ScoreCache::getHitCount)
+            .description("Receipts whose points were found in the score cache")
+            .register(registry);
+    FunctionCounter.builder("receipts.scorecache.misses", this, ScoreCache::getMissCount)
+            .description("Receipts scored because their points were not in the score cache")
+            .register(registry);
+    Gauge.builder("receipts.scorecache.hit.ratio", this, ScoreCache::getHitRatio)
+            .description("Fraction of score cache lookups that were hits")
+            .register(registry);
+    Gauge.builder("receipts.scorecache.size", pointsByContent, Store::size)
+            .description("Receipt contents held in the score cache")
+            .register(registry);
+    FunctionCounter.builder("receipts.scorecache.evictions", pointsByContent, Store::evictionCount)
+            .description("Entries evicted from the score cache because of scorecache.maxEntries")
+            .register(registry);
+  }
+}
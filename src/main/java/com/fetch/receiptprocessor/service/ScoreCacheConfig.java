@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "scorecache")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreCacheConfig {
+
+  /**
+   * Remembers the points of recently scored receipt contents, so that identical receipts are not scored again.
+   */
+  private boolean enabled;
+  private long maxEntries = 100_000;
+}
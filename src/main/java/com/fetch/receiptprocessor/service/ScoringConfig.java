@@ -0,0 +1,29 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "scoring")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoringConfig {
+
+  /**
+   * {@code sync} (default) scores and saves receipts inside the request, {@code async} queues them for the
+   * {@link ScoringPipeline}.
+   */
+  private String mode = "sync";
+  private int queueCapacity = 65536;
+  private int workers = 1;
+  private int batchSize = 256;
+  private Duration pendingWait = Duration.ofMillis(100);
+}
@@ -0,0 +1,396 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.IReceiptDao;
+import com.fetch.receiptprocessor.exception.OverloadedException;
+import com.fetch.receiptprocessor.exception.PendingException;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
+import com.fetch.receiptprocessor.util.RingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous scoring pipeline used with {@code scoring.mode=async}.
+ * <p>
+ * A submitted receipt is assigned its ID right away and queued on a bounded, lock-free {@link RingBuffer}; the
+ * request returns without waiting for scoring. A pool of worker threads drains the queue in batches of up to
+ * {@code scoring.batchSize} receipts, scores them and saves each batch with a single bulk write to the
+ * {@link IReceiptDao}. When the queue is full, submissions are rejected with an {@link OverloadedException} instead
+ * of letting the backlog and the latency grow without bound.
+ * <p>
+ * Until its batch is saved, a receipt is tracked as pending. Reads of a pending receipt wait up to
+ * {@code scoring.pendingWait} for its points and fail with a {@link PendingException} if they are still not ready.
+ * A receipt that fails to be scored or saved is forgotten by the {@link ReceiptDeduplicator}, so a retry is scored
+ * again instead of getting the ID that was never saved.
+ * <p>
+ * On shutdown every receipt that was accepted is still scored: {@link #close()} waits for submissions that passed
+ * the running check to land in the queue, and saves whatever the workers left behind once they have stopped.
+ * <p>
+ * The queue depth and the pending, rejected and processed receipts are published as {@code receipts.scoring.*}
+ * metrics.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "scoring.mode", havingValue = "async")
+public class ScoringPipeline implements MeterBinder {
+
+  private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final IReceiptDao receiptDao;
+
+  private final ReceiptScorer receiptScorer;
+
+  private final IReceiptIdGenerator receiptIdGenerator;
+
+  private final RingBuffer<Task> queue;
+
+  private final Map<String, Task> pending = new ConcurrentHashMap<>();
+
+  private final int batchSize;
+
+  private final long pendingWaitNanos;
+
+  private final List<Thread> workers = new ArrayList<>();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder processed = new LongAdder();
+
+  private final AtomicInteger submitting = new AtomicInteger();
+
+  private volatile boolean running = true;
+
+  private ReceiptDeduplicator receiptDeduplicator;
+
+  /**
+   * Creates the queue and starts the scoring workers.
+   *
+   * @param config             the scoring configuration
+   * @param receiptDao         the DAO scored receipts are saved to
+   * @param pointsCalculator   the calculator used to score receipts
+   * @param receiptIdGenerator the generator for the IDs assigned on submission
+   */
+  public ScoringPipeline(ScoringConfig config, IReceiptDao receiptDao, PointsCalculator pointsCalculator,
+                         IReceiptIdGenerator receiptIdGenerator) {
+    if (config.getWorkers() <= 0 || config.getBatchSize() <= 0) {
+      throw new IllegalArgumentException("scoring.workers and scoring.batchSize must be positive");
+    }
+    this.receiptDao = receiptDao;
+    this.receiptScorer = new ReceiptScorer(pointsCalculator);
+    this.receiptIdGenerator = receiptIdGenerator;
+    this.queue = new RingBuffer<>(config.getQueueCapacity());
+    this.batchSize = config.getBatchSize();
+    this.pendingWaitNanos = config.getPendingWait().toNanos();
+    for (int i = 0; i < config.getWorkers(); i++) {
+      Thread worker = new Thread(this::work, "scoring-worker-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+    log.info("Started {} scoring workers with a queue of {} receipts", config.getWorkers(), queue.capacity());
+  }
+
+  /**
+   * Keeps the points awarded by each rule to the receipts scored by the workers.
+   *
+   * @param ruleBreakdowns the breakdowns, present with {@code breakdown.enabled}
+   */
+  @Autowired(required = false)
+  public void setRuleBreakdowns(RuleBreakdowns ruleBreakdowns) {
+    receiptScorer.setRuleBreakdowns(ruleBreakdowns);
+  }
+
+  /**
+   * Retains the receipts saved by the workers so that their points can be recomputed when the rules change.
+   *
+   * @param receiptRescorer the rescorer, present with {@code retention.enabled}
+   */
+  @Autowired(required = false)
+  public void setReceiptRescorer(ReceiptRescorer receiptRescorer) {
+    receiptScorer.setReceiptRescorer(receiptRescorer);
+  }
+
+  /**
+   * Forgets the submissions whose receipts fail to be scored or saved, so that a retry is not deduplicated onto an
+   * ID that was never saved.
+   *
+   * @param receiptDeduplicator the deduplicator for repeated submissions
+   */
+  @Autowired(required = false)
+  public void setReceiptDeduplicator(ReceiptDeduplicator receiptDeduplicator) {
+    this.receiptDeduplicator = receiptDeduplicator;
+  }
+
+  /**
+   * Assigns an ID to the receipt and queues it for scoring.
+   *
+   * @param record the validated receipt
+   * @return the ID the receipt's points will be saved under
+   * @throws OverloadedException if the queue is full or the pipeline is shutting down
+   */
+  public String submit(ReceiptRecord record) {
+    return submit(record, null);
+  }
+
+  /**
+   * Assigns an ID to the receipt and queues it for scoring.
+   *
+   * @param record         the validated receipt
+   * @param idempotencyKey the key the receipt was deduplicated on, or {@code null} if it was deduplicated on content
+   * @return the ID the receipt's points will be saved under
+   * @throws OverloadedException if the queue is full or the pipeline is shutting down
+   */
+  public String submit(ReceiptRecord record, String idempotencyKey) {
+    String receiptId = receiptIdGenerator.generateReceiptId();
+    Task task = new Task(receiptId, record, idempotencyKey);
+    pending.put(receiptId, task);
+    // Announce the submission before checking running, so close() either sees it and waits for the offer to land,
+    // or this check sees the pipeline stopped
+    submitting.incrementAndGet();
+    try {
+      if (!running || !queue.offer(task)) {
+        pending.remove(receiptId);
+        rejected.increment();
+        throw new OverloadedException();
+      }
+    } finally {
+      submitting.decrementAndGet();
+    }
+    return receiptId;
+  }
+
+  /**
+   * Tells whether a receipt was queued and its batch is not saved yet, without waiting for it.
+   *
+   * @param receiptId the receipt ID
+   * @return {@code true} if the receipt is pending
+   */
+  public boolean isPending(String receiptId) {
+    return pending.containsKey(receiptId);
+  }
+
+  /**
+   * Returns the points of a pending receipt, waiting up to {@code scoring.pendingWait} for its batch to be saved.
+   *
+   * @param receiptId the receipt ID
+   * @return the points, or {@code null} if the receipt is not pending and must be looked up in the DAO
+   * @throws PendingException if the receipt is still pending after the wait
+   */
+  public Integer awaitPoints(String receiptId) {
+    Task task = pending.get(receiptId);
+    if (task == null) {
+      return null;
+    }
+    try {
+      return task.get(pendingWaitNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new PendingException(receiptId);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PendingException(receiptId);
+    } catch (ExecutionException e) {
+      // The save failed, so the receipt was never stored
+      return null;
+    }
+  }
+
+  /**
+   * Returns the number of receipts waiting in the queue.
+   *
+   * @return the queue depth
+   */
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  public int getQueueCapacity() {
+    return queue.capacity();
+  }
+
+  /**
+   * Returns the number of receipts that were accepted but are not saved yet, including those being scored.
+   *
+   * @return the number of pending receipts
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Returns the number of submissions rejected because the queue was full.
+   *
+   * @return the number of rejected receipts
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Returns the number of receipts scored and saved by the workers.
+   *
+   * @return the number of processed receipts
+   */
+  public long getProcessedCount() {
+    return processed.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("receipts.scoring.queue.depth", this, ScoringPipeline::getQueueDepth)
+            .description("Receipts waiting in the scoring queue")
+            .register(registry);
+    Gauge.builder("receipts.scoring.queue.capacity", this, ScoringPipeline::getQueueCapacity)
+            .description("Capacity of the scoring queue")
+            .register(registry);
+    Gauge.builder("receipts.scoring.pending", this, ScoringPipeline::getPendingCount)
+            .description("Receipts accepted but not saved yet")
+            .register(registry);
+    FunctionCounter.builder("receipts.scoring.rejected", this, ScoringPipeline::getRejectedCount)
+            .description("Receipts rejected because the scoring queue was full")
+            .register(registry);
+    FunctionCounter.builder("receipts.scoring.processed", this, ScoringPipeline::getProcessedCount)
+            .description("Receipts scored and saved by the scoring workers")
+            .register(registry);
+  }
+
+  /**
+   * Stops accepting receipts and waits for the workers to save everything that was already queued.
+   */
+  @PreDestroy
+  public void close() {
+    running = false;
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    // A submission that passed the running check may have queued its receipt after the workers exited
+    while (submitting.get() > 0) {
+      Thread.onSpinWait();
+    }
+    Task[] batch = new Task[batchSize];
+    int count;
+    do {
+      count = drain(batch);
+    } while (count > 0);
+    log.info("Stopped scoring workers after {} receipts", getProcessedCount());
+  }
+
+  private void work() {
+    Task[] batch = new Task[batchSize];
+    int idle = 0;
+    while (running || queue.size() > 0) {
+      if (drain(batch) == 0) {
+        // Back off exponentially from 1 µs to 1 ms so an idle worker costs next to nothing
+        idle = Math.min(idle + 1, 10);
+        LockSupport.parkNanos(Math.min(MAX_IDLE_PARK_NANOS, 1_000L << idle));
+        continue;
+      }
+      idle = 0;
+    }
+  }
+
+  /**
+   * Takes up to a batch of receipts off the queue and saves them.
+   *
+   * @return the number of receipts taken
+   */
+  private int drain(Task[] batch) {
+    int count = queue.drainTo(batch, batchSize);
+    if (count > 0) {
+      process(batch, count);
+      Arrays.fill(batch, 0, count, null);
+    }
+    return count;
+  }
+
+  private void process(Task[] batch, int count) {
+    List<String> receiptIds = new ArrayList<>(count);
+    int[] points = new int[count];
+    Task[] scored = new Task[count];
+    ReceiptScorer.Score[] scores = new ReceiptScorer.Score[count];
+    CompiledRules rules = receiptScorer.rules();
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      Task task = batch[i];
+      try {
+        scores[size] = receiptScorer.score(rules, task.record);
+        points[size] = scores[size].points;
+        receiptIds.add(task.receiptId);
+        scored[size++] = task;
+      } catch (RuntimeException e) {
+        log.error("Error scoring receipt ID: {}: {}", task.receiptId, e.getMessage(), e);
+        fail(task, e);
+      }
+    }
+
+    try {
+      receiptDao.saveAllReceiptPoints(receiptIds, size == count ? points : Arrays.copyOf(points, size),
+              rules.version());
+    } catch (RuntimeException e) {
+      log.error("Error saving batch of {} scored receipts: {}", size, e.getMessage(), e);
+      for (int i = 0; i < size; i++) {
+        fail(scored[i], e);
+      }
+      return;
+    }
+    // The points are in the DAO now, so readers that no longer find the receipt pending look it up there
+    processed.add(size);
+    for (int i = 0; i < size; i++) {
+      Task task = scored[i];
+      receiptScorer.saved(task.receiptId, scores[i]);
+      pending.remove(task.receiptId, task);
+      task.complete(points[i]);
+    }
+  }
+
+  private void fail(Task task, RuntimeException e) {
+    ReceiptDeduplicator deduplicator = receiptDeduplicator;
+    if (deduplicator != null) {
+      deduplicator.forget(task.record, task.idempotencyKey, task.receiptId);
+    }
+    pending.remove(task.receiptId, task);
+    task.completeExceptionally(e);
+  }
+
+  /**
+   * A queued receipt, completed with its points once they are saved.
+   */
+  private static final class Task extends CompletableFuture<Integer> {
+
+    private final String receiptId;
+
+    private final ReceiptRecord record;
+
+    private final String idempotencyKey;
+
+    private Task(String receiptId, ReceiptRecord record, String idempotencyKey) {
+      this.receiptId = receiptId;
+      this.record = record;
+      this.idempotencyKey = idempotencyKey;
+    }
+  }
+}
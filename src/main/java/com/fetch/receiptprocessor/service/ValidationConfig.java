@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "validation")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValidationConfig {
+
+  /**
+   * {@code fast} (default) checks and parses receipts in a single pass with {@link ReceiptParser}, {@code bean}
+   * applies the Bean Validation constraints declared on the model and parses the fields afterwards.
+   */
+  private String mode = "fast";
+}
@@ -0,0 +1,46 @@
+package com.fetch.receiptprocessor.service.rules;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Template of the classes that {@link RuleExpression} compiles rules into. It is never loaded by name: every rule
+ * gets its own hidden copy of this class, whose class data is the rule's name and method handle. Holding the handle
+ * in a {@code static final} field makes it a constant for the JIT, which then inlines the whole expression into
+ * {@link #points(ReceiptRecord, int)} instead of calling through the handle.
+ */
+final class CompiledRule implements IPointsRule {
+
+  private static final String NAME;
+
+  private static final MethodHandle HANDLE;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      NAME = MethodHandles.classDataAt(lookup, "_", String.class, 0);
+      HANDLE = MethodHandles.classDataAt(lookup, "_", MethodHandle.class, 1);
+    } catch (IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int points(ReceiptRecord receipt, int score) {
+    try {
+      return (int) HANDLE.invokeExact(receipt, score);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      // None of the operators or functions throws a checked exception
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.fetch.receiptprocessor.service.rules;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+/**
+ * A points rule evaluated after the built-in rules.
+ * <p>
+ * Rules come from two places: beans of this type in the application context, and the promotions configured in
+ * {@code points.promotions}, which are compiled by {@link RuleExpression}. Rules are evaluated for every scored
+ * receipt, so implementations must be thread-safe, should not allocate, and must not block.
+ */
+public interface IPointsRule {
+
+  /**
+   * Returns the name the rule is reported under in breakdowns and metrics. Names must be unique within a rule set.
+   *
+   * @return the rule name
+   */
+  String getName();
+
+  /**
+   * Returns the points the rule awards for the receipt.
+   *
+   * @param receipt the parsed receipt
+   * @param score   the points awarded by the rules evaluated before this one, e.g. to apply a multiplier
+   * @return the points awarded by the rule, which may be negative
+   */
+  int points(ReceiptRecord receipt, int score);
+}
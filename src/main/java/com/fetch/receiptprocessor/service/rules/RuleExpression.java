@@ -0,0 +1,659 @@
+package com.fetch.receiptprocessor.service.rules;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A points rule written in the promotion expression language, compiled once into a tree of method handles.
+ * <p>
+ * An expression evaluates to the points the rule awards, e.g.
+ * {@code contains(retailer, "target") && dayOfWeek >= 6 ? score : 0} doubles the points of weekend purchases at
+ * Target. It is parsed and type checked when the rules are loaded, and compiled into a single {@link MethodHandle}
+ * held as a constant by a hidden class (see {@link CompiledRule}), so the JIT compiles and inlines it like ordinary
+ * code and nothing is interpreted per receipt. {@link #fuse(String, List)} goes one step further and compiles all
+ * the promotions of a rule set into one method, so scoring them costs a single call.
+ * <p>
+ * The language has integers, strings and booleans:
+ * <ul>
+ *   <li>Literals: {@code 100}, {@code "text"}, {@code true}, {@code false}</li>
+ *   <li>Operators, by increasing precedence: {@code ?:}, {@code ||}, {@code &&},
+ *   {@code == != < <= > >=}, {@code + -}, {@code * / %}, unary {@code ! -}, and parentheses. Integer division
+ *   truncates, and dividing by zero yields {@code 0} so that a rule can never fail a receipt</li>
+ *   <li>Variables: {@code retailer}, {@code totalCents}, {@code itemCount}, {@code dayOfMonth}, {@code dayOfWeek}
+ *   ({@code 1} for Monday to {@code 7} for Sunday), {@code month}, {@code year}, {@code hour},
+ *   {@code minuteOfDay}, and {@code score}, the points awarded by the rules evaluated before this one</li>
+ *   <li>Functions: {@code contains(text, "literal")} and {@code startsWith(text, "literal")}, ignoring case;
+ *   {@code countItems("keyword")} and {@code itemCents("keyword")}, the number and the total price in cents of the
+ *   items whose description contains the keyword, ignoring case; {@code min(a, b)} and {@code max(a, b)}</li>
+ * </ul>
+ * The result must be an integer and is clamped to the {@code int} range.
+ */
+public final class RuleExpression implements IPointsRule {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType PARAMETERS = MethodType.methodType(void.class, ReceiptRecord.class, int.class);
+
+  private static final Map<String, MethodHandle> VARIABLES = Map.of(
+          "retailer", getter("getRetailer", String.class),
+          "totalCents", getter("getTotalCents", long.class),
+          "itemCount", getter("getItemCount", int.class),
+          "dayOfMonth", getter("getDayOfMonth", int.class),
+          "minuteOfDay", getter("getMinuteOfDay", int.class),
+          "dayOfWeek", receiptFunction("dayOfWeek"),
+          "month", receiptFunction("month"),
+          "year", receiptFunction("year"),
+          "hour", receiptFunction("hour"),
+          "score", MethodHandles.dropArguments(
+                  MethodHandles.identity(int.class).asType(MethodType.methodType(long.class, int.class)),
+                  0, ReceiptRecord.class));
+
+  private static final MethodHandle NOT = function("not", boolean.class, boolean.class);
+
+  private static final MethodHandle SCORE = MethodHandles.dropArguments(MethodHandles.identity(int.class),
+          0, ReceiptRecord.class);
+
+  private static final byte[] TEMPLATE = template();
+
+  private final String name;
+
+  private final String expression;
+
+  private final MethodHandle handle;
+
+  private final IPointsRule compiled;
+
+  private RuleExpression(String name, String expression, MethodHandle handle) {
+    this.name = name;
+    this.expression = expression;
+    this.handle = handle;
+    this.compiled = define(name, handle);
+  }
+
+  /**
+   * Parses, type checks and compiles an expression.
+   *
+   * @param name       the rule name
+   * @param expression the expression
+   * @return the compiled rule
+   * @throws IllegalArgumentException if the expression is not valid or does not evaluate to an integer
+   */
+  public static RuleExpression compile(String name, String expression) {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Promotion rules need a name");
+    }
+    if (expression == null || expression.isBlank()) {
+      throw new IllegalArgumentException("Promotion rule " + name + " has no expression");
+    }
+    MethodHandle points;
+    try {
+      points = new Parser(expression).parse();
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Promotion rule " + name + ": " + e.getMessage(), e);
+    }
+    if (points.type().returnType() != long.class) {
+      throw new IllegalArgumentException("Promotion rule " + name + " must evaluate to an integer: " + expression);
+    }
+    return new RuleExpression(name, expression,
+            MethodHandles.filterReturnValue(points, function("toPoints", int.class, long.class)));
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  @Override
+  public int points(ReceiptRecord receipt, int score) {
+    return compiled.points(receipt, score);
+  }
+
+  /**
+   * Compiles rules into a single rule that evaluates them in order, each given the points of the rules before it.
+   *
+   * @param name  the name of the combined rule
+   * @param rules the rules
+   * @return a rule that returns the sum of the points awarded by the rules
+   */
+  public static IPointsRule fuse(String name, List<RuleExpression> rules) {
+    MethodHandle score = SCORE;
+    MethodHandle add = function("add", int.class, int.class, int.class);
+    for (RuleExpression rule : rules) {
+      // score + rule(receipt, score), where score is the result of the rules before it
+      MethodHandle step = combine(add, SCORE, rule.handle);
+      score = MethodHandles.permuteArguments(MethodHandles.collectArguments(step, 1, score),
+              PARAMETERS.changeReturnType(int.class), 0, 0, 1);
+    }
+    return define(name, combine(function("subtract", int.class, int.class, int.class), score, SCORE));
+  }
+
+  @Override
+  public String toString() {
+    return name + ": " + expression;
+  }
+
+  /**
+   * Recursive descent parser that compiles each construct into a method handle of type
+   * {@code (ReceiptRecord, int score)} returning {@code long}, {@code boolean} or {@link String}, so that type errors
+   * are reported when the rules are loaded.
+   */
+  private static final class Parser {
+
+    private final String source;
+
+    private int position;
+
+    private Parser(String source) {
+      this.source = source;
+    }
+
+    MethodHandle parse() {
+      MethodHandle result = conditional();
+      skipSpaces();
+      if (position < source.length()) {
+        throw error("unexpected '" + source.charAt(position) + "'");
+      }
+      return result;
+    }
+
+    private MethodHandle conditional() {
+      MethodHandle condition = or();
+      if (!accept("?")) {
+        return condition;
+      }
+      require(condition, boolean.class, "?:");
+      MethodHandle whenTrue = conditional();
+      expect(":");
+      MethodHandle whenFalse = conditional();
+      if (typeOf(whenTrue) != typeOf(whenFalse)) {
+        throw error("both branches of ?: must have the same type");
+      }
+      return MethodHandles.guardWithTest(condition, whenTrue, whenFalse);
+    }
+
+    private MethodHandle or() {
+      MethodHandle left = and();
+      while (accept("||")) {
+        MethodHandle right = and();
+        require(left, boolean.class, "||");
+        require(right, boolean.class, "||");
+        left = MethodHandles.guardWithTest(left, constant(boolean.class, true), right);
+      }
+      return left;
+    }
+
+    private MethodHandle and() {
+      MethodHandle left = comparison();
+      while (accept("&&")) {
+        MethodHandle right = comparison();
+        require(left, boolean.class, "&&");
+        require(right, boolean.class, "&&");
+        left = MethodHandles.guardWithTest(left, right, constant(boolean.class, false));
+      }
+      return left;
+    }
+
+    private MethodHandle comparison() {
+      MethodHandle left = additive();
+      for (String operator : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+        if (accept(operator)) {
+          MethodHandle right = additive();
+          return compare(operator, left, right);
+        }
+      }
+      return left;
+    }
+
+    private MethodHandle compare(String operator, MethodHandle left, MethodHandle right) {
+      if (operator.equals("==") || operator.equals("!=")) {
+        if (typeOf(left) != typeOf(right)) {
+          throw error("cannot compare " + typeName(left) + " with " + typeName(right));
+        }
+        Class<?> type = typeOf(left);
+        MethodHandle equals = function(type == String.class ? "equalsString" : "equals", boolean.class, type, type);
+        MethodHandle result = combine(equals, left, right);
+        return operator.equals("==") ? result : MethodHandles.filterReturnValue(result, NOT);
+      }
+      require(left, long.class, operator);
+      require(right, long.class, operator);
+      return combine(function(switch (operator) {
+        case "<" -> "lessThan";
+        case "<=" -> "lessOrEqual";
+        case ">" -> "greaterThan";
+        default -> "greaterOrEqual";
+      }, boolean.class, long.class, long.class), left, right);
+    }
+
+    private MethodHandle additive() {
+      MethodHandle left = multiplicative();
+      while (true) {
+        String operator = accept("+") ? "+" : accept("-") ? "-" : null;
+        if (operator == null) {
+          return left;
+        }
+        left = arithmetic(operator, left, multiplicative());
+      }
+    }
+
+    private MethodHandle multiplicative() {
+      MethodHandle left = unary();
+      while (true) {
+        String operator = accept("*") ? "*" : accept("/") ? "/" : accept("%") ? "%" : null;
+        if (operator == null) {
+          return left;
+        }
+        left = arithmetic(operator, left, unary());
+      }
+    }
+
+    private MethodHandle arithmetic(String operator, MethodHandle left, MethodHandle right) {
+      require(left, long.class, operator);
+      require(right, long.class, operator);
+      return combine(function(switch (operator) {
+        case "+" -> "add";
+        case "-" -> "subtract";
+        case "*" -> "multiply";
+        case "/" -> "divide";
+        default -> "remainder";
+      }, long.class, long.class, long.class), left, right);
+    }
+
+    private MethodHandle unary() {
+      if (accept("!")) {
+        MethodHandle operand = unary();
+        require(operand, boolean.class, "!");
+        return MethodHandles.filterReturnValue(operand, NOT);
+      }
+      if (accept("-")) {
+        MethodHandle operand = unary();
+        require(operand, long.class, "-");
+        return MethodHandles.filterReturnValue(operand, function("negate", long.class, long.class));
+      }
+      return primary();
+    }
+
+    private MethodHandle primary() {
+      skipSpaces();
+      if (position >= source.length()) {
+        throw error("unexpected end of expression");
+      }
+      char next = source.charAt(position);
+      if (accept("(")) {
+        MethodHandle inner = conditional();
+        expect(")");
+        return inner;
+      }
+      if (next == '"') {
+        return constant(String.class, stringLiteral());
+      }
+      if (Character.isDigit(next)) {
+        return constant(long.class, number());
+      }
+      if (Character.isLetter(next) || next == '_') {
+        String identifier = identifier();
+        if (accept("(")) {
+          return call(identifier);
+        }
+        return switch (identifier) {
+          case "true" -> constant(boolean.class, true);
+          case "false" -> constant(boolean.class, false);
+          default -> {
+            MethodHandle variable = VARIABLES.get(identifier);
+            if (variable == null) {
+              throw error("unknown variable '" + identifier + "'");
+            }
+            yield variable;
+          }
+        };
+      }
+      throw error("unexpected '" + next + "'");
+    }
+
+    private MethodHandle call(String function) {
+      MethodHandle result;
+      switch (function) {
+        case "contains", "startsWith" -> {
+          MethodHandle text = conditional();
+          require(text, String.class, function);
+          expect(",");
+          String literal = stringLiteral();
+          result = MethodHandles.filterReturnValue(text, MethodHandles.insertArguments(
+                  function(function + "IgnoreCase", boolean.class, String.class, String.class),
+                  1, literal.toLowerCase(Locale.ROOT)));
+        }
+        case "countItems", "itemCents" -> {
+          String keyword = stringLiteral().toLowerCase(Locale.ROOT);
+          result = MethodHandles.dropArguments(MethodHandles.insertArguments(
+                  function(function, long.class, ReceiptRecord.class, String.class), 1, keyword), 1, int.class);
+        }
+        case "min", "max" -> {
+          MethodHandle left = conditional();
+          expect(",");
+          MethodHandle right = conditional();
+          require(left, long.class, function);
+          require(right, long.class, function);
+          result = combine(function(function, long.class, long.class, long.class), left, right);
+        }
+        default -> throw error("unknown function '" + function + "'");
+      }
+      expect(")");
+      return result;
+    }
+
+    private String stringLiteral() {
+      skipSpaces();
+      if (position >= source.length() || source.charAt(position) != '"') {
+        throw error("expected a string literal");
+      }
+      StringBuilder value = new StringBuilder();
+      position++;
+      while (position < source.length()) {
+        char next = source.charAt(position++);
+        if (next == '"') {
+          return value.toString();
+        }
+        if (next == '\\' && position < source.length()) {
+          next = source.charAt(position++);
+        }
+        value.append(next);
+      }
+      throw error("unterminated string literal");
+    }
+
+    private long number() {
+      int start = position;
+      while (position < source.length() && Character.isDigit(source.charAt(position))) {
+        position++;
+      }
+      try {
+        return Long.parseLong(source, start, position, 10);
+      } catch (NumberFormatException e) {
+        position = start;
+        throw error("number out of range");
+      }
+    }
+
+    private String identifier() {
+      int start = position;
+      while (position < source.length()
+              && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+        position++;
+      }
+      return source.substring(start, position);
+    }
+
+    private boolean accept(String token) {
+      skipSpaces();
+      if (source.startsWith(token, position)) {
+        position += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw error("expected '" + token + "'");
+      }
+    }
+
+    private void skipSpaces() {
+      while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+        position++;
+      }
+    }
+
+    private void require(MethodHandle operand, Class<?> type, String operator) {
+      if (typeOf(operand) != type) {
+        throw error(operator + " needs " + typeName(type) + " operands, not " + typeName(operand));
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + position + " of: " + source);
+    }
+  }
+
+  /**
+   * Applies a binary operator to the results of two operands, which both take the rule parameters.
+   */
+  private static MethodHandle combine(MethodHandle operator, MethodHandle left, MethodHandle right) {
+    MethodHandle combined = operator.asType(
+            MethodType.methodType(operator.type().returnType(), typeOf(left), typeOf(right)));
+    combined = MethodHandles.collectArguments(combined, 0, left);
+    combined = MethodHandles.collectArguments(combined, 2, right);
+    return MethodHandles.permuteArguments(combined, PARAMETERS.changeReturnType(combined.type().returnType()),
+            0, 1, 0, 1);
+  }
+
+  private static MethodHandle constant(Class<?> type, Object value) {
+    return MethodHandles.dropArguments(MethodHandles.constant(type, value), 0, PARAMETERS.parameterList());
+  }
+
+  private static Class<?> typeOf(MethodHandle handle) {
+    return handle.type().returnType();
+  }
+
+  private static String typeName(MethodHandle handle) {
+    return typeName(typeOf(handle));
+  }
+
+  private static String typeName(Class<?> type) {
+    return type == long.class ? "integer" : type == boolean.class ? "boolean" : "string";
+  }
+
+  /**
+   * Returns a getter of {@link ReceiptRecord} as a handle of the rule parameters, with integers widened to
+   * {@code long}.
+   */
+  private static MethodHandle getter(String name, Class<?> type) {
+    try {
+      MethodHandle getter = LOOKUP.findVirtual(ReceiptRecord.class, name, MethodType.methodType(type));
+      if (type == int.class) {
+        getter = getter.asType(MethodType.methodType(long.class, ReceiptRecord.class));
+      }
+      return MethodHandles.dropArguments(getter, 1, int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns a static method of this class.
+   */
+  private static MethodHandle function(String name, Class<?> returnType, Class<?>... parameterTypes) {
+    try {
+      return LOOKUP.findStatic(RuleExpression.class, name, MethodType.methodType(returnType, parameterTypes));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns a static method of this class that derives a value from the receipt, as a handle of the rule parameters.
+   */
+  private static MethodHandle receiptFunction(String name) {
+    return MethodHandles.dropArguments(function(name, long.class, ReceiptRecord.class), 1, int.class);
+  }
+
+  /**
+   * Defines a hidden copy of {@link CompiledRule} with the rule's name and handle as its constants.
+   */
+  private static IPointsRule define(String name, MethodHandle handle) {
+    try {
+      MethodHandles.Lookup rule = LOOKUP.defineHiddenClassWithClassData(TEMPLATE, List.of(name, handle), true);
+      return (IPointsRule) rule.findConstructor(rule.lookupClass(), MethodType.methodType(void.class)).invoke();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot define the class of rule " + name, e);
+    }
+  }
+
+  private static byte[] template() {
+    try (InputStream in = RuleExpression.class.getResourceAsStream("CompiledRule.class")) {
+      if (in == null) {
+        throw new IllegalStateException("CompiledRule.class not found");
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long dayOfWeek(ReceiptRecord receipt) {
+    // 1970-01-01 was a Thursday
+    return Math.floorMod(receipt.getEpochDay() + 3, 7) + 1;
+  }
+
+  private static long month(ReceiptRecord receipt) {
+    return LocalDate.ofEpochDay(receipt.getEpochDay()).getMonthValue();
+  }
+
+  private static long year(ReceiptRecord receipt) {
+    return LocalDate.ofEpochDay(receipt.getEpochDay()).getYear();
+  }
+
+  private static long hour(ReceiptRecord receipt) {
+    return receipt.getMinuteOfDay() / 60;
+  }
+
+  private static long countItems(ReceiptRecord receipt, String keyword) {
+    long count = 0;
+    for (String description : receipt.getItemDescriptions()) {
+      if (containsIgnoreCase(description, keyword)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long itemCents(ReceiptRecord receipt, String keyword) {
+    long cents = 0;
+    String[] descriptions = receipt.getItemDescriptions();
+    long[] priceCents = receipt.getItemPriceCents();
+    for (int i = 0; i < priceCents.length; i++) {
+      if (containsIgnoreCase(descriptions[i], keyword)) {
+        cents += priceCents[i];
+      }
+    }
+    return cents;
+  }
+
+  /**
+   * Whether the text contains the lower case keyword, ignoring case, without creating a lower case copy. Only
+   * positions that start with the keyword's first letter are compared in full.
+   */
+  static boolean containsIgnoreCase(String text, String keyword) {
+    if (keyword.isEmpty()) {
+      return true;
+    }
+    char first = keyword.charAt(0);
+    boolean asciiLetter = first >= 'a' && first <= 'z';
+    for (int i = 0, last = text.length() - keyword.length(); i <= last; i++) {
+      char next = text.charAt(i);
+      // Setting bit 5 lower cases ASCII letters; other characters may still match the letter ignoring case
+      boolean candidate = asciiLetter ? (next | 0x20) == first || next >= 0x80
+              : Character.toLowerCase(next) == first || next >= 0x80;
+      if (candidate && text.regionMatches(true, i, keyword, 0, keyword.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean startsWithIgnoreCase(String text, String prefix) {
+    return text.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+  private static int toPoints(long points) {
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, points));
+  }
+
+  private static int add(int left, int right) {
+    return left + right;
+  }
+
+  private static int subtract(int left, int right) {
+    return left - right;
+  }
+
+  private static long add(long left, long right) {
+    return left + right;
+  }
+
+  private static long subtract(long left, long right) {
+    return left - right;
+  }
+
+  private static long multiply(long left, long right) {
+    return left * right;
+  }
+
+  private static long divide(long left, long right) {
+    return right == 0 ? 0 : left / right;
+  }
+
+  private static long remainder(long left, long right) {
+    return right == 0 ? 0 : left % right;
+  }
+
+  private static long negate(long value) {
+    return -value;
+  }
+
+  private static long min(long left, long right) {
+    return Math.min(left, right);
+  }
+
+  private static long max(long left, long right) {
+    return Math.max(left, right);
+  }
+
+  private static boolean not(boolean value) {
+    return !value;
+  }
+
+  private static boolean lessThan(long left, long right) {
+    return left < right;
+  }
+
+  private static boolean lessOrEqual(long left, long right) {
+    return left <= right;
+  }
+
+  private static boolean greaterThan(long left, long right) {
+    return left > right;
+  }
+
+  private static boolean greaterOrEqual(long left, long right) {
+    return left >= right;
+  }
+
+  private static boolean equals(long left, long right) {
+    return left == right;
+  }
+
+  private static boolean equals(boolean left, boolean right) {
+    return left == right;
+  }
+
+  private static boolean equalsString(String left, String right) {
+    return Objects.equals(left, right);
+  }
+}
@@ -0,0 +1,60 @@
+package com.fetch.receiptprocessor.util;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Moves log output off the request threads by wrapping the appenders of the Logback root logger in
+ * {@link AsyncAppender}s.
+ * <p>
+ * Logging calls only enqueue the event; a background thread per appender writes it. When the queue is more than 80%
+ * full, {@code TRACE}, {@code DEBUG} and {@code INFO} events are dropped so that a slow console or disk never
+ * throttles request processing, while {@code WARN} and {@code ERROR} events are always kept.
+ */
+public final class AsyncLogging {
+
+  private static final String ASYNC_PREFIX = "ASYNC-";
+
+  private AsyncLogging() {
+  }
+
+  /**
+   * Wraps every synchronous appender of the root logger in an {@link AsyncAppender}. Appenders that are already
+   * asynchronous are left as they are, so calling this again has no effect.
+   *
+   * @param queueSize the number of events each appender can buffer
+   * @return the number of appenders that were wrapped, {@code 0} if Logback is not the logging backend
+   */
+  public static int install(int queueSize) {
+    if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+      return 0;
+    }
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+    for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+      Appender<ILoggingEvent> appender = it.next();
+      if (!(appender instanceof AsyncAppender)) {
+        appenders.add(appender);
+      }
+    }
+    for (Appender<ILoggingEvent> appender : appenders) {
+      AsyncAppender async = new AsyncAppender();
+      async.setContext(context);
+      async.setName(ASYNC_PREFIX + appender.getName());
+      async.setQueueSize(queueSize);
+      async.addAppender(appender);
+      async.start();
+      root.detachAppender(appender);
+      root.addAppender(async);
+    }
+    return appenders.size();
+  }
+}
@@ -0,0 +1,94 @@
+package com.fetch.receiptprocessor.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over byte strings, such as receipt IDs.
+ * <p>
+ * {@link #mightContain(byte[])} never misses a key that was added, and reports a key that was not added with a
+ * probability that depends on the bits per key: about 1% at 10 bits and 5% at 6 bits. The {@value #HASHES} bit
+ * positions of a key are derived from one 64-bit hash. Bits are set with atomic operations, so keys can be added
+ * while other threads query the filter.
+ */
+public final class BloomFilter {
+
+  static final int HASHES = 6;
+
+  private final AtomicLongArray words;
+
+  private final long bits;
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param bits the number of bits, rounded up to a multiple of 64
+   * @throws IllegalArgumentException if the number of bits is not positive
+   */
+  public BloomFilter(long bits) {
+    if (bits <= 0 || (bits + 63) / 64 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid Bloom filter size: " + bits);
+    }
+    this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+    this.bits = words.length() * 64L;
+  }
+
+  public void add(byte[] key) {
+    long hash = hash(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= HASHES; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.weakCompareAndSetVolatile(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+  }
+
+  /**
+   * Tells whether the key may have been added.
+   *
+   * @param key the key
+   * @return {@code false} if the key was certainly not added
+   */
+  public boolean mightContain(byte[] key) {
+    long hash = hash(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= HASHES; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+      if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the size of the filter.
+   *
+   * @return the number of bits
+   */
+  public long bitSize() {
+    return bits;
+  }
+
+  /**
+   * FNV-1a over the bytes, finished with the MurmurHash3 mixer so that both halves are well distributed.
+   */
+  private static long hash(byte[] key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,126 @@
+package com.fetch.receiptprocessor.util;
+
+import lombok.Value;
+
+/**
+ * Streaming 128-bit MurmurHash3 (x64 variant) over a sequence of UTF-16 code units.
+ * Fields are fed one after the other without building an intermediate string, and {@link #putSeparator()} keeps
+ * adjacent fields from running into each other. Instances are not thread-safe and can be reused after {@link #hash()}.
+ */
+public class ContentHasher {
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+  private static final char SEPARATOR = '\u001f';
+  private static final char NULL_MARKER = '\u0000';
+
+  private long h1;
+  private long h2;
+  private long k1;
+  private long k2;
+  private int buffered;
+  private long length;
+
+  /**
+   * 128-bit hash value.
+   */
+  @Value
+  public static class Hash {
+    long hi;
+    long lo;
+  }
+
+  public ContentHasher putString(CharSequence value) {
+    if (value == null) {
+      return putChar(NULL_MARKER).putSeparator();
+    }
+    for (int i = 0; i < value.length(); i++) {
+      putChar(value.charAt(i));
+    }
+    return putSeparator();
+  }
+
+  public ContentHasher putLong(long value) {
+    return putChar((char) (value >>> 48)).putChar((char) (value >>> 32))
+            .putChar((char) (value >>> 16)).putChar((char) value);
+  }
+
+  public ContentHasher putSeparator() {
+    return putChar(SEPARATOR);
+  }
+
+  public ContentHasher putChar(char c) {
+    // Eight code units fill one 16-byte block: four in k1, four in k2
+    if (buffered < 4) {
+      k1 |= (long) c << (16 * buffered);
+    } else {
+      k2 |= (long) c << (16 * (buffered - 4));
+    }
+    length += 2;
+    if (++buffered == 8) {
+      mixBlock();
+    }
+    return this;
+  }
+
+  /**
+   * Finishes the hash of everything fed so far and resets the hasher.
+   *
+   * @return the 128-bit hash
+   */
+  public Hash hash() {
+    if (buffered > 0) {
+      h1 ^= mixK1(k1);
+      h2 ^= mixK2(k2);
+    }
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+    Hash hash = new Hash(h1, h2);
+    h1 = h2 = k1 = k2 = 0;
+    buffered = 0;
+    length = 0;
+    return hash;
+  }
+
+  private void mixBlock() {
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+
+    k1 = k2 = 0;
+    buffered = 0;
+  }
+
+  private static long mixK1(long k) {
+    k *= C1;
+    k = Long.rotateLeft(k, 31);
+    return k * C2;
+  }
+
+  private static long mixK2(long k) {
+    k *= C2;
+    k = Long.rotateLeft(k, 33);
+    return k * C1;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+}
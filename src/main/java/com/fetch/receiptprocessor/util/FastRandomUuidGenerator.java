@@ -0,0 +1,20 @@
+package com.fetch.receiptprocessor.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random (version 4) UUIDs from {@link ThreadLocalRandom}, which neither blocks nor contends between
+ * threads. The IDs are unique but, unlike {@link UUID#randomUUID()}, not unpredictable, so they must not be relied on
+ * to keep receipts private.
+ */
+public class FastRandomUuidGenerator implements IReceiptIdGenerator {
+
+  @Override
+  public String generateReceiptId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = (random.nextLong() & ~0xf000L) | 0x4000L;
+    long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+    return new UUID(msb, lsb).toString();
+  }
+}
@@ -4,8 +4,32 @@ import java.util.UUID;
 
 public class Generator {
 
+  /**
+   * Default {@link IReceiptIdGenerator}: random (version 4) UUIDs from {@link UUID#randomUUID()}, which draws on the
+   * shared {@link java.security.SecureRandom} instance.
+   */
+  public static final IReceiptIdGenerator RANDOM_UUID = Generator::generateReceiptId;
+
   public static String generateReceiptId() {
 
     return UUID.randomUUID().toString();
   }
+
+  /**
+   * Returns the generator for the configured strategy.
+   *
+   * @param strategy {@code random}, {@code fast-random}, {@code time-ordered} or {@code snowflake}
+   * @param nodeId   the node ID embedded in snowflake IDs
+   * @return the generator
+   * @throws IllegalArgumentException if the strategy is unknown
+   */
+  public static IReceiptIdGenerator forStrategy(String strategy, int nodeId) {
+    return switch (strategy) {
+      case "random" -> RANDOM_UUID;
+      case "fast-random" -> new FastRandomUuidGenerator();
+      case "time-ordered" -> new TimeOrderedUuidGenerator();
+      case "snowflake" -> new SnowflakeIdGenerator(nodeId);
+      default -> throw new IllegalArgumentException("Unknown receipt id strategy: " + strategy);
+    };
+  }
 }
@@ -0,0 +1,23 @@
+package com.fetch.receiptprocessor.util;
+
+/**
+ * Strategy for generating the unique identifiers of saved receipts.
+ */
+public interface IReceiptIdGenerator {
+
+  /**
+   * Generates a new receipt ID.
+   *
+   * @return a unique receipt ID
+   */
+  String generateReceiptId();
+
+  /**
+   * Whether the generated IDs are canonical UUID strings, as required by the compact store index.
+   *
+   * @return {@code true} if every generated ID is a UUID
+   */
+  default boolean producesUuids() {
+    return true;
+  }
+}
@@ -0,0 +1,29 @@
+package com.fetch.receiptprocessor.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "id")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdConfig {
+
+  /**
+   * Receipt ID strategy: {@code random} (default), {@code fast-random}, {@code time-ordered} or {@code snowflake}.
+   */
+  private String strategy = "random";
+  private int nodeId;
+
+  @Bean
+  public IReceiptIdGenerator receiptIdGenerator() {
+    return Generator.forStrategy(strategy, nodeId);
+  }
+}
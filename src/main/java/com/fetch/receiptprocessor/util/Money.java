@@ -0,0 +1,99 @@
+package com.fetch.receiptprocessor.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Exact conversions between the {@code ^\d+\.\d{2}$} amount strings of the API and {@code long} cents.
+ */
+public final class Money {
+
+  /**
+   * Returned by {@link #parseCents(CharSequence)} for anything that is not a valid amount.
+   */
+  public static final long INVALID = -1;
+
+  private Money() {
+  }
+
+  /**
+   * Parses an amount with exactly two decimals, such as {@code "35.35"}, into cents in a single pass.
+   *
+   * @param amount the amount
+   * @return the amount in cents, or {@link #INVALID} if it is {@code null}, not in the {@code ^\d+\.\d{2}$} format
+   * or does not fit in a {@code long}
+   */
+  public static long parseCents(CharSequence amount) {
+    if (amount == null) {
+      return INVALID;
+    }
+    int length = amount.length();
+    int point = length - 3;
+    if (point < 1 || amount.charAt(point) != '.') {
+      return INVALID;
+    }
+    long cents = 0;
+    for (int i = 0; i < length; i++) {
+      if (i == point) {
+        continue;
+      }
+      int digit = amount.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID;
+      }
+      if (cents > (Long.MAX_VALUE - digit) / 10) {
+        return INVALID;
+      }
+      cents = cents * 10 + digit;
+    }
+    return cents;
+  }
+
+  /**
+   * Formats cents as an amount with two decimals; the inverse of {@link #parseCents(CharSequence)}.
+   *
+   * @param cents the non-negative amount in cents
+   * @return the amount
+   */
+  public static String formatCents(long cents) {
+    long fraction = cents % 100;
+    return (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+  }
+
+  /**
+   * Multiplies an amount by a fraction and rounds the result up to a whole number,
+   * i.e. {@code ceil(cents / 100 * numerator / denominator)} computed without rounding errors.
+   *
+   * @param cents       the non-negative amount in cents
+   * @param numerator   the numerator of the fraction
+   * @param denominator the positive denominator of the fraction
+   * @return the rounded up product
+   */
+  public static long multiplyCeil(long cents, long numerator, long denominator) {
+    long high = Math.multiplyHigh(cents, numerator);
+    long product = cents * numerator;
+    long divisor = denominator * 100;
+    if (high == (product >> 63) && divisor / 100 == denominator) {
+      return Math.floorDiv(product, divisor) + (Math.floorMod(product, divisor) != 0 ? 1 : 0);
+    }
+    // Only reachable for absurdly large amounts or multipliers
+    BigInteger[] division = BigInteger.valueOf(cents).multiply(BigInteger.valueOf(numerator))
+            .divideAndRemainder(BigInteger.valueOf(denominator).multiply(BigInteger.valueOf(100)));
+    return division[0].add(division[1].signum() > 0 ? BigInteger.ONE : BigInteger.ZERO).longValueExact();
+  }
+
+  /**
+   * Splits a multiplier into an exact fraction. The decimal form of the {@code double} is used, so {@code 0.2}
+   * becomes {@code 2/10} rather than the binary value closest to it.
+   *
+   * @param multiplier the multiplier
+   * @return the numerator and denominator
+   */
+  public static long[] toFraction(double multiplier) {
+    BigDecimal decimal = BigDecimal.valueOf(multiplier).stripTrailingZeros();
+    if (decimal.scale() <= 0) {
+      return new long[]{decimal.toBigIntegerExact().longValueExact(), 1};
+    }
+    return new long[]{decimal.unscaledValue().longValueExact(), BigInteger.TEN.pow(decimal.scale()).longValueExact()};
+  }
+}
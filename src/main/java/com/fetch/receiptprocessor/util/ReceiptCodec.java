@@ -0,0 +1,401 @@
+package com.fetch.receiptprocessor.util;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact binary encoding of parsed receipts, accepted as {@value #MEDIA_TYPE} request bodies and used for the
+ * receipts retained in memory.
+ * <p>
+ * A message is the magic byte {@code 'R'}, the format version {@code 1}, the number of receipts and the receipts. A
+ * receipt is {@code [retailer][epochDay][minuteOfDay][totalCents][itemCount]} followed by
+ * {@code [description][priceCents]} per item. Numbers are unsigned LEB128 varints, except for the zigzag encoded
+ * epoch day, and strings are a varint byte count followed by their UTF-8 bytes.
+ * <p>
+ * Retailer names and item descriptions are dictionary encoded: {@code 0} followed by the string is a literal, and
+ * {@code n > 0} refers to the {@code n}-th entry of the {@link Dictionary}. In a message the dictionary starts out
+ * empty and every literal is added to it, so a batch sends each distinct name and description once. The receipt
+ * archive shares one dictionary across all its receipts instead, so repeated strings are stored once.
+ * <p>
+ * A single receipt takes about a third of its JSON size; free-text descriptions are most of what remains. Batches of
+ * similar receipts, such as vending machine or transit receipts, take a tenth or less.
+ */
+public final class ReceiptCodec {
+
+  public static final String MEDIA_TYPE = "application/x-receipt";
+
+  static final int MAGIC = 'R';
+
+  static final int VERSION = 1;
+
+  // 0000-01-01 and 9999-12-31, well inside the range of LocalDate
+  private static final long MIN_EPOCH_DAY = LocalDate.of(0, 1, 1).toEpochDay();
+  private static final long MAX_EPOCH_DAY = LocalDate.of(9999, 12, 31).toEpochDay();
+
+  private ReceiptCodec() {
+  }
+
+  /**
+   * Encodes receipts as a message.
+   *
+   * @param receipts the receipts
+   * @return the message
+   */
+  public static byte[] encode(List<ReceiptRecord> receipts) {
+    Writer writer = new Writer(64 * receipts.size() + 8);
+    writer.buffer[writer.position++] = MAGIC;
+    writer.buffer[writer.position++] = VERSION;
+    writer.writeVarLong(receipts.size());
+    Dictionary dictionary = new Dictionary(false, Integer.MAX_VALUE);
+    for (ReceiptRecord receipt : receipts) {
+      writer.writeReceipt(receipt, dictionary);
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a message.
+   *
+   * @param message the message
+   * @return the receipts, in message order
+   * @throws ValidationException if the message is malformed or truncated
+   */
+  public static List<ReceiptRecord> decode(byte[] message) throws ValidationException {
+    if (message.length < 2 || message[0] != MAGIC) {
+      throw new ValidationException("malformed receipt message: not a " + MEDIA_TYPE + " message");
+    }
+    if (message[1] != VERSION) {
+      throw new ValidationException("malformed receipt message: unsupported version " + message[1]);
+    }
+    try {
+      Reader reader = new Reader(message, 2, message.length);
+      long count = reader.readVarLong();
+      // Every receipt takes at least six bytes, so a larger count cannot be honoured
+      if (count < 0 || count > reader.remaining() / 6) {
+        throw new IllegalArgumentException("receipt count " + count + " exceeds the message size");
+      }
+      List<ReceiptRecord> receipts = new ArrayList<>((int) count);
+      Dictionary dictionary = new Dictionary(false, Integer.MAX_VALUE);
+      for (long i = 0; i < count; i++) {
+        receipts.add(reader.readReceipt(dictionary));
+      }
+      if (reader.remaining() > 0) {
+        throw new IllegalArgumentException(reader.remaining() + " trailing bytes");
+      }
+      return receipts;
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("malformed receipt message: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Retailer names and item descriptions by index. Thread-safe; strings are never removed.
+   */
+  public static final class Dictionary {
+
+    /**
+     * Approximate heap bytes of an entry besides its characters: the {@code String} and its array, the index map
+     * entry and the slot in the string array.
+     */
+    static final int ENTRY_OVERHEAD = 96;
+
+    private final boolean shared;
+
+    private final int capacity;
+
+    private final IntPredicate reserve;
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    private volatile String[] strings = new String[16];
+
+    private volatile int size;
+
+    /**
+     * Creates an empty dictionary.
+     *
+     * @param shared   {@code true} if the writer and readers share this instance, so that strings are referred to
+     *                 from their first use; {@code false} for the dictionary each side of a message builds from its
+     *                 literals
+     * @param capacity the maximum number of strings; further strings are written as literals
+     */
+    public Dictionary(boolean shared, int capacity) {
+      this(shared, capacity, bytes -> true);
+    }
+
+    /**
+     * Creates an empty dictionary whose memory is accounted for by its owner.
+     *
+     * @param shared   {@code true} if the writer and readers share this instance
+     * @param capacity the maximum number of strings; further strings are written as literals
+     * @param reserve  called with the {@linkplain #entryBytes(String) size} of every new string before it is added;
+     *                 if it returns {@code false}, the string is written as a literal instead
+     */
+    public Dictionary(boolean shared, int capacity, IntPredicate reserve) {
+      this.shared = shared;
+      this.capacity = capacity;
+      this.reserve = reserve;
+    }
+
+    /**
+     * Returns the approximate number of heap bytes a string takes in the dictionary.
+     *
+     * @param value the string
+     * @return the number of bytes
+     */
+    public static int entryBytes(String value) {
+      return ENTRY_OVERHEAD + 2 * value.length();
+    }
+
+    /**
+     * Returns the number of strings.
+     *
+     * @return the size of the dictionary
+     */
+    public int size() {
+      return size;
+    }
+
+    int indexOf(String value) {
+      Integer index = indexes.get(value);
+      return index != null ? index : -1;
+    }
+
+    /**
+     * Adds a string, unless the dictionary is full.
+     *
+     * @return the index of the string, or {@code -1} if the dictionary is full
+     */
+    synchronized int add(String value) {
+      Integer existing = indexes.get(value);
+      if (existing != null) {
+        return existing;
+      }
+      if (size == capacity || !reserve.test(entryBytes(value))) {
+        return -1;
+      }
+      String[] current = strings;
+      if (size == current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+      }
+      current[size] = value;
+      // Published before the size, so a reader that got the index from an encoded receipt finds the string
+      strings = current;
+      size++;
+      indexes.put(value, size - 1);
+      return size - 1;
+    }
+
+    String get(int index) {
+      if (index >= size) {
+        throw new IllegalArgumentException("unknown string reference " + (index + 1));
+      }
+      return strings[index];
+    }
+  }
+
+  /**
+   * Encodes receipts into a growable buffer.
+   */
+  public static final class Writer {
+
+    private byte[] buffer;
+
+    private int position;
+
+    public Writer(int capacity) {
+      this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public int size() {
+      return position;
+    }
+
+    public byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Copies the encoded bytes.
+     *
+     * @param target the array to copy to
+     * @param offset the index of the first byte in {@code target}
+     */
+    public void copyTo(byte[] target, int offset) {
+      System.arraycopy(buffer, 0, target, offset, position);
+    }
+
+    /**
+     * Encodes a receipt.
+     *
+     * @param receipt    the receipt
+     * @param dictionary the dictionary strings are looked up in
+     */
+    public void writeReceipt(ReceiptRecord receipt, Dictionary dictionary) {
+      writeEntry(receipt.getRetailer(), dictionary);
+      long epochDay = receipt.getEpochDay();
+      writeVarLong((epochDay << 1) ^ (epochDay >> 63));
+      writeVarLong(receipt.getMinuteOfDay());
+      writeVarLong(receipt.getTotalCents());
+      String[] descriptions = receipt.getItemDescriptions();
+      long[] priceCents = receipt.getItemPriceCents();
+      writeVarLong(descriptions.length);
+      for (int i = 0; i < descriptions.length; i++) {
+        writeEntry(descriptions[i], dictionary);
+        writeVarLong(priceCents[i]);
+      }
+    }
+
+    private void writeEntry(String value, Dictionary dictionary) {
+      int index = dictionary.indexOf(value);
+      if (index < 0 && dictionary.shared) {
+        index = dictionary.add(value);
+      }
+      if (index >= 0) {
+        writeVarLong(index + 1L);
+      } else {
+        writeVarLong(0);
+        writeString(value);
+        if (!dictionary.shared) {
+          dictionary.add(value);
+        }
+      }
+    }
+
+    public void writeString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    public void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+      if (buffer.length - position < bytes) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+      }
+    }
+  }
+
+  /**
+   * Decodes receipts from a range of an array. Malformed input is reported with an
+   * {@link IllegalArgumentException}.
+   */
+  public static final class Reader {
+
+    private final byte[] data;
+
+    private final int limit;
+
+    private int position;
+
+    public Reader(byte[] data, int offset, int limit) {
+      this.data = data;
+      this.position = offset;
+      this.limit = limit;
+    }
+
+    public int remaining() {
+      return limit - position;
+    }
+
+    /**
+     * Decodes a receipt.
+     *
+     * @param dictionary the dictionary string references are resolved with
+     * @return the receipt
+     * @throws IllegalArgumentException if the receipt is truncated or holds a value out of range, such as a negative
+     *                                  amount or item count
+     */
+    public ReceiptRecord readReceipt(Dictionary dictionary) {
+      String retailer = readEntry(dictionary);
+      long zigzag = readVarLong();
+      long epochDay = (zigzag >>> 1) ^ -(zigzag & 1);
+      if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+        throw new IllegalArgumentException("purchase date out of range");
+      }
+      long minuteOfDay = readVarLong();
+      if (minuteOfDay < 0 || minuteOfDay >= 24 * 60) {
+        throw new IllegalArgumentException("purchase time out of range");
+      }
+      long totalCents = readVarLong();
+      if (totalCents < 0) {
+        throw new IllegalArgumentException("negative total " + totalCents);
+      }
+      long itemCount = readVarLong();
+      // Every item takes at least two bytes
+      if (itemCount < 0 || itemCount > remaining() / 2) {
+        throw new IllegalArgumentException("item count " + itemCount + " exceeds the message size");
+      }
+      String[] descriptions = new String[(int) itemCount];
+      long[] priceCents = new long[(int) itemCount];
+      for (int i = 0; i < itemCount; i++) {
+        descriptions[i] = readEntry(dictionary);
+        priceCents[i] = readVarLong();
+        if (priceCents[i] < 0) {
+          throw new IllegalArgumentException("negative price " + priceCents[i]);
+        }
+      }
+      return new ReceiptRecord(retailer, epochDay, LocalDate.ofEpochDay(epochDay).getDayOfMonth(), (int) minuteOfDay,
+              totalCents, descriptions, priceCents);
+    }
+
+    private String readEntry(Dictionary dictionary) {
+      long reference = readVarLong();
+      if (reference < 0) {
+        throw new IllegalArgumentException("negative string reference " + reference);
+      }
+      if (reference > 0) {
+        return dictionary.get((int) Math.min(reference - 1, Integer.MAX_VALUE));
+      }
+      String value = readString();
+      if (!dictionary.shared) {
+        dictionary.add(value);
+      }
+      return value;
+    }
+
+    public String readString() {
+      long length = readVarLong();
+      if (length < 0 || length > remaining()) {
+        throw new IllegalArgumentException("string of " + length + " bytes exceeds the message size");
+      }
+      String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+      position += (int) length;
+      return value;
+    }
+
+    public long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (position == limit) {
+          throw new IllegalArgumentException("truncated message");
+        }
+        byte next = data[position++];
+        value |= (long) (next & 0x7F) << shift;
+        if (next >= 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("varint longer than 64 bits");
+    }
+  }
+}
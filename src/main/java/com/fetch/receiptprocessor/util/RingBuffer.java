@@ -0,0 +1,135 @@
+package com.fetch.receiptprocessor.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer multi-consumer FIFO queue backed by a power-of-two ring of slots.
+ * <p>
+ * Every slot carries a sequence number that tells producers and consumers whose turn it is, so an offer or poll is
+ * a single compare-and-set on the tail or head counter and never blocks. A full queue rejects offers instead of
+ * growing, which lets callers apply backpressure.
+ *
+ * @param <E> the element type
+ */
+public final class RingBuffer<E> {
+
+  private final Object[] slots;
+
+  private final AtomicLongArray sequences;
+
+  private final int mask;
+
+  private final AtomicLong head = new AtomicLong();
+
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Creates an empty ring buffer.
+   *
+   * @param capacity the minimum capacity, rounded up to the next power of two of at least {@code 2}
+   * @throws IllegalArgumentException if the capacity is not positive or above {@code 2^30}
+   */
+  public RingBuffer(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Invalid ring buffer capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+    // A single slot could not tell a consumed slot from a filled one, as both would carry the same sequence
+    size = Math.max(2, size);
+    this.slots = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Appends the element unless the buffer is full.
+   *
+   * @param element the element, not {@code null}
+   * @return {@code true} if the element was added, {@code false} if the buffer is full
+   */
+  public boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.getAcquire(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots[index] = element;
+          sequences.setRelease(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest element.
+   *
+   * @return the oldest element, or {@code null} if the buffer is empty
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    long position = head.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.getAcquire(index) - (position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          E element = (E) slots[index];
+          slots[index] = null;
+          sequences.setRelease(index, position + slots.length);
+          return element;
+        }
+        position = head.get();
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = head.get();
+      }
+    }
+  }
+
+  /**
+   * Removes up to {@code max} of the oldest elements into {@code target}, starting at index {@code 0}.
+   *
+   * @param target the array the elements are copied to
+   * @param max    the maximum number of elements to remove, at most {@code target.length}
+   * @return the number of elements removed
+   */
+  public int drainTo(E[] target, int max) {
+    int count = 0;
+    while (count < max) {
+      E element = poll();
+      if (element == null) {
+        break;
+      }
+      target[count++] = element;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of queued elements. The value is exact when the buffer is not concurrently modified and a
+   * close estimate otherwise.
+   *
+   * @return the number of queued elements
+   */
+  public int size() {
+    long consumed = head.get();
+    long produced = tail.get();
+    return (int) Math.max(0, Math.min(slots.length, produced - consumed));
+  }
+
+  public int capacity() {
+    return slots.length;
+  }
+}
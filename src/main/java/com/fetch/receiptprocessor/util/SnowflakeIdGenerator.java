@@ -0,0 +1,57 @@
+package com.fetch.receiptprocessor.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates node-scoped 64-bit IDs in the Snowflake layout: 41 bits of milliseconds since 2024-01-01T00:00:00Z,
+ * 10 bits of node ID and a 12-bit sequence, rendered in decimal. IDs are unique as long as every node uses a
+ * distinct node ID.
+ * <p>
+ * Timestamp and sequence are advanced together with a single compare-and-set. When more than 4096 IDs are needed
+ * within one millisecond, the sequence overflows into the timestamp and borrows from the next millisecond instead of
+ * waiting for it.
+ */
+public class SnowflakeIdGenerator implements IReceiptIdGenerator {
+
+  static final long EPOCH_MILLIS = 1704067200000L;
+  private static final int NODE_BITS = 10;
+  private static final int SEQUENCE_BITS = 12;
+
+  private final long node;
+
+  /**
+   * Last issued timestamp (in the high bits) and sequence (in the low {@value #SEQUENCE_BITS} bits).
+   */
+  private final AtomicLong state = new AtomicLong();
+
+  public SnowflakeIdGenerator(int nodeId) {
+    if (nodeId < 0 || nodeId >= 1 << NODE_BITS) {
+      throw new IllegalArgumentException("Snowflake node ID must be between 0 and " + ((1 << NODE_BITS) - 1));
+    }
+    this.node = (long) nodeId << SEQUENCE_BITS;
+  }
+
+  @Override
+  public String generateReceiptId() {
+    return Long.toString(nextId());
+  }
+
+  @Override
+  public boolean producesUuids() {
+    return false;
+  }
+
+  long nextId() {
+    long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+    long current;
+    long next;
+    do {
+      current = state.get();
+      next = now > current ? now : current + 1;
+    } while (!state.compareAndSet(current, next));
+
+    long timestamp = next >>> SEQUENCE_BITS;
+    long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+    return timestamp << (NODE_BITS + SEQUENCE_BITS) | node | sequence;
+  }
+}
@@ -0,0 +1,19 @@
+package com.fetch.receiptprocessor.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time-ordered (version 7) UUIDs: a 48-bit Unix timestamp in milliseconds followed by random bits.
+ * IDs generated close together in time share a prefix, which keeps appends to logs and sorted indexes local.
+ */
+public class TimeOrderedUuidGenerator implements IReceiptIdGenerator {
+
+  @Override
+  public String generateReceiptId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = System.currentTimeMillis() << 16 | 0x7000L | (random.nextInt() & 0x0fff);
+    long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+    return new UUID(msb, lsb).toString();
+  }
+}
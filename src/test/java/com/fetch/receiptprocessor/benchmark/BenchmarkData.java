@@ -0,0 +1,72 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.service.PointsConfig;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark inputs, read from the example receipts in {@code examples/}: every {@code *.json} file and every line of
+ * every {@code *.ndjson} file. The directory can be changed with the {@code benchmark.examples} system property.
+ */
+final class BenchmarkData {
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Object mapper with the same defaults as the one Spring Boot configures for the application.
+   */
+  static ObjectMapper objectMapper() {
+    return Jackson2ObjectMapperBuilder.json().build();
+  }
+
+  /**
+   * Points configuration with the values from {@code application.properties}.
+   */
+  static PointsConfig pointsConfig() {
+    return new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00");
+  }
+
+  static List<String> exampleJson() {
+    Path directory = Path.of(System.getProperty("benchmark.examples", "examples"));
+    List<String> documents = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.sorted().toList()) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".ndjson")) {
+          Files.readAllLines(file).stream().filter(line -> !line.isBlank()).forEach(documents::add);
+        } else if (name.endsWith(".json")) {
+          documents.add(Files.readString(file));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read example receipts from " + directory.toAbsolutePath(), e);
+    }
+    if (documents.isEmpty()) {
+      throw new IllegalStateException("No example receipts in " + directory.toAbsolutePath());
+    }
+    return documents;
+  }
+
+  static List<Receipt> exampleReceipts() {
+    ObjectMapper objectMapper = objectMapper();
+    List<Receipt> receipts = new ArrayList<>();
+    for (String json : exampleJson()) {
+      try {
+        receipts.add(objectMapper.readValue(json, Receipt.class));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return receipts;
+  }
+}
@@ -0,0 +1,51 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.util.Generator;
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the receipt ID strategies, single threaded and with four threads sharing one generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+  @Param({"random", "fast-random", "time-ordered", "snowflake"})
+  String strategy;
+
+  IReceiptIdGenerator generator;
+
+  @Setup
+  public void setUp() {
+    generator = Generator.forStrategy(strategy, 1);
+  }
+
+  @Benchmark
+  public String generate() {
+    return generator.generateReceiptId();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String generateContended() {
+    return generator.generateReceiptId();
+  }
+}
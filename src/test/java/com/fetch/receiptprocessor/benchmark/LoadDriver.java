@@ -0,0 +1,113 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import lombok.Value;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load driver for comparing platform and virtual request threads
+ * ({@code spring.threads.virtual.enabled}).
+ * Each client posts the example receipts to {@code POST /receipts/process} back to back for the given duration, after
+ * a warm-up of the same length, and the driver reports throughput and latency percentiles.
+ * <p>
+ * Usage: {@code LoadDriver [baseUrl] [clients] [seconds]}, defaulting to {@code http://localhost:8080 256 20}.
+ */
+public final class LoadDriver {
+
+  private LoadDriver() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+    List<String> bodies = BenchmarkData.exampleJson();
+    URI uri = URI.create(baseUrl + "/receipts/process");
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    // The client keeps its own executor: the clients block in send() and would starve its internal tasks
+    HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10)).build();
+    try {
+      run(client, executor, uri, bodies, clients, seconds);
+      Result result = run(client, executor, uri, bodies, clients, seconds);
+      System.out.printf("clients=%d seconds=%d requests=%d errors=%d throughput=%.0f/s p50=%.2fms p99=%.2fms "
+                      + "p99.9=%.2fms max=%.2fms%n", clients, seconds, result.getLatencies().length, result.getErrors(),
+              result.getLatencies().length / (double) seconds, millis(result.percentile(0.50)),
+              millis(result.percentile(0.99)), millis(result.percentile(0.999)), millis(result.percentile(1.0)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Result run(HttpClient client, ExecutorService executor, URI uri, List<String> bodies, int clients,
+                            int seconds) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    AtomicLong errors = new AtomicLong();
+    Future<?>[] workers = new Future<?>[clients];
+    long[][] latencies = new long[clients][];
+    for (int c = 0; c < clients; c++) {
+      int worker = c;
+      workers[c] = executor.submit(() -> {
+        long[] samples = new long[1024];
+        int count = 0;
+        int next = worker;
+        while (System.nanoTime() < deadline) {
+          HttpRequest request = HttpRequest.newBuilder(uri)
+                  .header("Content-Type", "application/json")
+                  .POST(HttpRequest.BodyPublishers.ofString(bodies.get(next++ % bodies.size())))
+                  .build();
+          long start = System.nanoTime();
+          try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+              errors.incrementAndGet();
+            }
+          } catch (Exception e) {
+            errors.incrementAndGet();
+          }
+          if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+          }
+          samples[count++] = System.nanoTime() - start;
+        }
+        latencies[worker] = Arrays.copyOf(samples, count);
+        return null;
+      });
+    }
+    for (Future<?> worker : workers) {
+      worker.get();
+    }
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    return new Result(all, errors.get());
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  @Value
+  private static class Result {
+
+    long[] latencies;
+    long errors;
+
+    long percentile(double fraction) {
+      if (latencies.length == 0) {
+        return 0;
+      }
+      return latencies[(int) Math.min(latencies.length - 1, Math.ceil(fraction * latencies.length) - 1)];
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import com.fetch.receiptprocessor.controller.ReceiptController;
+import com.fetch.receiptprocessor.controller.RequestLogConfig;
+import com.fetch.receiptprocessor.controller.RequestSummaryLogger;
+import com.fetch.receiptprocessor.dao.ReceiptDao;
+import com.fetch.receiptprocessor.dao.StoreConfig;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import com.fetch.receiptprocessor.service.DedupConfig;
+import com.fetch.receiptprocessor.service.PointsCalculator;
+import com.fetch.receiptprocessor.service.ReceiptDeduplicator;
+import com.fetch.receiptprocessor.service.ReceiptParser;
+import com.fetch.receiptprocessor.service.ReceiptService;
+import com.fetch.receiptprocessor.service.ReceiptValidator;
+import com.fetch.receiptprocessor.util.AsyncLogging;
+import com.fetch.receiptprocessor.util.Generator;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ReceiptController#processReceipts} with the application's log output written to a file, comparing the
+ * request logging modes. The controller and its store are rebuilt every iteration so the store does not keep growing.
+ * <ul>
+ *   <li>{@code verbose}: the per-step lines of the controller, service and DAO, as they were logged at {@code INFO}
+ *   before the summary line existed</li>
+ *   <li>{@code summary}: one {@link RequestSummaryLogger} line per request</li>
+ *   <li>{@code summary-async}: the same line, written by a background thread ({@code requestlog.async=true})</li>
+ *   <li>{@code off}: no per-request lines ({@code requestlog.mode=off})</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+  private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n";
+
+  @Param({"verbose", "summary", "summary-async", "off"})
+  String mode;
+
+  List<ReceiptRecord> receipts;
+
+  ValidatorFactory validatorFactory;
+
+  ReceiptController receiptController;
+
+  RequestSummaryLogger requestSummaryLogger;
+
+  final AtomicInteger next = new AtomicInteger();
+
+  @Setup
+  public void setUp() throws ValidationException {
+    receipts = new ArrayList<>();
+    for (Receipt receipt : BenchmarkData.exampleReceipts()) {
+      receipts.add(ReceiptParser.parse(receipt));
+    }
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    configureLogging();
+    requestSummaryLogger = mode.startsWith("summary") ? new RequestSummaryLogger(new RequestLogConfig()) : null;
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpController() {
+    ReceiptService receiptService = new ReceiptService(new ReceiptDao(new StoreConfig(), Generator.RANDOM_UUID),
+            new PointsCalculator(BenchmarkData.pointsConfig()), new ReceiptValidator(validatorFactory.getValidator()),
+            new ReceiptDeduplicator(new DedupConfig()));
+    receiptController = new ReceiptController(receiptService, null, null);
+  }
+
+  private void configureLogging() {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    context.reset();
+
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern(PATTERN);
+    encoder.start();
+    FileAppender<ILoggingEvent> appender = new FileAppender<>();
+    appender.setContext(context);
+    appender.setName("FILE");
+    appender.setFile("target/benchmark-logging.log");
+    appender.setAppend(false);
+    appender.setEncoder(encoder);
+    appender.start();
+
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    root.setLevel(ch.qos.logback.classic.Level.INFO);
+    root.addAppender(appender);
+    context.getLogger("com.fetch.receiptprocessor").setLevel("verbose".equals(mode)
+            ? ch.qos.logback.classic.Level.DEBUG : ch.qos.logback.classic.Level.INFO);
+    if (mode.endsWith("async")) {
+      AsyncLogging.install(8192);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public ReceiptResponse processReceipt() throws ValidationException {
+    long start = System.nanoTime();
+    ReceiptResponse response = receiptController.processReceipts(nextReceipt(), null);
+    if (requestSummaryLogger != null) {
+      requestSummaryLogger.log("POST", "/receipts/process", 200, System.nanoTime() - start);
+    }
+    return response;
+  }
+
+  private ReceiptRecord nextReceipt() {
+    return receipts.get((next.getAndIncrement() & Integer.MAX_VALUE) % receipts.size());
+  }
+}
@@ -0,0 +1,98 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Item;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.PointsCalculator;
+import com.fetch.receiptprocessor.service.ScoreCache;
+import com.fetch.receiptprocessor.service.ScoreCacheConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring one receipt: from the pre-parsed record, and from the raw receipt including parsing, plus the
+ * cost of scoring all the example receipts. With {@code scoreCache=on} the points come from the {@link ScoreCache},
+ * which holds every receipt after the first iteration, so the cost is that of hashing the receipt and a lookup.
+ * Run with {@code -prof gc} to see the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointsCalculatorBenchmark {
+
+  @Param({"off", "on"})
+  String scoreCache;
+
+  PointsCalculator calculator;
+
+  Receipt receipt;
+
+  ReceiptRecord record;
+
+  ReceiptRecord[] examples;
+
+  @Setup
+  public void setUp() throws ValidationException {
+    calculator = new PointsCalculator(BenchmarkData.pointsConfig());
+    if ("on".equals(scoreCache)) {
+      calculator.setScoreCache(new ScoreCache(new ScoreCacheConfig(true, 1024)));
+    }
+    receipt = new Receipt();
+    receipt.setRetailer("Target");
+    receipt.setPurchaseDate("2022-01-01");
+    receipt.setPurchaseTime("13:01");
+    receipt.setTotal("35.35");
+    receipt.setItems(Arrays.asList(
+            new Item("Mountain Dew 12PK", "6.49", 0),
+            new Item("Emils Cheese Pizza", "12.25", 0),
+            new Item("Knorr Creamy Chicken", "1.26", 0),
+            new Item("Doritos Nacho Cheese", "3.35", 0),
+            new Item("   Klarbrunn 12-PK 12 FL OZ  ", "12.00", 0)));
+    receipt.setDate(LocalDate.parse(receipt.getPurchaseDate()));
+    receipt.setTime(LocalTime.parse(receipt.getPurchaseTime()));
+    record = ReceiptRecord.from(receipt);
+    List<Receipt> receipts = BenchmarkData.exampleReceipts();
+    examples = new ReceiptRecord[receipts.size()];
+    for (int i = 0; i < examples.length; i++) {
+      examples[i] = ReceiptRecord.from(receipts.get(i));
+    }
+  }
+
+  @Benchmark
+  public int scoreRecord() {
+    return calculator.calculateTotalPoints(record);
+  }
+
+  @Benchmark
+  public int scoreExamples() {
+    int points = 0;
+    for (ReceiptRecord example : examples) {
+      points += calculator.calculateTotalPoints(example);
+    }
+    return points;
+  }
+
+  @Benchmark
+  public int scoreReceipt() throws ValidationException {
+    return calculator.calculateTotalPoints(receipt);
+  }
+}
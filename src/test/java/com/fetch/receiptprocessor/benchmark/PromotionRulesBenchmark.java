@@ -0,0 +1,172 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.PointsCalculator;
+import com.fetch.receiptprocessor.service.PointsConfig;
+import com.fetch.receiptprocessor.service.rules.IPointsRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring all the example receipts with the seven built-in rules alone ({@code none}), and with twenty
+ * promotions on top: retailer bonuses, weekend and time of day multipliers, and item keyword boosts. The promotions
+ * are either configured in the expression language ({@code expressions}) or the same rules hand-written in Java as
+ * an {@link IPointsRule} ({@code java}), which is the best the compiled expressions can do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionRulesBenchmark {
+
+  static final String[] PROMOTIONS = {
+          "contains(retailer, \"target\") ? 25 : 0",
+          "contains(retailer, \"walgreens\") ? 15 : 0",
+          "startsWith(retailer, \"m&m\") ? 10 : 0",
+          "retailer == \"Costco\" ? 40 : 0",
+          "dayOfWeek >= 6 ? score : 0",
+          "dayOfWeek == 3 ? score / 2 : 0",
+          "hour >= 6 && hour < 9 ? 15 : 0",
+          "hour >= 22 || hour < 2 ? -5 : 0",
+          "countItems(\"gatorade\") * 5",
+          "countItems(\"pepsi\") * 3",
+          "countItems(\"doritos\") * 2",
+          "itemCents(\"cheese\") / 100",
+          "min(itemCents(\"dew\") / 50, 20)",
+          "totalCents >= 10000 ? 50 : totalCents >= 5000 ? 20 : 0",
+          "itemCount >= 10 ? 30 : 0",
+          "month == 12 && dayOfMonth >= 20 ? 100 : 0",
+          "month == 7 && dayOfMonth == 4 ? 44 : 0",
+          "year >= 2023 ? 1 : 0",
+          "totalCents % 100 == 99 ? 9 : 0",
+          "max(score / 10 - 5, 0)"
+  };
+
+  @Param({"none", "expressions", "java"})
+  String promotions;
+
+  PointsCalculator calculator;
+
+  ReceiptRecord[] examples;
+
+  @Setup
+  public void setUp() throws ValidationException {
+    PointsConfig config = BenchmarkData.pointsConfig();
+    if (promotions.equals("expressions")) {
+      List<PointsConfig.Promotion> rules = new ArrayList<>();
+      for (int i = 0; i < PROMOTIONS.length; i++) {
+        rules.add(new PointsConfig.Promotion("promotion" + i, PROMOTIONS[i]));
+      }
+      config.setPromotions(rules);
+    }
+    calculator = new PointsCalculator(config);
+    if (promotions.equals("java")) {
+      calculator.setPluginRules(List.of(new JavaPromotions()));
+    }
+    List<Receipt> receipts = BenchmarkData.exampleReceipts();
+    examples = new ReceiptRecord[receipts.size()];
+    for (int i = 0; i < examples.length; i++) {
+      examples[i] = ReceiptRecord.from(receipts.get(i));
+    }
+  }
+
+  @Benchmark
+  public int scoreExamples() {
+    int points = 0;
+    for (ReceiptRecord example : examples) {
+      points += calculator.calculateTotalPoints(example);
+    }
+    return points;
+  }
+
+  /**
+   * The {@link #PROMOTIONS}, hand-written.
+   */
+  static final class JavaPromotions implements IPointsRule {
+
+    @Override
+    public String getName() {
+      return "promotions";
+    }
+
+    @Override
+    public int points(ReceiptRecord receipt, int score) {
+      String retailer = receipt.getRetailer();
+      LocalDate date = LocalDate.ofEpochDay(receipt.getEpochDay());
+      int dayOfWeek = date.getDayOfWeek().getValue();
+      int hour = receipt.getMinuteOfDay() / 60;
+      long total = receipt.getTotalCents();
+      int start = score;
+      score += contains(retailer, "target") ? 25 : 0;
+      score += contains(retailer, "walgreens") ? 15 : 0;
+      score += retailer.regionMatches(true, 0, "m&m", 0, 3) ? 10 : 0;
+      score += retailer.equals("Costco") ? 40 : 0;
+      score += dayOfWeek >= 6 ? score : 0;
+      score += dayOfWeek == 3 ? score / 2 : 0;
+      score += hour >= 6 && hour < 9 ? 15 : 0;
+      score += hour >= 22 || hour < 2 ? -5 : 0;
+      score += countItems(receipt, "gatorade") * 5;
+      score += countItems(receipt, "pepsi") * 3;
+      score += countItems(receipt, "doritos") * 2;
+      score += (int) (itemCents(receipt, "cheese") / 100);
+      score += (int) Math.min(itemCents(receipt, "dew") / 50, 20);
+      score += total >= 10000 ? 50 : total >= 5000 ? 20 : 0;
+      score += receipt.getItemCount() >= 10 ? 30 : 0;
+      score += date.getMonthValue() == 12 && receipt.getDayOfMonth() >= 20 ? 100 : 0;
+      score += date.getMonthValue() == 7 && receipt.getDayOfMonth() == 4 ? 44 : 0;
+      score += date.getYear() >= 2023 ? 1 : 0;
+      score += total % 100 == 99 ? 9 : 0;
+      score += Math.max(score / 10 - 5, 0);
+      return score - start;
+    }
+
+    private static boolean contains(String text, String keyword) {
+      char first = keyword.charAt(0);
+      for (int i = 0; i + keyword.length() <= text.length(); i++) {
+        char next = text.charAt(i);
+        if (((next | 0x20) == first || next >= 0x80) && text.regionMatches(true, i, keyword, 0, keyword.length())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static int countItems(ReceiptRecord receipt, String keyword) {
+      int count = 0;
+      for (String description : receipt.getItemDescriptions()) {
+        if (contains(description, keyword)) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    private static long itemCents(ReceiptRecord receipt, String keyword) {
+      long cents = 0;
+      for (int i = 0; i < receipt.getItemCount(); i++) {
+        if (contains(receipt.getItemDescriptions()[i], keyword)) {
+          cents += receipt.getItemPriceCents()[i];
+        }
+      }
+      return cents;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fetch.receiptprocessor.controller.ReceiptRecordDeserializer;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Points;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import com.fetch.receiptprocessor.service.ReceiptParser;
+import com.fetch.receiptprocessor.service.ReceiptValidator;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON binding of the request and response bodies, with the same mapper defaults as the application.
+ * Each operation binds all the example receipts once. {@code readReceipts} only binds them to {@link Receipt} beans,
+ * {@code parseReceipts} also validates and parses the beans, and {@code readReceiptRecords} validates and parses the
+ * JSON tokens straight into records like {@code POST /receipts/process}; run with {@code -prof gc} to compare the
+ * allocation of the last two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptJsonBenchmark {
+
+  byte[][] documents;
+
+  ObjectReader receiptReader;
+
+  ObjectReader recordReader;
+
+  ObjectWriter responseWriter;
+
+  ObjectWriter pointsWriter;
+
+  ReceiptResponse response = new ReceiptResponse("7fb1377b-b223-49d9-a31a-5a02701dd310");
+
+  Points points = new Points(109);
+
+  @Setup
+  public void setUp() {
+    List<String> json = BenchmarkData.exampleJson();
+    documents = new byte[json.size()][];
+    for (int i = 0; i < documents.length; i++) {
+      documents[i] = json.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+    ObjectMapper objectMapper = BenchmarkData.objectMapper();
+    receiptReader = objectMapper.readerFor(Receipt.class);
+    ReceiptValidator receiptValidator = new ReceiptValidator(Validation.byDefaultProvider().configure()
+            .buildValidatorFactory().getValidator());
+    recordReader = objectMapper.copy()
+            .registerModule(new SimpleModule().addDeserializer(ReceiptRecord.class,
+                    new ReceiptRecordDeserializer(receiptValidator)))
+            .readerFor(ReceiptRecord.class);
+    responseWriter = objectMapper.writerFor(ReceiptResponse.class);
+    pointsWriter = objectMapper.writerFor(Points.class);
+  }
+
+  @Benchmark
+  public void readReceipts(Blackhole blackhole) throws IOException {
+    for (byte[] document : documents) {
+      blackhole.consume(receiptReader.<Receipt>readValue(document));
+    }
+  }
+
+  @Benchmark
+  public void parseReceipts(Blackhole blackhole) throws IOException, ValidationException {
+    for (byte[] document : documents) {
+      blackhole.consume(ReceiptParser.parse(receiptReader.<Receipt>readValue(document)));
+    }
+  }
+
+  @Benchmark
+  public void readReceiptRecords(Blackhole blackhole) throws IOException {
+    for (byte[] document : documents) {
+      blackhole.consume(recordReader.<ReceiptRecord>readValue(document));
+    }
+  }
+
+  @Benchmark
+  public byte[] writeReceiptResponse() throws IOException {
+    return responseWriter.writeValueAsBytes(response);
+  }
+
+  @Benchmark
+  public byte[] writePoints() throws IOException {
+    return pointsWriter.writeValueAsBytes(points);
+  }
+}
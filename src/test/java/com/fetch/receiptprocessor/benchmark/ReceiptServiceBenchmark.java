@@ -0,0 +1,108 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.dao.ReceiptDao;
+import com.fetch.receiptprocessor.dao.StoreConfig;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptResponse;
+import com.fetch.receiptprocessor.service.BatchConfig;
+import com.fetch.receiptprocessor.service.DedupConfig;
+import com.fetch.receiptprocessor.service.MetricsConfig;
+import com.fetch.receiptprocessor.service.PointsCalculator;
+import com.fetch.receiptprocessor.service.ReceiptDeduplicator;
+import com.fetch.receiptprocessor.service.ReceiptMetrics;
+import com.fetch.receiptprocessor.service.ReceiptService;
+import com.fetch.receiptprocessor.service.ReceiptValidator;
+import com.fetch.receiptprocessor.util.Generator;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ReceiptService#saveReceiptPoints(Receipt)} end to end against the in-memory store: validation, scoring,
+ * ID generation and the store write. The service is rebuilt every iteration so the store does not keep growing.
+ * With {@code metrics=prometheus} the request and scoring metrics are recorded to a Prometheus registry, as in the
+ * application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptServiceBenchmark {
+
+  @Param({"generic", "compact"})
+  String indexType;
+
+  @Param({"none", "prometheus"})
+  String metrics;
+
+  List<Receipt> receipts;
+
+  ValidatorFactory validatorFactory;
+
+  ReceiptService receiptService;
+
+  final AtomicInteger next = new AtomicInteger();
+
+  @Setup
+  public void setUp() {
+    receipts = BenchmarkData.exampleReceipts();
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpService() {
+    StoreConfig storeConfig = new StoreConfig();
+    storeConfig.setIndexType(indexType);
+    PointsCalculator pointsCalculator = new PointsCalculator(BenchmarkData.pointsConfig());
+    ReceiptMetrics receiptMetrics = ReceiptMetrics.NONE;
+    if ("prometheus".equals(metrics)) {
+      receiptMetrics = new ReceiptMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), new MetricsConfig());
+      pointsCalculator.setReceiptMetrics(receiptMetrics);
+    }
+    receiptService = new ReceiptService(new ReceiptDao(storeConfig, Generator.RANDOM_UUID), pointsCalculator,
+            new ReceiptValidator(validatorFactory.getValidator()), new ReceiptDeduplicator(new DedupConfig()), null,
+            receiptMetrics, new BatchConfig());
+  }
+
+  @TearDown
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public ReceiptResponse saveReceiptPoints() throws ValidationException {
+    return receiptService.saveReceiptPoints(nextReceipt());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ReceiptResponse saveReceiptPointsContended() throws ValidationException {
+    return receiptService.saveReceiptPoints(nextReceipt());
+  }
+
+  private Receipt nextReceipt() {
+    return receipts.get((next.getAndIncrement() & Integer.MAX_VALUE) % receipts.size());
+  }
+}
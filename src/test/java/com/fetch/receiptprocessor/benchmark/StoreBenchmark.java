@@ -0,0 +1,77 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.dao.data.Store;
+import com.fetch.receiptprocessor.util.Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Store} reads and writes under contention, unbounded and bounded. Writes overwrite existing keys so the
+ * store keeps its size and a bounded store does not evict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+
+  private static final int KEYS = 100_000;
+
+  @Param({"0", "200000"})
+  long maxEntries;
+
+  String[] keys;
+
+  Store<String, Integer> store;
+
+  @Setup
+  public void setUp() {
+    keys = new String[KEYS];
+    store = new Store<>(maxEntries, null, null);
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = Generator.generateReceiptId();
+      store.put(keys[i], i);
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer get() {
+    return store.get(randomKey());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(3)
+  public Integer readWriteGet() {
+    return store.get(randomKey());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public void readWritePut() {
+    store.put(randomKey(), 1);
+  }
+
+  private String randomKey() {
+    return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+  }
+}
@@ -0,0 +1,68 @@
+package com.fetch.receiptprocessor.benchmark;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.ReceiptValidator;
+import com.fetch.receiptprocessor.service.ValidationConfig;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating and parsing all the example receipts, either with Hibernate Validator applying the constraints
+ * declared on the model followed by the amount checks ({@code bean}), or with the single-pass
+ * {@link com.fetch.receiptprocessor.service.ReceiptParser} ({@code fast}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+  @Param({"bean", "fast"})
+  String mode;
+
+  List<Receipt> receipts;
+
+  ValidatorFactory validatorFactory;
+
+  ReceiptValidator receiptValidator;
+
+  @Setup
+  public void setUp() {
+    receipts = BenchmarkData.exampleReceipts();
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    receiptValidator = new ReceiptValidator(validatorFactory.getValidator(), new ValidationConfig(mode));
+  }
+
+  @TearDown
+  public void tearDown() {
+    validatorFactory.close();
+  }
+
+  @Benchmark
+  public void validateExamples(Blackhole blackhole) throws ValidationException {
+    for (Receipt receipt : receipts) {
+      ReceiptRecord record = receiptValidator.parse(receipt);
+      blackhole.consume(record);
+    }
+  }
+}
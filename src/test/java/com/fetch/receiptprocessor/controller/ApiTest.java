@@ -2,20 +2,30 @@ package com.fetch.receiptprocessor.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 public class ApiTest {
 
   @Autowired
@@ -223,6 +233,254 @@ public class ApiTest {
             .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
   }
 
+  @Test
+  public void createReceiptBatch() throws Exception {
+
+    String receipts = "[{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]},"
+            + "{\"retailer\":\"Target##\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]},"
+            + "{\"retailer\":\"Walgreens\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"08:13\",\"total\":\"2.65\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"},{\"shortDescription\":\"Dasani\",\"price\":\"1.40\"}]}]";
+
+    MvcResult result = mockMvc.perform(post("/receipts/process/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipts))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[1].id").doesNotExist())
+            .andExpect(jsonPath("$[1].error").value("retailer: retailer format is invalid; "))
+            .andExpect(jsonPath("$[2].id").exists())
+            .andReturn();
+
+    JsonNode results = new ObjectMapper().readTree(result.getResponse().getContentAsString());
+    int[] expectedPoints = {31, -1, 15};
+    for (int i = 0; i < expectedPoints.length; i++) {
+      if (expectedPoints[i] < 0) {
+        continue;
+      }
+      MvcResult resultGet = mockMvc.perform(get("/receipts/" + results.get(i).path("id").asText() + "/points")
+                      .contentType(MediaType.APPLICATION_JSON))
+              .andExpect(status().isOk())
+              .andReturn();
+      Assert.assertEquals(expectedPoints[i],
+              Integer.parseInt(extractIdFromResponse(resultGet.getResponse().getContentAsString(), "points")));
+    }
+  }
+
+  @Test
+  public void createOversizedReceiptBatch() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    mockMvc.perform(post("/receipts/process/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[" + (receipt + ",").repeat(1000) + receipt + "]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("receipts: at most 1000 receipts can be processed at once; "));
+
+    ReceiptRecord record = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+    mockMvc.perform(post("/receipts/process/batch")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(ReceiptCodec.encode(Collections.nCopies(1001, record))))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("receipts: at most 1000 receipts can be processed at once; "));
+  }
+
+  @Test
+  public void createReceiptStream() throws Exception {
+
+    String receipts = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}\n"
+            + "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.2599\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}\n"
+            + "{\"retailer\":\"Target\",\"purchaseDate\":\n";
+
+    MvcResult result = mockMvc.perform(post("/receipts/process/stream")
+                    .contentType("application/x-ndjson")
+                    .content(receipts))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+            .andReturn();
+
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    Assert.assertEquals(3, lines.length);
+    Assert.assertFalse(extractIdFromResponse(lines[0], "id").isEmpty());
+    Assert.assertEquals("total: total format is invalid; ", extractIdFromResponse(lines[1], "error"));
+    Assert.assertEquals("Malformed receipt body", extractIdFromResponse(lines[2], "error"));
+  }
+
+  @Test
+  public void createMalformedReceipt() throws Exception {
+
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"retailer\": \"Target\", \"items\": "))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Malformed receipt body"));
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"retailer\": \"Target\", \"items\": \"Pepsi\"}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Malformed receipt body"));
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"retailer\": \"Target!\", \"purchaseDate\": \"2022-01-02\", "
+                            + "\"purchaseTime\": \"13:13\", \"total\": 1.25, \"items\": "
+                            + "[{\"shortDescription\": \"Pepsi - 12-oz\", \"price\": \"1.2\"}]}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("retailer: retailer format is invalid; "
+                    + "items[0].price: price format is invalid; "));
+  }
+
+  @Test
+  public void createEncodedReceipts() throws Exception {
+
+    ReceiptRecord target = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+    ReceiptRecord invalid = ReceiptRecord.of("Target##", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+    ReceiptRecord mismatch = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 126,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(ReceiptCodec.encode(List.of(target))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").exists())
+            .andReturn();
+    mockMvc.perform(get("/receipts/" + extractIdFromResponse(result.getResponse().getContentAsString(), "id")
+                    + "/points"))
+            .andExpect(jsonPath("$.points").value(31));
+
+    mockMvc.perform(post("/receipts/process/batch")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(ReceiptCodec.encode(List.of(target, invalid, mismatch))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[1].error").value("retailer: retailer format is invalid; "))
+            .andExpect(jsonPath("$[2].error").value("Invalid - Sum of item prices doesn't add up to total"));
+
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(ReceiptCodec.encode(List.of(target, target))))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("expected exactly one receipt, got 2"));
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(new byte[]{'R', 1, 1, 7}))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(containsString("malformed receipt message")));
+  }
+
+  @Test
+  public void getBreakdownWhenDisabled() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    String receiptId = extractIdFromResponse(result.getResponse().getContentAsString(), "id");
+    mockMvc.perform(get("/receipts/" + receiptId + "/points/breakdown"))
+            .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void conditionalGetOfPoints() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andReturn();
+    String receiptId = extractIdFromResponse(result.getResponse().getContentAsString(), "id");
+
+    mockMvc.perform(get("/receipts/" + receiptId + "/points"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"" + receiptId + "\""))
+            .andExpect(header().string("Cache-Control", "max-age=31536000, immutable"))
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(content().json("{\"points\":31}", true));
+    mockMvc.perform(get("/receipts/" + receiptId + "/points")
+                    .header("If-None-Match", "\"" + receiptId + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"" + receiptId + "\""))
+            .andExpect(content().string(""));
+    mockMvc.perform(get("/receipts/" + receiptId + "/points")
+                    .header("If-None-Match", "\"another-receipt\""))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.points").value(31));
+    mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(content().string(containsString("receipts_points_lookups_total{outcome=\"not_modified\"")));
+  }
+
+  @Test
+  public void conditionalGetOfUnknownReceipt() throws Exception {
+
+    mockMvc.perform(get("/receipts/never-issued/points")
+                    .header("If-None-Match", "\"never-issued\""))
+            .andExpect(status().isNotFound())
+            .andExpect(header().doesNotExist("ETag"));
+    mockMvc.perform(get("/receipts/never-issued/points")
+                    .header("If-None-Match", "*"))
+            .andExpect(status().isNotFound())
+            .andExpect(header().doesNotExist("ETag"));
+  }
+
+  @Test
+  public void batchGetOfPoints() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andReturn();
+    String receiptId = extractIdFromResponse(result.getResponse().getContentAsString(), "id");
+
+    mockMvc.perform(post("/receipts/points:batchGet")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[\"unknown-1\",\"" + receiptId + "\",\"unknown-2\",\"unknown-1\"]}"))
+            .andExpect(status().isOk())
+            .andExpect(content().json("{\"points\":{\"" + receiptId + "\":31},"
+                    + "\"missing\":[\"unknown-1\",\"unknown-2\"]}", true));
+
+    String tooMany = "\"id\",".repeat(1000) + "\"id\"";
+    mockMvc.perform(post("/receipts/points:batchGet")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[" + tooMany + "]}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("ids: at most 1000 receipt IDs can be looked up at once; "));
+    mockMvc.perform(post("/receipts/points:batchGet")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("ids: at least one receipt ID is required; "));
+  }
+
+  @Test
+  public void prometheusMetrics() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"2.50\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isBadRequest());
+
+    mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("receipts_processed_total{outcome=\"invalid\"")))
+            .andExpect(content().string(containsString(
+                    "receipts_validation_failures_total{reason=\"Invalid - Sum of item prices doesn't add up to total\"")))
+            .andExpect(content().string(containsString("receipts_process_seconds_count")))
+            .andExpect(content().string(containsString("receipts_points_bucket")))
+            .andExpect(content().string(containsString("receipts_rule_duration_seconds_bucket{rule=\"retailerName\"")))
+            .andExpect(content().string(containsString("receipts_store_size")))
+            .andExpect(content().string(containsString("receipts_store_memory_bytes")));
+  }
+
   private String extractIdFromResponse(String responseContent, String path) throws Exception {
     ObjectMapper objectMapper = new ObjectMapper();
     JsonNode rootNode = objectMapper.readTree(responseContent);
@@ -0,0 +1,54 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"scoring.mode=async", "scoring.pendingWait=10s"})
+@AutoConfigureMockMvc
+public class AsyncApiTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Test
+  public void createAndRetrieveQueuedReceipt() throws Exception {
+
+    String receipt = "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").exists())
+            .andReturn();
+    String receiptId = new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+
+    // The read waits for the queued receipt to be scored
+    mockMvc.perform(get("/receipts/" + receiptId + "/points"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.points").value(109));
+  }
+
+  @Test
+  public void createReceiptInvalidTotalIsRejectedBeforeQueueing() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\",\"purchaseTime\":\"13:01\",\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":\"1.25\"}],\"total\":\"2.50\"}";
+
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Invalid - Sum of item prices doesn't add up to total"));
+  }
+}
@@ -0,0 +1,75 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"breakdown.enabled=true", "metrics.sampleRate=1"})
+@AutoConfigureMockMvc
+public class BreakdownApiTest {
+
+  private static final String RECEIPT = "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Test
+  public void createAndRetrieveBreakdown() throws Exception {
+
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(RECEIPT))
+            .andExpect(status().isOk())
+            .andReturn();
+    String receiptId = new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+
+    mockMvc.perform(get("/receipts/" + receiptId + "/points/breakdown"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.points").value(109))
+            .andExpect(jsonPath("$.ruleVersion").value(1))
+            .andExpect(jsonPath("$.rules.length()").value(7))
+            .andExpect(jsonPath("$.rules[0].name").value("retailerName"))
+            .andExpect(jsonPath("$.rules[0].points").value(14))
+            .andExpect(jsonPath("$.rules[1].name").value("roundDollar"))
+            .andExpect(jsonPath("$.rules[1].points").value(50))
+            .andExpect(jsonPath("$.rules[6].name").value("afternoonBonus"))
+            .andExpect(jsonPath("$.rules[6].points").value(10))
+            .andExpect(jsonPath("$.rules[0].sampledReceipts").isNumber())
+            .andExpect(jsonPath("$.rules[0].meanNanos").isNumber());
+  }
+
+  @Test
+  public void createBatchAndRetrieveBreakdown() throws Exception {
+
+    MvcResult result = mockMvc.perform(post("/receipts/process/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[{\"retailer\":\"Target\"}," + RECEIPT + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].error").exists())
+            .andReturn();
+    String receiptId = new ObjectMapper().readTree(result.getResponse().getContentAsString()).get(1).get("id")
+            .asText();
+
+    mockMvc.perform(get("/receipts/" + receiptId + "/points/breakdown"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.points").value(109))
+            .andExpect(jsonPath("$.rules[2].points").value(25));
+  }
+
+  @Test
+  public void getBreakdownNotFound() throws Exception {
+
+    mockMvc.perform(get("/receipts/unknown/points/breakdown"))
+            .andExpect(status().isNotFound());
+  }
+}
@@ -0,0 +1,78 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "dedup.enabled=true")
+@AutoConfigureMockMvc
+public class DedupApiTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  private String process(String receipt, String idempotencyKey) throws Exception {
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Idempotency-Key", idempotencyKey)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andReturn();
+    return new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+  }
+
+  @Test
+  public void jsonAndBinarySubmissionsOfSameReceiptShareId() throws Exception {
+
+    String receipt = "{\"retailer\":\"Walgreens\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"08:13\",\"total\":\"2.65\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"},{\"shortDescription\":\"Dasani\",\"price\":\"1.40\"}]}";
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andReturn();
+    String id = new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+
+    byte[] encoded = ReceiptCodec.encode(List.of(ReceiptRecord.of("Walgreens", LocalDate.of(2022, 1, 2),
+            LocalTime.of(8, 13), 265, new String[]{"Pepsi - 12-oz", "Dasani"}, new long[]{125, 140})));
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(ReceiptCodec.MEDIA_TYPE)
+                    .content(encoded))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(id));
+  }
+
+  @Test
+  public void idempotencyKeyReusedForDifferentReceiptIsRejected() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    String id = process(receipt, "dedup-api-key");
+
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Idempotency-Key", "dedup-api-key")
+                    .content(receipt))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(id));
+    mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Idempotency-Key", "dedup-api-key")
+                    .content(receipt.replace("Target", "Walmart")))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.message").value("Idempotency-Key was already used for a different receipt"));
+  }
+}
@@ -0,0 +1,230 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveApiTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Test
+  public void getReceiptNotFound() {
+
+    webTestClient.get().uri("/receipts/test/points")
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody().jsonPath("$.message").isEqualTo("No receipt found for that id");
+  }
+
+  @Test
+  public void createAndRetrieveReceipt() throws Exception {
+
+    String receipt = "{\"retailer\":\"M&MCornerMarket\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+    String response = webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipt)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+
+    webTestClient.get().uri("/receipts/" + extract(response, "id") + "/points")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.points").isEqualTo(109);
+  }
+
+  @Test
+  public void conditionalGetOfPoints() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    String response = webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipt)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+    String eTag = "\"" + extract(response, "id") + "\"";
+
+    webTestClient.get().uri("/receipts/" + extract(response, "id") + "/points")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals("ETag", eTag)
+            .expectHeader().valueEquals("Cache-Control", "max-age=31536000, immutable")
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody().json("{\"points\":31}", true);
+    webTestClient.get().uri("/receipts/" + extract(response, "id") + "/points")
+            .header("If-None-Match", eTag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals("ETag", eTag)
+            .expectBody().isEmpty();
+  }
+
+  @Test
+  public void batchGetOfPoints() throws Exception {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+    String response = webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipt)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+    String receiptId = extract(response, "id");
+
+    webTestClient.post().uri("/receipts/points:batchGet")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"ids\":[\"unknown\",\"" + receiptId + "\"]}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().json("{\"points\":{\"" + receiptId + "\":31},\"missing\":[\"unknown\"]}", true);
+    webTestClient.post().uri("/receipts/points:batchGet")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"ids\":[]}")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.message").isEqualTo("ids: at least one receipt ID is required; ");
+  }
+
+  @Test
+  public void createReceiptInvalidFormat() {
+
+    String receipt = "{\"retailer\":\"Target##\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}";
+
+    webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipt)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.statusCode").isEqualTo(400)
+            .jsonPath("$.message").isEqualTo("retailer: retailer format is invalid; ");
+  }
+
+  @Test
+  public void createMalformedReceipt() {
+
+    webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"retailer\":\"Target\",\"items\":\"Pepsi\"}")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.message").isEqualTo("Malformed receipt body");
+  }
+
+  @Test
+  public void createReceiptTotalMismatch() {
+
+    String receipt = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.45\"}]}";
+
+    webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipt)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.message").isEqualTo("Invalid - Sum of item prices doesn't add up to total");
+  }
+
+  @Test
+  public void createReceiptBatch() {
+
+    String receipts = "[{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]},"
+            + "{\"retailer\":\"Target##\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}]";
+
+    webTestClient.post().uri("/receipts/process/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(receipts)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].id").exists()
+            .jsonPath("$[1].error").isEqualTo("retailer: retailer format is invalid; ");
+  }
+
+  @Test
+  public void createEncodedReceipts() {
+
+    ReceiptRecord target = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+    ReceiptRecord invalid = ReceiptRecord.of("Target##", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
+
+    webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.parseMediaType(ReceiptCodec.MEDIA_TYPE))
+            .bodyValue(ReceiptCodec.encode(List.of(target)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.id").exists();
+    webTestClient.post().uri("/receipts/process/batch")
+            .contentType(MediaType.parseMediaType(ReceiptCodec.MEDIA_TYPE))
+            .bodyValue(ReceiptCodec.encode(List.of(target, invalid)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].id").exists()
+            .jsonPath("$[1].error").isEqualTo("retailer: retailer format is invalid; ");
+    webTestClient.post().uri("/receipts/process")
+            .contentType(MediaType.parseMediaType(ReceiptCodec.MEDIA_TYPE))
+            .bodyValue(new byte[]{'R', 1, 1, 7})
+            .exchange()
+            .expectStatus().isBadRequest();
+    webTestClient.post().uri("/receipts/process/batch")
+            .contentType(MediaType.parseMediaType(ReceiptCodec.MEDIA_TYPE))
+            .bodyValue(ReceiptCodec.encode(Collections.nCopies(1001, target)))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("receipts: at most 1000 receipts can be processed at once; ");
+  }
+
+  @Test
+  public void createReceiptStream() throws Exception {
+
+    String receipts = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.25\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}\n"
+            + "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":\"1.2599\",\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]}\n"
+            + "{\"retailer\":\"Target\",\"purchaseDate\":\n";
+
+    String response = webTestClient.post().uri("/receipts/process/stream")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(receipts)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class).returnResult().getResponseBody();
+
+    String[] lines = response.split("\n");
+    Assert.assertEquals(3, lines.length);
+    Assert.assertFalse(extract(lines[0], "id").isEmpty());
+    Assert.assertEquals("total: total format is invalid; ", extract(lines[1], "error"));
+    Assert.assertEquals("Malformed receipt body", extract(lines[2], "error"));
+  }
+
+  private static String extract(String json, String path) throws Exception {
+    JsonNode rootNode = new ObjectMapper().readTree(json);
+    return rootNode.path(path).asText();
+  }
+}
@@ -1,18 +1,34 @@
 package com.fetch.receiptprocessor.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fetch.receiptprocessor.exception.AbsentException;
 import com.fetch.receiptprocessor.exception.ValidationException;
 import com.fetch.receiptprocessor.model.Points;
-import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
 import com.fetch.receiptprocessor.model.ReceiptResponse;
 import com.fetch.receiptprocessor.service.IReceiptService;
+import com.fetch.receiptprocessor.service.ReceiptMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -21,6 +37,9 @@ public class ReceiptControllerTest {
   @Mock
   private IReceiptService receiptService;
 
+  @Spy
+  private PointsResponses pointsResponses = new PointsResponses(new ObjectMapper(), ReceiptMetrics.NONE);
+
   @InjectMocks
   private ReceiptController receiptController;
 
@@ -32,17 +51,18 @@ public class ReceiptControllerTest {
   @Test
   void testProcessReceipts() throws ValidationException {
     // Given
-    Receipt receipt = new Receipt();
+    ReceiptRecord receipt = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 125,
+            new String[]{"Pepsi - 12-oz"}, new long[]{125});
     ReceiptResponse expectedResponse = new ReceiptResponse("123456");
 
-    when(receiptService.saveReceiptPoints(receipt)).thenReturn(expectedResponse);
+    when(receiptService.saveReceiptRecord(receipt, null)).thenReturn(expectedResponse);
 
     // When
-    ReceiptResponse responseEntity = receiptController.processReceipts(receipt);
+    ReceiptResponse responseEntity = receiptController.processReceipts(receipt, null);
 
     // Then
     assertEquals(expectedResponse, responseEntity);
-    verify(receiptService).saveReceiptPoints(receipt);
+    verify(receiptService).saveReceiptRecord(receipt, null);
   }
 
   @Test
@@ -52,11 +72,39 @@ public class ReceiptControllerTest {
 
     when(receiptService.getReceiptPoints(receiptId)).thenReturn(expectedPoints);
 
-    Points responseEntity = receiptController.getReceiptPoints(receiptId);
+    ResponseEntity<byte[]> responseEntity = receiptController.getReceiptPoints(receiptId, request(null));
 
-    assertEquals(expectedPoints, responseEntity);
+    assertEquals("{\"points\":100}", new String(responseEntity.getBody(), StandardCharsets.UTF_8));
+    assertEquals("\"receipt123\"", responseEntity.getHeaders().getETag());
+    assertEquals("max-age=31536000, immutable", responseEntity.getHeaders().getCacheControl());
     verify(receiptService).getReceiptPoints(receiptId);
   }
 
+  @Test
+  void testGetReceiptPointsNotModified() throws AbsentException {
+    ServletWebRequest request = request("\"receipt123\"");
+    when(receiptService.isReceiptHeld("receipt123")).thenReturn(true);
+
+    assertNull(receiptController.getReceiptPoints("receipt123", request));
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), request.getResponse().getStatus());
+    verify(receiptService, never()).getReceiptPoints("receipt123");
+  }
+
+  @Test
+  void testGetReceiptPointsOfUnknownIdIsNeverNotModified() throws AbsentException {
+    when(receiptService.getReceiptPoints("unknown")).thenThrow(new AbsentException("unknown"));
+
+    assertThrows(AbsentException.class, () -> receiptController.getReceiptPoints("unknown", request("*")));
+    assertThrows(AbsentException.class, () -> receiptController.getReceiptPoints("unknown", request("\"unknown\"")));
+  }
+
+  private static ServletWebRequest request(String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/receipts/receipt123/points");
+    if (ifNoneMatch != null) {
+      request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return new ServletWebRequest(request, new MockHttpServletResponse());
+  }
+
 }
 
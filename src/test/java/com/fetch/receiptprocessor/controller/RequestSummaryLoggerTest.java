@@ -0,0 +1,57 @@
+package com.fetch.receiptprocessor.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RequestSummaryLoggerTest {
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger(RequestSummaryLogger.class);
+
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  @BeforeEach
+  void setUp() {
+    appender.start();
+    logger.addAppender(appender);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+  }
+
+  private static RequestSummaryLogger summaryLogger(double sampleRate) {
+    return new RequestSummaryLogger(new RequestLogConfig("summary", sampleRate, false, 8192));
+  }
+
+  @Test
+  void testSummaryLine() {
+
+    summaryLogger(1.0).log("GET", "/receipts/abc/points", 404, 12_345_678);
+
+    assertEquals(1, appender.list.size());
+    assertEquals("method=GET path=/receipts/abc/points status=404 duration_us=12345",
+            appender.list.get(0).getFormattedMessage());
+  }
+
+  @Test
+  void testUnsampledRequestsAreSkippedUnlessTheyFail() {
+
+    RequestSummaryLogger summaryLogger = summaryLogger(0);
+    for (int i = 0; i < 100; i++) {
+      summaryLogger.log("POST", "/receipts/process", 200, 1_000);
+    }
+    summaryLogger.log("POST", "/receipts/process", 500, 1_000);
+
+    assertEquals(1, appender.list.size());
+    assertEquals("method=POST path=/receipts/process status=500 duration_us=1",
+            appender.list.get(0).getFormattedMessage());
+  }
+}
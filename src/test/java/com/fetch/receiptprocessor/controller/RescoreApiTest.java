@@ -0,0 +1,87 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"admin.enabled=true", "breakdown.enabled=true", "retention.enabled=true"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class RescoreApiTest {
+
+  private static final String RECEIPT = "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+  private static final String RULES = "{\"retailerName\":2,\"roundDollar\":50,\"multipleOfQuarter\":25,\"perTwoItems\":5,\"multipleOfThreeItemDescription\":0.2,\"oddDay\":6,\"afternoonBonus\":10,\"afternoonStart\":\"14:00\",\"afternoonEnd\":\"16:00\"}";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private JsonNode perform(RequestBuilder request, int status) throws Exception {
+    MvcResult result = mockMvc.perform(request).andExpect(status().is(status)).andReturn();
+    return objectMapper.readTree(result.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void rescoreAfterReload() throws Exception {
+
+    String single = perform(post("/receipts/process").contentType(MediaType.APPLICATION_JSON).content(RECEIPT), 200)
+            .get("id").asText();
+    String batched = perform(post("/receipts/process/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("[" + RECEIPT + "," + RECEIPT.replace("9.00", "1.00") + "]"), 200).get(0).get("id").asText();
+    // Points can change when receipts are retained for rescoring, so the ETag follows them and is revalidated
+    mockMvc.perform(get("/receipts/" + single + "/points"))
+            .andExpect(jsonPath("$.points").value(109))
+            .andExpect(header().string("ETag", "\"p109\""))
+            .andExpect(header().string("Cache-Control", "no-cache"));
+    mockMvc.perform(get("/receipts/" + single + "/points").header("If-None-Match", "\"p109\""))
+            .andExpect(status().isNotModified());
+    mockMvc.perform(get("/receipts/unknown/points").header("If-None-Match", "\"p109\""))
+            .andExpect(status().isNotFound());
+
+    mockMvc.perform(put("/admin/rules").contentType(MediaType.APPLICATION_JSON).content(RULES))
+            .andExpect(jsonPath("$.version").value(2));
+    mockMvc.perform(post("/admin/rules/rescore?version=3"))
+            .andExpect(status().isNotFound());
+    JsonNode started = perform(post("/admin/rules/rescore"), 202);
+    assertEquals(2, started.get("ruleVersion").asInt());
+    assertEquals(2, started.get("totalReceipts").asInt());
+
+    JsonNode progress = perform(get("/admin/rules/rescore"), 200);
+    for (int i = 0; i < 500 && progress.get("state").asText().equals("running"); i++) {
+      Thread.sleep(10);
+      progress = perform(get("/admin/rules/rescore"), 200);
+    }
+    assertEquals("completed", progress.get("state").asText());
+    assertEquals(2, progress.get("rescoredReceipts").asInt());
+
+    // The retailer name is worth twice as much under version 2
+    for (String receiptId : new String[]{single, batched}) {
+      mockMvc.perform(get("/receipts/" + receiptId + "/points").header("If-None-Match", "\"p109\""))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$.points").value(123))
+              .andExpect(header().string("ETag", "\"p123\""));
+      mockMvc.perform(get("/receipts/" + receiptId + "/points/breakdown"))
+              .andExpect(jsonPath("$.points").value(123))
+              .andExpect(jsonPath("$.ruleVersion").value(2))
+              .andExpect(jsonPath("$.rules[0].points").value(28));
+    }
+  }
+}
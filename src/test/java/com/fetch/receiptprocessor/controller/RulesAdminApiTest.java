@@ -0,0 +1,97 @@
+package com.fetch.receiptprocessor.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"admin.enabled=true", "breakdown.enabled=true",
+        "points.promotions[0].name=gatoradeBoost", "points.promotions[0].expression=countItems(\"gatorade\") * 5"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class RulesAdminApiTest {
+
+  private static final String RECEIPT = "{\"retailer\":\"M&M Corner Market\",\"purchaseDate\":\"2022-03-20\",\"purchaseTime\":\"14:33\",\"items\":[{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"},{\"shortDescription\":\"Gatorade\",\"price\":\"2.25\"}],\"total\":\"9.00\"}";
+
+  private static final String RULES = "{\"retailerName\":2,\"roundDollar\":50,\"multipleOfQuarter\":25,\"perTwoItems\":5,\"multipleOfThreeItemDescription\":0.2,\"oddDay\":6,\"afternoonBonus\":10,\"afternoonStart\":\"14:00\",\"afternoonEnd\":\"16:00\",\"promotions\":[{\"name\":\"weekendBonus\",\"expression\":\"dayOfWeek >= 6 ? 7 : 0\"}]}";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  private String process() throws Exception {
+    MvcResult result = mockMvc.perform(post("/receipts/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(RECEIPT))
+            .andExpect(status().isOk())
+            .andReturn();
+    return new ObjectMapper().readTree(result.getResponse().getContentAsString()).get("id").asText();
+  }
+
+  @Test
+  public void reloadRules() throws Exception {
+
+    String before = process();
+
+    mockMvc.perform(put("/admin/rules")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(RULES))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(2))
+            .andExpect(jsonPath("$.rules.retailerName").value(2))
+            .andExpect(jsonPath("$.rules.promotions[0].name").value("weekendBonus"));
+    String after = process();
+
+    mockMvc.perform(get("/admin/rules"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(2));
+    mockMvc.perform(get("/admin/rules/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rules.retailerName").value(1))
+            .andExpect(jsonPath("$.rules.promotions[0].name").value("gatoradeBoost"));
+    mockMvc.perform(get("/admin/rules/3"))
+            .andExpect(status().isNotFound());
+    // Receipts are not retained, so they cannot be rescored
+    mockMvc.perform(post("/admin/rules/rescore"))
+            .andExpect(status().isNotFound());
+
+    // Stored points keep the rules they were scored with
+    mockMvc.perform(get("/receipts/" + before + "/points"))
+            .andExpect(jsonPath("$.points").value(129));
+    mockMvc.perform(get("/receipts/" + before + "/points/breakdown"))
+            .andExpect(jsonPath("$.ruleVersion").value(1))
+            .andExpect(jsonPath("$.rules[7].name").value("gatoradeBoost"))
+            .andExpect(jsonPath("$.rules[7].points").value(20));
+    mockMvc.perform(get("/receipts/" + after + "/points"))
+            .andExpect(jsonPath("$.points").value(130));
+    mockMvc.perform(get("/receipts/" + after + "/points/breakdown"))
+            .andExpect(jsonPath("$.ruleVersion").value(2))
+            .andExpect(jsonPath("$.rules[7].name").value("weekendBonus"))
+            .andExpect(jsonPath("$.rules[7].points").value(7));
+  }
+
+  @Test
+  public void reloadInvalidRules() throws Exception {
+
+    mockMvc.perform(put("/admin/rules")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(RULES.replace("14:00", "25:00")))
+            .andExpect(status().isBadRequest());
+    mockMvc.perform(put("/admin/rules")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(RULES.replace("? 7 : 0", "? 7 : \\\"seven\\\"")))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(containsString("weekendBonus")));
+  }
+}
@@ -0,0 +1,239 @@
+package com.fetch.receiptprocessor.dao;
+
+import com.fetch.receiptprocessor.util.Generator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogReceiptDaoTest {
+
+  @TempDir
+  Path directory;
+
+  private StoreConfig config(int segmentSize) {
+    StoreConfig config = new StoreConfig();
+    config.setType("log");
+    config.setLogDirectory(directory.toString());
+    config.setLogSegmentSize(segmentSize);
+    config.setLogSyncIntervalMs(5);
+    return config;
+  }
+
+  @Test
+  void testPointsSurviveRestart() {
+
+    LogReceiptDao dao = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    String first = dao.saveReceiptPoints(28, 1);
+    List<String> batch = dao.saveAllReceiptPoints(new int[]{109, 15}, 2);
+    dao.close();
+
+    LogReceiptDao reopened = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(28, reopened.getReceiptPoints(first));
+    assertEquals(109, reopened.getReceiptPoints(batch.get(0)));
+    assertEquals(15, reopened.getReceiptPoints(batch.get(1)));
+    assertEquals(1, reopened.getReceiptRuleVersion(first));
+    assertEquals(2, reopened.getReceiptRuleVersion(batch.get(1)));
+    assertNull(reopened.getReceiptPoints("unknown"));
+
+    String appended = reopened.saveReceiptPoints(31, 3);
+    reopened.close();
+
+    LogReceiptDao reopenedAgain = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(28, reopenedAgain.getReceiptPoints(first));
+    assertEquals(31, reopenedAgain.getReceiptPoints(appended));
+    assertEquals(3, reopenedAgain.getReceiptRuleVersion(appended));
+    reopenedAgain.close();
+  }
+
+  @Test
+  void testReplacedPointsSurviveRestart() {
+
+    LogReceiptDao dao = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    List<String> receiptIds = dao.saveAllReceiptPoints(new int[]{28, 109}, 1);
+    dao.saveAllReceiptPoints(List.of(receiptIds.get(1)), new int[]{109}, 3);
+    boolean[] replaced = dao.replaceAllReceiptPointsIfOlder(receiptIds, new int[]{34, 115}, 2);
+    dao.close();
+
+    assertTrue(replaced[0]);
+    assertFalse(replaced[1]);
+    LogReceiptDao reopened = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(34, reopened.getReceiptPoints(receiptIds.get(0)));
+    assertEquals(2, reopened.getReceiptRuleVersion(receiptIds.get(0)));
+    assertEquals(109, reopened.getReceiptPoints(receiptIds.get(1)));
+    reopened.close();
+  }
+
+  @Test
+  void testSegmentsRollOver() throws Exception {
+
+    LogReceiptDao dao = new LogReceiptDao(config(256), Generator.RANDOM_UUID);
+    int[] points = new int[50];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = i;
+    }
+    List<String> ids = dao.saveAllReceiptPoints(points, 1);
+    dao.close();
+
+    try (Stream<Path> segments = Files.list(directory)) {
+      assertTrue(segments.count() > 1);
+    }
+
+    LogReceiptDao reopened = new LogReceiptDao(config(256), Generator.RANDOM_UUID);
+    for (int i = 0; i < points.length; i++) {
+      assertEquals(i, reopened.getReceiptPoints(ids.get(i)));
+    }
+    reopened.close();
+  }
+
+  @Test
+  void testEvictedReceiptsAreReadFromLog() {
+
+    StoreConfig config = config(512);
+    config.setMaxEntries(10);
+    LogReceiptDao dao = new LogReceiptDao(config, Generator.RANDOM_UUID);
+    int[] points = new int[100];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = i;
+    }
+    List<String> ids = dao.saveAllReceiptPoints(points, 1);
+    String latest = dao.saveReceiptPoints(1000, 2);
+
+    for (int i = 0; i < points.length; i++) {
+      assertEquals(i, dao.getReceiptPoints(ids.get(i)));
+    }
+    assertEquals(1000, dao.getReceiptPoints(latest));
+    assertEquals(1, dao.getReceiptRuleVersion(ids.get(0)));
+    assertEquals(2, dao.getReceiptRuleVersion(latest));
+    assertNull(dao.getReceiptPoints("unknown"));
+    dao.close();
+  }
+
+  @Test
+  void testUnknownIdsDoNotScanTheLog() {
+
+    StoreConfig config = config(512);
+    config.setMaxEntries(10);
+    LogReceiptDao dao = new LogReceiptDao(config, Generator.RANDOM_UUID);
+    List<String> ids = dao.saveAllReceiptPoints(new int[200], 1);
+    dao.close();
+
+    // Filters are rebuilt on replay, so the reopened log is covered as well
+    LogReceiptDao reopened = new LogReceiptDao(config, Generator.RANDOM_UUID);
+    assertTrue(reopened.getEvictedReceiptCount() > 0);
+    for (int i = 0; i < 1000; i++) {
+      assertNull(reopened.getReceiptPoints(UUID.randomUUID().toString()));
+    }
+    // The log has about 20 segments, so scanning on every miss would take 20000 scans
+    assertTrue(reopened.segmentScanCount() < 500, () -> "segment scans: " + reopened.segmentScanCount());
+
+    long before = reopened.segmentScanCount();
+    assertEquals(0, reopened.getReceiptPoints(ids.get(0)));
+    assertTrue(reopened.segmentScanCount() - before < 5);
+    reopened.close();
+  }
+
+  @Test
+  void testBatchLookupReadsEvictedReceiptsFromLog() {
+
+    StoreConfig config = config(512);
+    config.setMaxEntries(10);
+    LogReceiptDao dao = new LogReceiptDao(config, Generator.RANDOM_UUID);
+    int[] points = new int[100];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = i;
+    }
+    List<String> ids = dao.saveAllReceiptPoints(points, 1);
+    String latest = dao.saveReceiptPoints(1000, 2);
+
+    List<String> lookup = new ArrayList<>();
+    lookup.add(latest);
+    lookup.add("unknown");
+    for (int i = points.length - 1; i >= 0; i -= 3) {
+      lookup.add(ids.get(i));
+    }
+    Map<String, Integer> found = dao.getReceiptPoints(lookup);
+
+    assertEquals(lookup.size() - 1, found.size());
+    assertEquals(lookup.stream().filter(id -> !id.equals("unknown")).toList(), List.copyOf(found.keySet()));
+    assertEquals(1000, found.get(latest));
+    for (int i = points.length - 1; i >= 0; i -= 3) {
+      assertEquals(i, found.get(ids.get(i)));
+    }
+    dao.close();
+  }
+
+  @Test
+  void testReplayTruncatesAtRecordWithInvalidIdLength() throws Exception {
+
+    LogReceiptDao dao = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    String first = dao.saveReceiptPoints(28, 1);
+    dao.close();
+
+    // A record whose checksum matches but whose ID length is negative
+    Path segment = directory.resolve("receipts-00000000.log");
+    byte[] log = Files.readAllBytes(segment);
+    int start = ByteBuffer.wrap(log).getInt(0) + 4;
+    byte[] id = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer record = ByteBuffer.wrap(log, start, log.length - start);
+    record.putInt(1 + 1 + id.length + 4 + 4 + 4).put(LogReceiptDao.CHECKED_RECORD).put((byte) -1).put(id)
+            .putInt(109).putInt(1);
+    CRC32C crc = new CRC32C();
+    crc.update(log, start + 4, record.position() - start - 4);
+    record.putInt((int) crc.getValue());
+    Files.write(segment, log);
+
+    LogReceiptDao reopened = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(28, reopened.getReceiptPoints(first));
+    assertEquals(1, reopened.getStoredReceiptCount());
+    reopened.close();
+  }
+
+  @Test
+  void testReplayTruncatesAtCorruptRecord() throws Exception {
+
+    LogReceiptDao dao = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    String first = dao.saveReceiptPoints(28, 1);
+    String second = dao.saveReceiptPoints(109, 1);
+    String third = dao.saveReceiptPoints(15, 1);
+    dao.close();
+
+    // Flip a byte of the second record's points, as if its payload never reached the disk
+    Path segment = directory.resolve("receipts-00000000.log");
+    byte[] log = Files.readAllBytes(segment);
+    int secondStart = ByteBuffer.wrap(log).getInt(0) + 4;
+    log[secondStart + 4 + 1 + 1 + second.length()] ^= 1;
+    Files.write(segment, log);
+
+    LogReceiptDao reopened = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(28, reopened.getReceiptPoints(first));
+    assertNull(reopened.getReceiptPoints(second));
+    assertNull(reopened.getReceiptPoints(third));
+
+    // The discarded records are overwritten and not replayed again
+    String appended = reopened.saveReceiptPoints(31, 2);
+    reopened.close();
+
+    LogReceiptDao reopenedAgain = new LogReceiptDao(config(1024 * 1024), Generator.RANDOM_UUID);
+    assertEquals(28, reopenedAgain.getReceiptPoints(first));
+    assertEquals(31, reopenedAgain.getReceiptPoints(appended));
+    assertNull(reopenedAgain.getReceiptPoints(second));
+    assertNull(reopenedAgain.getReceiptPoints(third));
+    assertEquals(2, reopenedAgain.getStoredReceiptCount());
+    reopenedAgain.close();
+  }
+}
@@ -0,0 +1,151 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReceiptArchiveTest {
+
+  private static ReceiptRecord record(int i) {
+    return ReceiptRecord.of("Retailer " + i, LocalDate.of(2022, 1, 1).plusDays(i), LocalTime.of(i % 24, i % 60),
+            100L * (i + 1), new String[]{"Item " + i, "Other"}, new long[]{100L * i, 100});
+  }
+
+  private static List<String> readAll(ReceiptArchive archive, List<ReceiptRecord> records) {
+    List<String> receiptIds = new ArrayList<>();
+    for (int chunk = 0; chunk < archive.chunkCount(); chunk++) {
+      ReceiptArchive.Cursor cursor = archive.cursor(chunk);
+      while (cursor.next()) {
+        receiptIds.add(cursor.receiptId());
+        records.add(cursor.record());
+      }
+    }
+    return receiptIds;
+  }
+
+  private static void assertRecordEquals(ReceiptRecord expected, ReceiptRecord actual) {
+    assertEquals(expected.getRetailer(), actual.getRetailer());
+    assertEquals(expected.getEpochDay(), actual.getEpochDay());
+    assertEquals(expected.getDayOfMonth(), actual.getDayOfMonth());
+    assertEquals(expected.getMinuteOfDay(), actual.getMinuteOfDay());
+    assertEquals(expected.getTotalCents(), actual.getTotalCents());
+    assertArrayEquals(expected.getItemDescriptions(), actual.getItemDescriptions());
+    assertArrayEquals(expected.getItemPriceCents(), actual.getItemPriceCents());
+  }
+
+  @Test
+  void testReceiptsAreReadBackInOrderAcrossChunks() {
+
+    ReceiptArchive archive = new ReceiptArchive(1 << 20, 256);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(archive.add("r" + i, record(i)));
+    }
+    assertEquals(100, archive.size());
+    assertTrue(archive.chunkCount() > 1);
+
+    List<ReceiptRecord> records = new ArrayList<>();
+    List<String> receiptIds = readAll(archive, records);
+    assertEquals(100, receiptIds.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("r" + i, receiptIds.get(i));
+      assertRecordEquals(record(i), records.get(i));
+    }
+  }
+
+  @Test
+  void testUnicodeOldDatesAndLargeReceipts() {
+
+    String[] descriptions = new String[500];
+    long[] priceCents = new long[500];
+    for (int i = 0; i < descriptions.length; i++) {
+      descriptions[i] = "Crème brûlée 🍮 " + i;
+      priceCents[i] = Long.MAX_VALUE / 1000;
+    }
+    ReceiptRecord large = ReceiptRecord.of("Café Ünïcode", LocalDate.of(1901, 12, 31), LocalTime.of(23, 59),
+            Long.MAX_VALUE / 2, descriptions, priceCents);
+    ReceiptArchive archive = new ReceiptArchive(1 << 20, 256);
+    archive.add("r0", record(0));
+    archive.add("ü-id", large);
+    archive.add("r1", record(1));
+
+    List<ReceiptRecord> records = new ArrayList<>();
+    assertEquals(List.of("r0", "ü-id", "r1"), readAll(archive, records));
+    assertRecordEquals(large, records.get(1));
+    assertRecordEquals(record(1), records.get(2));
+  }
+
+  @Test
+  void testReceiptsBeyondMaxBytesAreRejected() {
+
+    ReceiptArchive archive = new ReceiptArchive(1000, 256);
+    int retained = 0;
+    for (int i = 0; i < 100; i++) {
+      if (archive.add("r" + i, record(i))) {
+        retained++;
+      }
+    }
+    assertTrue(retained > 0 && retained < 100);
+    assertEquals(retained, archive.size());
+    assertEquals(100 - retained, archive.rejectedCount());
+    assertTrue(archive.bytes() <= 1000);
+    assertFalse(archive.add("large", record(1000)));
+  }
+
+  @Test
+  void testDictionaryCountsTowardsMaxBytes() {
+
+    ReceiptArchive archive = new ReceiptArchive(100_000, 1 << 16);
+    String description = "Item".repeat(250);
+    int retained = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (archive.add("r" + i, ReceiptRecord.of("Retailer", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 100,
+              new String[]{description + i}, new long[]{100}))) {
+        retained++;
+      }
+    }
+    // Each distinct 1,000-character description takes about 2 KB of heap, although a reference to it is a few bytes
+    assertTrue(retained < 100, retained + " receipts retained");
+    assertTrue(archive.bytes() <= 100_000);
+    assertTrue(archive.bytes() > 90_000, archive.bytes() + " bytes");
+  }
+
+  @Test
+  void testCursorSeesReceiptsAppendedWhileReading() {
+
+    ReceiptArchive archive = new ReceiptArchive(1 << 20, 1 << 16);
+    archive.add("r0", record(0));
+    ReceiptArchive.Cursor cursor = archive.cursor(0);
+    assertTrue(cursor.next());
+    assertFalse(cursor.next());
+    archive.add("r1", record(1));
+    assertTrue(cursor.next());
+    assertEquals("r1", cursor.receiptId());
+  }
+
+  @Test
+  void testRepeatedStringsAreStoredOnce() {
+
+    ReceiptArchive archive = new ReceiptArchive(1 << 20, 1 << 16);
+    archive.add("r", record(1));
+    long first = archive.bytes();
+    for (int i = 0; i < 99; i++) {
+      archive.add("r", record(1));
+    }
+    // "Retailer 1", "Item 1" and "Other"
+    assertEquals(3, archive.dictionarySize());
+    assertTrue((archive.bytes() - first) / 99 < 20, archive.bytes() + " bytes");
+
+    List<ReceiptRecord> records = new ArrayList<>();
+    readAll(archive, records);
+    assertRecordEquals(record(1), records.get(99));
+  }
+}
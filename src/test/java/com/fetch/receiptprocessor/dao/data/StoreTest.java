@@ -0,0 +1,64 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StoreTest {
+
+  @Test
+  void testUnboundedStoreKeepsEverything() {
+
+    Store<String, Integer> store = new Store<>();
+    for (int i = 0; i < 1000; i++) {
+      store.put("r" + i, i);
+    }
+    assertEquals(1000, store.size());
+    assertEquals(0, store.evictionCount());
+    assertEquals(500, store.get("r500"));
+  }
+
+  @Test
+  void testMaxEntriesEvicts() {
+
+    Store<String, Integer> store = new Store<>(100, null, null);
+    for (int i = 0; i < 1000; i++) {
+      store.put("r" + i, i);
+    }
+    assertTrue(store.size() <= 100);
+    assertEquals(1000 - store.size(), store.evictionCount());
+  }
+
+  @Test
+  void testEvictedEntriesSpillToTier() {
+
+    Map<String, Integer> spilled = new HashMap<>();
+    IStoreTier<String, Integer> tier = new IStoreTier<>() {
+      @Override
+      public void spill(String key, Integer value) {
+        spilled.put(key, value);
+      }
+
+      @Override
+      public Integer load(String key) {
+        return spilled.get(key);
+      }
+    };
+
+    Store<String, Integer> store = new Store<>(10, Duration.ofHours(1), tier);
+    for (int i = 0; i < 100; i++) {
+      store.put("r" + i, i);
+    }
+    assertEquals(store.evictionCount(), spilled.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, store.get("r" + i));
+    }
+    assertNull(store.get("unknown"));
+  }
+}
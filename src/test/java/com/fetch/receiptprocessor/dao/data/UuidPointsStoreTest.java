@@ -0,0 +1,105 @@
+package com.fetch.receiptprocessor.dao.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UuidPointsStoreTest {
+
+  @Test
+  void testPutAndGet() {
+
+    UuidPointsStore store = new UuidPointsStore();
+    String id = "adb6b560-0eef-42bc-9d16-df48f30e89b2";
+    store.put(id, 28, 1);
+    assertEquals(28, store.get(id));
+    assertEquals(1, store.getRuleVersion(id));
+
+    store.put(id, 109, 2);
+    assertEquals(109, store.get(id));
+    assertEquals(2, store.getRuleVersion(id));
+    assertEquals(1, store.size());
+
+    assertNull(store.get("adb6b560-0eef-42bc-9d16-df48f30e89b3"));
+    assertNull(store.getRuleVersion("adb6b560-0eef-42bc-9d16-df48f30e89b3"));
+    assertNull(store.get("ADB6B560-0EEF-42BC-9D16-DF48F30E89B2"));
+  }
+
+  @Test
+  void testReplaceIfOlder() {
+
+    UuidPointsStore store = new UuidPointsStore();
+    String id = "adb6b560-0eef-42bc-9d16-df48f30e89b2";
+    assertFalse(store.replaceIfOlder(id, 28, 1));
+    assertFalse(store.replaceIfOlder("test", 28, 1));
+
+    store.put(id, 28, 2);
+    assertFalse(store.replaceIfOlder(id, 34, 1));
+    assertFalse(store.replaceIfOlder(id, 34, 2));
+    assertEquals(28, store.get(id));
+
+    assertTrue(store.replaceIfOlder(id, 34, 3));
+    assertEquals(34, store.get(id));
+    assertEquals(3, store.getRuleVersion(id));
+  }
+
+  @Test
+  void testNonUuidIds() {
+
+    UuidPointsStore store = new UuidPointsStore();
+    assertNull(store.get("test"));
+    assertNull(store.get(null));
+    assertNull(store.get("00000000-0000-0000-0000-000000000000"));
+    assertThrows(IllegalArgumentException.class, () -> store.put("test", 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> store.put("00000000-0000-0000-0000-000000000000", 1, 1));
+  }
+
+  @Test
+  void testConcurrentWritersAndGrowth() throws Exception {
+
+    UuidPointsStore store = new UuidPointsStore();
+    int writers = 4;
+    int perWriter = 20_000;
+    List<List<String>> ids = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      List<String> writerIds = new ArrayList<>();
+      for (int i = 0; i < perWriter; i++) {
+        writerIds.add(UUID.randomUUID().toString());
+      }
+      ids.add(writerIds);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(writers);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      List<String> writerIds = ids.get(w);
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < writerIds.size(); i++) {
+          store.put(writerIds.get(i), i, 1);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertEquals((long) writers * perWriter, store.size());
+    for (List<String> writerIds : ids) {
+      for (int i = 0; i < writerIds.size(); i++) {
+        assertEquals(i, store.get(writerIds.get(i)));
+      }
+    }
+  }
+}
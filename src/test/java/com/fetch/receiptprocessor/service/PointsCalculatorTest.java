@@ -3,6 +3,9 @@ package com.fetch.receiptprocessor.service;
 import com.fetch.receiptprocessor.exception.ValidationException;
 import com.fetch.receiptprocessor.model.Item;
 import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.service.rules.IPointsRule;
+import com.fetch.receiptprocessor.util.Money;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -11,9 +14,16 @@ import org.mockito.MockitoAnnotations;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 public class PointsCalculatorTest {
@@ -378,5 +388,191 @@ public class PointsCalculatorTest {
 
     assertEquals(35, pointsCalculator.calculateTotalPoints(receipt2));
   }
-}
 
+  @Test
+  public void testCalculatePointsFromRecord() {
+    ReceiptRecord record = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20), LocalTime.of(14, 33),
+            900, new String[]{"Gatorade", "Gatorade", "Gatorade", "Gatorade"}, new long[]{225, 225, 225, 225});
+
+    assertEquals(109, pointsCalculator.calculateTotalPoints(record));
+  }
+
+  @Test
+  public void testAfternoonBoundsAreExclusive() {
+    ReceiptRecord atStart = ReceiptRecord.of("A", LocalDate.of(2022, 2, 2), LocalTime.of(14, 0),
+            101, new String[]{"ab"}, new long[]{101});
+    ReceiptRecord atEnd = ReceiptRecord.of("A", LocalDate.of(2022, 2, 2), LocalTime.of(16, 0),
+            101, new String[]{"ab"}, new long[]{101});
+    ReceiptRecord inside = ReceiptRecord.of("A", LocalDate.of(2022, 2, 2), LocalTime.of(14, 1),
+            101, new String[]{"ab"}, new long[]{101});
+
+    assertEquals(1, pointsCalculator.calculateTotalPoints(atStart));
+    assertEquals(1, pointsCalculator.calculateTotalPoints(atEnd));
+    assertEquals(11, pointsCalculator.calculateTotalPoints(inside));
+  }
+
+  @Test
+  public void testRoundTotalsBeyondIntRange() {
+    ReceiptRecord record = ReceiptRecord.of("A", LocalDate.of(2022, 2, 2), LocalTime.of(10, 0),
+            500_000_000_000L, new String[]{"ab"}, new long[]{500_000_000_000L});
+
+    assertEquals(76, pointsCalculator.calculateTotalPoints(record));
+  }
+
+  @Test
+  public void testCalculateRulePoints() {
+    ReceiptRecord record = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20), LocalTime.of(14, 33),
+            900, new String[]{"Gatorade", "Gatorade", "Gatorade", "Gatorade"}, new long[]{225, 225, 225, 225});
+
+    int[] rulePoints = pointsCalculator.calculateRulePoints(record);
+
+    assertEquals(List.of(14, 50, 25, 10, 0, 0, 10), Arrays.stream(rulePoints).boxed().toList());
+    assertEquals(pointsCalculator.calculateTotalPoints(record), Arrays.stream(rulePoints).sum());
+  }
+
+  /**
+   * Randomized receipts, scored by the exact integer rules and by the original floating point implementation.
+   */
+  @Test
+  public void testMatchesFloatingPointRules() throws ValidationException {
+    Random random = new Random(20220101);
+    for (int n = 0; n < 20_000; n++) {
+      List<Item> items = new ArrayList<>();
+      long totalCents = 0;
+      for (int i = random.nextInt(8); i >= 0; i--) {
+        long cents = 1 + random.nextInt(random.nextBoolean() ? 100_000 : 100) * (random.nextBoolean() ? 25L : 1L);
+        totalCents += cents;
+        items.add(new Item(" ".repeat(random.nextInt(3)) + "x".repeat(1 + random.nextInt(12)), Money.formatCents(cents),
+                0));
+      }
+      Receipt receipt = new ReceiptServiceTest.ReceiptBuilder()
+              .retailer("M&M Corner Market".substring(random.nextInt(10)))
+              .purchaseDate(LocalDate.of(2022, 1, 1).plusDays(random.nextInt(365)))
+              .purchaseTime(LocalTime.of(random.nextInt(24), random.nextInt(60)))
+              .total(Money.formatCents(totalCents))
+              .items(items)
+              .build();
+
+      assertEquals(legacyPoints(receipt), pointsCalculator.calculateTotalPoints(receipt), receipt.toString());
+    }
+  }
+
+  private static int legacyPoints(Receipt receipt) {
+    int points = (int) receipt.getRetailer().chars().filter(Character::isLetterOrDigit).count();
+    double total = Double.parseDouble(receipt.getTotal());
+    points += total - (int) total == 0 ? 50 : 0;
+    points += total * 4 - (int) (total * 4) == 0 ? 25 : 0;
+    points += receipt.getItems().size() / 2 * 5;
+    for (Item item : receipt.getItems()) {
+      if (item.getShortDescription().trim().length() % 3 == 0) {
+        points += (int) Math.ceil(Double.parseDouble(item.getPrice()) * 0.2);
+      }
+    }
+    points += receipt.getDate().getDayOfMonth() % 2 != 0 ? 6 : 0;
+    LocalTime time = receipt.getTime();
+    if (time.isAfter(LocalTime.of(14, 0)) && time.isBefore(LocalTime.of(16, 0))) {
+      points += 10;
+    }
+    return points;
+  }
+
+  @Test
+  public void testReloadPublishesNewVersion() {
+
+    ReceiptRecord record = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+                    "Doritos Nacho Cheese", "   Klarbrunn 12-PK 12 FL OZ  "},
+            new long[]{649, 1225, 126, 335, 1200});
+    assertEquals(1, pointsCalculator.getRuleVersion());
+    assertEquals(28, pointsCalculator.calculateTotalPoints(record));
+
+    int version = pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+    assertEquals(2, version);
+    assertEquals(2, pointsCalculator.getRuleVersion());
+    assertEquals(34, pointsCalculator.calculateTotalPoints(record));
+    assertEquals(1, pointsCalculator.getRuleSet(1).getRetailerName());
+    assertEquals(2, pointsCalculator.getRuleSet(2).getRetailerName());
+    assertNull(pointsCalculator.getRuleSet(3));
+  }
+
+  @Test
+  public void testReloadRejectsInvalidRules() {
+
+    assertThrows(IllegalArgumentException.class, () ->
+            pointsCalculator.reload(new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "25:00", "16:00")));
+    assertEquals(1, pointsCalculator.getRuleVersion());
+    assertNull(pointsCalculator.getRuleSet(2));
+  }
+
+  @Test
+  public void testPluginAndPromotionRules() {
+
+    ReceiptRecord record = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20), LocalTime.of(14, 33),
+            900, new String[]{"Gatorade", "Gatorade", "Gatorade", "Gatorade"}, new long[]{225, 225, 225, 225});
+    when(pointsConfig.getPromotions()).thenReturn(List.of(
+            new PointsConfig.Promotion("gatoradeBoost", "countItems(\"gatorade\") * 5"),
+            new PointsConfig.Promotion("weekendDouble", "dayOfWeek >= 6 ? score : 0")));
+    pointsCalculator.setPluginRules(List.of(new IPointsRule() {
+      @Override
+      public String getName() {
+        return "flatBonus";
+      }
+
+      @Override
+      public int points(ReceiptRecord receipt, int score) {
+        return 1;
+      }
+    }));
+
+    // 109 from the built-in rules, 1 from the plugin, 20 for the Gatorade, then doubled on a Sunday
+    assertEquals(260, pointsCalculator.calculateTotalPoints(record));
+    assertArrayEquals(new int[]{14, 50, 25, 10, 0, 0, 10, 1, 20, 130}, pointsCalculator.calculateRulePoints(record));
+    assertArrayEquals(new String[]{"retailerName", "roundDollar", "multipleOfQuarter", "perTwoItems",
+                    "multipleOfThreeItemDescription", "oddDay", "afternoonBonus", "flatBonus", "gatoradeBoost",
+                    "weekendDouble"},
+            pointsCalculator.getRuleNames(1));
+  }
+
+  @Test
+  public void testInvalidPromotionIsRejectedOnReload() {
+
+    PointsConfig config = new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00");
+    config.setPromotions(List.of(new PointsConfig.Promotion("broken", "retailer * 2")));
+    IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> pointsCalculator.reload(config));
+    assertTrue(error.getMessage().contains("Promotion rule broken"), error.getMessage());
+
+    config.setPromotions(List.of(new PointsConfig.Promotion("oddDay", "1")));
+    assertThrows(IllegalArgumentException.class, () -> pointsCalculator.reload(config));
+    assertEquals(1, pointsCalculator.getRuleVersion());
+  }
+
+  @Test
+  public void testScoreCacheAnswersRepeatedContentUntilReload() {
+
+    ScoreCache scoreCache = new ScoreCache(new ScoreCacheConfig(true, 100));
+    pointsCalculator.setScoreCache(scoreCache);
+    ReceiptRecord record = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza"}, new long[]{649, 1225});
+    ReceiptRecord sameContent = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza"}, new long[]{649, 1225});
+    ReceiptRecord otherItems = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizzas"}, new long[]{649, 1225});
+
+    assertEquals(20, pointsCalculator.calculateTotalPoints(record));
+    assertEquals(20, pointsCalculator.calculateTotalPoints(sameContent));
+    assertEquals(17, pointsCalculator.calculateTotalPoints(otherItems));
+    assertEquals(1, scoreCache.getHitCount());
+    assertEquals(2, scoreCache.getMissCount());
+
+    pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+    assertEquals(26, pointsCalculator.calculateTotalPoints(sameContent));
+    assertEquals(1, scoreCache.getHitCount());
+    assertEquals(3, scoreCache.getMissCount());
+    // A receipt scored with version 1 while version 2 was published is not answered from the newer entry
+    assertEquals(20, pointsCalculator.calculateTotalPoints(pointsCalculator.rules(1), record));
+    assertEquals(26, pointsCalculator.calculateTotalPoints(record));
+  }
+}
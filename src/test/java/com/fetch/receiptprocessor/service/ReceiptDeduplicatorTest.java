@@ -0,0 +1,180 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.exception.IdempotencyConflictException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Item;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.ReceiptCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReceiptDeduplicatorTest {
+
+  private final ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(
+          new DedupConfig(true, 1000, Duration.ofMinutes(5)));
+
+  private final AtomicInteger saves = new AtomicInteger();
+
+  private String save() {
+    return "receipt-" + saves.incrementAndGet();
+  }
+
+  private static Receipt json(String total, String... prices) {
+    return new ReceiptServiceTest.ReceiptBuilder()
+            .retailer("Target")
+            .purchaseDate(LocalDate.of(2022, 1, 2))
+            .purchaseTime(LocalTime.of(13, 13))
+            .total(total)
+            .items(Arrays.stream(prices).map(price -> new Item("Pepsi - 12-oz", price, 0)).toList())
+            .build();
+  }
+
+  private static ReceiptRecord receipt(String total, String... prices) {
+    try {
+      return ReceiptParser.parse(json(total, prices));
+    } catch (ValidationException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  @Test
+  void testSameContentIsSavedOnce() {
+
+    String first = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), null, this::save);
+    String retry = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), null, this::save);
+
+    assertEquals(first, retry);
+    assertEquals(1, saves.get());
+  }
+
+  @Test
+  void testDifferentContentIsSavedSeparately() {
+
+    String first = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), null, this::save);
+    String other = deduplicator.deduplicate(receipt("2.50", "1.00", "1.50"), null, this::save);
+    String fewerItems = deduplicator.deduplicate(receipt("1.25", "1.25"), null, this::save);
+
+    assertNotEquals(first, other);
+    assertNotEquals(first, fewerItems);
+    assertEquals(3, saves.get());
+  }
+
+  @Test
+  void testIdempotencyKey() {
+
+    String first = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), "key-1", this::save);
+    String retry = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), "key-1", this::save);
+    String otherKey = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), "key-2", this::save);
+
+    assertEquals(first, retry);
+    assertNotEquals(first, otherKey);
+    assertEquals(2, saves.get());
+  }
+
+  @Test
+  void testIdempotencyKeyReusedForDifferentReceiptIsRejected() {
+
+    String first = deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), "key-1", this::save);
+
+    assertThrows(IdempotencyConflictException.class,
+            () -> deduplicator.deduplicate(receipt("2.50", "1.00", "1.50"), "key-1", this::save));
+    CompletionException async = assertThrows(CompletionException.class, () -> deduplicator.deduplicateAsync(
+            receipt("1.25", "1.25"), "key-1", () -> CompletableFuture.completedFuture(save())).join());
+    assertInstanceOf(IdempotencyConflictException.class, async.getCause());
+    assertEquals(first, deduplicator.deduplicate(receipt("2.50", "1.25", "1.25"), "key-1", this::save));
+    assertEquals(1, saves.get());
+  }
+
+  @Test
+  void testFieldBoundariesAffectHash() {
+
+    ReceiptRecord receipt = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 250,
+            new String[]{"ab", "c"}, new long[]{125, 125});
+    ReceiptRecord shifted = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 2), LocalTime.of(13, 13), 250,
+            new String[]{"a", "bc"}, new long[]{125, 125});
+
+    assertNotEquals(ReceiptDeduplicator.hash(receipt), ReceiptDeduplicator.hash(shifted));
+    assertEquals(ReceiptDeduplicator.hash(receipt("2.50", "1.25", "1.25")),
+            ReceiptDeduplicator.hash(receipt("2.50", "1.25", "1.25")));
+  }
+
+  @Test
+  void testJsonAndBinarySubmissionsOfSameReceiptAreSavedOnce() throws ValidationException {
+
+    ReceiptRecord fromJson = receipt("2.50", "1.25", "1.25");
+    ReceiptRecord fromBinary = ReceiptCodec.decode(ReceiptCodec.encode(List.of(receipt("2.50", "1.25", "1.25"))))
+            .get(0);
+
+    String first = deduplicator.deduplicate(fromJson, null, this::save);
+
+    assertEquals(first, deduplicator.deduplicate(fromBinary, null, this::save));
+    assertEquals(1, saves.get());
+  }
+
+  @Test
+  void testConcurrentSubmissionsAreSavedOnce() throws Exception {
+
+    CountDownLatch saving = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<String> first = executor.submit(() -> deduplicator.deduplicate(receipt("1.25", "1.25"), "key", () -> {
+        saving.countDown();
+        await(release);
+        return save();
+      }));
+      saving.await();
+      List<Future<String>> retries = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        retries.add(executor.submit(() -> deduplicator.deduplicate(receipt("1.25", "1.25"), "key", this::save)));
+      }
+      release.countDown();
+
+      for (Future<String> retry : retries) {
+        assertEquals(first.get(), retry.get());
+      }
+      assertEquals(1, saves.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testFailedSaveIsRetried() {
+
+    assertThrows(IllegalStateException.class, () -> deduplicator.deduplicate(receipt("1.25", "1.25"), null, () -> {
+      throw new IllegalStateException("save failed");
+    }));
+    String id = deduplicator.deduplicate(receipt("1.25", "1.25"), null, this::save);
+
+    assertEquals("receipt-1", id);
+    assertEquals(id, deduplicator.deduplicate(receipt("1.25", "1.25"), null, this::save));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReceiptMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private double validationFailures(String reason) {
+    return registry.get("receipts.validation.failures").tag("reason", reason).counter().count();
+  }
+
+  @Test
+  void testValidationReasonsAreNormalized() {
+
+    ReceiptMetrics metrics = new ReceiptMetrics(registry, new MetricsConfig(0));
+    metrics.recordValidationFailure("items[0].price: price format is invalid; ");
+    metrics.recordValidationFailure("items[12].price: price format is invalid; ");
+
+    assertEquals(2, validationFailures("items[].price: price format is invalid;"));
+  }
+
+  @Test
+  void testValidationReasonsAreBounded() {
+
+    ReceiptMetrics metrics = new ReceiptMetrics(registry, new MetricsConfig(0));
+    for (int i = 0; i < 150; i++) {
+      metrics.recordValidationFailure("reason " + i);
+    }
+
+    assertEquals(1, validationFailures("reason 99"));
+    assertEquals(50, validationFailures("other"));
+  }
+
+  @Test
+  void testEveryRequestIsCountedButOnlySampledRequestsAreTimed() {
+
+    ReceiptMetrics metrics = new ReceiptMetrics(registry, new MetricsConfig(0));
+    metrics.recordProcess(ReceiptMetrics.OUTCOME_SUCCESS, metrics.startTiming());
+    metrics.recordProcess(ReceiptMetrics.OUTCOME_SUCCESS, System.nanoTime());
+
+    assertEquals(2, registry.get("receipts.processed").tag("outcome", "success").functionCounter().count());
+    assertEquals(1, registry.get("receipts.process").tag("outcome", "success").timer().count());
+    assertEquals(0, registry.get("receipts.processed").tag("outcome", "invalid").functionCounter().count());
+  }
+
+  @Test
+  void testScoringRecordsPointsAndSampledRuleTimings() {
+
+    PointsCalculator pointsCalculator = new PointsCalculator(
+            new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+    pointsCalculator.setReceiptMetrics(new ReceiptMetrics(registry, new MetricsConfig(1.0)));
+    ReceiptRecord record = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20), LocalTime.of(14, 33),
+            900, new String[]{"Gatorade", "Gatorade", "Gatorade", "Gatorade"}, new long[]{225, 225, 225, 225});
+
+    assertEquals(109, pointsCalculator.calculateTotalPoints(record));
+    assertEquals(1, registry.get("receipts.points").summary().count());
+    assertEquals(109, registry.get("receipts.points").summary().totalAmount());
+    for (String rule : CompiledRules.RULE_NAMES) {
+      assertEquals(1, registry.get("receipts.rule.duration").tag("rule", rule).timer().count());
+    }
+  }
+
+  @Test
+  void testRuleContributionsAddUpToScore() {
+
+    CompiledRules rules = CompiledRules.compile(new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+    ReceiptRecord record = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20), LocalTime.of(14, 33),
+            900, new String[]{"Gatorade", "Gatorade", "Gatorade", "Gatorade"}, new long[]{225, 225, 225, 225});
+
+    int[] expected = {14, 50, 25, 10, 0, 0, 10};
+    for (int rule = 0; rule < CompiledRules.RULE_NAMES.length; rule++) {
+      assertEquals(expected[rule], rules.rule(rule, record, 0), CompiledRules.RULE_NAMES[rule]);
+    }
+    assertEquals(109, rules.profile(record, null, new long[CompiledRules.RULE_NAMES.length]));
+  }
+}
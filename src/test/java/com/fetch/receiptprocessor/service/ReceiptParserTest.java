@@ -0,0 +1,229 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.Item;
+import com.fetch.receiptprocessor.model.Receipt;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ReceiptParserTest {
+
+  private static final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+
+  private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private final ReceiptValidator fast = new ReceiptValidator(factory.getValidator(), new ValidationConfig("fast"));
+
+  private final ReceiptValidator bean = new ReceiptValidator(factory.getValidator(), new ValidationConfig("bean"));
+
+  @AfterAll
+  static void closeFactory() {
+    factory.close();
+  }
+
+  private static Receipt receipt(Consumer<Receipt> change) {
+    List<Item> items = new ArrayList<>();
+    items.add(new Item("Mountain Dew 12PK", "6.49", 0));
+    items.add(new Item("Emils Cheese Pizza", "12.25", 0));
+    Receipt receipt = new Receipt("M&M Corner Market", "2022-01-01", "13:01", "18.74", items, null, null, 0);
+    change.accept(receipt);
+    return receipt;
+  }
+
+  private static Set<String> errors(ReceiptValidator validator, Receipt receipt) {
+    ValidationException e = assertThrows(ValidationException.class, () -> validator.parse(receipt));
+    return new TreeSet<>(Arrays.asList(e.getMessage().split("; ")));
+  }
+
+  private void assertSameResult(Receipt receipt) throws ValidationException {
+    ReceiptRecord expected;
+    try {
+      expected = bean.parse(receipt);
+    } catch (ValidationException e) {
+      assertEquals(errors(bean, receipt), errors(fast, receipt), receipt::toString);
+      return;
+    }
+    assertEquals(expected, fast.parse(receipt));
+  }
+
+  @Test
+  void testAcceptsAndRejectsLikeBeanValidation() throws ValidationException {
+    List<Consumer<Receipt>> changes = List.of(
+            r -> {
+            },
+            r -> r.setRetailer(null),
+            r -> r.setRetailer(""),
+            r -> r.setRetailer("Target & Co_1 -\t"),
+            r -> r.setRetailer("Invalid Retailer Name!"),
+            r -> r.setRetailer("Café"),
+            r -> r.setPurchaseDate(null),
+            r -> r.setPurchaseDate("2022-1-01"),
+            r -> r.setPurchaseDate("2022/01/01"),
+            r -> r.setPurchaseDate("2022-01-011"),
+            r -> r.setPurchaseDate("0001-12-31"),
+            r -> r.setPurchaseDate("2024-02-29"),
+            r -> r.setPurchaseDate("2023-02-29"),
+            r -> r.setPurchaseDate("2022-13-01"),
+            r -> r.setPurchaseTime(null),
+            r -> r.setPurchaseTime("00:00"),
+            r -> r.setPurchaseTime("23:59"),
+            r -> r.setPurchaseTime("24:00"),
+            r -> r.setPurchaseTime("19:60"),
+            r -> r.setPurchaseTime("9:30"),
+            r -> r.setPurchaseTime("13:01:00"),
+            r -> r.setTotal(null),
+            r -> r.setTotal("18.7"),
+            r -> r.setTotal(".74"),
+            r -> r.setTotal("-18.74"),
+            r -> r.setTotal("18,74"),
+            r -> r.setTotal("0.00"),
+            r -> r.setTotal("18.75"),
+            r -> r.setTotal("99999999999999999999.99"),
+            r -> r.setItems(null),
+            r -> r.setItems(List.of()),
+            r -> r.getItems().get(0).setShortDescription(null),
+            r -> r.getItems().get(0).setShortDescription("Pepsi - 12-oz"),
+            r -> r.getItems().get(0).setShortDescription("Pepsi & Co"),
+            r -> r.getItems().get(1).setPrice(null),
+            r -> r.getItems().get(1).setPrice("12.250"),
+            r -> r.getItems().get(1).setPrice("0.00"),
+            r -> r.getItems().get(1).setPrice("99999999999999999999.99"),
+            r -> r.getItems().add(null),
+            r -> r.getItems().set(0, null),
+            r -> {
+              r.setTotal(null);
+              r.getItems().set(1, null);
+            },
+            r -> {
+              r.setRetailer("Target!");
+              r.setPurchaseTime("25:00");
+              r.getItems().get(1).setShortDescription("Pizza?");
+              r.getItems().get(1).setPrice("1");
+            });
+    for (Consumer<Receipt> change : changes) {
+      assertSameResult(receipt(change));
+    }
+  }
+
+  private static ReceiptRecord read(String json) throws IOException, ValidationException {
+    try (JsonParser parser = objectMapper.createParser(json.getBytes(StandardCharsets.UTF_8))) {
+      parser.nextToken();
+      return ReceiptParser.parse(parser);
+    }
+  }
+
+  private static void assertSameResult(String json) throws IOException {
+    ReceiptRecord expected;
+    try {
+      expected = ReceiptParser.parse(objectMapper.readValue(json, Receipt.class));
+    } catch (ValidationException e) {
+      assertEquals(e.getMessage(), assertThrows(ValidationException.class, () -> read(json)).getMessage(), json);
+      return;
+    }
+    try {
+      assertEquals(expected, read(json), json);
+    } catch (ValidationException e) {
+      fail(json + ": " + e.getMessage());
+    }
+  }
+
+  @Test
+  void testReadsJsonLikeBoundReceipts() throws IOException {
+    String items = "\"items\":[{\"shortDescription\":\"Pepsi - 12-oz\",\"price\":\"1.25\"}]";
+    List<String> documents = List.of(
+            "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\","
+                    + "\"total\":\"1.25\"," + items + "}",
+            "{" + items + ",\"total\":\"1.25\",\"purchaseTime\":\"13:13\",\"purchaseDate\":\"2022-01-02\","
+                    + "\"retailer\":\"Target\"}",
+            "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\",\"total\":1.25,"
+                    + "\"items\":[{\"shortDescription\":\"Pepsi\",\"price\":1.25,\"sku\":[1,{\"a\":2}]}],"
+                    + "\"store\":{\"id\":7,\"tags\":[\"x\"]},\"date\":\"ignored\"}",
+            "{\"retailer\":\"Target\",\"retailer\":\"Walgreens\",\"purchaseDate\":\"2022-01-02\","
+                    + "\"purchaseTime\":\"13:13\",\"total\":\"9.99\",\"total\":\"1.25\"," + items + "}",
+            "{\"retailer\":12,\"purchaseDate\":null,\"purchaseTime\":\"1:13\",\"total\":\"1.2\","
+                    + "\"items\":[null,{\"price\":null},{\"shortDescription\":\"?\"}]}",
+            "{\"items\":[]}",
+            "{\"items\":null}",
+            "{}",
+            "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-02-30\",\"purchaseTime\":\"13:13\","
+                    + "\"total\":\"1.25\"," + items + "}",
+            "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-02\",\"purchaseTime\":\"13:13\","
+                    + "\"total\":\"2.50\",\"items\":[" + "{\"shortDescription\":\"a\",\"price\":\"0.25\"},".repeat(9)
+                    + "{\"shortDescription\":\"b\",\"price\":\"0.25\"}]}");
+    for (String json : documents) {
+      assertSameResult(json);
+    }
+  }
+
+  @Test
+  void testRejectsJsonThatIsNotAReceipt() {
+    assertThrows(MismatchedInputException.class, () -> read("[]"));
+    assertThrows(MismatchedInputException.class, () -> read("{\"items\":\"Pepsi\"}"));
+    assertThrows(MismatchedInputException.class, () -> read("{\"retailer\":[\"Target\"]}"));
+    assertThrows(MismatchedInputException.class, () -> read("{\"total\":{\"cents\":125}}"));
+  }
+
+  @Test
+  void testParsesFields() throws ValidationException {
+    ReceiptRecord record = ReceiptParser.parse(receipt(r -> r.setPurchaseTime("14:33")));
+
+    assertEquals(ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 1, 1), LocalTime.of(14, 33), 1874,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza"}, new long[]{649, 1225}), record);
+  }
+
+  @Test
+  void testReportsFormatErrorsInFieldOrder() {
+    ValidationException e = assertThrows(ValidationException.class, () -> ReceiptParser.parse(receipt(r -> {
+      r.setRetailer("Target!");
+      r.setTotal(null);
+      r.getItems().get(1).setPrice("1");
+    })));
+
+    assertEquals("retailer: retailer format is invalid; total: total is required; "
+            + "items[1].price: price format is invalid; ", e.getMessage());
+  }
+
+  @Test
+  void testRejectsDatesThatDoNotExist() {
+    Receipt receipt = receipt(r -> r.setPurchaseDate("2022-02-30"));
+
+    assertEquals(ReceiptParser.INVALID_DATE,
+            assertThrows(ValidationException.class, () -> fast.parse(receipt)).getMessage());
+    assertEquals(ReceiptParser.INVALID_DATE,
+            assertThrows(ValidationException.class, () -> bean.parse(receipt)).getMessage());
+  }
+
+  @Test
+  void testRejectsMissingItems() {
+    Receipt receipt = receipt(r -> r.getItems().add(null));
+
+    assertEquals("items[2]: item is required; ",
+            assertThrows(ValidationException.class, () -> ReceiptParser.parse(receipt)).getMessage());
+    assertEquals("items[2]: item is required; ",
+            assertThrows(ValidationException.class, () -> bean.parse(receipt)).getMessage());
+    assertEquals("items[2]: item is required; ",
+            assertThrows(ValidationException.class, () -> ReceiptService.validate(receipt)).getMessage());
+  }
+}
@@ -0,0 +1,176 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.IReceiptDao;
+import com.fetch.receiptprocessor.dao.ReceiptDao;
+import com.fetch.receiptprocessor.dao.StoreConfig;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.model.RescoreStatus;
+import com.fetch.receiptprocessor.util.Generator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReceiptRescorerTest {
+
+  private final IReceiptDao receiptDao = new ReceiptDao(new StoreConfig(), Generator.RANDOM_UUID);
+
+  private final PointsCalculator pointsCalculator = new PointsCalculator(
+          new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+  private ReceiptRescorer rescorer;
+
+  @AfterEach
+  void tearDown() {
+    if (rescorer != null) {
+      rescorer.close();
+    }
+  }
+
+  private static ReceiptRecord record() {
+    // Scores 28 points, as in the Target example, of which 6 for the retailer name
+    return ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+                    "Doritos Nacho Cheese", "   Klarbrunn 12-PK 12 FL OZ  "},
+            new long[]{649, 1225, 126, 335, 1200});
+  }
+
+  private ReceiptRescorer rescorer(int batchSize, long maxRate) {
+    rescorer = new ReceiptRescorer(new RetentionConfig(true, 1 << 20, 2, batchSize, maxRate), receiptDao,
+            pointsCalculator);
+    return rescorer;
+  }
+
+  private List<String> save(int receipts) {
+    List<String> receiptIds = new ArrayList<>();
+    for (int i = 0; i < receipts; i++) {
+      ReceiptRecord record = record();
+      String receiptId = receiptDao.saveReceiptPoints(pointsCalculator.calculateTotalPoints(record),
+              pointsCalculator.getRuleVersion());
+      rescorer.retain(receiptId, record);
+      receiptIds.add(receiptId);
+    }
+    return receiptIds;
+  }
+
+  private RescoreStatus awaitCompletion() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    RescoreStatus status = rescorer.getStatus();
+    while (status.getState().equals(RescoreStatus.RUNNING) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      status = rescorer.getStatus();
+    }
+    return status;
+  }
+
+  @Test
+  void testRetainedReceiptsAreRescoredWithNewRules() throws InterruptedException {
+
+    rescorer(16, 0);
+    List<String> receiptIds = save(100);
+    assertEquals(RescoreStatus.IDLE, rescorer.getStatus().getState());
+    int version = pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+    // Scored by the new rules already, so left as is
+    String current = receiptDao.saveReceiptPoints(-1, version);
+    rescorer.retain(current, record());
+
+    rescorer.start(version);
+    RescoreStatus status = awaitCompletion();
+
+    assertEquals(RescoreStatus.COMPLETED, status.getState());
+    assertEquals(version, status.getRuleVersion());
+    assertEquals(101, status.getTotalReceipts());
+    assertEquals(100, status.getRescoredReceipts());
+    assertEquals(1, status.getSkippedReceipts());
+    assertTrue(status.getReceiptsPerSecond() > 0);
+    for (String receiptId : receiptIds) {
+      assertEquals(34, receiptDao.getReceiptPoints(receiptId));
+      assertEquals(version, receiptDao.getReceiptRuleVersion(receiptId));
+    }
+    assertEquals(-1, receiptDao.getReceiptPoints(current));
+    assertEquals(100, rescorer.getRescoredCount());
+
+    // Rescoring again with the same version has nothing left to do
+    rescorer.start(version);
+    status = awaitCompletion();
+    assertEquals(0, status.getRescoredReceipts());
+    assertEquals(101, status.getSkippedReceipts());
+  }
+
+  @Test
+  void testRescoringNeverDowngradesReceipts() throws InterruptedException {
+
+    rescorer(16, 0);
+    pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+    String receiptId = save(1).get(0);
+
+    rescorer.start(1);
+    assertEquals(1, awaitCompletion().getSkippedReceipts());
+    assertEquals(34, receiptDao.getReceiptPoints(receiptId));
+    assertEquals(2, receiptDao.getReceiptRuleVersion(receiptId));
+  }
+
+  @Test
+  void testNewerPointsWrittenDuringRescoringAreKept() throws InterruptedException {
+
+    // Reports the version the receipts were first scored by, as if they were rescored after the job read them
+    IReceiptDao staleDao = new ReceiptDao(new StoreConfig(), Generator.RANDOM_UUID) {
+      @Override
+      public Integer getReceiptRuleVersion(String receiptId) {
+        return 1;
+      }
+    };
+    rescorer = new ReceiptRescorer(new RetentionConfig(true, 1 << 20, 2, 16, 0), staleDao, pointsCalculator);
+    List<String> receiptIds = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ReceiptRecord record = record();
+      String receiptId = staleDao.saveReceiptPoints(pointsCalculator.calculateTotalPoints(record), 1);
+      rescorer.retain(receiptId, record);
+      receiptIds.add(receiptId);
+    }
+    int[] newer = new int[receiptIds.size()];
+    Arrays.fill(newer, -1);
+    staleDao.replaceAllReceiptPointsIfOlder(receiptIds, newer, 100);
+    int version = pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+    rescorer.start(version);
+    RescoreStatus status = awaitCompletion();
+
+    assertEquals(RescoreStatus.COMPLETED, status.getState());
+    assertEquals(0, status.getRescoredReceipts());
+    assertEquals(20, status.getSkippedReceipts());
+    for (String receiptId : receiptIds) {
+      assertEquals(-1, staleDao.getReceiptPoints(receiptId));
+    }
+  }
+
+  @Test
+  void testOnlyOneJobRunsAtATime() {
+
+    // One receipt per second, so the job is still running when the second one is started
+    rescorer(1, 1);
+    save(5);
+    int version = pointsCalculator.reload(new PointsConfig(2, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+    assertEquals(RescoreStatus.RUNNING, rescorer.start(version).getState());
+    assertThrows(IllegalStateException.class, () -> rescorer.start(version));
+    assertThrows(IllegalArgumentException.class, () -> new ReceiptRescorer(
+            new RetentionConfig(true, 1 << 20, 0, 0, 0), receiptDao, pointsCalculator));
+  }
+
+  @Test
+  void testUnknownVersionIsRejected() {
+
+    rescorer(16, 0);
+    assertThrows(IllegalArgumentException.class, () -> rescorer.start(2));
+  }
+}
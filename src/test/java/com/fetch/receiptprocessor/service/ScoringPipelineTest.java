@@ -0,0 +1,217 @@
+package com.fetch.receiptprocessor.service;
+
+import com.fetch.receiptprocessor.dao.IReceiptDao;
+import com.fetch.receiptprocessor.dao.ReceiptDao;
+import com.fetch.receiptprocessor.dao.StoreConfig;
+import com.fetch.receiptprocessor.exception.OverloadedException;
+import com.fetch.receiptprocessor.exception.PendingException;
+import com.fetch.receiptprocessor.model.PointsBatchResponse;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import com.fetch.receiptprocessor.util.Generator;
+import com.fetch.receiptprocessor.util.IReceiptIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScoringPipelineTest {
+
+  private final IReceiptIdGenerator receiptIdGenerator = Generator.forStrategy("random", 0);
+
+  private final PointsCalculator pointsCalculator = new PointsCalculator(
+          new PointsConfig(1, 50, 25, 5, 0.2, 6, 10, "14:00", "16:00"));
+
+  private ScoringPipeline pipeline;
+
+  @AfterEach
+  void tearDown() {
+    if (pipeline != null) {
+      pipeline.close();
+    }
+  }
+
+  private static ReceiptRecord record() {
+    // Scores 28 points, as in the Target example
+    return ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1), LocalTime.of(13, 1), 3535,
+            new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+                    "Doritos Nacho Cheese", "   Klarbrunn 12-PK 12 FL OZ  "},
+            new long[]{649, 1225, 126, 335, 1200});
+  }
+
+  private ScoringPipeline pipeline(IReceiptDao receiptDao, int queueCapacity, Duration pendingWait) {
+    pipeline = new ScoringPipeline(new ScoringConfig("async", queueCapacity, 1, 16, pendingWait), receiptDao,
+            pointsCalculator, receiptIdGenerator);
+    return pipeline;
+  }
+
+  @Test
+  void testSubmittedReceiptIsScoredAndSaved() {
+
+    IReceiptDao receiptDao = new ReceiptDao(new StoreConfig(), receiptIdGenerator);
+    ScoringPipeline pipeline = pipeline(receiptDao, 1024, Duration.ofSeconds(10));
+
+    String receiptId = pipeline.submit(record());
+
+    Integer awaited = pipeline.awaitPoints(receiptId);
+    assertEquals(28, awaited == null ? receiptDao.getReceiptPoints(receiptId) : awaited);
+    assertEquals(28, receiptDao.getReceiptPoints(receiptId));
+    assertEquals(0, pipeline.getPendingCount());
+    assertEquals(1, pipeline.getProcessedCount());
+    assertNull(pipeline.awaitPoints(receiptId));
+  }
+
+  @Test
+  void testFullQueueRejectsAndPendingReceiptTimesOut() throws Exception {
+
+    CountDownLatch release = new CountDownLatch(1);
+    IReceiptDao receiptDao = mock(IReceiptDao.class);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(receiptDao).saveAllReceiptPoints(anyList(), any(int[].class), anyInt());
+    ScoringPipeline pipeline = pipeline(receiptDao, 2, Duration.ofMillis(10));
+
+    try {
+      // The worker takes the first receipt and blocks while saving it, the next two fill the queue
+      pipeline.submit(record());
+      while (pipeline.getQueueDepth() > 0) {
+        Thread.sleep(1);
+      }
+      pipeline.submit(record());
+      String queued = pipeline.submit(record());
+
+      assertThrows(OverloadedException.class, () -> pipeline.submit(record()));
+      assertEquals(1, pipeline.getRejectedCount());
+      assertEquals(2, pipeline.getQueueDepth());
+      assertEquals(3, pipeline.getPendingCount());
+      assertThrows(PendingException.class, () -> pipeline.awaitPoints(queued));
+    } finally {
+      release.countDown();
+    }
+    pipeline.close();
+    assertEquals(3, pipeline.getProcessedCount());
+    assertEquals(0, pipeline.getPendingCount());
+  }
+
+  @Test
+  void testBatchLookupReportsPendingReceipts() throws Exception {
+
+    CountDownLatch release = new CountDownLatch(1);
+    IReceiptDao receiptDao = mock(IReceiptDao.class);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(receiptDao).saveAllReceiptPoints(anyList(), any(int[].class), anyInt());
+    when(receiptDao.getReceiptPoints(anyCollection())).thenReturn(Map.of());
+    ScoringPipeline pipeline = pipeline(receiptDao, 16, Duration.ofMillis(10));
+    ReceiptService receiptService = new ReceiptService(receiptDao, pointsCalculator, null, null, pipeline,
+            ReceiptMetrics.NONE, new BatchConfig());
+
+    try {
+      String queued = pipeline.submit(record());
+      assertTrue(pipeline.isPending(queued));
+
+      PointsBatchResponse response = receiptService.getReceiptPointsBatch(List.of("unknown", queued));
+      assertEquals(Map.of(), response.getPoints());
+      assertEquals(List.of("unknown"), response.getMissing());
+      assertEquals(List.of(queued), response.getPending());
+      assertFalse(pipeline.isPending("unknown"));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void testFailedSaveIsNotPending() {
+
+    IReceiptDao receiptDao = mock(IReceiptDao.class);
+    doThrow(new IllegalStateException("save failed")).when(receiptDao)
+            .saveAllReceiptPoints(anyList(), any(int[].class), anyInt());
+    ScoringPipeline pipeline = pipeline(receiptDao, 16, Duration.ofSeconds(10));
+
+    String receiptId = pipeline.submit(record());
+
+    assertNull(pipeline.awaitPoints(receiptId));
+    assertEquals(0, pipeline.getProcessedCount());
+  }
+
+  @Test
+  void testFailedScoringIsForgottenByTheDeduplicator() {
+
+    IReceiptDao receiptDao = mock(IReceiptDao.class);
+    doThrow(new IllegalStateException("save failed")).when(receiptDao)
+            .saveAllReceiptPoints(anyList(), any(int[].class), anyInt());
+    ScoringPipeline pipeline = pipeline(receiptDao, 16, Duration.ofSeconds(10));
+    ReceiptDeduplicator deduplicator = new ReceiptDeduplicator(
+            new DedupConfig(true, 1_000, Duration.ofHours(1)));
+    pipeline.setReceiptDeduplicator(deduplicator);
+    ReceiptRecord record = record();
+
+    String byContent = deduplicator.deduplicate(record, null, () -> pipeline.submit(record));
+    String byKey = deduplicator.deduplicate(record, "key-1", () -> pipeline.submit(record, "key-1"));
+    assertNull(pipeline.awaitPoints(byContent));
+    assertNull(pipeline.awaitPoints(byKey));
+
+    // Neither retry gets the ID that was never saved
+    assertNotEquals(byContent, deduplicator.deduplicate(record, null, () -> pipeline.submit(record)));
+    assertNotEquals(byKey, deduplicator.deduplicate(record, "key-1", () -> pipeline.submit(record, "key-1")));
+  }
+
+  @Test
+  void testCloseSavesEveryAcceptedReceipt() throws Exception {
+
+    IReceiptDao receiptDao = new ReceiptDao(new StoreConfig(), receiptIdGenerator);
+    ScoringPipeline pipeline = pipeline(receiptDao, 1 << 16, Duration.ofSeconds(10));
+    ConcurrentLinkedQueue<String> accepted = new ConcurrentLinkedQueue<>();
+    List<Thread> submitters = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread submitter = new Thread(() -> {
+        try {
+          while (true) {
+            accepted.add(pipeline.submit(record()));
+          }
+        } catch (OverloadedException e) {
+          // The pipeline is closed or full
+        }
+      });
+      submitter.start();
+      submitters.add(submitter);
+    }
+
+    while (accepted.size() < 1_000 && submitters.stream().anyMatch(Thread::isAlive)) {
+      Thread.onSpinWait();
+    }
+    pipeline.close();
+    for (Thread submitter : submitters) {
+      submitter.join();
+    }
+
+    assertEquals(0, pipeline.getPendingCount());
+    assertEquals(accepted.size(), pipeline.getProcessedCount());
+    for (String receiptId : accepted) {
+      assertEquals(28, receiptDao.getReceiptPoints(receiptId));
+    }
+  }
+}
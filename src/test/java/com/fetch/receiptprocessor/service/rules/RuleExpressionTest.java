@@ -0,0 +1,105 @@
+package com.fetch.receiptprocessor.service.rules;
+
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RuleExpressionTest {
+
+  // Sunday, 2022-03-20 at 14:33
+  private static final ReceiptRecord RECEIPT = ReceiptRecord.of("M&M Corner Market", LocalDate.of(2022, 3, 20),
+          LocalTime.of(14, 33), 900, new String[]{"Gatorade", "gatorade zero", "Doritos", "Gatorade"},
+          new long[]{225, 250, 199, 226});
+
+  private static int points(String expression, int score) {
+    return RuleExpression.compile("test", expression).points(RECEIPT, score);
+  }
+
+  @Test
+  void testArithmeticAndPrecedence() {
+
+    assertEquals(7, points("1 + 2 * 3", 0));
+    assertEquals(9, points("(1 + 2) * 3", 0));
+    assertEquals(-1, points("2 - 3", 0));
+    assertEquals(3, points("10 / 3", 0));
+    assertEquals(1, points("10 % 3", 0));
+    assertEquals(0, points("10 / 0", 0));
+    assertEquals(0, points("10 % (2 - 2)", 0));
+    assertEquals(-5, points("-5", 0));
+    assertEquals(5, points("--5", 0));
+    assertEquals(2, points("min(2, 7)", 0));
+    assertEquals(7, points("max(2, 7)", 0));
+    assertEquals(Integer.MAX_VALUE, points("9999999999", 0));
+    assertEquals(Integer.MIN_VALUE, points("-9999999999", 0));
+  }
+
+  @Test
+  void testVariables() {
+
+    assertEquals(900, points("totalCents", 0));
+    assertEquals(4, points("itemCount", 0));
+    assertEquals(20, points("dayOfMonth", 0));
+    assertEquals(7, points("dayOfWeek", 0));
+    assertEquals(3, points("month", 0));
+    assertEquals(2022, points("year", 0));
+    assertEquals(14, points("hour", 0));
+    assertEquals(14 * 60 + 33, points("minuteOfDay", 0));
+    assertEquals(109, points("score", 109));
+    assertEquals(1, points("retailer == \"M&M Corner Market\" ? 1 : 0", 0));
+    assertEquals(0, points("retailer != \"M&M Corner Market\" ? 1 : 0", 0));
+  }
+
+  @Test
+  void testPromotions() {
+
+    // Weekend multiplier
+    assertEquals(109, points("dayOfWeek >= 6 ? score : 0", 109));
+    // Retailer bonus, ignoring case
+    assertEquals(100, points("contains(retailer, \"corner\") ? 100 : 0", 0));
+    assertEquals(100, points("startsWith(retailer, \"m&m\") ? 100 : 0", 0));
+    assertEquals(0, points("startsWith(retailer, \"corner\") ? 100 : 0", 0));
+    // Keyword boosts
+    assertEquals(30, points("countItems(\"GATORADE\") * 10", 0));
+    assertEquals(70, points("itemCents(\"gatorade\") / 10", 0));
+    assertEquals(0, points("countItems(\"pepsi\")", 0));
+  }
+
+  @Test
+  void testBooleanOperatorsShortCircuit() {
+
+    assertEquals(1, points("true || 1 / 0 == 0 ? 1 : 0", 0));
+    assertEquals(0, points("false && true ? 1 : 0", 0));
+    assertEquals(1, points("!(1 > 2) && 2 >= 2 && 1 <= 1 && 1 < 2 ? 1 : 0", 0));
+    assertEquals(2, points("itemCount > 10 ? 1 : itemCount > 3 ? 2 : 3", 0));
+    assertEquals(1, points("(1 == 1) == true ? 1 : 0", 0));
+  }
+
+  @Test
+  void testInvalidExpressions() {
+
+    assertError("unknown variable 'price'", "price * 2");
+    assertError("unknown function 'sum'", "sum(1, 2)");
+    assertError("must evaluate to an integer", "itemCount > 2");
+    assertError("+ needs integer operands, not string", "retailer + 1");
+    assertError("cannot compare string with integer", "retailer == 1 ? 1 : 0");
+    assertError("both branches of ?: must have the same type", "true ? 1 : \"one\"");
+    assertError("expected a string literal", "countItems(retailer)");
+    assertError("unterminated string literal", "contains(retailer, \"target) ? 1 : 0");
+    assertError("expected ')'", "(1 + 2");
+    assertError("unexpected '='", "itemCount = 2 ? 1 : 0");
+    assertError("unexpected end of expression", "1 +");
+    assertError("no expression", " ");
+  }
+
+  private static void assertError(String message, String expression) {
+    IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> RuleExpression.compile("test", expression));
+    assertTrue(error.getMessage().contains(message), error.getMessage());
+  }
+}
@@ -0,0 +1,48 @@
+package com.fetch.receiptprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+  private static byte[] id(UUID uuid) {
+    return uuid.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  void testNeverMissesAddedKeysAndRarelyMatchesOthers() {
+
+    BloomFilter filter = new BloomFilter(10_000 * 12);
+    List<byte[]> added = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      byte[] key = id(UUID.randomUUID());
+      filter.add(key);
+      added.add(key);
+    }
+
+    for (byte[] key : added) {
+      assertTrue(filter.mightContain(key));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (filter.mightContain(id(UUID.randomUUID()))) {
+        falsePositives++;
+      }
+    }
+    // About 0.5% are expected at 12 bits per key
+    assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+  }
+
+  @Test
+  void testRejectsInvalidSize() {
+
+    assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0));
+  }
+}
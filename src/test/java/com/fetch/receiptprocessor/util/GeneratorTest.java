@@ -0,0 +1,66 @@
+package com.fetch.receiptprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeneratorTest {
+
+  @Test
+  void testUuidStrategies() {
+
+    for (String strategy : new String[]{"random", "fast-random", "time-ordered"}) {
+      IReceiptIdGenerator generator = Generator.forStrategy(strategy, 0);
+      assertTrue(generator.producesUuids());
+      Set<String> ids = new HashSet<>();
+      for (int i = 0; i < 10_000; i++) {
+        String id = generator.generateReceiptId();
+        UUID uuid = UUID.fromString(id);
+        assertEquals(id, uuid.toString());
+        assertEquals(2, uuid.variant());
+        assertEquals("time-ordered".equals(strategy) ? 7 : 4, uuid.version());
+        ids.add(id);
+      }
+      assertEquals(10_000, ids.size());
+    }
+  }
+
+  @Test
+  void testTimeOrderedUuidsCarryTimestamp() {
+
+    long before = System.currentTimeMillis();
+    UUID uuid = UUID.fromString(new TimeOrderedUuidGenerator().generateReceiptId());
+    long after = System.currentTimeMillis();
+
+    long timestamp = uuid.getMostSignificantBits() >>> 16;
+    assertTrue(timestamp >= before && timestamp <= after);
+  }
+
+  @Test
+  void testSnowflakeIdsAreUniqueAndIncreasing() {
+
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5);
+    assertFalse(generator.producesUuids());
+    long previous = -1;
+    for (int i = 0; i < 100_000; i++) {
+      long id = generator.nextId();
+      assertTrue(id > previous);
+      assertEquals(5, (id >>> 12) & 0x3ff);
+      previous = id;
+    }
+  }
+
+  @Test
+  void testInvalidConfiguration() {
+
+    assertThrows(IllegalArgumentException.class, () -> Generator.forStrategy("unknown", 0));
+    assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+  }
+}
@@ -0,0 +1,86 @@
+package com.fetch.receiptprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoneyTest {
+
+  @Test
+  void testParseCents() {
+
+    assertEquals(3535, Money.parseCents("35.35"));
+    assertEquals(0, Money.parseCents("0.00"));
+    assertEquals(5, Money.parseCents("0.05"));
+    assertEquals(Long.MAX_VALUE, Money.parseCents("92233720368547758.07"));
+  }
+
+  @Test
+  void testParseCentsRejectsInvalidAmounts() {
+
+    for (String amount : new String[]{null, "", ".00", "1", "1.0", "1.000", "-1.00", "+1.00", "1e2.00", "1,00",
+            " 1.00", "1.00 ", "1..00", "92233720368547758.08", "100000000000000000.00"}) {
+      assertEquals(Money.INVALID, Money.parseCents(amount), String.valueOf(amount));
+    }
+  }
+
+  @Test
+  void testParseCentsMatchesDecimalParsing() {
+
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      long cents = randomCents(random);
+      String amount = Money.formatCents(cents);
+      assertEquals(cents, Money.parseCents(amount), amount);
+      assertEquals(new BigDecimal(amount).movePointRight(2).longValueExact(), Money.parseCents(amount), amount);
+    }
+  }
+
+  @Test
+  void testMultiplyCeil() {
+
+    assertEquals(3, Money.multiplyCeil(1225, 2, 10));
+    assertEquals(1, Money.multiplyCeil(500, 2, 10));
+    assertEquals(0, Money.multiplyCeil(0, 2, 10));
+    assertEquals(1, Money.multiplyCeil(1, 2, 10));
+    assertEquals(-2, Money.multiplyCeil(1225, -2, 10));
+    // Overflows the 64-bit product and falls back to big integers
+    assertEquals(18446744073709552L, Money.multiplyCeil(Long.MAX_VALUE, 2, 10));
+  }
+
+  @Test
+  void testMultiplyCeilMatchesDecimalArithmetic() {
+
+    Random random = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      long cents = randomCents(random);
+      long numerator = random.nextInt(1000);
+      long denominator = (long) Math.pow(10, random.nextInt(4));
+      long expected = BigDecimal.valueOf(cents).movePointLeft(2).multiply(BigDecimal.valueOf(numerator))
+              .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.CEILING).longValueExact();
+      assertEquals(expected, Money.multiplyCeil(cents, numerator, denominator), cents + " * " + numerator);
+    }
+  }
+
+  @Test
+  void testToFraction() {
+
+    assertArrayEquals(new long[]{2, 10}, Money.toFraction(0.2));
+    assertArrayEquals(new long[]{25, 100}, Money.toFraction(0.25));
+    assertArrayEquals(new long[]{3, 1}, Money.toFraction(3));
+    assertArrayEquals(new long[]{30, 1}, Money.toFraction(30));
+  }
+
+  /**
+   * Amounts from cents up to ten million dollars, spread evenly over their number of digits.
+   */
+  static long randomCents(Random random) {
+    long bound = (long) Math.pow(10, 1 + random.nextInt(9));
+    return Math.floorMod(random.nextLong(), bound);
+  }
+}
@@ -0,0 +1,133 @@
+package com.fetch.receiptprocessor.util;
+
+import com.fetch.receiptprocessor.exception.ValidationException;
+import com.fetch.receiptprocessor.model.ReceiptRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReceiptCodecTest {
+
+  private static final String TARGET_JSON = "{\"retailer\":\"Target\",\"purchaseDate\":\"2022-01-01\",\"purchaseTime\":\"13:01\",\"items\":[{\"shortDescription\":\"Mountain Dew 12PK\",\"price\":\"6.49\"},{\"shortDescription\":\"Emils Cheese Pizza\",\"price\":\"12.25\"},{\"shortDescription\":\"Knorr Creamy Chicken\",\"price\":\"1.26\"},{\"shortDescription\":\"Doritos Nacho Cheese\",\"price\":\"3.35\"},{\"shortDescription\":\"   Klarbrunn 12-PK 12 FL OZ  \",\"price\":\"12.00\"}],\"total\":\"35.35\"}";
+
+  private static final ReceiptRecord TARGET = ReceiptRecord.of("Target", LocalDate.of(2022, 1, 1),
+          LocalTime.of(13, 1), 3535, new String[]{"Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken",
+                  "Doritos Nacho Cheese", "   Klarbrunn 12-PK 12 FL OZ  "}, new long[]{649, 1225, 126, 335, 1200});
+
+  private static final ReceiptRecord VENDING = ReceiptRecord.of("M&M Corner Market", LocalDate.of(1969, 12, 31),
+          LocalTime.of(23, 59), 125, new String[]{"Pepsi - 12-oz"}, new long[]{125});
+
+  private static void assertRecordEquals(ReceiptRecord expected, ReceiptRecord actual) {
+    assertEquals(expected.getRetailer(), actual.getRetailer());
+    assertEquals(expected.getEpochDay(), actual.getEpochDay());
+    assertEquals(expected.getDayOfMonth(), actual.getDayOfMonth());
+    assertEquals(expected.getMinuteOfDay(), actual.getMinuteOfDay());
+    assertEquals(expected.getTotalCents(), actual.getTotalCents());
+    assertArrayEquals(expected.getItemDescriptions(), actual.getItemDescriptions());
+    assertArrayEquals(expected.getItemPriceCents(), actual.getItemPriceCents());
+  }
+
+  @Test
+  void testRoundTrip() throws ValidationException {
+
+    List<ReceiptRecord> decoded = ReceiptCodec.decode(ReceiptCodec.encode(List.of(TARGET, VENDING, TARGET)));
+
+    assertEquals(3, decoded.size());
+    assertRecordEquals(TARGET, decoded.get(0));
+    assertRecordEquals(VENDING, decoded.get(1));
+    assertRecordEquals(TARGET, decoded.get(2));
+  }
+
+  @Test
+  void testEncodingIsAFractionOfJson() {
+
+    int json = TARGET_JSON.getBytes(StandardCharsets.UTF_8).length;
+    int binary = ReceiptCodec.encode(List.of(TARGET)).length;
+    assertTrue(binary * 2.5 < json, binary + " bytes against " + json + " as JSON");
+
+    // Repeated retailer names and descriptions are sent once per message
+    List<ReceiptRecord> batch = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      batch.add(TARGET);
+    }
+    int batched = ReceiptCodec.encode(batch).length;
+    assertTrue(batched * 10 < json * 100, batched + " bytes against " + json * 100 + " as JSON");
+  }
+
+  @Test
+  void testSharedDictionaryRefersToNamesFromTheirFirstUse() {
+
+    ReceiptCodec.Dictionary dictionary = new ReceiptCodec.Dictionary(true, 2);
+    ReceiptCodec.Writer writer = new ReceiptCodec.Writer(16);
+    writer.writeReceipt(VENDING, dictionary);
+    int referenced = writer.size();
+    writer.writeReceipt(TARGET, dictionary);
+    writer.writeReceipt(VENDING, dictionary);
+    // The dictionary is full, so Target is written with literals that readers do not learn
+    assertEquals(2, dictionary.size());
+
+    ReceiptCodec.Reader reader = new ReceiptCodec.Reader(writer.toByteArray(), 0, writer.size());
+    assertRecordEquals(VENDING, reader.readReceipt(dictionary));
+    assertEquals(writer.size() - referenced, reader.remaining());
+    assertRecordEquals(TARGET, reader.readReceipt(dictionary));
+    assertRecordEquals(VENDING, reader.readReceipt(dictionary));
+    assertEquals(0, reader.remaining());
+    assertEquals(2, dictionary.size());
+  }
+
+  @Test
+  void testMalformedMessagesAreRejected() {
+
+    byte[] valid = ReceiptCodec.encode(List.of(TARGET));
+    assertMalformed("not a application/x-receipt message", "{}".getBytes(StandardCharsets.UTF_8));
+    assertMalformed("unsupported version 2", new byte[]{'R', 2, 0});
+    assertMalformed("truncated message", Arrays.copyOf(valid, valid.length - 1));
+    assertMalformed("trailing bytes", Arrays.copyOf(valid, valid.length + 1));
+    assertMalformed("receipt count 1000 exceeds the message size", new byte[]{'R', 1, (byte) 0xE8, 7, 0});
+    assertMalformed("unknown string reference 1", new byte[]{'R', 1, 1, 1, 0, 0, 0, 0, 0, 0});
+    assertMalformed("purchase time out of range", new byte[]{'R', 1, 1, 0, 0, 0, (byte) 0xA0, 0x0B, 0, 0});
+    assertMalformed("varint longer than 64 bits", new byte[]{'R', 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1});
+  }
+
+  @Test
+  void testNegativeValuesAreRejected() {
+
+    // The header, one receipt with an empty retailer dated 1970-01-01 at midnight, then the remaining fields
+    assertMalformed("receipt count -1 exceeds the message size", message(-1));
+    assertMalformed("negative string reference -1", message(1, -1));
+    assertMalformed("string of -1 bytes", message(1, 0, -1));
+    assertMalformed("purchase time out of range", message(1, 0, 0, 0, -1, 0, 0));
+    assertMalformed("negative total -1", message(1, 0, 0, 0, 0, -1, 0));
+    assertMalformed("item count -1 exceeds the message size", message(1, 0, 0, 0, 0, 0, -1));
+    assertMalformed("negative price -125", message(1, 0, 0, 0, 0, 0, 1, 0, 0, -125));
+  }
+
+  /**
+   * Encodes a message from its header and the given varints.
+   */
+  private static byte[] message(long... varints) {
+    ReceiptCodec.Writer writer = new ReceiptCodec.Writer(16);
+    // Both header bytes are below 0x80, so they encode as single-byte varints
+    writer.writeVarLong(ReceiptCodec.MAGIC);
+    writer.writeVarLong(ReceiptCodec.VERSION);
+    for (long varint : varints) {
+      writer.writeVarLong(varint);
+    }
+    return writer.toByteArray();
+  }
+
+  private static void assertMalformed(String message, byte[] body) {
+    ValidationException error = assertThrows(ValidationException.class, () -> ReceiptCodec.decode(body));
+    assertTrue(error.getMessage().contains(message), error.getMessage());
+  }
+}
@@ -0,0 +1,107 @@
+package com.fetch.receiptprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTest {
+
+  @Test
+  void testCapacityIsRoundedUpToPowerOfTwo() {
+
+    assertEquals(8, new RingBuffer<Integer>(5).capacity());
+    assertEquals(8, new RingBuffer<Integer>(8).capacity());
+    assertEquals(2, new RingBuffer<Integer>(1).capacity());
+    assertThrows(IllegalArgumentException.class, () -> new RingBuffer<Integer>(0));
+  }
+
+  @Test
+  void testFifoAndFullBuffer() {
+
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(buffer.offer(i));
+      }
+      assertFalse(buffer.offer(4));
+      assertEquals(4, buffer.size());
+      for (int i = 0; i < 4; i++) {
+        assertEquals(i, buffer.poll());
+      }
+      assertNull(buffer.poll());
+      assertEquals(0, buffer.size());
+    }
+  }
+
+  @Test
+  void testDrainTo() {
+
+    RingBuffer<Integer> buffer = new RingBuffer<>(8);
+    for (int i = 0; i < 5; i++) {
+      buffer.offer(i);
+    }
+    Integer[] target = new Integer[3];
+    assertEquals(3, buffer.drainTo(target, 3));
+    assertArrayEquals(new Integer[]{0, 1, 2}, target);
+    assertEquals(2, buffer.drainTo(target, 3));
+    assertEquals(0, buffer.drainTo(target, 3));
+  }
+
+  @Test
+  void testConcurrentProducersAndConsumers() throws Exception {
+
+    int producers = 4;
+    int perProducer = 10_000;
+    RingBuffer<Integer> buffer = new RingBuffer<>(64);
+    Set<Integer> seen = ConcurrentHashMap.newKeySet();
+    AtomicInteger consumed = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(producers + 2);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        int base = p * perProducer;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perProducer; i++) {
+            while (!buffer.offer(base + i)) {
+              Thread.yield();
+            }
+          }
+        }));
+      }
+      for (int c = 0; c < 2; c++) {
+        futures.add(executor.submit(() -> {
+          while (consumed.get() < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value == null) {
+              Thread.yield();
+            } else {
+              assertTrue(seen.add(value));
+              consumed.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(producers * perProducer, seen.size());
+    assertNull(buffer.poll());
+  }
+}